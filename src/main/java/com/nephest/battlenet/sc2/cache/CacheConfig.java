@@ -9,6 +9,7 @@ import java.util.List;
 import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
 import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -69,4 +70,11 @@ public class CacheConfig
         );
     }
 
+    @Bean(LadderScanCache.RESOLVER)
+    public CacheResolver ladderScanCacheResolver(LadderScanCache ladderScanCache)
+    {
+        List<LadderScanCache> caches = List.of(ladderScanCache);
+        return context->caches;
+    }
+
 }
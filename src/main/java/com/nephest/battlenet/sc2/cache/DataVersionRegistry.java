@@ -0,0 +1,120 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import com.nephest.battlenet.sc2.web.service.UpdateService;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ *     Data versions of (region, season) tuples. A version is bumped after every ladder update
+ *     that touched the tuple and after every {@link UpdateService} update cycle. Ladder update
+ *     versions are bumped by {@link LadderScanCache} after it evicts stale entries, so data
+ *     that is read with a new version is never served from stale cache entries. Null
+ *     components are wildcards, i.e. bumping a (region, null) version changes versions of all
+ *     seasons of that region.
+ * </p>
+ * <p>
+ *     Versions only grow while the application is running, so they can be used as strong
+ *     HTTP ETags. The registry epoch is a part of the ETag to make ETags of different
+ *     application runs distinct.
+ * </p>
+ */
+@Component
+public class DataVersionRegistry
+{
+
+    private final String epoch = Long.toString(SC2Pulse.instant().toEpochMilli(), 36);
+    private final Map<LadderCacheScope, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<LadderCacheScope, AtomicInteger> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param scopes touched scopes, queue types are ignored
+     */
+    public void bump(Collection<LadderCacheScope> scopes)
+    {
+        for(LadderCacheScope scope : scopes) bump(scope.region(), scope.season());
+    }
+
+    /**
+     * Evicts stale data of the touched scopes, and then bumps their versions. The scopes are
+     * pending while the eviction is running, see {@link #isPending(Collection)}. Versions are
+     * not bumped if the eviction fails.
+     *
+     * @param scopes touched scopes, queue types are ignored
+     * @param eviction evicts stale data of the scopes
+     */
+    public void update(Collection<LadderCacheScope> scopes, Runnable eviction)
+    {
+        Set<LadderCacheScope> versionScopes = scopes.stream()
+            .map(s->new LadderCacheScope(s.region(), s.season(), null))
+            .collect(Collectors.toSet());
+        for(LadderCacheScope scope : versionScopes)
+            pending.computeIfAbsent(scope, s->new AtomicInteger()).incrementAndGet();
+        try
+        {
+            eviction.run();
+            bump(versionScopes);
+        }
+        finally
+        {
+            for(LadderCacheScope scope : versionScopes) pending.get(scope).decrementAndGet();
+        }
+    }
+
+    /**
+     * @param scopes data dependencies, queue types are ignored
+     * @return true if stale data of any of the scopes is being evicted. Data that is read
+     * while the scopes are pending may be stale, and it should not be cached.
+     */
+    public boolean isPending(Collection<LadderCacheScope> scopes)
+    {
+        for(Map.Entry<LadderCacheScope, AtomicInteger> entry : pending.entrySet())
+            if(entry.getValue().get() > 0 && entry.getKey().overlaps(scopes)) return true;
+        return false;
+    }
+
+    /**
+     * @param region region, null for all regions
+     * @param season season battlenet id, null for all seasons
+     */
+    public void bump(@Nullable Region region, @Nullable Integer season)
+    {
+        versions.computeIfAbsent(new LadderCacheScope(region, season, null), s->new AtomicLong())
+            .incrementAndGet();
+    }
+
+    /**
+     * @param scopes data dependencies, queue types are ignored
+     * @return data version of the supplied scopes. The version is changed when any of the
+     * scopes is bumped.
+     */
+    public long getVersion(Collection<LadderCacheScope> scopes)
+    {
+        long version = 0;
+        for(Map.Entry<LadderCacheScope, AtomicLong> entry : versions.entrySet())
+            if(entry.getKey().overlaps(scopes)) version += entry.getValue().get();
+        return version;
+    }
+
+    /**
+     * @param scopes data dependencies, queue types are ignored
+     * @return quoted strong ETag of the supplied scopes
+     */
+    public String getETag(Collection<LadderCacheScope> scopes)
+    {
+        return "\"" + epoch + "-" + Long.toString(getVersion(scopes), 36) + "\"";
+    }
+
+}
@@ -0,0 +1,106 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.Season;
+import jakarta.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * (region, season, queue) tuple of a ladder cache entry or a ladder update. Null components
+ * are wildcards, i.e. an entry with a null region depends on all regions.
+ *
+ * @param region region
+ * @param season season battlenet id
+ * @param queueType queue type
+ */
+public record LadderCacheScope
+(
+    @Nullable Region region,
+    @Nullable Integer season,
+    @Nullable QueueType queueType
+)
+{
+
+    public static final LadderCacheScope GLOBAL = new LadderCacheScope(null, null, null);
+    /*
+        Only parameters with these names are considered to be season battlenet ids, other
+        integer parameters are ignored.
+     */
+    public static final Set<String> SEASON_PARAMETER_NAMES = Set.of("season", "battlenetId");
+
+    public boolean overlaps(LadderCacheScope scope)
+    {
+        return overlaps(region, scope.region())
+            && overlaps(season, scope.season())
+            && overlaps(queueType, scope.queueType());
+    }
+
+    private static boolean overlaps(Object left, Object right)
+    {
+        return left == null || right == null || Objects.equals(left, right);
+    }
+
+    public boolean overlaps(Collection<LadderCacheScope> scopes)
+    {
+        for(LadderCacheScope scope : scopes) if(overlaps(scope)) return true;
+        return false;
+    }
+
+    /**
+     * Derives the scope from method params. Unknown components are left as wildcards, so
+     * the derived scope is never narrower than the real dependencies of the cached value.
+     *
+     * @param method cached method
+     * @param params method params
+     * @return scope of the cached value
+     */
+    public static LadderCacheScope of(Method method, Object... params)
+    {
+        Region region = null;
+        Integer season = null;
+        QueueType queueType = null;
+        Parameter[] parameters = method.getParameters();
+        for(int i = 0; i < params.length; i++)
+        {
+            Object param = params[i];
+            if(param instanceof Season s)
+            {
+                region = s.getRegion();
+                season = s.getBattlenetId();
+            }
+            else if(param instanceof Region r)
+            {
+                region = r;
+            }
+            else if(param instanceof Collection<?> c
+                && c.size() == 1
+                && c.iterator().next() instanceof Region r)
+            {
+                region = r;
+            }
+            else if(param instanceof QueueType q)
+            {
+                queueType = q;
+            }
+            else if(param instanceof BaseLeague l)
+            {
+                queueType = l.getQueueType();
+            }
+            else if(param instanceof Integer n && SEASON_PARAMETER_NAMES.contains(parameters[i].getName()))
+            {
+                season = n;
+            }
+        }
+        return new LadderCacheScope(region, season, queueType);
+    }
+
+}
@@ -0,0 +1,221 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nephest.battlenet.sc2.model.BaseLeague.LeagueType;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.inner.LadderSnapshot;
+import com.nephest.battlenet.sc2.model.local.ladder.LadderTeam;
+import com.nephest.battlenet.sc2.model.local.ladder.PagedSearchResult;
+import com.nephest.battlenet.sc2.model.local.ladder.dao.LadderSearchDAO;
+import com.nephest.battlenet.sc2.service.EventService;
+import com.nephest.battlenet.sc2.web.service.LadderUpdateData;
+import com.nephest.battlenet.sc2.web.service.WebServiceUtil;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ *     In-memory {@link LadderSnapshot} cache that serves anchored ladder pages. Snapshots are
+ *     loaded lazily on first request and rebuilt after every ladder update that touched their
+ *     (season, queue). Team ids of a page are resolved in memory, team data is then loaded
+ *     by ids, so member, clan and pro player data is always fresh.
+ * </p>
+ * <p>
+ *     {@link LadderSearchDAO#findAnchored} is used when the cache is disabled.
+ * </p>
+ */
+@Component
+public class LadderPageCache
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LadderPageCache.class);
+
+    private final LadderSearchDAO ladderSearchDAO;
+    private final Cache<SnapshotKey, LadderSnapshot> cache;
+    private final LongAdder rebuilds = new LongAdder();
+    private boolean enabled;
+
+    @Autowired
+    public LadderPageCache
+    (
+        LadderSearchDAO ladderSearchDAO,
+        EventService eventService,
+        @Value("${com.nephest.battlenet.sc2.ladder.page.cache:#{'false'}}") boolean enabled,
+        @Value("${com.nephest.battlenet.sc2.ladder.page.cache.size:#{'12'}}") long maxSnapshots
+    )
+    {
+        this.ladderSearchDAO = ladderSearchDAO;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSnapshots)
+            .recordStats()
+            .build();
+        subToEvents(eventService);
+    }
+
+    private void subToEvents(EventService eventService)
+    {
+        eventService.getLadderUpdateEvent()
+            .flatMap(data->WebServiceUtil.getOnErrorLogAndSkipMono(Mono.fromRunnable(()->update(data))))
+            .subscribe();
+    }
+
+    public record SnapshotKey(int season, QueueType queueType, TeamType teamType)
+    {
+
+        public LadderCacheScope getScope()
+        {
+            return new LadderCacheScope(null, season, queueType);
+        }
+
+    }
+
+    public record Stats
+    (
+        long snapshots,
+        long teams,
+        long hits,
+        long misses,
+        long evictions,
+        long rebuilds
+    )
+    {
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        if(!enabled) cache.invalidateAll();
+        LOG.info("Ladder page cache: {}", enabled);
+    }
+
+    public Stats getStats()
+    {
+        CacheStats stats = cache.stats();
+        return new Stats
+        (
+            cache.estimatedSize(),
+            cache.asMap().values().stream().mapToLong(LadderSnapshot::size).sum(),
+            stats.hitCount(),
+            stats.missCount(),
+            stats.evictionCount(),
+            rebuilds.sum()
+        );
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    private LadderSnapshot load(SnapshotKey key)
+    {
+        long start = System.currentTimeMillis();
+        LadderSnapshot snapshot = ladderSearchDAO
+            .findSnapshot(key.season(), key.queueType(), key.teamType());
+        LOG.debug
+        (
+            "Loaded ladder snapshot {}, {} teams in {} ms",
+            key, snapshot.size(), System.currentTimeMillis() - start
+        );
+        return snapshot;
+    }
+
+    /**
+     * Same as {@link LadderSearchDAO#findAnchored}, but team ids are resolved in memory when
+     * the cache is enabled. Page size is measured in teams rather than in team members.
+     */
+    public PagedSearchResult<List<LadderTeam>> findAnchored
+    (
+        int season,
+        Set<Region> regions,
+        Set<LeagueType> leagueTypes,
+        QueueType queueType,
+        TeamType teamType,
+        long page,
+        long ratingAnchor,
+        long idAnchor,
+        int pageDiff
+    )
+    {
+        if(!enabled) return ladderSearchDAO.findAnchored
+        (
+            season,
+            regions,
+            leagueTypes,
+            queueType,
+            teamType,
+            page,
+            ratingAnchor,
+            idAnchor,
+            pageDiff
+        );
+
+        LadderSnapshot snapshot = cache.get(new SnapshotKey(season, queueType, teamType), this::load);
+        int resultsPerPage = ladderSearchDAO.getResultsPerPage();
+        List<Long> ids = snapshot.findAnchored
+        (
+            regions,
+            leagueTypes,
+            ratingAnchor,
+            idAnchor,
+            pageDiff > -1,
+            Math.max(0, (Math.abs(pageDiff) - 1) * resultsPerPage),
+            resultsPerPage
+        );
+        return new PagedSearchResult<>
+        (
+            null,
+            (long) resultsPerPage,
+            page + pageDiff,
+            ladderSearchDAO.findOrderedTeamsByIds(ids)
+        );
+    }
+
+    /**
+     * Rebuilds cached snapshots that were touched by a ladder update. Stale snapshots are
+     * served until new snapshots are loaded.
+     *
+     * @param data ladder update data
+     * @return number of rebuilt snapshots
+     */
+    public int update(LadderUpdateData data)
+    {
+        if(!enabled) return 0;
+
+        Set<LadderCacheScope> scopes = LadderScanCache.getScopes(data);
+        if(scopes.isEmpty()) return 0;
+
+        int rebuilt = 0;
+        for(SnapshotKey key : List.copyOf(cache.asMap().keySet()))
+        {
+            if(!key.getScope().overlaps(scopes)) continue;
+
+            cache.put(key, load(key));
+            rebuilds.increment();
+            rebuilt++;
+        }
+        LOG.debug("Rebuilt {} ladder snapshots", rebuilt);
+        return rebuilt;
+    }
+
+}
@@ -0,0 +1,307 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.service.EventService;
+import com.nephest.battlenet.sc2.web.service.LadderUpdateData;
+import com.nephest.battlenet.sc2.web.service.LadderUpdateTaskContext;
+import com.nephest.battlenet.sc2.web.service.PendingLadderData;
+import com.nephest.battlenet.sc2.web.service.WebServiceUtil;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ *     Decorator of the "fqdn-ladder-scan" cache. Entries are keyed by {@link LadderScanKey},
+ *     which allows targeted invalidation of the (region, season, queue) tuples that were touched
+ *     by a ladder update instead of evicting all entries. Ladder update events emitted by
+ *     {@link EventService} are used to invalidate entries. {@link DataVersionRegistry} versions
+ *     of the touched scopes are bumped after the entries are evicted.
+ * </p>
+ * <p>
+ *     Hit/miss/eviction stats are collected per logical cache region. Use this cache via
+ *     {@link #RESOLVER} cache resolver and {@link #KEY_GENERATOR} key generator.
+ * </p>
+ */
+@Component
+public class LadderScanCache
+implements Cache
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LadderScanCache.class);
+
+    public static final String NAME = "fqdn-ladder-scan";
+    public static final String RESOLVER = "ladderScanCacheResolver";
+    public static final String KEY_GENERATOR = "ladderScanKeyGenerator";
+    public static final String DEFAULT_CACHE_REGION = "other";
+
+    private final ObjectProvider<CacheManager> cacheManager;
+    private final DataVersionRegistry dataVersionRegistry;
+    private final Map<String, RegionStats> stats = new ConcurrentHashMap<>();
+    private Cache delegate;
+
+    @Autowired
+    public LadderScanCache
+    (
+        ObjectProvider<CacheManager> cacheManager,
+        DataVersionRegistry dataVersionRegistry,
+        EventService eventService
+    )
+    {
+        this.cacheManager = cacheManager;
+        this.dataVersionRegistry = dataVersionRegistry;
+        subToEvents(eventService);
+    }
+
+    private void subToEvents(EventService eventService)
+    {
+        eventService.getLadderUpdateEvent()
+            .flatMap(data->WebServiceUtil.getOnErrorLogAndSkipMono(Mono.fromRunnable(()->
+                update(getScopes(data)))))
+            .subscribe();
+    }
+
+    /**
+     * Evicts entries of the touched scopes, and then bumps their data versions. A single
+     * subscriber does both, so versions are never bumped before stale entries are evicted.
+     *
+     * @param scopes touched scopes
+     */
+    public void update(Collection<LadderCacheScope> scopes)
+    {
+        dataVersionRegistry.update(scopes, ()->evict(scopes));
+    }
+
+    public record CacheRegionStats(long hits, long misses, long evictions)
+    {
+    }
+
+    private static class RegionStats
+    {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public CacheRegionStats snapshot()
+        {
+            return new CacheRegionStats(hits.sum(), misses.sum(), evictions.sum());
+        }
+
+    }
+
+    public static Set<LadderCacheScope> getScopes(LadderUpdateData data)
+    {
+        Set<LadderCacheScope> scopes = new HashSet<>();
+        for(Map<Region, LadderUpdateTaskContext<Void>> contexts : data.getContexts())
+            for(LadderUpdateTaskContext<Void> context : contexts.values())
+                for(QueueType queueType : context.getData().keySet())
+                    scopes.add(new LadderCacheScope
+                    (
+                        context.getSeason().getRegion(),
+                        context.getSeason().getBattlenetId(),
+                        queueType
+                    ));
+        //stats are recalculated for all regions and queues of these seasons
+        for(PendingLadderData pending : data.getData())
+            for(Integer season : pending.getStatsUpdates())
+                scopes.add(new LadderCacheScope(null, season, null));
+        return scopes;
+    }
+
+    /**
+     * Evicts all entries that overlap with any of the supplied scopes.
+     *
+     * @param scopes touched scopes
+     * @return number of evicted entries
+     */
+    public int evict(Collection<LadderCacheScope> scopes)
+    {
+        if(scopes.isEmpty()) return 0;
+
+        int evicted = 0;
+        if(getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache)
+        {
+            for(Object key : caffeineCache.asMap().keySet())
+            {
+                if(key instanceof LadderScanKey ladderKey && !ladderKey.scope().overlaps(scopes)) continue;
+                if(caffeineCache.asMap().remove(key) == null) continue;
+
+                getStats(key).evictions.increment();
+                evicted++;
+            }
+        }
+        else
+        {
+            //targeted invalidation is not supported, fall back to full eviction
+            clear();
+        }
+        LOG.debug("Evicted {} ladder scan cache entries, scopes: {}", evicted, scopes);
+        return evicted;
+    }
+
+    private Cache getDelegate()
+    {
+        if(delegate == null)
+        {
+            //caching is disabled
+            CacheManager manager = cacheManager.getIfAvailable();
+            delegate = manager == null
+                ? new NoOpCache(NAME)
+                : Objects.requireNonNull(manager.getCache(NAME), "Cache not found: " + NAME);
+        }
+        return delegate;
+    }
+
+    private RegionStats getStats(Object key)
+    {
+        return stats.computeIfAbsent
+        (
+            key instanceof LadderScanKey ladderKey ? ladderKey.cacheRegion() : DEFAULT_CACHE_REGION,
+            r->new RegionStats()
+        );
+    }
+
+    private <T> T recordHit(Object key, T result)
+    {
+        RegionStats regionStats = getStats(key);
+        if(result != null)
+        {
+            regionStats.hits.increment();
+        }
+        else
+        {
+            regionStats.misses.increment();
+        }
+        return result;
+    }
+
+    public Map<String, CacheRegionStats> getStats()
+    {
+        Map<String, CacheRegionStats> result = new TreeMap<>();
+        stats.forEach((region, regionStats)->result.put(region, regionStats.snapshot()));
+        return result;
+    }
+
+    @Override @NotNull
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override @NotNull
+    public Object getNativeCache()
+    {
+        return getDelegate().getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(@NotNull Object key)
+    {
+        return recordHit(key, getDelegate().get(key));
+    }
+
+    @Override
+    public <T> T get(@NotNull Object key, Class<T> type)
+    {
+        return recordHit(key, getDelegate().get(key, type));
+    }
+
+    @Override
+    public <T> T get(@NotNull Object key, @NotNull Callable<T> valueLoader)
+    {
+        boolean[] loaded = new boolean[1];
+        T result = getDelegate().get(key, ()->
+        {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        if(loaded[0])
+        {
+            getStats(key).misses.increment();
+        }
+        else
+        {
+            getStats(key).hits.increment();
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<?> retrieve(@NotNull Object key)
+    {
+        return recordHit(key, getDelegate().retrieve(key));
+    }
+
+    @Override @NotNull
+    public <T> CompletableFuture<T> retrieve
+    (
+        @NotNull Object key,
+        @NotNull Supplier<CompletableFuture<T>> valueLoader
+    )
+    {
+        return getDelegate().retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(@NotNull Object key, Object value)
+    {
+        getDelegate().put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(@NotNull Object key, Object value)
+    {
+        return getDelegate().putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(@NotNull Object key)
+    {
+        getDelegate().evict(key);
+        getStats(key).evictions.increment();
+    }
+
+    @Override
+    public boolean evictIfPresent(@NotNull Object key)
+    {
+        boolean evicted = getDelegate().evictIfPresent(key);
+        if(evicted) getStats(key).evictions.increment();
+        return evicted;
+    }
+
+    @Override
+    public void clear()
+    {
+        getDelegate().clear();
+    }
+
+    @Override
+    public boolean invalidate()
+    {
+        return getDelegate().invalidate();
+    }
+
+}
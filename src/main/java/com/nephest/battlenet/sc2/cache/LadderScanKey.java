@@ -0,0 +1,20 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+/**
+ * Ladder scan cache key.
+ *
+ * @param cacheRegion logical cache region, used for stats
+ * @param scope ladder scope, used for targeted invalidation
+ * @param key unique key
+ */
+public record LadderScanKey
+(
+    String cacheRegion,
+    LadderCacheScope scope,
+    Object key
+)
+{
+}
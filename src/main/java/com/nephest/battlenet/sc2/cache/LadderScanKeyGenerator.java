@@ -0,0 +1,47 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import java.lang.reflect.Method;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Generates {@link LadderScanKey} keys. The unique part of the key is generated by
+ * {@link FQDNSimpleKeyGenerator}, the logical cache region is the simple name of the target
+ * class, the scope is derived from method params via {@link LadderCacheScope#of(Method, Object...)}.
+ */
+@Component(LadderScanCache.KEY_GENERATOR)
+public class LadderScanKeyGenerator
+implements KeyGenerator
+{
+
+    private final FQDNSimpleKeyGenerator fqdnSimpleKeyGenerator;
+
+    @Autowired
+    public LadderScanKeyGenerator(FQDNSimpleKeyGenerator fqdnSimpleKeyGenerator)
+    {
+        this.fqdnSimpleKeyGenerator = fqdnSimpleKeyGenerator;
+    }
+
+    @Override @NotNull
+    public Object generate
+    (
+        @NotNull Object target,
+        @NotNull Method method,
+        Object @NotNull ... params
+    )
+    {
+        return new LadderScanKey
+        (
+            ClassUtils.getUserClass(target).getSimpleName(),
+            LadderCacheScope.of(method, params),
+            fqdnSimpleKeyGenerator.generate(target, method, params)
+        );
+    }
+
+}
@@ -0,0 +1,185 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nephest.battlenet.sc2.web.service.MapService;
+import com.nephest.battlenet.sc2.web.service.WebServiceUtil;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ *     Cache of final response bodies. Bodies are stored in identity and gzip encodings, so
+ *     cached responses are neither serialized nor compressed again. Keys are built by the
+ *     caller and must contain the data version of the response, stale entries are never
+ *     requested again and are evicted when the memory budget is exceeded.
+ * </p>
+ * <p>
+ *     Map stats are updated by match updates rather than ladder updates, their entries are
+ *     invalidated after {@link MapService} updates.
+ * </p>
+ */
+@Component
+public class ResponseBodyCache
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResponseBodyCache.class);
+
+    public static final String MAP_STATS_PATH = "/api/ladder/stats/map";
+
+    private final Cache<String, EncodedResponse> cache;
+    private boolean enabled;
+
+    @Autowired
+    public ResponseBodyCache
+    (
+        MapService mapService,
+        @Value("${com.nephest.battlenet.sc2.response.cache:#{'false'}}") boolean enabled,
+        @Value("${com.nephest.battlenet.sc2.response.cache.size:#{'67108864'}}") long maxBytes
+    )
+    {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, EncodedResponse response)->key.length() + response.size())
+            .recordStats()
+            .build();
+        subToEvents(mapService);
+    }
+
+    private void subToEvents(MapService mapService)
+    {
+        mapService.getUpdateEvent()
+            .flatMap(uc->WebServiceUtil.getOnErrorLogAndSkipMono(Mono.fromRunnable(()->
+                invalidate(MAP_STATS_PATH))))
+            .subscribe();
+    }
+
+    /**
+     * Encoded response body. Buffers are heap buffers that are shared between requests, they
+     * must not be modified. Use {@link ByteBuffer#duplicate()} and the backing array to write
+     * them without copying.
+     *
+     * @param contentType content type
+     * @param identity identity encoded body
+     * @param gzip gzip encoded body
+     */
+    public record EncodedResponse(String contentType, ByteBuffer identity, ByteBuffer gzip)
+    {
+
+        public int size()
+        {
+            return identity.capacity() + gzip.capacity();
+        }
+
+    }
+
+    public record Stats
+    (
+        long entries,
+        long bytes,
+        long hits,
+        long misses,
+        long evictions,
+        long evictedBytes
+    )
+    {
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        if(!enabled) cache.invalidateAll();
+        LOG.info("Response body cache: {}", enabled);
+    }
+
+    public Stats getStats()
+    {
+        CacheStats stats = cache.stats();
+        return new Stats
+        (
+            cache.estimatedSize(),
+            cache.asMap().values().stream().mapToLong(EncodedResponse::size).sum(),
+            stats.hitCount(),
+            stats.missCount(),
+            stats.evictionCount(),
+            stats.evictionWeight()
+        );
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @param path path prefix of the keys that should be invalidated
+     * @return number of invalidated entries
+     */
+    public int invalidate(String path)
+    {
+        int invalidated = 0;
+        for(String key : cache.asMap().keySet())
+            if(key.startsWith(path) && cache.asMap().remove(key) != null) invalidated++;
+        LOG.debug("Invalidated {} {} response bodies", invalidated, path);
+        return invalidated;
+    }
+
+    public EncodedResponse get(String key)
+    {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Encodes and caches a response body.
+     *
+     * @param key cache key, must start with the request path
+     * @param contentType content type
+     * @param body identity encoded body
+     * @return cached response
+     */
+    public EncodedResponse put(String key, String contentType, byte[] body)
+    {
+        EncodedResponse response = new EncodedResponse
+        (
+            contentType,
+            ByteBuffer.wrap(body),
+            ByteBuffer.wrap(gzip(body))
+        );
+        cache.put(key, response);
+        return response;
+    }
+
+    public static byte[] gzip(byte[] body)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, body.length / 4));
+        try(GZIPOutputStream gzip = new GZIPOutputStream(out))
+        {
+            gzip.write(body);
+        }
+        catch(IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,390 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import com.nephest.battlenet.sc2.model.BasePlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
+import com.nephest.battlenet.sc2.model.local.dao.ClanDAO;
+import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
+import com.nephest.battlenet.sc2.model.local.inner.PrefixIndex;
+import com.nephest.battlenet.sc2.service.EventService;
+import com.nephest.battlenet.sc2.util.SingleRunnable;
+import com.nephest.battlenet.sc2.web.service.WebServiceUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ *     In-memory {@link PrefixIndex} of character names, BattleTags, and clan tags that serves
+ *     search suggestions. Indexes are loaded on startup and rebuilt by {@link #rebuild()}.
+ *     Names of active characters are added incrementally to a small overlay that is merged
+ *     on every search, overlay names are ranked after indexed names because their rating is
+ *     unknown until the next rebuild.
+ * </p>
+ * <p>
+ *     Anonymized names are excluded from indexes. Names and BattleTags that are anonymized
+ *     between rebuilds are {@link #remove(Collection, Collection) removed} immediately, they
+ *     are filtered out of search results until the next rebuild. DAO queries are used when
+ *     the index is disabled or not loaded yet.
+ * </p>
+ */
+@Component
+public class SearchSuggestionIndex
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(SearchSuggestionIndex.class);
+
+    public static final String NAME_DISCRIMINATOR_MARKER = "#";
+
+    private final AccountDAO accountDAO;
+    private final PlayerCharacterDAO playerCharacterDAO;
+    private final ClanDAO clanDAO;
+    private final int maxOverlaySize;
+    private final SingleRunnable rebuildTask;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+    //"lower case name\0name" -> name, so names are grouped by case-insensitive prefixes
+    private final ConcurrentSkipListMap<String, String> nameOverlay = new ConcurrentSkipListMap<>();
+    //removed values, same keys as in the overlay
+    private final ConcurrentSkipListMap<String, String> removedNames = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, String> removedBattleTags = new ConcurrentSkipListMap<>();
+    private final LongAdder rebuilds = new LongAdder();
+    private volatile Indexes indexes;
+    private volatile long lastRebuildMillis;
+    private boolean enabled;
+
+    @Autowired
+    public SearchSuggestionIndex
+    (
+        AccountDAO accountDAO,
+        PlayerCharacterDAO playerCharacterDAO,
+        ClanDAO clanDAO,
+        EventService eventService,
+        @Qualifier("secondaryDbExecutorService") ExecutorService executor,
+        @Value("${com.nephest.battlenet.sc2.search.suggestion.index:#{'false'}}") boolean enabled,
+        @Value("${com.nephest.battlenet.sc2.search.suggestion.index.overlay.size:#{'100000'}}") int maxOverlaySize
+    )
+    {
+        this.accountDAO = accountDAO;
+        this.playerCharacterDAO = playerCharacterDAO;
+        this.clanDAO = clanDAO;
+        this.maxOverlaySize = maxOverlaySize;
+        this.rebuildTask = new SingleRunnable(this::doRebuild, executor);
+        this.enabled = enabled;
+        subToEvents(eventService);
+        if(enabled) rebuild();
+    }
+
+    private void subToEvents(EventService eventService)
+    {
+        eventService.getLadderCharacterActivityEvent()
+            .flatMap(c->WebServiceUtil.getOnErrorLogAndSkipMono(Mono.fromRunnable(()->addCharacters(List.of(c)))))
+            .subscribe();
+    }
+
+    private record Indexes(PrefixIndex names, PrefixIndex battleTags, PrefixIndex clanTags)
+    {
+    }
+
+    public record Stats
+    (
+        boolean loaded,
+        long names,
+        long battleTags,
+        long clanTags,
+        long overlayNames,
+        long removed,
+        long heavyPrefixes,
+        long bytes,
+        long rebuilds,
+        long lastRebuildMillis
+    )
+    {
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        if(enabled)
+        {
+            if(indexes == null) rebuild();
+        }
+        else
+        {
+            indexes = null;
+            nameOverlay.clear();
+            removedNames.clear();
+            removedBattleTags.clear();
+        }
+        LOG.info("Search suggestion index: {}", enabled);
+    }
+
+    /**
+     * @return true if search suggestions are served by the index, false if they are served by
+     * DAO queries
+     */
+    public boolean isLoaded()
+    {
+        return getIndexes() != null;
+    }
+
+    public Stats getStats()
+    {
+        Indexes current = indexes;
+        long removed = removedNames.size() + removedBattleTags.size();
+        if(current == null) return new Stats
+        (
+            false, 0, 0, 0,
+            nameOverlay.size(), removed, 0, 0,
+            rebuilds.sum(), lastRebuildMillis
+        );
+
+        return new Stats
+        (
+            true,
+            current.names().size(),
+            current.battleTags().size(),
+            current.clanTags().size(),
+            nameOverlay.size(),
+            removed,
+            current.names().getHeavyPrefixCount()
+                + current.battleTags().getHeavyPrefixCount()
+                + current.clanTags().getHeavyPrefixCount(),
+            current.names().getBytes() + current.battleTags().getBytes() + current.clanTags().getBytes(),
+            rebuilds.sum(),
+            lastRebuildMillis
+        );
+    }
+
+    /**
+     * Rebuilds indexes in background if the index is enabled. The rebuild is repeated if
+     * it was requested while the previous rebuild was running, so the data that was changed
+     * before this call is never served after the rebuild.
+     */
+    public void rebuild()
+    {
+        if(!enabled) return;
+
+        rebuildPending.set(true);
+        rebuildTask.tryRun();
+    }
+
+    public SingleRunnable getRebuildTask()
+    {
+        return rebuildTask;
+    }
+
+    private void doRebuild()
+    {
+        try
+        {
+            while(enabled && rebuildPending.getAndSet(false)) doRebuildOnce();
+        }
+        catch(RuntimeException ex)
+        {
+            LOG.error(ex.getMessage(), ex);
+        }
+    }
+
+    private void doRebuildOnce()
+    {
+        long start = System.currentTimeMillis();
+        //values that were removed before the rebuild are not in the DB indexes
+        List<String> removedNameKeys = List.copyOf(removedNames.keySet());
+        List<String> removedBattleTagKeys = List.copyOf(removedBattleTags.keySet());
+        Indexes rebuilt = new Indexes
+        (
+            playerCharacterDAO.findNameWithoutDiscriminatorIndex(),
+            accountDAO.findBattleTagIndex(),
+            clanDAO.findTagIndex()
+        );
+        if(!enabled) return;
+
+        indexes = rebuilt;
+        removedNameKeys.forEach(removedNames::remove);
+        removedBattleTagKeys.forEach(removedBattleTags::remove);
+        nameOverlay.values().removeIf(rebuilt.names()::contains);
+        //names that are not in the DB index yet can accumulate, drop them if there are too many
+        if(nameOverlay.size() >= maxOverlaySize) nameOverlay.clear();
+        rebuilds.increment();
+        lastRebuildMillis = System.currentTimeMillis() - start;
+        LOG.info
+        (
+            "Rebuilt search suggestion index: {} names, {} BattleTags, {} clan tags in {} ms",
+            rebuilt.names().size(),
+            rebuilt.battleTags().size(),
+            rebuilt.clanTags().size(),
+            lastRebuildMillis
+        );
+    }
+
+    /**
+     * Adds names of characters to the index. Names are searchable immediately and are
+     * ranked by rating after the next rebuild.
+     *
+     * @param characters characters
+     * @return number of added names
+     */
+    public int addCharacters(Collection<? extends PlayerCharacter> characters)
+    {
+        Indexes current = indexes;
+        if(current == null) return 0;
+
+        int added = 0;
+        for(PlayerCharacter character : characters)
+        {
+            String name = getNameWithoutDiscriminator(character.getName());
+            if(name == null || name.equals(BasePlayerCharacter.DEFAULT_FAKE_NAME)) continue;
+
+            //the name is used again
+            removedNames.remove(toKey(name));
+            if(current.names().contains(name)) continue;
+
+            if(nameOverlay.size() >= maxOverlaySize)
+            {
+                rebuild();
+                break;
+            }
+            if(nameOverlay.putIfAbsent(toKey(name), name) == null) added++;
+        }
+        return added;
+    }
+
+    /**
+     * Removes anonymized names and BattleTags from the index. Removed values are excluded
+     * from search results immediately, and are dropped from the index by the rebuild that is
+     * triggered by this method. Only values that are no longer used by other characters and
+     * accounts should be removed.
+     *
+     * @param names names without discriminator
+     * @param battleTags BattleTags
+     */
+    public void remove(Collection<String> names, Collection<String> battleTags)
+    {
+        if(!enabled || (names.isEmpty() && battleTags.isEmpty())) return;
+
+        for(String name : names)
+        {
+            String key = toKey(name);
+            removedNames.put(key, name);
+            nameOverlay.remove(key);
+        }
+        for(String battleTag : battleTags) removedBattleTags.put(toKey(battleTag), battleTag);
+        LOG.debug("Removed {} names and {} BattleTags from search suggestions", names.size(), battleTags.size());
+        rebuild();
+    }
+
+    private static String toKey(String value)
+    {
+        return PrefixIndex.toKey(value) + "\0" + value;
+    }
+
+    private static String getNameWithoutDiscriminator(String name)
+    {
+        if(name == null) return null;
+
+        int ix = name.indexOf(NAME_DISCRIMINATOR_MARKER);
+        return ix < 0 ? null : name.substring(0, ix);
+    }
+
+    /**
+     * Same as {@link PlayerCharacterDAO#findNamesWithoutDiscriminator(String, int)}
+     */
+    public List<String> findNamesWithoutDiscriminator(String name, int limit)
+    {
+        Indexes current = getIndexes();
+        if(current == null) return playerCharacterDAO.findNamesWithoutDiscriminator(name, limit);
+
+        return merge(find(current.names(), removedNames, name, limit), nameOverlay, name, limit);
+    }
+
+    /**
+     * Same as {@link AccountDAO#findBattleTags(String, int)}
+     */
+    public List<String> findBattleTags(String battleTag, int limit)
+    {
+        Indexes current = getIndexes();
+        return current == null
+            ? accountDAO.findBattleTags(battleTag, limit)
+            : find(current.battleTags(), removedBattleTags, battleTag, limit);
+    }
+
+    /**
+     * Same as {@link ClanDAO#findTags(String, int)}
+     */
+    public List<String> findClanTags(String tag, int limit)
+    {
+        Indexes current = getIndexes();
+        return current == null
+            ? clanDAO.findTags(tag, limit)
+            : current.clanTags().find(tag, limit);
+    }
+
+    private Indexes getIndexes()
+    {
+        return enabled ? indexes : null;
+    }
+
+    private static List<String> find
+    (
+        PrefixIndex index,
+        ConcurrentSkipListMap<String, String> removed,
+        String prefix,
+        int limit
+    )
+    {
+        if(removed.isEmpty()) return index.find(prefix, limit);
+
+        Set<String> removedValues = new HashSet<>();
+        String key = PrefixIndex.toKey(prefix);
+        for(Map.Entry<String, String> entry : removed.tailMap(key, true).entrySet())
+        {
+            if(!entry.getKey().startsWith(key)) break;
+            removedValues.add(entry.getValue());
+        }
+        return index.find(prefix, limit, removedValues);
+    }
+
+    private static List<String> merge
+    (
+        List<String> indexed,
+        ConcurrentSkipListMap<String, String> overlay,
+        String prefix,
+        int limit
+    )
+    {
+        if(indexed.size() >= limit || overlay.isEmpty()) return indexed;
+
+        List<String> result = new ArrayList<>(indexed);
+        String key = PrefixIndex.toKey(prefix);
+        for(Map.Entry<String, String> entry : overlay.tailMap(key, true).entrySet())
+        {
+            if(!entry.getKey().startsWith(key)) break;
+            result.add(entry.getValue());
+            if(result.size() >= limit) break;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,221 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.Season;
+import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ *     In-memory snapshot of all seasons that serves season metadata lookups of hot paths
+ *     and filters. The snapshot is immutable and is loaded lazily, it is replaced by
+ *     {@link #reload()} when seasons are changed. Returned seasons are shared between callers
+ *     and must not be modified.
+ * </p>
+ * <p>
+ *     {@link SeasonDAO} queries are used when the registry is disabled.
+ * </p>
+ */
+@Component
+public class SeasonRegistry
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeasonRegistry.class);
+
+    public static final Comparator<Season> SEASON_COMPARATOR = Comparator
+        .comparing(Season::getBattlenetId, Comparator.reverseOrder())
+        .thenComparing(s->s.getRegion().getId(), Comparator.reverseOrder());
+
+    private final SeasonDAO seasonDAO;
+    private final LongAdder reloads = new LongAdder();
+    private volatile Snapshot snapshot;
+    private boolean enabled;
+
+    @Autowired
+    public SeasonRegistry
+    (
+        SeasonDAO seasonDAO,
+        @Value("${com.nephest.battlenet.sc2.season.registry:#{'false'}}") boolean enabled
+    )
+    {
+        this.seasonDAO = seasonDAO;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param all all seasons ordered by {@link #SEASON_COMPARATOR}
+     * @param byRegion region seasons ordered by battlenet id DESC
+     * @param byBattlenetId seasons with the same battlenet id ordered by region DESC
+     * @param byRegionAndBattlenetId region -> battlenet id -> season
+     * @param maxBattlenetIds region -> max battlenet id
+     * @param maxBattlenetId max battlenet id across all regions
+     */
+    private record Snapshot
+    (
+        List<Season> all,
+        Map<Region, List<Season>> byRegion,
+        Map<Integer, List<Season>> byBattlenetId,
+        Map<Region, Map<Integer, Season>> byRegionAndBattlenetId,
+        Map<Region, Integer> maxBattlenetIds,
+        Integer maxBattlenetId
+    )
+    {
+
+        public static Snapshot of(List<Season> seasons)
+        {
+            List<Season> all = new ArrayList<>(seasons);
+            all.sort(SEASON_COMPARATOR);
+
+            Map<Region, List<Season>> byRegion = new EnumMap<>(Region.class);
+            Map<Integer, List<Season>> byBattlenetId = new HashMap<>();
+            Map<Region, Map<Integer, Season>> byRegionAndBattlenetId = new EnumMap<>(Region.class);
+            Map<Region, Integer> maxBattlenetIds = new EnumMap<>(Region.class);
+            for(Season season : all)
+            {
+                byRegion.computeIfAbsent(season.getRegion(), r->new ArrayList<>()).add(season);
+                byBattlenetId.computeIfAbsent(season.getBattlenetId(), id->new ArrayList<>()).add(season);
+                byRegionAndBattlenetId.computeIfAbsent(season.getRegion(), r->new HashMap<>())
+                    .put(season.getBattlenetId(), season);
+                //seasons are sorted, the first region season has the max battlenet id
+                maxBattlenetIds.putIfAbsent(season.getRegion(), season.getBattlenetId());
+            }
+            byRegion.replaceAll((region, list)->List.copyOf(list));
+            byBattlenetId.replaceAll((id, list)->List.copyOf(list));
+            byRegionAndBattlenetId.replaceAll((region, map)->Map.copyOf(map));
+            return new Snapshot
+            (
+                List.copyOf(all),
+                byRegion,
+                Map.copyOf(byBattlenetId),
+                byRegionAndBattlenetId,
+                maxBattlenetIds,
+                all.isEmpty() ? null : all.get(0).getBattlenetId()
+            );
+        }
+
+    }
+
+    public record Stats(boolean loaded, int seasons, long reloads)
+    {
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        if(!enabled) snapshot = null;
+        LOG.info("Season registry: {}", enabled);
+    }
+
+    public Stats getStats()
+    {
+        Snapshot current = snapshot;
+        return new Stats(current != null, current == null ? 0 : current.all().size(), reloads.sum());
+    }
+
+    /**
+     * Loads a new snapshot if the registry is enabled. Must be called after seasons are
+     * changed.
+     */
+    public synchronized void reload()
+    {
+        if(!enabled) return;
+
+        snapshot = Snapshot.of(seasonDAO.findAll());
+        reloads.increment();
+        LOG.debug("Reloaded season registry: {} seasons", snapshot.all().size());
+    }
+
+    private Snapshot getSnapshot()
+    {
+        if(!enabled) return null;
+
+        Snapshot current = snapshot;
+        if(current == null)
+        {
+            synchronized(this)
+            {
+                if(snapshot == null) reload();
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Same as {@link SeasonDAO#find(Region, int)}
+     */
+    public Optional<Season> find(Region region, int battlenetId)
+    {
+        Snapshot current = getSnapshot();
+        if(current == null) return seasonDAO.find(region, battlenetId);
+
+        Map<Integer, Season> seasons = current.byRegionAndBattlenetId().get(region);
+        return seasons == null ? Optional.empty() : Optional.ofNullable(seasons.get(battlenetId));
+    }
+
+    /**
+     * Same as {@link SeasonDAO#findListByRegion(Region)}
+     */
+    public List<Season> findListByRegion(Region region)
+    {
+        Snapshot current = getSnapshot();
+        return current == null
+            ? seasonDAO.findListByRegion(region)
+            : current.byRegion().getOrDefault(region, List.of());
+    }
+
+    /**
+     * Same as {@link SeasonDAO#findListByBattlenetId(Integer)}
+     */
+    public List<Season> findListByBattlenetId(@Nullable Integer battlenetId)
+    {
+        Snapshot current = getSnapshot();
+        if(current == null) return seasonDAO.findListByBattlenetId(battlenetId);
+
+        return battlenetId == null
+            ? current.all()
+            : current.byBattlenetId().getOrDefault(battlenetId, List.of());
+    }
+
+    /**
+     * Same as {@link SeasonDAO#getMaxBattlenetId()}
+     */
+    public Integer getMaxBattlenetId()
+    {
+        Snapshot current = getSnapshot();
+        return current == null ? seasonDAO.getMaxBattlenetId() : current.maxBattlenetId();
+    }
+
+    /**
+     * Same as {@link SeasonDAO#getMaxBattlenetId(Region)}
+     */
+    public Integer getMaxBattlenetId(Region region)
+    {
+        Snapshot current = getSnapshot();
+        return current == null
+            ? seasonDAO.getMaxBattlenetId(region)
+            : current.maxBattlenetIds().get(region);
+    }
+
+}
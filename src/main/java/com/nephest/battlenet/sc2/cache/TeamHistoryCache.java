@@ -0,0 +1,516 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nephest.battlenet.sc2.model.local.inner.ColumnarTeamHistory;
+import com.nephest.battlenet.sc2.model.local.inner.RawTeamHistoryHistoryData;
+import com.nephest.battlenet.sc2.model.local.inner.RawTeamHistoryStaticData;
+import com.nephest.battlenet.sc2.model.local.inner.RawTeamHistorySummaryData;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistory;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.GroupMode;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.HistoryColumn;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.StaticColumn;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.SummaryColumn;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistorySummary;
+import com.nephest.battlenet.sc2.web.service.LadderUpdateData;
+import com.nephest.battlenet.sc2.web.service.PendingLadderData;
+import com.nephest.battlenet.sc2.web.service.TeamStateService;
+import com.nephest.battlenet.sc2.web.service.WebServiceUtil;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ *     In-memory columnar cache of full team histories that serves {@link TeamHistoryDAO}
+ *     history and summary projections. Histories are loaded lazily on first request,
+ *     new states are appended after {@link TeamStateService} ladder updates, entries are
+ *     evicted when the total number of cached states exceeds the configured size. Expired
+ *     states are trimmed from cached histories when they are removed, see
+ *     {@link TeamStateService#getExpiredEvent()}. All histories are evicted when existing
+ *     histories are rewritten, see {@link TeamStateService#getHistoryRevision()}.
+ * </p>
+ * <p>
+ *     SQL queries of {@link TeamHistoryDAO} are used when the cache is disabled.
+ * </p>
+ */
+@Component
+public class TeamHistoryCache
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(TeamHistoryCache.class);
+
+    public static final int APPEND_BATCH_SIZE = 1000;
+    private static final Comparator<Row> ROW_COMPARATOR = Comparator
+        .comparingLong(Row::timestamp)
+        .thenComparingLong(row->row.history().getTeamId());
+
+    private final TeamHistoryDAO teamHistoryDAO;
+    private final TeamStateService teamStateService;
+    private final Cache<Long, ColumnarTeamHistory> cache;
+    private final AtomicLong revision;
+    private boolean enabled;
+
+    @Autowired
+    public TeamHistoryCache
+    (
+        TeamHistoryDAO teamHistoryDAO,
+        TeamStateService teamStateService,
+        @Value("${com.nephest.battlenet.sc2.team.history.cache:#{'false'}}") boolean enabled,
+        @Value("${com.nephest.battlenet.sc2.team.history.cache.size:#{'2000000'}}") long maxStates
+    )
+    {
+        this.teamHistoryDAO = teamHistoryDAO;
+        this.teamStateService = teamStateService;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxStates)
+            .weigher((Long id, ColumnarTeamHistory history)->history.size() + 1)
+            .recordStats()
+            .build();
+        this.revision = new AtomicLong(teamStateService.getHistoryRevision());
+        subToEvents();
+    }
+
+    private void subToEvents()
+    {
+        teamStateService.getUpdateEvent()
+            .flatMap(data->WebServiceUtil.getOnErrorLogAndSkipMono(Mono.fromRunnable(()->update(data))))
+            .subscribe();
+        teamStateService.getExpiredEvent()
+            .flatMap(range->WebServiceUtil.getOnErrorLogAndSkipMono(Mono.fromRunnable(()->trim(range))))
+            .subscribe();
+    }
+
+    public record Stats
+    (
+        long teams,
+        long states,
+        long hits,
+        long misses,
+        long evictions
+    )
+    {
+    }
+
+    /*
+        Row of a merged group history. Rows are merged only when histories of several teams are
+        grouped into one summary.
+     */
+    private record Row(ColumnarTeamHistory history, int ix, long timestamp)
+    {
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        if(!enabled) cache.invalidateAll();
+        LOG.info("Team history cache: {}", enabled);
+    }
+
+    public Stats getStats()
+    {
+        CacheStats stats = cache.stats();
+        return new Stats
+        (
+            cache.estimatedSize(),
+            cache.asMap().values().stream().mapToLong(ColumnarTeamHistory::size).sum(),
+            stats.hitCount(),
+            stats.missCount(),
+            stats.evictionCount()
+        );
+    }
+
+    public void invalidateAll()
+    {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Same as {@link TeamHistoryDAO#find(Set, OffsetDateTime, OffsetDateTime, Set, Set, GroupMode)},
+     * but histories are served from memory when the cache is enabled.
+     */
+    public List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> find
+    (
+        @NotNull Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @Nullable OffsetDateTime to,
+        @NotNull Set<StaticColumn> staticColumns,
+        @NotNull Set<HistoryColumn> historyColumns,
+        @NotNull GroupMode groupMode
+    )
+    {
+        return enabled
+            ? teamHistoryDAO.find(teamIds, from, to, staticColumns, historyColumns, groupMode, this::findRaw)
+            : teamHistoryDAO.find(teamIds, from, to, staticColumns, historyColumns, groupMode);
+    }
+
+    /**
+     * Same as
+     * {@link TeamHistoryDAO#findSummary(Set, OffsetDateTime, OffsetDateTime, Set, Set, GroupMode)},
+     * but summaries are calculated in memory when the cache is enabled.
+     */
+    public List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> findSummary
+    (
+        @NotNull Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @Nullable OffsetDateTime to,
+        @NotNull Set<StaticColumn> staticColumns,
+        @NotNull Set<SummaryColumn> summaryColumns,
+        @NotNull GroupMode groupMode
+    )
+    {
+        return enabled
+            ? teamHistoryDAO.findSummary
+            (
+                teamIds, from, to, staticColumns, summaryColumns, groupMode, this::findSummaryRaw
+            )
+            : teamHistoryDAO.findSummary(teamIds, from, to, staticColumns, summaryColumns, groupMode);
+    }
+
+    private Map<Long, ColumnarTeamHistory> getAll(Set<Long> teamIds)
+    {
+        return cache.getAll(teamIds, this::load);
+    }
+
+    private Map<Long, ColumnarTeamHistory> load(Set<? extends Long> teamIds)
+    {
+        Map<Long, ColumnarTeamHistory> result = teamHistoryDAO
+            .findColumnar(new HashSet<>(teamIds), null)
+            .stream()
+            .collect(Collectors.toMap(ColumnarTeamHistory::getTeamId, Function.identity()));
+        //cache teams without states too, so they are not loaded again
+        for(Long teamId : teamIds) result.computeIfAbsent(teamId, ColumnarTeamHistory::empty);
+        return result;
+    }
+
+    private static long toEpochMicros(@Nullable OffsetDateTime odt, long defaultValue)
+    {
+        return odt == null ? defaultValue : ColumnarTeamHistory.toEpochMicros(odt);
+    }
+
+    private List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> findRaw
+    (
+        Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @Nullable OffsetDateTime to,
+        Set<StaticColumn> staticColumns,
+        Set<HistoryColumn> historyColumns
+    )
+    {
+        long fromMicros = toEpochMicros(from, Long.MIN_VALUE);
+        long toMicros = toEpochMicros(to, Long.MAX_VALUE);
+        List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> result
+            = new ArrayList<>(teamIds.size());
+        for(ColumnarTeamHistory history : getAll(teamIds).values())
+        {
+            int start = history.lowerBound(fromMicros);
+            int end = history.lowerBound(toMicros);
+            if(start >= end) continue;
+
+            Map<StaticColumn, Object> staticData = new EnumMap<>(StaticColumn.class);
+            for(StaticColumn column : staticColumns) staticData.put(column, history.getStaticValue(column));
+            Map<HistoryColumn, List<?>> historyData = new EnumMap<>(HistoryColumn.class);
+            for(HistoryColumn column : historyColumns)
+                historyData.put(column, history.getColumn(column, start, end));
+            result.add(new TeamHistory<>
+            (
+                new RawTeamHistoryStaticData(staticData),
+                new RawTeamHistoryHistoryData(historyData)
+            ));
+        }
+        return result;
+    }
+
+    private List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> findSummaryRaw
+    (
+        Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @Nullable OffsetDateTime to,
+        Set<StaticColumn> staticColumns,
+        Set<SummaryColumn> summaryColumns,
+        GroupMode groupMode
+    )
+    {
+        long fromMicros = toEpochMicros(from, Long.MIN_VALUE);
+        long toMicros = toEpochMicros(to, Long.MAX_VALUE);
+        Map<List<Object>, List<Row>> groups = new HashMap<>();
+        for(ColumnarTeamHistory history : getAll(teamIds).values())
+        {
+            int start = history.lowerBound(fromMicros);
+            int end = history.lowerBound(toMicros);
+            if(start >= end) continue;
+
+            List<Object> key = groupMode.getGroupStaticColumns().stream()
+                .map(history::getStaticValue)
+                .toList();
+            List<Row> rows = groups.computeIfAbsent(key, k->new ArrayList<>());
+            for(int i = start; i < end; i++) rows.add(new Row(history, i, history.getTimestamp(i)));
+        }
+
+        List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> result
+            = new ArrayList<>(groups.size());
+        for(List<Row> rows : groups.values())
+        {
+            //rows of a single team are already ordered
+            if(rows.get(0).history() != rows.get(rows.size() - 1).history()) rows.sort(ROW_COMPARATOR);
+            result.add(summarize(rows, staticColumns, summaryColumns));
+        }
+        return result;
+    }
+
+    /*
+        Mirrors the SQL summary. A row is a player action when games, rating or team differ
+        from the previous row. Aggregations are calculated over player actions only, last values
+        are taken from the last row.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData> summarize
+    (
+        List<Row> rows,
+        Set<StaticColumn> staticColumns,
+        Set<SummaryColumn> summaryColumns
+    )
+    {
+        Map<StaticColumn, Object> staticData = new EnumMap<>(StaticColumn.class);
+        long games = 0, ratingSum = 0;
+        int ratingMin = Integer.MAX_VALUE, ratingMax = Integer.MIN_VALUE, actions = 0;
+        Row previous = null;
+        for(Row row : rows)
+        {
+            ColumnarTeamHistory history = row.history();
+            int curGames = history.getInt(HistoryColumn.GAMES, row.ix());
+            int curRating = history.getInt(HistoryColumn.RATING, row.ix());
+            if(previous == null)
+            {
+                games += 1;
+            }
+            else
+            {
+                int prevGames = previous.history().getInt(HistoryColumn.GAMES, previous.ix());
+                int prevRating = previous.history().getInt(HistoryColumn.RATING, previous.ix());
+                boolean teamChanged = history != previous.history();
+                if(curGames == prevGames && curRating == prevRating && !teamChanged)
+                {
+                    previous = row;
+                    continue;
+                }
+
+                games += curGames - prevGames < 0
+                    || teamChanged
+                    || (curGames == prevGames && curRating != prevRating)
+                        ? curGames
+                        : curGames - prevGames;
+            }
+            ratingSum += curRating;
+            ratingMin = Math.min(ratingMin, curRating);
+            ratingMax = Math.max(ratingMax, curRating);
+            actions++;
+            for(StaticColumn column : staticColumns)
+            {
+                Comparable value = (Comparable) history.getStaticValue(column);
+                staticData.merge(column, value, (l, r)->((Comparable) l).compareTo(r) >= 0 ? l : r);
+            }
+            previous = row;
+        }
+
+        Row last = rows.get(rows.size() - 1);
+        Map<SummaryColumn, Object> summary = new EnumMap<>(SummaryColumn.class);
+        for(SummaryColumn column : summaryColumns)
+            summary.put(column, switch(column)
+            {
+                case GAMES->(int) games;
+                case RATING_MIN->ratingMin;
+                case RATING_AVG->ratingSum / (double) actions;
+                case RATING_MAX->ratingMax;
+                case RATING_LAST->last.history().getInt(HistoryColumn.RATING, last.ix());
+                case REGION_RANK_LAST->last.history().getInteger(HistoryColumn.REGION_RANK, last.ix());
+                case REGION_TEAM_COUNT_LAST->last.history()
+                    .getInteger(HistoryColumn.REGION_TEAM_COUNT, last.ix());
+            });
+        return new TeamHistorySummary<>
+        (
+            new RawTeamHistoryStaticData(staticData),
+            new RawTeamHistorySummaryData(summary)
+        );
+    }
+
+    /**
+     * Appends new states of cached teams that were updated by a ladder update. All histories
+     * are evicted if existing histories were rewritten since the previous update.
+     *
+     * @param data ladder update data
+     */
+    public void update(LadderUpdateData data)
+    {
+        long currentRevision = teamStateService.getHistoryRevision();
+        if(revision.getAndSet(currentRevision) != currentRevision)
+        {
+            cache.invalidateAll();
+            LOG.debug("Team histories were rewritten, evicted all cached histories");
+            return;
+        }
+        if(!enabled) return;
+
+        Set<Long> teamIds = data.getData().stream()
+            .map(PendingLadderData::getTeams)
+            .flatMap(Collection::stream)
+            .filter(cache.asMap()::containsKey)
+            .collect(Collectors.toSet());
+        append(teamIds);
+    }
+
+    private void trim(TeamStateService.ExpiredRange range)
+    {
+        if(!enabled) return;
+
+        trim(range.from(), range.to());
+    }
+
+    /**
+     * Removes states that no longer exist from cached histories. Only the supplied time range
+     * is checked.
+     *
+     * @param from inclusive, not bounded if null
+     * @param to exclusive
+     * @return number of removed states
+     */
+    public int trim(@Nullable OffsetDateTime from, OffsetDateTime to)
+    {
+        long fromMicros = toEpochMicros(from, Long.MIN_VALUE);
+        long toMicros = ColumnarTeamHistory.toEpochMicros(to);
+        int removed = 0;
+        List<Long> batch = new ArrayList<>(APPEND_BATCH_SIZE);
+        for(ColumnarTeamHistory history : cache.asMap().values())
+        {
+            if(history.lowerBound(fromMicros) >= history.lowerBound(toMicros)) continue;
+
+            batch.add(history.getTeamId());
+            if(batch.size() == APPEND_BATCH_SIZE)
+            {
+                removed += trim(batch, from, to, fromMicros, toMicros);
+                batch.clear();
+            }
+        }
+        if(!batch.isEmpty()) removed += trim(batch, from, to, fromMicros, toMicros);
+        LOG.debug("Trimmed {} expired states from cached team histories", removed);
+        return removed;
+    }
+
+    /*
+        Histories that were loaded concurrently may keep some expired states until they are
+        evicted.
+     */
+    private int trim
+    (
+        List<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        OffsetDateTime to,
+        long fromMicros,
+        long toMicros
+    )
+    {
+        Map<Long, Set<Long>> existing = teamHistoryDAO.findTimestamps(new HashSet<>(teamIds), from, to);
+        int[] removed = new int[1];
+        for(Long teamId : teamIds)
+            cache.asMap().computeIfPresent(teamId, (id, history)->{
+                ColumnarTeamHistory trimmed = history.retain
+                (
+                    history.lowerBound(fromMicros),
+                    history.lowerBound(toMicros),
+                    existing.getOrDefault(id, Set.of())
+                );
+                removed[0] += history.size() - trimmed.size();
+                return trimmed;
+            });
+        return removed[0];
+    }
+
+    /**
+     * Appends new states of the supplied teams if they are cached.
+     *
+     * @param teamIds team ids
+     * @return number of appended states
+     */
+    public int append(Set<Long> teamIds)
+    {
+        if(teamIds.isEmpty()) return 0;
+
+        int appended = 0;
+        List<Long> batch = new ArrayList<>(Math.min(teamIds.size(), APPEND_BATCH_SIZE));
+        Instant after = Instant.MAX;
+        for(Long teamId : teamIds)
+        {
+            ColumnarTeamHistory history = cache.getIfPresent(teamId);
+            if(history == null) continue;
+            //first states of a team, it's cheaper to load the team again when requested
+            if(history.isEmpty())
+            {
+                cache.invalidate(teamId);
+                continue;
+            }
+
+            batch.add(teamId);
+            Instant lastTimestamp = Instant.EPOCH.plus(history.getLastTimestamp(), ChronoUnit.MICROS);
+            if(lastTimestamp.isBefore(after)) after = lastTimestamp;
+            if(batch.size() == APPEND_BATCH_SIZE)
+            {
+                appended += append(batch, after);
+                batch.clear();
+                after = Instant.MAX;
+            }
+        }
+        if(!batch.isEmpty()) appended += append(batch, after);
+        LOG.debug("Appended {} states to cached team histories", appended);
+        return appended;
+    }
+
+    /*
+        States are appended only if they are newer than the last cached state. Histories that
+        were loaded concurrently may miss some states until the next update of the same team.
+     */
+    private int append(List<Long> teamIds, Instant after)
+    {
+        int[] appended = new int[1];
+        for(ColumnarTeamHistory newer : teamHistoryDAO
+            .findColumnar(new HashSet<>(teamIds), after.atOffset(ZoneOffset.UTC)))
+            cache.asMap().computeIfPresent(newer.getTeamId(), (id, history)->{
+                ColumnarTeamHistory updated = history.append(newer);
+                appended[0] += updated.size() - history.size();
+                return updated;
+            });
+        return appended[0];
+    }
+
+}
@@ -23,12 +23,14 @@ import com.nephest.battlenet.sc2.config.convert.min.IdentifiableToMinimalObjectC
 import com.nephest.battlenet.sc2.config.convert.min.TemporalAccessorToMinimalObjectConverter;
 import com.nephest.battlenet.sc2.config.convert.min.TimestampToMinimalObjectConverter;
 import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.util.PartitionedDbWriter;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.ConversionService;
@@ -47,6 +49,8 @@ public class CommonBeanConfig
         There is no need to have more than 1 thread here because most of the CPU work is done on the DB side, so
         there is no need to properly handle concurrency because it will waste CPU resources without any performance
         boost whatsoever. Concurrency/CPU intensive work is done by web threads.
+        Ladder writes are partition-aware and can be committed in parallel, see ladderDbWriter. Tasks of the
+        dbExecutorService never overlap with ladder writes.
      */
     public static final int DB_THREADS = 1;
     public static final int CORE_WEB_THREADS = Region.values().length;
@@ -107,10 +111,19 @@ public class CommonBeanConfig
         return service;
     }
 
+    @Bean(destroyMethod = "close")
+    public PartitionedDbWriter ladderDbWriter
+    (
+        @Value("${com.nephest.battlenet.sc2.db.lanes:#{'1'}}") int lanes
+    )
+    {
+        return new PartitionedDbWriter(lanes);
+    }
+
     @Bean
-    public ExecutorService dbExecutorService()
+    public ExecutorService dbExecutorService(PartitionedDbWriter ladderDbWriter)
     {
-        return Executors.newFixedThreadPool(DB_THREADS);
+        return ladderDbWriter.newExclusiveExecutor(DB_THREADS, Executors.defaultThreadFactory());
     }
 
     @Bean
@@ -3,6 +3,8 @@
 
 package com.nephest.battlenet.sc2.config;
 
+import com.nephest.battlenet.sc2.cache.DataVersionRegistry;
+import com.nephest.battlenet.sc2.cache.SearchSuggestionIndex;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.TimerVar;
 import com.nephest.battlenet.sc2.model.local.dao.EvidenceDAO;
@@ -119,6 +121,12 @@ public class Cron
     @Autowired
     private UpdateService updateService;
 
+    @Autowired
+    private DataVersionRegistry dataVersionRegistry;
+
+    @Autowired
+    private SearchSuggestionIndex searchSuggestionIndex;
+
     @Autowired
     private StatusService statusService;
 
@@ -209,6 +217,12 @@ public class Cron
         varService.evictCache();
     }
 
+    @Scheduled(cron="0 30 * * * *")
+    public void rebuildSearchSuggestionIndex()
+    {
+        searchSuggestionIndex.rebuild();
+    }
+
     @Scheduled(cron="0 59 * * * *")
     public void updateSeasonState()
     {
@@ -249,7 +263,14 @@ public class Cron
             //There is a long pause here due to stats calculations in the DB, a good place to do a GC run, make a hint.
             System.gc();
             calculateHeavyStatsTask.runIfAvailable()
-                .subscribe(run->{if(run) LOG.info("Updated heavy stats");});
+                .subscribe(run->
+                {
+                    if(!run) return;
+
+                    LOG.info("Updated heavy stats");
+                    //heavy stats are calculated after the update cycle is finished
+                    dataVersionRegistry.bump(null, null);
+                });
             blizzardPrivacyService.update();
             updateService.updated(begin);
             commenceMaintenance();
@@ -266,6 +287,11 @@ public class Cron
             ? calculateHeavyStatsTask.getValue()
             : SC2Pulse.instant().minusSeconds(24 * 60 * 60 * 1000);
         OffsetDateTime defaultOdt = OffsetDateTime.ofInstant(defaultInstant, ZoneId.systemDefault());
+        /*
+            Queue stats are not routed through LeagueStatsAggregator. They count distinct
+            accounts and their activity across all teams of a queue, team deltas don't carry
+            enough data to maintain them, so they are fully recalculated here once a day.
+         */
         for(Integer season : seasonDAO.getLastInAllRegions())
             queueStatsDAO.mergeCalculateForSeason(season);
         evidenceDAO.nullifyReporterIps(defaultOdt);
@@ -0,0 +1,159 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.config.filter;
+
+import com.nephest.battlenet.sc2.cache.DataVersionRegistry;
+import com.nephest.battlenet.sc2.cache.LadderCacheScope;
+import com.nephest.battlenet.sc2.model.Region;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Adds {@link DataVersionRegistry} ETags to successful responses and answers matching
+ * conditional requests with 304 before the request reaches controllers. Data dependencies are
+ * derived from the "season" and region flag request parameters, requests without these
+ * parameters depend on all regions and seasons.
+ */
+public class DataVersionETagFilter
+implements Filter
+{
+
+    public static final String SEASON_PARAMETER = "season";
+    public static final Map<String, Region> REGION_PARAMETERS = Map.of
+    (
+        "us", Region.US,
+        "eu", Region.EU,
+        "kr", Region.KR,
+        "cn", Region.CN
+    );
+
+    private final DataVersionRegistry dataVersionRegistry;
+
+    public DataVersionETagFilter(DataVersionRegistry dataVersionRegistry)
+    {
+        this.dataVersionRegistry = dataVersionRegistry;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
+    throws IOException, ServletException
+    {
+        HttpServletRequest hreq = (HttpServletRequest) req;
+        HttpServletResponse hresp = (HttpServletResponse) resp;
+        if(!hreq.getMethod().equals(HttpMethod.GET.name()) && !hreq.getMethod().equals(HttpMethod.HEAD.name()))
+        {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        String eTag = dataVersionRegistry.getETag(getScopes(hreq));
+        if(matches(hreq.getHeader(HttpHeaders.IF_NONE_MATCH), eTag))
+        {
+            hresp.setHeader(HttpHeaders.ETAG, eTag);
+            hresp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        chain.doFilter(req, new ETagResponseWrapper(hresp, eTag));
+    }
+
+    public static List<LadderCacheScope> getScopes(HttpServletRequest request)
+    {
+        Integer season = getSeason(request.getParameter(SEASON_PARAMETER));
+        List<LadderCacheScope> scopes = new ArrayList<>(REGION_PARAMETERS.size());
+        for(Map.Entry<String, Region> entry : REGION_PARAMETERS.entrySet())
+            if(Boolean.parseBoolean(request.getParameter(entry.getKey())))
+                scopes.add(new LadderCacheScope(entry.getValue(), season, null));
+        if(scopes.isEmpty()) scopes.add(new LadderCacheScope(null, season, null));
+        return scopes;
+    }
+
+    private static Integer getSeason(String season)
+    {
+        if(season == null) return null;
+
+        try
+        {
+            return Integer.parseInt(season);
+        }
+        catch(NumberFormatException ex)
+        {
+            //invalid requests are rejected by controllers
+            return null;
+        }
+    }
+
+    /*
+        Weak comparison is used for If-None-Match as per RFC 9110.
+     */
+    public static boolean matches(String ifNoneMatch, String eTag)
+    {
+        if(ifNoneMatch == null) return false;
+
+        for(String tag : ifNoneMatch.split(","))
+        {
+            tag = tag.trim();
+            if(tag.equals("*")) return true;
+            if(tag.startsWith("W/")) tag = tag.substring(2);
+            if(tag.equals(eTag)) return true;
+        }
+        return false;
+    }
+
+    /*
+        The ETag is added when the body is written, so only successful responses receive it.
+     */
+    private static class ETagResponseWrapper
+    extends HttpServletResponseWrapper
+    {
+
+        private final String eTag;
+
+        public ETagResponseWrapper(HttpServletResponse response, String eTag)
+        {
+            super(response);
+            this.eTag = eTag;
+        }
+
+        private void addETag()
+        {
+            if(!isCommitted()
+                && getStatus() >= 200 && getStatus() < 300
+                && getHeader(HttpHeaders.ETAG) == null)
+                setHeader(HttpHeaders.ETAG, eTag);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream()
+        throws IOException
+        {
+            addETag();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter()
+        throws IOException
+        {
+            addETag();
+            return super.getWriter();
+        }
+
+    }
+
+}
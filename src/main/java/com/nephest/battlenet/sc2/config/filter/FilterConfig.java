@@ -3,12 +3,15 @@
 
 package com.nephest.battlenet.sc2.config.filter;
 
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
+import com.nephest.battlenet.sc2.cache.DataVersionRegistry;
+import com.nephest.battlenet.sc2.cache.ResponseBodyCache;
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.web.service.GlobalContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 
 @Configuration
 public class FilterConfig
@@ -21,6 +24,8 @@ public class FilterConfig
 
         registrationBean.setFilter(new AverageSessionCacheFilter());
         registrationBean.addUrlPatterns("/api/ladder/stats/*");
+        //cache headers must be set before 304 responses of the ETag filter
+        registrationBean.setOrder(Ordered.LOWEST_PRECEDENCE - 2);
 
         return registrationBean;
     }
@@ -28,18 +33,62 @@ public class FilterConfig
     @Bean
     public FilterRegistrationBean<SeasonCacheFilter> seasonCacheFilter
     (
-        @Autowired SeasonDAO seasonDAO,
+        @Autowired SeasonRegistry seasonRegistry,
         @Autowired GlobalContext globalContext
     )
     {
         FilterRegistrationBean<SeasonCacheFilter> registrationBean = new FilterRegistrationBean<>();
 
-        registrationBean.setFilter(new SeasonCacheFilter(seasonDAO, globalContext.getActiveRegions()));
+        registrationBean.setFilter(new SeasonCacheFilter(seasonRegistry, globalContext.getActiveRegions()));
         registrationBean.addUrlPatterns
         (
             "/api/season/list",
             "/api/season/list/all"
         );
+        registrationBean.setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+
+        return registrationBean;
+    }
+
+    @Bean
+    public FilterRegistrationBean<DataVersionETagFilter> dataVersionETagFilter
+    (
+        @Autowired DataVersionRegistry dataVersionRegistry
+    )
+    {
+        FilterRegistrationBean<DataVersionETagFilter> registrationBean = new FilterRegistrationBean<>();
+
+        registrationBean.setFilter(new DataVersionETagFilter(dataVersionRegistry));
+        registrationBean.addUrlPatterns
+        (
+            "/api/ladder/stats",
+            "/api/ladder/stats/bundle",
+            "/api/ladder/stats/queue/*",
+            "/api/ladder/league/bounds",
+            "/api/season/*"
+        );
+        registrationBean.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+
+        return registrationBean;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResponseBodyCacheFilter> responseBodyCacheFilter
+    (
+        @Autowired ResponseBodyCache responseBodyCache,
+        @Autowired DataVersionRegistry dataVersionRegistry
+    )
+    {
+        FilterRegistrationBean<ResponseBodyCacheFilter> registrationBean = new FilterRegistrationBean<>();
+
+        registrationBean.setFilter(new ResponseBodyCacheFilter(responseBodyCache, dataVersionRegistry));
+        registrationBean.addUrlPatterns
+        (
+            "/api/ladder/stats/bundle",
+            "/api/ladder/stats/map/film"
+        );
+        //cached bodies are served after cache headers and ETags are resolved
+        registrationBean.setOrder(Ordered.LOWEST_PRECEDENCE);
 
         return registrationBean;
     }
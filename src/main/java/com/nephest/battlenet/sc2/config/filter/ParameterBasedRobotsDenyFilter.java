@@ -1,9 +1,9 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.config.filter;
 
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -19,7 +19,7 @@ implements Filter
 {
 
     @Autowired
-    private SeasonDAO seasonDAO;
+    private SeasonRegistry seasonRegistry;
 
     @Override
     public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
@@ -44,7 +44,7 @@ implements Filter
         if(seasonStr == null) return false;
 
         int season = Integer.parseInt(seasonStr);
-        return season < seasonDAO.getMaxBattlenetId();
+        return season < seasonRegistry.getMaxBattlenetId();
     }
 
     private boolean hasDeprecatedParams(ServletRequest req)
@@ -0,0 +1,158 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.config.filter;
+
+import com.nephest.battlenet.sc2.cache.DataVersionRegistry;
+import com.nephest.battlenet.sc2.cache.LadderCacheScope;
+import com.nephest.battlenet.sc2.cache.ResponseBodyCache;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Serves successful GET responses from {@link ResponseBodyCache}. The cache key is the
+ * canonical request (path and sorted parameters) plus the {@link DataVersionRegistry} version
+ * of the request, see {@link DataVersionETagFilter#getScopes(HttpServletRequest)}. Responses
+ * are not cached if the version was changed or stale data was being evicted while the response
+ * was built, such responses may contain stale data.
+ */
+public class ResponseBodyCacheFilter
+implements Filter
+{
+
+    public static final String GZIP = "gzip";
+
+    private final ResponseBodyCache responseBodyCache;
+    private final DataVersionRegistry dataVersionRegistry;
+
+    public ResponseBodyCacheFilter
+    (
+        ResponseBodyCache responseBodyCache,
+        DataVersionRegistry dataVersionRegistry
+    )
+    {
+        this.responseBodyCache = responseBodyCache;
+        this.dataVersionRegistry = dataVersionRegistry;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
+    throws IOException, ServletException
+    {
+        HttpServletRequest hreq = (HttpServletRequest) req;
+        HttpServletResponse hresp = (HttpServletResponse) resp;
+        if(!responseBodyCache.isEnabled()
+            || !hreq.getMethod().equals(HttpMethod.GET.name()) && !hreq.getMethod().equals(HttpMethod.HEAD.name()))
+        {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        List<LadderCacheScope> scopes = DataVersionETagFilter.getScopes(hreq);
+        String eTag = dataVersionRegistry.getETag(scopes);
+        String key = getKey(hreq, eTag);
+        ResponseBodyCache.EncodedResponse cached = responseBodyCache.get(key);
+        if(cached != null)
+        {
+            write(cached, hreq, hresp);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(hresp);
+        chain.doFilter(req, wrapper);
+        if(wrapper.getStatus() == HttpServletResponse.SC_OK
+            && wrapper.getContentType() != null
+            && wrapper.getHeader(HttpHeaders.CONTENT_ENCODING) == null
+            && !hreq.getMethod().equals(HttpMethod.HEAD.name())
+            && isStable(scopes, eTag))
+        {
+            write
+            (
+                responseBodyCache.put(key, wrapper.getContentType(), wrapper.getContentAsByteArray()),
+                hreq,
+                hresp
+            );
+        }
+        else
+        {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /*
+        Ladder scan cache entries are evicted before the version is bumped, so the response is
+        fresh if the version is the same and there are no pending evictions after it's built.
+     */
+    private boolean isStable(List<LadderCacheScope> scopes, String eTag)
+    {
+        return !dataVersionRegistry.isPending(scopes) && eTag.equals(dataVersionRegistry.getETag(scopes));
+    }
+
+    public String getKey(HttpServletRequest request)
+    {
+        return getKey(request, dataVersionRegistry.getETag(DataVersionETagFilter.getScopes(request)));
+    }
+
+    private static String getKey(HttpServletRequest request, String eTag)
+    {
+        StringBuilder sb = new StringBuilder(request.getRequestURI()).append('?');
+        Map<String, String[]> params = new TreeMap<>(request.getParameterMap());
+        for(Map.Entry<String, String[]> param : params.entrySet())
+        {
+            String[] values = param.getValue().clone();
+            Arrays.sort(values);
+            for(String value : values) sb.append(param.getKey()).append('=').append(value).append('&');
+        }
+        return sb.append('#').append(eTag).toString();
+    }
+
+    public static boolean acceptsGzip(HttpServletRequest request)
+    {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if(acceptEncoding == null) return false;
+
+        for(String encoding : acceptEncoding.split(","))
+        {
+            String[] parts = encoding.trim().split(";");
+            if(!parts[0].trim().equalsIgnoreCase(GZIP)) continue;
+            //gzip;q=0 means that gzip is not acceptable
+            return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+
+    private static void write
+    (
+        ResponseBodyCache.EncodedResponse response,
+        HttpServletRequest hreq,
+        HttpServletResponse hresp
+    )
+    throws IOException
+    {
+        boolean gzip = acceptsGzip(hreq);
+        ByteBuffer body = (gzip ? response.gzip() : response.identity()).duplicate();
+        hresp.setContentType(response.contentType());
+        hresp.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if(gzip) hresp.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        hresp.setContentLength(body.remaining());
+        if(hreq.getMethod().equals(HttpMethod.HEAD.name())) return;
+
+        //cached arrays are written directly, there is no copying or re-encoding
+        hresp.getOutputStream().write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+    }
+
+}
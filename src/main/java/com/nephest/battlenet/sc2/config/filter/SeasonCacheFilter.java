@@ -1,11 +1,11 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.config.filter;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.Season;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -23,12 +23,12 @@ public class SeasonCacheFilter
 implements Filter
 {
 
-    private final SeasonDAO seasonDAO;
+    private final SeasonRegistry seasonRegistry;
     private final Set<Region> activeRegions;
 
-    public SeasonCacheFilter(SeasonDAO seasonDAO, Set<Region> activeRegions)
+    public SeasonCacheFilter(SeasonRegistry seasonRegistry, Set<Region> activeRegions)
     {
-        this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
         this.activeRegions = activeRegions;
     }
 
@@ -52,7 +52,7 @@ implements Filter
 
     private String getCacheHeader()
     {
-        List<Season> currentSeasons = seasonDAO.findListByBattlenetId(seasonDAO.getMaxBattlenetId());
+        List<Season> currentSeasons = seasonRegistry.findListByBattlenetId(seasonRegistry.getMaxBattlenetId());
         String cacheHeader;
         if(currentSeasons.size() >= activeRegions.size())
         {
@@ -18,6 +18,9 @@ implements java.io.Serializable
     @NotNull
     private Long matchId;
 
+    //partition key, optional, the date of the match is looked up if it's null
+    private OffsetDateTime matchDate;
+
     @NotNull
     private Long playerCharacterId;
 
@@ -44,7 +47,10 @@ implements java.io.Serializable
 
     public static MatchParticipant of(Match match, PlayerCharacter playerCharacter, BlizzardMatch blizzardMatch)
     {
-        return new MatchParticipant(match.getId(), playerCharacter.getId(), blizzardMatch.getDecision());
+        MatchParticipant participant =
+            new MatchParticipant(match.getId(), playerCharacter.getId(), blizzardMatch.getDecision());
+        participant.setMatchDate(match.getDate());
+        return participant;
     }
 
     @Override
@@ -78,6 +84,16 @@ implements java.io.Serializable
         this.matchId = matchId;
     }
 
+    public OffsetDateTime getMatchDate()
+    {
+        return matchDate;
+    }
+
+    public void setMatchDate(OffsetDateTime matchDate)
+    {
+        this.matchDate = matchDate;
+    }
+
     public Long getPlayerCharacterId()
     {
         return playerCharacterId;
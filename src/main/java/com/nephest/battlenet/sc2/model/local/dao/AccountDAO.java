@@ -1,4 +1,4 @@
-// Copyright (C) 2020-2023 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.model.local.dao;
@@ -6,16 +6,24 @@ package com.nephest.battlenet.sc2.model.local.dao;
 import com.nephest.battlenet.sc2.config.security.SC2PulseAuthority;
 import com.nephest.battlenet.sc2.model.BasePlayerCharacter;
 import com.nephest.battlenet.sc2.model.Partition;
+import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.Account;
 import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
+import com.nephest.battlenet.sc2.model.local.inner.PrefixIndex;
 import com.nephest.battlenet.sc2.model.util.PostgreSQLUtils;
 import com.nephest.battlenet.sc2.web.service.BlizzardPrivacyService;
+import com.nephest.battlenet.sc2.web.service.FingerprintStore;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
@@ -96,14 +104,145 @@ public class AccountDAO
         + "UNION "
         + "SELECT id FROM inserted";
 
+    /*
+        Set-based version of MERGE_WITH_ACCOUNT_QUERY. Each character is bound to:
+            * an existing account with the same BattleTag
+            * a character account if it can be renamed, one account per BattleTag
+            * its own account if it can't be renamed(anonymous)
+            * a new account
+        Locks are acquired in the natural id order to prevent deadlocks.
+     */
+    private static final String MERGE_WITH_CHARACTERS_QUERY =
+        "WITH "
+        + "vals AS (VALUES :accounts), "
+        + "selected AS "
+        + "("
+            + "SELECT DISTINCT account.id, account.partition, account.battle_tag "
+            + "FROM vals v(partition, battle_tag, region, realm, battlenet_id) "
+            + "INNER JOIN account USING(partition, battle_tag)"
+        + "), "
+        + "selected_by_character AS "
+        + "("
+            + "SELECT v.partition, v.battle_tag, v.region, v.realm, v.battlenet_id, "
+            + "account.id, account.anonymous "
+            + "FROM vals v(partition, battle_tag, region, realm, battlenet_id) "
+            + "INNER JOIN player_character USING(region, realm, battlenet_id) "
+            + "INNER JOIN account ON player_character.account_id = account.id "
+            + "LEFT JOIN selected ON v.partition = selected.partition "
+                + "AND v.battle_tag = selected.battle_tag "
+            + "WHERE selected.id IS NULL"
+        + "), "
+        + "rename_candidate AS "
+        + "("
+            + "SELECT DISTINCT ON(partition, battle_tag) id, partition, battle_tag "
+            + "FROM "
+            + "("
+                + "SELECT DISTINCT ON(id) id, partition, battle_tag "
+                + "FROM selected_by_character "
+                + "WHERE anonymous IS NULL "
+                + "ORDER BY id, partition, battle_tag"
+            + ") account_rename "
+            + "ORDER BY partition, battle_tag, id"
+        + "), "
+        + "rename_lock_filter AS "
+        + "("
+            + "SELECT account.id, rename_candidate.battle_tag "
+            + "FROM rename_candidate "
+            + "INNER JOIN account USING(id) "
+            + "ORDER BY account.partition, account.battle_tag "
+            + "FOR UPDATE"
+        + "), "
+        + "updated AS "
+        + "("
+            + "UPDATE account "
+            + "SET battle_tag = rename_lock_filter.battle_tag "
+            + "FROM rename_lock_filter "
+            + "WHERE account.id = rename_lock_filter.id "
+            + "AND account.battle_tag != rename_lock_filter.battle_tag "
+            + "AND account.anonymous IS NULL"
+        + "), "
+        + "missing AS "
+        + "("
+            + "SELECT DISTINCT v.partition, v.battle_tag "
+            + "FROM vals v(partition, battle_tag, region, realm, battlenet_id) "
+            + "LEFT JOIN selected ON v.partition = selected.partition "
+                + "AND v.battle_tag = selected.battle_tag "
+            + "LEFT JOIN rename_candidate ON v.partition = rename_candidate.partition "
+                + "AND v.battle_tag = rename_candidate.battle_tag "
+            + "LEFT JOIN selected_by_character ON v.region = selected_by_character.region "
+                + "AND v.realm = selected_by_character.realm "
+                + "AND v.battlenet_id = selected_by_character.battlenet_id "
+            + "WHERE selected.id IS NULL "
+            + "AND rename_candidate.id IS NULL "
+            + "AND selected_by_character.id IS NULL"
+        + "), "
+        + "inserted AS "
+        + "("
+            + "INSERT INTO account "
+            + "(partition, battle_tag) "
+            + "SELECT partition, battle_tag "
+            + "FROM missing "
+            + "ORDER BY partition, battle_tag "
+            + "ON CONFLICT(partition, battle_tag) DO UPDATE SET "
+            + "partition=excluded.partition "
+            + "RETURNING id, partition, battle_tag"
+        + ") "
+        + "SELECT v.region AS \"player_character.region\", "
+        + "v.realm AS \"player_character.realm\", "
+        + "v.battlenet_id AS \"player_character.battlenet_id\", "
+        + "COALESCE"
+        + "("
+            + "selected.id, "
+            + "CASE WHEN selected_by_character.anonymous IS NULL THEN rename_candidate.id END, "
+            + "selected_by_character.id, "
+            + "inserted.id"
+        + ") AS \"player_character.account_id\" "
+        + "FROM vals v(partition, battle_tag, region, realm, battlenet_id) "
+        + "LEFT JOIN selected ON v.partition = selected.partition "
+            + "AND v.battle_tag = selected.battle_tag "
+        + "LEFT JOIN selected_by_character ON v.region = selected_by_character.region "
+            + "AND v.realm = selected_by_character.realm "
+            + "AND v.battlenet_id = selected_by_character.battlenet_id "
+        + "LEFT JOIN rename_candidate ON v.partition = rename_candidate.partition "
+            + "AND v.battle_tag = rename_candidate.battle_tag "
+        + "LEFT JOIN inserted ON v.partition = inserted.partition "
+            + "AND v.battle_tag = inserted.battle_tag";
+
     private static final String ANONYMIZE_EXPIRED_ACCOUNTS =
-        "UPDATE account "
-        + "SET battle_tag = '" + BasePlayerCharacter.DEFAULT_FAKE_NAME + "#' "
-        + "|| player_character.region::text || player_character.realm::text || player_character.battlenet_id::text "
-        + "FROM player_character "
-        + "WHERE account.updated >= :from "
-        + "AND account.updated < NOW() - INTERVAL '" + BlizzardPrivacyService.DATA_TTL.toDays() + " days' "
-        + "AND account.id = player_character.account_id";
+        "WITH expired AS "
+        + "("
+            + "SELECT DISTINCT ON(account.id) "
+            + "account.id, "
+            + "account.battle_tag, "
+            + "'" + BasePlayerCharacter.DEFAULT_FAKE_NAME + "#' "
+            + "|| player_character.region::text || player_character.realm::text "
+            + "|| player_character.battlenet_id::text AS anonymous_battle_tag "
+            + "FROM account "
+            + "INNER JOIN player_character ON account.id = player_character.account_id "
+            + "WHERE account.updated >= :from "
+            + "AND account.updated < NOW() - INTERVAL '" + BlizzardPrivacyService.DATA_TTL.toDays() + " days' "
+            + "AND account.battle_tag NOT LIKE '" + BasePlayerCharacter.DEFAULT_FAKE_NAME + "#%' "
+            + "ORDER BY account.id, player_character.id"
+        + "), "
+        + "anonymized AS "
+        + "("
+            + "UPDATE account "
+            + "SET battle_tag = expired.anonymous_battle_tag "
+            + "FROM expired "
+            + "WHERE account.id = expired.id "
+            + "RETURNING expired.battle_tag"
+        + ") "
+        + "SELECT DISTINCT battle_tag "
+        + "FROM anonymized "
+        //other accounts may use the same BattleTag
+        + "WHERE NOT EXISTS "
+        + "("
+            + "SELECT 1 "
+            + "FROM account "
+            + "WHERE LOWER(account.battle_tag) = LOWER(anonymized.battle_tag) "
+            + "AND account.battle_tag = anonymized.battle_tag "
+            + "AND NOT EXISTS(SELECT 1 FROM expired WHERE expired.id = account.id)"
+        + ")";
 
     private static final String UPDATE_UPDATED =
         "UPDATE account "
@@ -167,21 +306,33 @@ public class AccountDAO
         + "ORDER BY MAX(rating_max) DESC "
         + "LIMIT :limit";
 
+    private static final String FIND_BATTLE_TAG_INDEX =
+        "SELECT battle_tag, MAX(rating_max) AS rating_max "
+        + "FROM account "
+        + "INNER JOIN player_character ON account.id = player_character.account_id "
+        + "INNER JOIN player_character_stats ON player_character.id = player_character_stats.player_character_id "
+        + "WHERE battle_tag NOT LIKE '" + BasePlayerCharacter.DEFAULT_FAKE_NAME + "#%' "
+        + "GROUP BY battle_tag";
+
     private final NamedParameterJdbcTemplate template;
     private final ConversionService conversionService;
+    private final FingerprintStore fingerprintStore;
 
     private static RowMapper<Account> STD_ROW_MAPPER;
     private static ResultSetExtractor<Account> STD_EXTRACTOR;
+    private static RowMapper<PlayerCharacter> CHARACTER_ACCOUNT_ID_ROW_MAPPER;
 
     @Autowired
     public AccountDAO
     (
         @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
-        @Qualifier("sc2StatsConversionService") ConversionService conversionService
+        @Qualifier("sc2StatsConversionService") ConversionService conversionService,
+        @Lazy FingerprintStore fingerprintStore
     )
     {
         this.template = template;
         this.conversionService = conversionService;
+        this.fingerprintStore = fingerprintStore;
         initMappers(conversionService);
     }
 
@@ -196,6 +347,16 @@ public class AccountDAO
         );
 
         if(STD_EXTRACTOR == null) STD_EXTRACTOR = DAOUtils.getResultSetExtractor(STD_ROW_MAPPER);
+        if(CHARACTER_ACCOUNT_ID_ROW_MAPPER == null) CHARACTER_ACCOUNT_ID_ROW_MAPPER = (rs, num)->
+            new PlayerCharacter
+            (
+                null,
+                rs.getLong("player_character.account_id"),
+                conversionService.convert(rs.getInt("player_character.region"), Region.class),
+                rs.getLong("player_character.battlenet_id"),
+                rs.getInt("player_character.realm"),
+                null
+            );
     }
 
     public static RowMapper<Account> getStdRowMapper()
@@ -232,19 +393,67 @@ public class AccountDAO
             .addValue("realm", playerCharacter.getRealm())
             .addValue("battlenetId", playerCharacter.getBattlenetId());
         account.setId(template.query(MERGE_WITH_ACCOUNT_QUERY, params, DAOUtils.LONG_EXTRACTOR));
+        fingerprintStore.invalidate(List.of(playerCharacter));
         return account;
     }
 
+    /**
+     * Set-based version of {@link #merge(Account, PlayerCharacter)}. All accounts are merged
+     * in a single statement. Account ids are set for all supplied accounts, characters
+     * are not modified.
+     *
+     * @param accountsAndCharacters account and character pairs, only one pair per character
+     *                              is expected
+     * @return supplied {@code accountsAndCharacters}
+     */
+    public Set<AccountCharacterData> merge(Set<AccountCharacterData> accountsAndCharacters)
+    {
+        if(accountsAndCharacters.isEmpty()) return accountsAndCharacters;
+
+        List<Object[]> data = accountsAndCharacters.stream()
+            .map(d->new Object[]
+            {
+                conversionService.convert(d.getAccount().getPartition(), Integer.class),
+                d.getAccount().getBattleTag(),
+                conversionService.convert(d.getCharacter().getRegion(), Integer.class),
+                d.getCharacter().getRealm(),
+                d.getCharacter().getBattlenetId()
+            })
+            .collect(Collectors.toList());
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("accounts", data);
+        Map<PlayerCharacter, Long> accountIds = template
+            .query(MERGE_WITH_CHARACTERS_QUERY, params, CHARACTER_ACCOUNT_ID_ROW_MAPPER)
+            .stream()
+            .collect(Collectors.toMap(
+                Function.identity(),
+                PlayerCharacter::getAccountId,
+                (l, r)->l
+            ));
+        for(AccountCharacterData d : accountsAndCharacters)
+            d.getAccount().setId(accountIds.get(d.getCharacter()));
+        fingerprintStore.invalidate(accountsAndCharacters.stream()
+            .map(AccountCharacterData::getCharacter)
+            .toList());
+        return accountsAndCharacters;
+    }
+
 
     public int removeEmptyAccounts()
     {
         return template.update(REMOVE_EMPTY_ACCOUNTS, new MapSqlParameterSource());
     }
 
-    public int anonymizeExpiredAccounts(OffsetDateTime from)
+    /**
+     * Anonymizes BattleTags of accounts that were not updated for
+     * {@link BlizzardPrivacyService#DATA_TTL}. Anonymized accounts are skipped.
+     *
+     * @param from only accounts that were updated after this timestamp are anonymized
+     * @return anonymized BattleTags that are no longer used by other accounts
+     */
+    public List<String> anonymizeExpiredAccounts(OffsetDateTime from)
     {
         MapSqlParameterSource params = new MapSqlParameterSource().addValue("from", from);
-        return template.update(ANONYMIZE_EXPIRED_ACCOUNTS, params);
+        return template.queryForList(ANONYMIZE_EXPIRED_ACCOUNTS, params, String.class);
     }
 
     public int updateUpdated(OffsetDateTime updated, Set<Long> ids)
@@ -322,6 +531,19 @@ public class AccountDAO
         return template.queryForList(FIND_BATTLE_TAGS_BY_BATTLE_TAG_LIKE, params, String.class);
     }
 
+    /**
+     * @return BattleTags ranked by max rating, anonymized BattleTags are excluded
+     */
+    public PrefixIndex findBattleTagIndex()
+    {
+        return template.query(FIND_BATTLE_TAG_INDEX, new MapSqlParameterSource(), rs->
+        {
+            PrefixIndex.Builder builder = new PrefixIndex.Builder();
+            while(rs.next()) builder.add(rs.getString("battle_tag"), rs.getInt("rating_max"));
+            return builder.build();
+        });
+    }
+
     private MapSqlParameterSource createParameterSource(Account account)
     {
         return new MapSqlParameterSource()
@@ -7,6 +7,7 @@ import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.Race;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.Clan;
+import com.nephest.battlenet.sc2.model.local.inner.PrefixIndex;
 import com.nephest.battlenet.sc2.model.local.ladder.PagedSearchResult;
 import com.nephest.battlenet.sc2.model.util.PostgreSQLUtils;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
@@ -189,6 +190,11 @@ public class ClanDAO
         + "ORDER BY active_members DESC NULLS LAST "
         + "LIMIT :limit";
 
+    private static final String FIND_TAG_INDEX =
+        "SELECT tag, MAX(COALESCE(active_members, -1)) AS active_members "
+        + "FROM clan "
+        + "GROUP BY tag";
+
     private static final String UPDATE_STATS = "WITH "
         + "character_filter AS "
         + "("
@@ -499,6 +505,19 @@ public class ClanDAO
         return template.queryForList(FIND_TAGS_BY_TAG_LIKE, params, String.class);
     }
 
+    /**
+     * @return clan tags ranked by active members, tags without stats are ranked last
+     */
+    public PrefixIndex findTagIndex()
+    {
+        return template.query(FIND_TAG_INDEX, new MapSqlParameterSource(), rs->
+        {
+            PrefixIndex.Builder builder = new PrefixIndex.Builder();
+            while(rs.next()) builder.add(rs.getString("tag"), rs.getInt("active_members"));
+            return builder.build();
+        });
+    }
+
     public int updateStats(List<Integer> clans)
     {
         OffsetDateTime from = SC2Pulse.offsetDateTime().minusDays(CLAN_STATS_DEPTH_DAYS);
@@ -0,0 +1,345 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyId;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * <p>
+ *     Compact columnar team index keyed by the team uid(queue type, team type, legacy id,
+ *     season). It's an open-addressing hash table over primitive arrays, it stores only the
+ *     fields required for conditional team merges: division id, wins, losses, ties,
+ *     last played, joined, primary data updated. Timestamps are stored as epoch microseconds,
+ *     which is the max precision of {@link com.nephest.battlenet.sc2.model.util.SC2Pulse}.
+ * </p>
+ * <p>
+ *     Entries are never removed individually, {@link #clear()} the whole index instead.
+ *     This class is not thread-safe.
+ * </p>
+ */
+public class CompactTeamIndex
+{
+
+    public static final int NULL_INT = Integer.MIN_VALUE;
+    public static final long NULL_LONG = Long.MIN_VALUE;
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int EMPTY_SLOT = -1;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private int size;
+    private int[] slots;
+
+    private long[] hashes;
+    private long[] keys;
+    private int[] legacyIdOffsets;
+    private int[] legacyIdLengths;
+    private byte[] legacyIds;
+    private int legacyIdsSize;
+
+    private int[] divisionIds;
+    private int[] wins;
+    private int[] losses;
+    private int[] ties;
+    private long[] lastPlayed;
+    private long[] joined;
+    private long[] primaryDataUpdated;
+
+    public CompactTeamIndex(int expectedSize)
+    {
+        init(Math.max(expectedSize, DEFAULT_CAPACITY));
+    }
+
+    public CompactTeamIndex()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    private void init(int capacity)
+    {
+        size = 0;
+        slots = new int[tableSize(capacity)];
+        Arrays.fill(slots, EMPTY_SLOT);
+        hashes = new long[capacity];
+        keys = new long[capacity];
+        legacyIdOffsets = new int[capacity];
+        legacyIdLengths = new int[capacity];
+        legacyIds = new byte[capacity * 16];
+        legacyIdsSize = 0;
+        divisionIds = new int[capacity];
+        wins = new int[capacity];
+        losses = new int[capacity];
+        ties = new int[capacity];
+        lastPlayed = new long[capacity];
+        joined = new long[capacity];
+        primaryDataUpdated = new long[capacity];
+    }
+
+    /*
+        The table is kept at most half full to keep probe sequences short.
+     */
+    private static int tableSize(int capacity)
+    {
+        return Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) << 1;
+    }
+
+    public void clear()
+    {
+        init(DEFAULT_CAPACITY);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param team team uid
+     * @return entry index, or -1 if the team is not in the index
+     */
+    public int indexOf(Team team)
+    {
+        long key = key(team);
+        byte[] legacyId = legacyId(team);
+        long hash = hash(key, legacyId);
+        int mask = slots.length - 1;
+        for(int slot = (int) hash & mask; ; slot = (slot + 1) & mask)
+        {
+            int ix = slots[slot];
+            if(ix == EMPTY_SLOT) return -1;
+            if(hashes[ix] == hash && keys[ix] == key && legacyIdEquals(ix, legacyId)) return ix;
+        }
+    }
+
+    /**
+     * Inserts a new team or updates the tracked fields of the existing team.
+     *
+     * @param team team to put
+     * @return entry index
+     */
+    public int put(Team team)
+    {
+        int ix = indexOf(team);
+        if(ix == -1) ix = insert(team);
+        set(ix, team);
+        return ix;
+    }
+
+    private int insert(Team team)
+    {
+        if(size == hashes.length) grow();
+
+        long key = key(team);
+        byte[] legacyId = legacyId(team);
+        long hash = hash(key, legacyId);
+        int ix = size++;
+        hashes[ix] = hash;
+        keys[ix] = key;
+        if(legacyIdsSize + legacyId.length > legacyIds.length)
+            legacyIds = Arrays.copyOf
+            (
+                legacyIds,
+                Math.max(legacyIds.length + (legacyIds.length >> 1), legacyIdsSize + legacyId.length)
+            );
+        System.arraycopy(legacyId, 0, legacyIds, legacyIdsSize, legacyId.length);
+        legacyIdOffsets[ix] = legacyIdsSize;
+        legacyIdLengths[ix] = legacyId.length;
+        legacyIdsSize += legacyId.length;
+        putSlot(ix);
+        return ix;
+    }
+
+    private void putSlot(int ix)
+    {
+        int mask = slots.length - 1;
+        int slot = (int) hashes[ix] & mask;
+        while(slots[slot] != EMPTY_SLOT) slot = (slot + 1) & mask;
+        slots[slot] = ix;
+    }
+
+    private void grow()
+    {
+        int capacity = hashes.length + (hashes.length >> 1);
+        hashes = Arrays.copyOf(hashes, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        legacyIdOffsets = Arrays.copyOf(legacyIdOffsets, capacity);
+        legacyIdLengths = Arrays.copyOf(legacyIdLengths, capacity);
+        divisionIds = Arrays.copyOf(divisionIds, capacity);
+        wins = Arrays.copyOf(wins, capacity);
+        losses = Arrays.copyOf(losses, capacity);
+        ties = Arrays.copyOf(ties, capacity);
+        lastPlayed = Arrays.copyOf(lastPlayed, capacity);
+        joined = Arrays.copyOf(joined, capacity);
+        primaryDataUpdated = Arrays.copyOf(primaryDataUpdated, capacity);
+
+        int tableSize = tableSize(capacity);
+        if(tableSize != slots.length)
+        {
+            slots = new int[tableSize];
+            Arrays.fill(slots, EMPTY_SLOT);
+            for(int ix = 0; ix < size; ix++) putSlot(ix);
+        }
+    }
+
+    private void set(int ix, Team team)
+    {
+        divisionIds[ix] = toInt(team.getDivisionId());
+        wins[ix] = toInt(team.getWins());
+        losses[ix] = toInt(team.getLosses());
+        ties[ix] = toInt(team.getTies());
+        lastPlayed[ix] = toEpochMicros(team.getLastPlayed());
+        joined[ix] = toEpochMicros(team.getJoined());
+        primaryDataUpdated[ix] = toEpochMicros(team.getPrimaryDataUpdated());
+    }
+
+    /**
+     * @param ix entry index
+     * @param region region of this index
+     * @return team that contains uid and tracked fields only
+     */
+    public Team get(int ix, Region region)
+    {
+        long key = keys[ix];
+        Team team = Team.uid
+        (
+            QueueType.from((int) (key >>> 16 & 0xFFFF)),
+            TeamType.from((int) (key & 0xFFFF)),
+            region,
+            TeamLegacyId.trusted(new String
+            (
+                legacyIds,
+                legacyIdOffsets[ix],
+                legacyIdLengths[ix],
+                StandardCharsets.UTF_8
+            )),
+            (int) (key >> 32)
+        );
+        team.setDivisionId(fromInt(divisionIds[ix]));
+        team.setWins(fromInt(wins[ix]));
+        team.setLosses(fromInt(losses[ix]));
+        team.setTies(fromInt(ties[ix]));
+        team.setLastPlayed(fromEpochMicros(lastPlayed[ix]));
+        team.setJoined(fromEpochMicros(joined[ix]));
+        team.setPrimaryDataUpdated(fromEpochMicros(primaryDataUpdated[ix]));
+        return team;
+    }
+
+    public int getDivisionId(int ix)
+    {
+        return divisionIds[ix];
+    }
+
+    public int getWins(int ix)
+    {
+        return wins[ix];
+    }
+
+    public int getLosses(int ix)
+    {
+        return losses[ix];
+    }
+
+    public long getLastPlayed(int ix)
+    {
+        return lastPlayed[ix];
+    }
+
+    public long getJoined(int ix)
+    {
+        return joined[ix];
+    }
+
+    public long getPrimaryDataUpdated(int ix)
+    {
+        return primaryDataUpdated[ix];
+    }
+
+    /**
+     * @return estimated heap usage of index arrays in bytes
+     */
+    public long getHeapUsage()
+    {
+        long capacity = hashes.length;
+        return (long) slots.length * Integer.BYTES
+            + capacity * (Long.BYTES * 5L + Integer.BYTES * 6L)
+            + legacyIds.length;
+    }
+
+    private static long key(Team team)
+    {
+        return ((long) team.getSeason() << 32)
+            | ((long) team.getQueueType().getId() << 16)
+            | team.getTeamType().getId();
+    }
+
+    private static byte[] legacyId(Team team)
+    {
+        return team.getLegacyId().getId().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long hash(long key, byte[] legacyId)
+    {
+        long hash = FNV_OFFSET ^ key;
+        for(byte b : legacyId) hash = (hash ^ b) * FNV_PRIME;
+        //spread high bits into the low bits that are used for slot selection
+        return hash ^ (hash >>> 32);
+    }
+
+    private boolean legacyIdEquals(int ix, byte[] legacyId)
+    {
+        int offset = legacyIdOffsets[ix];
+        return Arrays.equals
+        (
+            legacyIds, offset, offset + legacyIdLengths[ix],
+            legacyId, 0, legacyId.length
+        );
+    }
+
+    public static int toInt(Integer val)
+    {
+        return val == null ? NULL_INT : val;
+    }
+
+    private static Integer fromInt(int val)
+    {
+        return val == NULL_INT ? null : val;
+    }
+
+    public static long toEpochMicros(OffsetDateTime odt)
+    {
+        if(odt == null) return NULL_LONG;
+
+        Instant instant = odt.toInstant();
+        return Math.addExact
+        (
+            Math.multiplyExact(instant.getEpochSecond(), 1_000_000L),
+            instant.getNano() / 1_000
+        );
+    }
+
+    private static OffsetDateTime fromEpochMicros(long micros)
+    {
+        if(micros == NULL_LONG) return null;
+
+        return OffsetDateTime.ofInstant
+        (
+            Instant.ofEpochSecond
+            (
+                Math.floorDiv(micros, 1_000_000L),
+                Math.floorMod(micros, 1_000_000L) * 1_000L
+            ),
+            ZoneOffset.UTC
+        );
+    }
+
+}
@@ -12,14 +12,10 @@ import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyId;
 import java.time.OffsetDateTime;
 import java.util.Comparator;
 import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,7 +28,8 @@ import org.springframework.stereotype.Repository;
  * returned result in real DAO. It's a separate DAO that is not connected/persisted to the main
  * DataSource/DB. It maintains its state, but there is no persistence. You must
  * {@link #load(Region, int)} the data before using it. {@link #clear(Region)} the data when you
- * no longer need it because it takes some resources to maintain it.
+ * no longer need it because it takes some resources to maintain it. Teams are stored in a
+ * {@link CompactTeamIndex}, only the fields that are used in merge checks are retained.
  */
 @Repository
 public class FastTeamDAO
@@ -41,7 +38,7 @@ implements StatefulBasicEntityOperations<Team>
 
     private static final Logger LOG = LoggerFactory.getLogger(FastTeamDAO.class);
 
-    private final Map<Region, Map<Team, Team>> teams = new EnumMap<>(Region.class);
+    private final Map<Region, CompactTeamIndex> teams = new EnumMap<>(Region.class);
     private final Map<Region, OffsetDateTime> minLastPlayed = new EnumMap<>(Region.class);
     private final TeamDAO teamDAO;
     private final Map<Region, Integer> loadedSeasons = new EnumMap<>(Region.class);
@@ -50,7 +47,7 @@ implements StatefulBasicEntityOperations<Team>
     public FastTeamDAO(TeamDAO teamDAO)
     {
         this.teamDAO = teamDAO;
-        for(Region region : Region.values()) teams.put(region, new HashMap<>());
+        for(Region region : Region.values()) teams.put(region, new CompactTeamIndex());
     }
 
     @Override
@@ -59,10 +56,12 @@ implements StatefulBasicEntityOperations<Team>
         Integer loadedSeason = loadedSeasons.get(region);
         if(loadedSeason != null && loadedSeason == season) return false;
 
+        CompactTeamIndex index = new CompactTeamIndex();
         try(Stream<Team> teamStream = teamDAO.find(region, season))
         {
-            teams.put(region, teamStream.collect(Collectors.toMap(Function.identity(), Function.identity())));
+            teamStream.forEach(index::put);
         }
+        teams.put(region, index);
         try(Stream<Team> teamStream = teamDAO.find(region, season - 1))
         {
             minLastPlayed.put
@@ -76,7 +75,11 @@ implements StatefulBasicEntityOperations<Team>
         }
 
         loadedSeasons.put(region, season);
-        LOG.trace("Loaded teams into fast DAO: {} s{}", region, season);
+        LOG.debug
+        (
+            "Loaded teams into fast DAO: {} s{}, {} teams, {} bytes",
+            region, season, index.size(), index.getHeapUsage()
+        );
         return true;
     }
 
@@ -88,6 +91,31 @@ implements StatefulBasicEntityOperations<Team>
         loadedSeasons.remove(region);
     }
 
+    /**
+     * @param region region
+     * @return number of teams in the region index
+     */
+    public int getSize(Region region)
+    {
+        return teams.get(region).size();
+    }
+
+    /**
+     * @param region region
+     * @return estimated heap usage of the region index in bytes
+     */
+    public long getHeapUsage(Region region)
+    {
+        return teams.get(region).getHeapUsage();
+    }
+
+    public Map<Region, Long> getHeapUsage()
+    {
+        Map<Region, Long> usage = new EnumMap<>(Region.class);
+        for(Region region : Region.values()) usage.put(region, getHeapUsage(region));
+        return usage;
+    }
+
     public Optional<Team> findById
     (
         QueueType queueType,
@@ -100,10 +128,16 @@ implements StatefulBasicEntityOperations<Team>
         return find(Team.uid(queueType, teamType, region, legacyId, season));
     }
 
+    /**
+     * @param team team uid
+     * @return team that contains uid and fields that are used in merge checks only
+     */
     @Override
     public Optional<Team> find(Team team)
     {
-        return Optional.ofNullable(teams.get(team.getRegion()).get(team));
+        CompactTeamIndex index = teams.get(team.getRegion());
+        int ix = index.indexOf(team);
+        return ix == -1 ? Optional.empty() : Optional.of(index.get(ix, team.getRegion()));
     }
 
     @Override
@@ -116,11 +150,11 @@ implements StatefulBasicEntityOperations<Team>
         {
             if(!isFresh(team)) continue;
 
-            Map<Team, Team> regionTeams = teams.get(team.getRegion());
-            Team existingTeam = regionTeams.get(team);
-            if(mustInsert(existingTeam) || mustUpdate(existingTeam, team))
+            CompactTeamIndex regionTeams = teams.get(team.getRegion());
+            int existingTeam = regionTeams.indexOf(team);
+            if(mustInsert(existingTeam) || mustUpdate(regionTeams, existingTeam, team))
             {
-                regionTeams.put(team, team);
+                regionTeams.put(team);
                 merged.add(team);
             }
         }
@@ -135,39 +169,41 @@ implements StatefulBasicEntityOperations<Team>
         return curMinLastPlayed == null || !curMinLastPlayed.isAfter(team.getLastPlayed());
     }
 
-    private static boolean mustInsert(Team existingTeam)
+    private static boolean mustInsert(int existingTeam)
     {
-        return existingTeam == null;
+        return existingTeam == -1;
     }
 
     private static boolean mustUpdate
     (
-        Team existingTeam,
+        CompactTeamIndex index,
+        int existingTeam,
         Team newTeam
     )
     {
+        long existingLastPlayed = index.getLastPlayed(existingTeam);
+        long existingJoined = index.getJoined(existingTeam);
+        long existingPrimaryDataUpdated = index.getPrimaryDataUpdated(existingTeam);
         return
-        existingTeam != null
-        &&
         (
-            !Objects.equals(existingTeam.getWins(), newTeam.getWins())
-            || !Objects.equals(existingTeam.getLosses(), newTeam.getLosses())
-            || !Objects.equals(existingTeam.getDivisionId(), newTeam.getDivisionId())
+            index.getWins(existingTeam) != CompactTeamIndex.toInt(newTeam.getWins())
+            || index.getLosses(existingTeam) != CompactTeamIndex.toInt(newTeam.getLosses())
+            || index.getDivisionId(existingTeam) != CompactTeamIndex.toInt(newTeam.getDivisionId())
         )
         &&
         (
-            existingTeam.getLastPlayed() == null
-            || !existingTeam.getLastPlayed().isAfter(newTeam.getLastPlayed())
+            existingLastPlayed == CompactTeamIndex.NULL_LONG
+            || existingLastPlayed <= CompactTeamIndex.toEpochMicros(newTeam.getLastPlayed())
         )
         &&
         (
-            existingTeam.getJoined() == null
-            || !existingTeam.getJoined().isAfter(newTeam.getJoined())
+            existingJoined == CompactTeamIndex.NULL_LONG
+            || existingJoined <= CompactTeamIndex.toEpochMicros(newTeam.getJoined())
         )
         &&
         (
-            existingTeam.getPrimaryDataUpdated() == null
-            || existingTeam.getPrimaryDataUpdated().isBefore(newTeam.getPrimaryDataUpdated())
+            existingPrimaryDataUpdated == CompactTeamIndex.NULL_LONG
+            || existingPrimaryDataUpdated < CompactTeamIndex.toEpochMicros(newTeam.getPrimaryDataUpdated())
         );
     }
 
@@ -0,0 +1,84 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.web.service.LadderValidatorStore;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class LadderValidatorDAO
+extends StandardDAO
+{
+
+    public static final Duration TTL = Duration.ofDays(30);
+
+    private static final String FIND_ALL =
+        "SELECT region, ladder_id, etag, last_modified, content_hash "
+        + "FROM ladder_validator";
+
+    private static final String MERGE =
+        "INSERT INTO ladder_validator(region, ladder_id, etag, last_modified, content_hash, updated) "
+        + "VALUES(:region, :ladderId, :eTag, :lastModified, :contentHash, NOW()) "
+        + "ON CONFLICT(region, ladder_id) DO UPDATE SET "
+        + "etag = excluded.etag, "
+        + "last_modified = excluded.last_modified, "
+        + "content_hash = excluded.content_hash, "
+        + "updated = excluded.updated";
+
+    private final ConversionService conversionService;
+    private final RowMapper<LadderValidatorStore.Entry> rowMapper;
+
+    @Autowired
+    public LadderValidatorDAO
+    (
+        @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
+        @Qualifier("sc2StatsConversionService") ConversionService conversionService
+    )
+    {
+        super(template, "ladder_validator", TTL.toHours() + " hours");
+        this.conversionService = conversionService;
+        this.rowMapper = (rs, i)->new LadderValidatorStore.Entry
+        (
+            conversionService.convert(rs.getInt("region"), Region.class),
+            rs.getLong("ladder_id"),
+            new LadderValidatorStore.Validators
+            (
+                rs.getString("etag"),
+                rs.getString("last_modified"),
+                rs.getLong("content_hash")
+            )
+        );
+    }
+
+    public List<LadderValidatorStore.Entry> findAll()
+    {
+        return getTemplate().query(FIND_ALL, rowMapper);
+    }
+
+    public int[] merge(Collection<LadderValidatorStore.Entry> entries)
+    {
+        if(entries.isEmpty()) return DAOUtils.EMPTY_INT_ARRAY;
+
+        MapSqlParameterSource[] params = entries.stream()
+            .map(entry->new MapSqlParameterSource()
+                .addValue("region", conversionService.convert(entry.region(), Integer.class))
+                .addValue("ladderId", entry.ladderId())
+                .addValue("eTag", entry.validators().eTag())
+                .addValue("lastModified", entry.validators().lastModified())
+                .addValue("contentHash", entry.validators().contentHash()))
+            .toArray(MapSqlParameterSource[]::new);
+        return getTemplate().batchUpdate(MERGE, params);
+    }
+
+}
@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.model.local.dao;
 
+import com.nephest.battlenet.sc2.cache.LadderScanCache;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.TeamType;
@@ -138,7 +139,11 @@ public class LeagueDAO
         return league;
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public League merge(League league)
     {
         MapSqlParameterSource params = createParameterSource(league);
@@ -3,9 +3,18 @@
 
 package com.nephest.battlenet.sc2.model.local.dao;
 
+import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Race;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
 import com.nephest.battlenet.sc2.model.local.LeagueStats;
+import com.nephest.battlenet.sc2.model.local.inner.LeagueStatsAggregate;
+import com.nephest.battlenet.sc2.model.local.inner.TeamLeagueStats;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -112,6 +121,69 @@ public class LeagueStatsDAO
             + "ON mandatory_stats.league_id = random_team_count.league_id "
             + "AND random_team_count.race = %5$s ";
 
+    private static final String FIND_TEAM_STATS_TEMPLATE =
+        "SELECT team.id, team.region, team.queue_type, team.team_type, team.league_type, "
+        + "CASE WHEN team.queue_type = :raceQueueType "
+            + "THEN substring(team.legacy_id from char_length(team.legacy_id))::smallint "
+        + "END AS race, "
+        + "COALESCE(SUM(team_member.terran_games_played), 0) AS terran_games_played, "
+        + "COALESCE(SUM(team_member.protoss_games_played), 0) AS protoss_games_played, "
+        + "COALESCE(SUM(team_member.zerg_games_played), 0) AS zerg_games_played, "
+        + "COALESCE(SUM(team_member.random_games_played), 0) AS random_games_played "
+        + "FROM team "
+        + "INNER JOIN team_member ON team.id = team_member.team_id "
+        + "WHERE %1$s "
+        + "GROUP BY team.id";
+
+    private static final String FIND_TEAM_STATS_BY_SEASON =
+        String.format(FIND_TEAM_STATS_TEMPLATE, "team.season = :season");
+    private static final String FIND_TEAM_STATS_BY_IDS =
+        String.format(FIND_TEAM_STATS_TEMPLATE, "team.id IN(:ids)");
+
+    private static final String MERGE_AGGREGATES =
+        "WITH vals AS(VALUES :aggregates) "
+        + "INSERT INTO league_stats "
+        + "("
+            + "league_id, team_count, "
+            + "terran_games_played, protoss_games_played, zerg_games_played, random_games_played,"
+            + "terran_team_count, protoss_team_count, zerg_team_count, random_team_count"
+        + ") "
+        + "SELECT league.id, v.team_count, "
+        + "v.terran_games_played, v.protoss_games_played, v.zerg_games_played, v.random_games_played, "
+        + "v.terran_team_count::integer, v.protoss_team_count::integer, "
+        + "v.zerg_team_count::integer, v.random_team_count::integer "
+        + "FROM vals v"
+        + "("
+            + "region, queue_type, team_type, league_type, team_count, "
+            + "terran_games_played, protoss_games_played, zerg_games_played, random_games_played, "
+            + "terran_team_count, protoss_team_count, zerg_team_count, random_team_count"
+        + ") "
+        + "INNER JOIN season ON season.battlenet_id = :season AND season.region = v.region "
+        + "INNER JOIN league ON league.season_id = season.id "
+            + "AND league.queue_type = v.queue_type "
+            + "AND league.team_type = v.team_type "
+            + "AND league.type = v.league_type "
+        + "ON CONFLICT(league_id) DO UPDATE SET "
+        + "team_count=excluded.team_count, "
+
+        + "terran_games_played=excluded.terran_games_played, "
+        + "protoss_games_played=excluded.protoss_games_played, "
+        + "zerg_games_played=excluded.zerg_games_played, "
+        + "random_games_played=excluded.random_games_played, "
+
+        + "terran_team_count=excluded.terran_team_count, "
+        + "protoss_team_count=excluded.protoss_team_count, "
+        + "zerg_team_count=excluded.zerg_team_count, "
+        + "random_team_count=excluded.random_team_count";
+
+    private static final String FIND_AGGREGATES_BY_SEASON =
+        "SELECT season.region, league.queue_type, league.team_type, league.type AS league_type, "
+        + STD_SELECT
+        + "FROM league_stats "
+        + "INNER JOIN league ON league_stats.league_id = league.id "
+        + "INNER JOIN season ON league.season_id = season.id "
+        + "WHERE season.battlenet_id = :season";
+
     private static String CALCULATE_SEASON_STATS_QUERY;
     private static String CALCULATE_SEASON_STATS_MERGE_QUERY;
 
@@ -133,6 +205,9 @@ public class LeagueStatsDAO
 
 
     private final NamedParameterJdbcTemplate template;
+    private final ConversionService conversionService;
+    private final RowMapper<TeamLeagueStats> teamStatsRowMapper;
+    private final RowMapper<LeagueStatsAggregate> aggregateRowMapper;
 
     @Autowired
     public LeagueStatsDAO
@@ -142,7 +217,54 @@ public class LeagueStatsDAO
     )
     {
         this.template = template;
+        this.conversionService = conversionService;
         if(CALCULATE_SEASON_STATS_QUERY == null) initQueries(conversionService);
+        teamStatsRowMapper = (rs, i)->new TeamLeagueStats
+        (
+            rs.getLong("id"),
+            conversionService.convert(rs.getInt("region"), Region.class),
+            conversionService.convert(rs.getInt("queue_type"), QueueType.class),
+            conversionService.convert(rs.getInt("team_type"), TeamType.class),
+            conversionService.convert(rs.getInt("league_type"), BaseLeague.LeagueType.class),
+            raceOf(DAOUtils.getInteger(rs, "race")),
+            rs.getInt("terran_games_played"),
+            rs.getInt("protoss_games_played"),
+            rs.getInt("zerg_games_played"),
+            rs.getInt("random_games_played")
+        );
+        aggregateRowMapper = (rs, i)->
+        {
+            LeagueStats stats = STD_ROW_MAPPER.mapRow(rs, i);
+            return new LeagueStatsAggregate
+            (
+                conversionService.convert(rs.getInt("region"), Region.class),
+                conversionService.convert(rs.getInt("queue_type"), QueueType.class),
+                conversionService.convert(rs.getInt("team_type"), TeamType.class),
+                conversionService.convert(rs.getInt("league_type"), BaseLeague.LeagueType.class),
+                stats.getTeamCount(),
+                stats.getTerranGamesPlayed(),
+                stats.getProtossGamesPlayed(),
+                stats.getZergGamesPlayed(),
+                stats.getRandomGamesPlayed(),
+                stats.getTerranTeamCount(),
+                stats.getProtossTeamCount(),
+                stats.getZergTeamCount(),
+                stats.getRandomTeamCount()
+            );
+        };
+    }
+
+    /*
+        Races are encoded in legacy ids of 1v1 teams, unknown ids are ignored the same way the
+        SQL stats ignore them.
+     */
+    private Race raceOf(Integer id)
+    {
+        if(id == null) return null;
+
+        for(Race race : Race.values())
+            if(id.equals(conversionService.convert(race, Integer.class))) return race;
+        return null;
     }
     
     private static void initQueries(ConversionService conversionService)
@@ -188,6 +310,74 @@ public class LeagueStatsDAO
         LOG.debug("Calculated (merged) league stats for {} season", season);
     }
 
+    /**
+     * @param season target season
+     * @return stats of all teams of the season, teams without members are not included
+     */
+    public Stream<TeamLeagueStats> findTeamStats(int season)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("season", season)
+            .addValue("raceQueueType", conversionService.convert(QueueType.LOTV_1V1, Integer.class));
+        return template.queryForStream(FIND_TEAM_STATS_BY_SEASON, params, teamStatsRowMapper);
+    }
+
+    /**
+     * @param ids team ids
+     * @return stats of teams, teams without members are not included
+     */
+    public List<TeamLeagueStats> findTeamStats(Set<Long> ids)
+    {
+        if(ids.isEmpty()) return List.of();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("ids", ids)
+            .addValue("raceQueueType", conversionService.convert(QueueType.LOTV_1V1, Integer.class));
+        return template.query(FIND_TEAM_STATS_BY_IDS, params, teamStatsRowMapper);
+    }
+
+    /**
+     * Merges precalculated league stats. This is the write part of
+     * {@link #mergeCalculateForSeason(int)}, stats of other leagues are not changed.
+     *
+     * @param season target season
+     * @param aggregates league stats
+     * @return number of merged rows
+     */
+    public int merge(int season, List<LeagueStatsAggregate> aggregates)
+    {
+        if(aggregates.isEmpty()) return 0;
+
+        List<Object[]> data = aggregates.stream()
+            .map(a->new Object[]{
+                conversionService.convert(a.region(), Integer.class),
+                conversionService.convert(a.queueType(), Integer.class),
+                conversionService.convert(a.teamType(), Integer.class),
+                conversionService.convert(a.leagueType(), Integer.class),
+                a.teamCount(),
+                a.terranGamesPlayed(),
+                a.protossGamesPlayed(),
+                a.zergGamesPlayed(),
+                a.randomGamesPlayed(),
+                a.terranTeamCount(),
+                a.protossTeamCount(),
+                a.zergTeamCount(),
+                a.randomTeamCount()
+            })
+            .collect(Collectors.toList());
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("season", season)
+            .addValue("aggregates", data);
+        return template.update(MERGE_AGGREGATES, params);
+    }
+
+    public List<LeagueStatsAggregate> findAggregates(int season)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("season", season);
+        return template.query(FIND_AGGREGATES_BY_SEASON, params, aggregateRowMapper);
+    }
+
 }
 
 
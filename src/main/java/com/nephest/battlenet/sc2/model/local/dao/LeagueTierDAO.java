@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.model.local.dao;
 
+import com.nephest.battlenet.sc2.cache.LadderScanCache;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.BaseLeagueTier;
 import com.nephest.battlenet.sc2.model.QueueType;
@@ -160,7 +161,11 @@ public class LeagueTierDAO
         return tier;
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public LeagueTier merge(LeagueTier tier)
     {
         MapSqlParameterSource params = createParameterSource(tier);
@@ -43,6 +43,7 @@ public class MapStatsDAO
         "SELECT DISTINCT(match.id) "
         + "FROM match "
         + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+            + "AND match.date = match_participant.match_date "
         + "LEFT JOIN team_state ON match_participant.team_id = team_state.team_id "
             + "AND match_participant.team_state_timestamp = team_state.timestamp "
         + "WHERE date >= :from AND date < :to "
@@ -58,6 +59,7 @@ public class MapStatsDAO
         + "FROM match_filter "
         + "INNER JOIN match USING(id) "
         + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+            + "AND match.date = match_participant.match_date "
         + "INNER JOIN team ON match_participant.team_id = team.id "
         + "INNER JOIN team_member ON team.id = team_member.team_id ";
 
@@ -73,6 +75,7 @@ public class MapStatsDAO
         + "FROM versus_race_filter "
         + "INNER JOIN match USING(id) "
         + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+            + "AND match.date = match_participant.match_date "
         + "INNER JOIN team ON match_participant.team_id = team.id "
         + "INNER JOIN team_member ON team.id = team_member.team_id "
         + "INNER JOIN team_state ON match_participant.team_id = team_state.team_id "
@@ -90,6 +93,7 @@ public class MapStatsDAO
             + "FROM matchup_league_filter "
             + "INNER JOIN match USING(id) "
             + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                + "AND match.date = match_participant.match_date "
                 + "AND match_participant.player_character_id = matchup_league_filter.player_character_id "
             + "INNER JOIN team ON match_participant.team_id = team.id "
             + "INNER JOIN season ON team.season = season.battlenet_id "
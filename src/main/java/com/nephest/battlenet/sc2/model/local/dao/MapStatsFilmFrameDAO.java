@@ -58,6 +58,7 @@ public class MapStatsFilmFrameDAO
                 + "random_games_played) ORDER BY decision) AS decision\n"
             + "FROM match\n"
             + "INNER JOIN match_participant ON match.id = match_participant.match_id\n"
+                + "AND match.date = match_participant.match_date\n"
             + "INNER JOIN team_state ON match_participant.team_id = team_state.team_id\n"
                 + "AND match_participant.team_state_timestamp = team_state.timestamp\n"
             + "INNER JOIN team_member ON team_member.team_id = match_participant.team_id\n"
@@ -6,11 +6,14 @@ package com.nephest.battlenet.sc2.model.local.dao;
 import com.nephest.battlenet.sc2.model.BaseMatch;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.Match;
+import com.nephest.battlenet.sc2.model.local.inner.RangePartition;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.convert.ConversionService;
@@ -25,6 +28,9 @@ public class MatchDAO
 extends StandardDAO
 {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MatchDAO.class);
+
+    public static final String TABLE = "match";
     public static final int UPDATED_TTL_DAYS = 30;
     public static final int TTL_DAYS = 90;
     public static final int DURATION_MAX = 5400;
@@ -99,6 +105,7 @@ extends StandardDAO
             + "SELECT DISTINCT(player_character_id) "
             + "FROM match "
             + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                + "AND match.date = match_participant.match_date "
             + "WHERE match.date >= :fromHistory "
             + "AND type IN (:types) "
         + ") "
@@ -106,6 +113,7 @@ extends StandardDAO
         + "SELECT player_character_id, date "
         + "FROM match "
         + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+            + "AND match.date = match_participant.match_date "
         + "INNER JOIN character_filter USING(player_character_id) "
         + "WHERE match.date >= :fromHistory;";
 
@@ -116,6 +124,7 @@ extends StandardDAO
             + "SELECT id, EXTRACT(EPOCH FROM (match.date - MAX(prev_match.date))) - " + DURATION_OFFSET + " AS duration "
             + "FROM match "
             + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                + "AND match.date = match_participant.match_date "
             + "JOIN LATERAL "
             + "( "
                 + "SELECT tmp_match_participant_date.date "
@@ -154,6 +163,7 @@ extends StandardDAO
             + "FROM pro_filter "
             + "INNER JOIN match_participant ON pro_filter.id = match_participant.player_character_id "
             + "INNER JOIN match ON match_participant.match_id = match.id "
+                + "AND match_participant.match_date = match.date "
             + "%1$s"
         + ") ";
 
@@ -163,6 +173,7 @@ extends StandardDAO
             + "SELECT DISTINCT(match_id) "
             + "FROM match_participant "
             + "INNER JOIN match ON match_participant.match_id = match.id "
+                + "AND match_participant.match_date = match.date "
             + "WHERE twitch_video_id IS NOT NULL "
             + "AND match.date > :from "
         + "), "
@@ -210,16 +221,19 @@ extends StandardDAO
 
     private static RowMapper<Match> STD_ROW_MAPPER;
     private final ConversionService conversionService;
+    private final PartitionDAO partitionDAO;
 
     @Autowired
     public MatchDAO
     (
         @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
-        @Qualifier("sc2StatsConversionService") ConversionService conversionService
+        @Qualifier("sc2StatsConversionService") ConversionService conversionService,
+        PartitionDAO partitionDAO
     )
     {
         super(template, "match", "30 DAYS");
         this.conversionService = conversionService;
+        this.partitionDAO = partitionDAO;
         initMappers(conversionService);
     }
 
@@ -232,6 +246,78 @@ extends StandardDAO
         return getTemplate().update(REMOVE_EXPIRED_QUERY, params);
     }
 
+    public boolean isPartitioned()
+    {
+        return partitionDAO.isPartitioned(TABLE);
+    }
+
+    public boolean hasRangePartitions()
+    {
+        return !partitionDAO.findRangePartitions(TABLE).isEmpty();
+    }
+
+    /**
+     * Creates match and match participant partitions that cover at least {@code ahead}
+     * partition lengths ahead.
+     *
+     * @return created match partitions
+     */
+    public List<RangePartition> createPartitions(int lengthDays, int ahead)
+    {
+        return partitionDAO.createRangePartitions
+        (
+            TABLE,
+            "date",
+            lengthDays,
+            ahead,
+            "fillfactor = 90",
+            MatchParticipantDAO.TABLE
+        );
+    }
+
+    /**
+     * @return range partitions whose upper bound is older than {@link #TTL_DAYS}
+     */
+    public List<RangePartition> findExpiredPartitions()
+    {
+        OffsetDateTime to = SC2Pulse.offsetDateTime().minusDays(TTL_DAYS);
+        return partitionDAO.findRangePartitions(TABLE).stream()
+            .filter(p->!p.to().isAfter(to))
+            .toList();
+    }
+
+    /**
+     * Drops an expired match partition and the match participant partition of the same
+     * range. Rows are dropped without leaving dead tuples or index bloat behind. Default
+     * partitions are bounded at the next partition, so old matches of the dropped range can
+     * still be inserted.
+     *
+     * @param partition expired match partition
+     */
+    @Transactional
+    public void dropPartition(RangePartition partition)
+    {
+        String participantPartition = partitionDAO.findRangePartitions(MatchParticipantDAO.TABLE)
+            .stream()
+            .filter(p->p.from().isEqual(partition.from()) && p.to().isEqual(partition.to()))
+            .map(RangePartition::name)
+            .findAny()
+            .orElse(null);
+        if(participantPartition != null)
+            partitionDAO.dropPartition(MatchParticipantDAO.TABLE, participantPartition);
+        partitionDAO.dropPartition(TABLE, partition.name());
+        //old matches of the dropped range are routed to the default partitions now
+        partitionDAO.findRangePartitions(TABLE).stream()
+            .findFirst()
+            .map(RangePartition::from)
+            .ifPresent(from->
+            {
+                partitionDAO.boundDefaultPartition(TABLE, from);
+                partitionDAO.boundDefaultPartition(MatchParticipantDAO.TABLE, from);
+            });
+        LOG.info("Dropped match partition {}", partition.name());
+    }
+
     private static void initMappers(ConversionService conversionService)
     {
         if(STD_ROW_MAPPER == null) STD_ROW_MAPPER = (rs, i)->
@@ -13,7 +13,9 @@ import com.nephest.battlenet.sc2.web.service.BlizzardSC2API;
 import com.nephest.battlenet.sc2.web.service.StatsService;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +30,7 @@ import org.springframework.stereotype.Repository;
 public class MatchParticipantDAO
 {
     
+    public static final String TABLE = "match_participant";
     public static final int IDENTIFICATION_FRAME_MINUTES = 60;
     public static final int TWITCH_VOD_HIGH_MMR = 5500;
     public static final int TWITCH_VOD_HIGH_MMR_OFFSET = 95;
@@ -40,37 +43,63 @@ public class MatchParticipantDAO
         + "match_participant.team_state_timestamp AS \"match_participant.team_state_timestamp\", "
         + "match_participant.decision AS \"match_participant.decision\", "
         + "match_participant.rating_change AS \"match_participant.rating_change\" ";
+    /*
+        Participants are matched by match date as well, so only the partitions of the merged
+        dates are scanned. Participants without a known match date fall back to a match id
+        lookup.
+     */
     private static final String MERGE_QUERY =
         "WITH "
         + "vals AS (VALUES :participants), "
+        + "dated AS "
+        + "("
+            + "SELECT v.match_id, "
+            + "COALESCE"
+            + "("
+                + "v.match_date::timestamp with time zone, "
+                + "(SELECT match.date FROM match WHERE match.id = v.match_id)"
+            + ") AS match_date, "
+            + "v.player_character_id, v.decision "
+            + "FROM vals v (match_id, match_date, player_character_id, decision)"
+        + "), "
         + "updated AS "
         + "("
             + "UPDATE match_participant "
             + "SET decision = v.decision "
-            + "FROM vals v (match_id, player_character_id, decision) "
+            + "FROM dated v "
             + "WHERE match_participant.match_id = v.match_id "
+            + "AND match_participant.match_date = v.match_date "
             + "AND match_participant.player_character_id = v.player_character_id "
             + "AND match_participant.decision != v.decision "
             + "RETURNING 1"
         + "), "
         + "missing AS "
         + "("
-            + "SELECT v.match_id, v.player_character_id, v.decision "
-            + "FROM vals v (match_id, player_character_id, decision) "
+            + "SELECT v.match_id, v.match_date, v.player_character_id, v.decision "
+            + "FROM dated v "
             + "LEFT JOIN match_participant ON v.match_id = match_participant.match_id "
+                + "AND v.match_date = match_participant.match_date "
                 + "AND v.player_character_id = match_participant.player_character_id "
             + "WHERE match_participant.decision IS NULL"
         + "), "
         + "inserted AS "
         + "("
-            + "INSERT INTO match_participant(match_id, player_character_id, decision) "
-            + "SELECT * "
+            + "INSERT INTO match_participant(match_id, match_date, player_character_id, decision) "
+            + "SELECT missing.match_id, missing.match_date, missing.player_character_id, missing.decision "
             + "FROM missing "
-            + "ON CONFLICT(match_id, player_character_id) DO NOTHING "
+            + "INNER JOIN match ON missing.match_id = match.id "
+                + "AND missing.match_date = match.date "
+            + "ON CONFLICT(match_id, player_character_id, match_date) DO NOTHING "
             + "RETURNING 1"
         + ") "
         + "SELECT COUNT(*) FROM updated, inserted";
 
+    private static final String FIND_LAST_MATCH_DATES =
+        "SELECT player_character_id, MAX(match_date) AS date "
+        + "FROM match_participant "
+        + "WHERE player_character_id IN(:characterIds) "
+        + "GROUP BY player_character_id";
+
     private static final String IDENTIFY_MATCH_FILTER_TEMPLATE =
         "max_ladder_update AS "
         + "("
@@ -99,6 +128,7 @@ public class MatchParticipantDAO
             + "FROM match_filter "
             + "INNER JOIN match USING(id) "
             + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                + "AND match.date = match_participant.match_date "
             + "INNER JOIN team_member USING(player_character_id) "
             + "INNER JOIN team ON team_member.team_id = team.id "
             + "INNER JOIN team_state ON team.id = team_state.team_id "
@@ -134,6 +164,7 @@ public class MatchParticipantDAO
         + "team_state_timestamp = result_filter.timestamp "
         + "FROM result_filter "
         + "WHERE match_participant.match_id = result_filter.match_id "
+        + "AND match_participant.match_date = result_filter.date "
         + "AND match_participant.player_character_id = result_filter.player_character_id "
         + "AND result_filter.closest_ix = 1";
     
@@ -154,6 +185,7 @@ public class MatchParticipantDAO
             + "FROM match_filter "
             + "INNER JOIN match USING(id) "
             + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                + "AND match.date = match_participant.match_date "
             + "INNER JOIN player_character ON match_participant.player_character_id = player_character.id "
             + "GROUP BY match.id, match_participant.decision "
         + ") "
@@ -164,6 +196,7 @@ public class MatchParticipantDAO
         + "INNER JOIN team_filter ON team_filter.match_id = result_filter.match_id "
         + "INNER JOIN team ON result_filter.team_id = team.id "
         + "WHERE match_participant.match_id = result_filter.match_id "
+        + "AND match_participant.match_date = result_filter.date "
         + "AND match_participant.player_character_id = result_filter.player_character_id "
         + "AND result_filter.closest_ix = 1 "
         + "AND team.legacy_id = team_filter.legacy_id ";
@@ -179,6 +212,7 @@ public class MatchParticipantDAO
             + "match.date "
             + "FROM match "
             + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                + "AND match.date = match_participant.match_date "
             + "WHERE match.date >= :from "
             + "ORDER BY match_participant.player_character_id, match.date"
         + "), "
@@ -189,6 +223,7 @@ public class MatchParticipantDAO
             + "FROM match_participant_filter_first "
             + "INNER JOIN match_participant USING(player_character_id) "
             + "INNER JOIN match ON match_participant.match_id = match.id "
+                + "AND match_participant.match_date = match.date "
             + "WHERE match.date < match_participant_filter_first.date "
             + "ORDER BY match_participant.player_character_id DESC, match.date DESC"
         + "), "
@@ -205,6 +240,7 @@ public class MatchParticipantDAO
         + "rating_diff AS "
         + "( "
             + "SELECT match_participant.match_id, "
+            + "match_participant.match_date, "
             + "match_participant.player_character_id, "
             + "CASE "
                 + "WHEN "
@@ -227,6 +263,7 @@ public class MatchParticipantDAO
             + "FROM match_filter_all "
             + "INNER JOIN match USING(id) "
             + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                + "AND match.date = match_participant.match_date "
             + "LEFT JOIN team_state ON match_participant.team_id = team_state.team_id "
                 + "AND match_participant.team_state_timestamp = team_state.timestamp "
         + ") "
@@ -234,6 +271,7 @@ public class MatchParticipantDAO
         + "SET rating_change = rating_diff.rating_change "
         + "FROM rating_diff "
         + "WHERE match_participant.match_id = rating_diff.match_id "
+        + "AND match_participant.match_date = rating_diff.match_date "
         + "AND match_participant.player_character_id = rating_diff.player_character_id "
         + "AND match_participant.rating_change IS NULL "
         + "AND "
@@ -262,6 +300,7 @@ public class MatchParticipantDAO
             + "- twitch_video.begin)) "
         + "FROM pro_match_filter " + "INNER JOIN match USING(id) "
         + "INNER JOIN match_participant mp ON match.id = mp.match_id "
+            + "AND match.date = mp.match_date "
         + "INNER JOIN team_state ON mp.team_id = team_state.team_id "
             + "AND mp.team_state_timestamp = team_state.timestamp "
         + "INNER JOIN player_character ON mp.player_character_id = player_character.id "
@@ -275,6 +314,7 @@ public class MatchParticipantDAO
         + "BETWEEN twitch_video.begin AND twitch_video.\"end\" "
             + "AND twitch_user.id = twitch_video.twitch_user_id "
         + "WHERE match_participant.match_id = mp.match_id "
+        + "AND match_participant.match_date = mp.match_date "
         + "AND match_participant.player_character_id = mp.player_character_id";
 
     private final NamedParameterJdbcTemplate template;
@@ -353,6 +393,7 @@ public class MatchParticipantDAO
         List<Object[]> participantsData = participants.stream()
             .map(participant->new Object[]{
                 participant.getMatchId(),
+                participant.getMatchDate(),
                 participant.getPlayerCharacterId(),
                 conversionService.convert(participant.getDecision(), Integer.class)
             })
@@ -363,6 +404,25 @@ public class MatchParticipantDAO
         template.query(MERGE_QUERY, params, DAOUtils.INT_EXTRACTOR);
     }
 
+    /**
+     * @param characterIds character ids
+     * @return date of the last match of each character, characters without matches are not
+     * included
+     */
+    public Map<Long, OffsetDateTime> findLastMatchDates(Set<Long> characterIds)
+    {
+        if(characterIds.isEmpty()) return Map.of();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("characterIds", characterIds);
+        Map<Long, OffsetDateTime> dates = new HashMap<>(characterIds.size());
+        template.query(FIND_LAST_MATCH_DATES, params, rs->
+        {
+            dates.put(rs.getLong("player_character_id"), rs.getObject("date", OffsetDateTime.class));
+        });
+        return dates;
+    }
+
     public int identify(int season, OffsetDateTime from)
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
@@ -0,0 +1,440 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import com.nephest.battlenet.sc2.model.local.inner.RangePartition;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * <p>
+ *     Timestamp range partitions of application managed partitioned tables. Table and
+ *     partition names are interpolated into DDL, so only lowercase identifiers are accepted.
+ * </p>
+ * <p>
+ *     Partitioned tables are expected to have a {@code <table>_default} partition, range
+ *     partitions are named {@code <table>_<yyyyMMdd>} after their lower bound.
+ * </p>
+ * <p>
+ *     Postgres scans the default partition when a range partition is created or attached,
+ *     unless a CHECK constraint of the default partition excludes the range. Default
+ *     partitions are bounded by a {@code <table>_default_<column>_check} constraint that
+ *     keeps them below the first range partition, so the scan happens only once, when the
+ *     constraint is validated.
+ * </p>
+ */
+@Repository
+public class PartitionDAO
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionDAO.class);
+
+    public static final String DEFAULT_PARTITION_SUFFIX = "_default";
+    public static final String CHECK_SUFFIX = "_check";
+    public static final String NEW_CHECK_SUFFIX = "_new";
+    public static final DateTimeFormatter PARTITION_NAME_FORMATTER = DateTimeFormatter
+        .ofPattern("yyyyMMdd")
+        .withZone(ZoneOffset.UTC);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("^[a-z_][a-z0-9_]*$");
+
+    private static final String IS_PARTITIONED_QUERY =
+        "SELECT EXISTS"
+        + "("
+            + "SELECT 1 FROM pg_class "
+            + "WHERE relname = :table "
+            + "AND relkind = 'p' "
+            + "AND pg_table_is_visible(oid)"
+        + ")";
+
+    private static final String FIND_RANGE_PARTITIONS_QUERY = """
+        WITH bound AS
+        (
+            SELECT child.relname AS name,
+            pg_get_expr(child.relpartbound, child.oid) AS bound
+            FROM pg_class parent
+            INNER JOIN pg_inherits ON parent.oid = pg_inherits.inhparent
+            INNER JOIN pg_class child ON pg_inherits.inhrelid = child.oid
+            WHERE parent.relname = :table
+            AND pg_table_is_visible(parent.oid)
+        ),
+        range AS
+        (
+            SELECT name,
+            (regexp_match(bound, 'FROM \\(''([^'']+)''\\)'))[1]::timestamp with time zone AS "from",
+            (regexp_match(bound, 'TO \\(''([^'']+)''\\)'))[1]::timestamp with time zone AS "to"
+            FROM bound
+            WHERE bound != 'DEFAULT'
+        )
+        SELECT name, "from", "to"
+        FROM range
+        WHERE "from" IS NOT NULL
+        AND "to" IS NOT NULL
+        ORDER BY "from"
+        """;
+
+    private static final String FIND_PARTITION_COLUMN_QUERY =
+        "SELECT pg_attribute.attname "
+        + "FROM pg_partitioned_table "
+        + "INNER JOIN pg_class ON pg_partitioned_table.partrelid = pg_class.oid "
+        + "INNER JOIN pg_attribute ON pg_class.oid = pg_attribute.attrelid "
+            + "AND pg_partitioned_table.partattrs[0] = pg_attribute.attnum "
+        + "WHERE pg_class.relname = :table "
+        + "AND pg_table_is_visible(pg_class.oid)";
+
+    private static final String FIND_DEFAULT_BOUND_QUERY = """
+        SELECT (regexp_match(pg_get_constraintdef(pg_constraint.oid), '< ''([^'']+)'''))[1]
+            ::timestamp with time zone
+        FROM pg_constraint
+        INNER JOIN pg_class ON pg_constraint.conrelid = pg_class.oid
+        WHERE pg_class.relname = :table
+        AND pg_table_is_visible(pg_class.oid)
+        AND pg_constraint.conname = :constraint
+        AND pg_constraint.convalidated
+        """;
+
+    private static final String ADD_UPPER_BOUND_TEMPLATE =
+        "ALTER TABLE \"%1$s\" ADD CONSTRAINT \"%2$s\" CHECK (\"%3$s\" < '%4$s') NOT VALID";
+    private static final String VALIDATE_CONSTRAINT_TEMPLATE =
+        "ALTER TABLE \"%1$s\" VALIDATE CONSTRAINT \"%2$s\"";
+    private static final String DROP_CONSTRAINT_TEMPLATE =
+        "ALTER TABLE \"%1$s\" DROP CONSTRAINT IF EXISTS \"%2$s\"";
+    private static final String RENAME_CONSTRAINT_TEMPLATE =
+        "ALTER TABLE \"%1$s\" RENAME CONSTRAINT \"%2$s\" TO \"%3$s\"";
+
+    private static final String CREATE_RANGE_PARTITION_TEMPLATE =
+        "CREATE TABLE IF NOT EXISTS \"%2$s\" PARTITION OF \"%1$s\" "
+        + "FOR VALUES FROM ('%3$s') TO ('%4$s')";
+    private static final String STORAGE_PARAMETERS_TEMPLATE = " WITH (%1$s)";
+    private static final String ATTACH_RANGE_PARTITION_TEMPLATE =
+        "ALTER TABLE \"%1$s\" ATTACH PARTITION \"%2$s\" "
+        + "FOR VALUES FROM ('%3$s') TO ('%4$s')";
+    private static final String DETACH_PARTITION_TEMPLATE =
+        "ALTER TABLE \"%1$s\" DETACH PARTITION \"%2$s\"";
+    private static final String DROP_TABLE_TEMPLATE = "DROP TABLE \"%1$s\"";
+    private static final String FIND_MAX_TEMPLATE = "SELECT MAX(\"%2$s\") FROM \"%1$s\"";
+
+    private static final RowMapper<RangePartition> RANGE_PARTITION_ROW_MAPPER = (rs, i)->
+        new RangePartition
+        (
+            rs.getString("name"),
+            rs.getObject("from", OffsetDateTime.class),
+            rs.getObject("to", OffsetDateTime.class)
+        );
+
+    private final NamedParameterJdbcTemplate template;
+
+    @Autowired
+    public PartitionDAO(@Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template)
+    {
+        this.template = template;
+    }
+
+    public static String requireIdentifier(String identifier)
+    {
+        if(identifier == null || !IDENTIFIER.matcher(identifier).matches())
+            throw new IllegalArgumentException("Invalid identifier: " + identifier);
+        return identifier;
+    }
+
+    public static String getPartitionName(String table, OffsetDateTime from)
+    {
+        return table + "_" + PARTITION_NAME_FORMATTER.format(from);
+    }
+
+    public static String getDefaultPartitionName(String table)
+    {
+        return table + DEFAULT_PARTITION_SUFFIX;
+    }
+
+    public static String getCheckName(String table, String column)
+    {
+        return table + "_" + column + CHECK_SUFFIX;
+    }
+
+    private static String[] getDdlArgs(String table, RangePartition partition)
+    {
+        return new String[]
+        {
+            requireIdentifier(table),
+            requireIdentifier(partition.name()),
+            partition.from().toInstant().toString(),
+            partition.to().toInstant().toString()
+        };
+    }
+
+    public boolean isPartitioned(String table)
+    {
+        return Boolean.TRUE.equals(template.queryForObject
+        (
+            IS_PARTITIONED_QUERY,
+            new MapSqlParameterSource().addValue("table", table),
+            Boolean.class
+        ));
+    }
+
+    /**
+     * @param table partitioned table
+     * @return range partitions ordered by lower bound. Default partition is not included.
+     */
+    public List<RangePartition> findRangePartitions(String table)
+    {
+        return template.query
+        (
+            FIND_RANGE_PARTITIONS_QUERY,
+            new MapSqlParameterSource().addValue("table", table),
+            RANGE_PARTITION_ROW_MAPPER
+        );
+    }
+
+    public void createRangePartition(String table, RangePartition partition)
+    {
+        createRangePartition(table, partition, null);
+    }
+
+    /**
+     * Creates a new range partition. Rows of the default partition are scanned to verify
+     * that none of them belong to the new partition, unless the default partition is
+     * {@link #boundDefaultPartition(String, OffsetDateTime) bounded} below the partition.
+     *
+     * @param storageParameters storage parameters of the partition, "fillfactor = 90" for
+     *                          example. Parameters are interpolated into DDL, so they must
+     *                          not come from user input.
+     */
+    public void createRangePartition
+    (
+        String table,
+        RangePartition partition,
+        String storageParameters
+    )
+    {
+        String query = CREATE_RANGE_PARTITION_TEMPLATE.formatted((Object[]) getDdlArgs(table, partition));
+        if(storageParameters != null) query += STORAGE_PARAMETERS_TEMPLATE.formatted(storageParameters);
+        template.getJdbcTemplate().execute(query);
+    }
+
+    /**
+     * <p>
+     *     Creates day aligned partitions that cover at least {@code ahead} partition lengths
+     *     ahead. New partitions start after the last partition of the table, or on the next
+     *     day after the last row of the default partition if there are no partitions yet.
+     *     Aligned tables get partitions with the same bounds, they are expected to be
+     *     partitioned by a copy of the partition column, so their default partitions must
+     *     not contain rows that are newer than the rows of the main table.
+     * </p>
+     * <p>
+     *     Default partitions are {@link #boundDefaultPartition(String, OffsetDateTime) bounded}
+     *     below the first range partition before partitions are created. Bounded default
+     *     partitions reject rows that are newer than the last partition, so partitions must
+     *     be created ahead for as long as the table has range partitions.
+     * </p>
+     *
+     * @param table main partitioned table
+     * @param column partition column
+     * @param lengthDays partition length
+     * @param ahead number of partition lengths to cover
+     * @param storageParameters storage parameters of main table partitions, see
+     *                          {@link #createRangePartition(String, RangePartition, String)}
+     * @param alignedTables tables that are partitioned alongside the main table
+     * @return created partitions of the main table
+     */
+    public List<RangePartition> createRangePartitions
+    (
+        String table,
+        String column,
+        int lengthDays,
+        int ahead,
+        String storageParameters,
+        String... alignedTables
+    )
+    {
+        if(lengthDays < 1) throw new IllegalArgumentException("Partition length must be positive");
+
+        OffsetDateTime now = SC2Pulse.offsetDateTime();
+        List<RangePartition> partitions = findRangePartitions(table);
+        OffsetDateTime defaultMax = findMax(getDefaultPartitionName(table), column).orElse(null);
+        OffsetDateTime from = partitions.isEmpty() ? null : partitions.get(partitions.size() - 1).to();
+        if(from == null || defaultMax != null && !defaultMax.isBefore(from))
+            from = (defaultMax != null && defaultMax.isAfter(now) ? defaultMax : now)
+                .withOffsetSameInstant(ZoneOffset.UTC)
+                .truncatedTo(ChronoUnit.DAYS)
+                .plusDays(1);
+
+        OffsetDateTime horizon = now.plusDays((long) lengthDays * ahead);
+        if(!partitions.isEmpty() || from.isBefore(horizon))
+        {
+            OffsetDateTime bound = partitions.isEmpty() ? from : partitions.get(0).from();
+            boundDefaultPartition(table, bound);
+            for(String alignedTable : alignedTables) boundDefaultPartition(alignedTable, bound);
+        }
+        List<RangePartition> created = new ArrayList<>();
+        for(; from.isBefore(horizon); from = from.plusDays(lengthDays))
+        {
+            RangePartition partition = new RangePartition
+            (
+                getPartitionName(table, from),
+                from,
+                from.plusDays(lengthDays)
+            );
+            createRangePartition(table, partition, storageParameters);
+            for(String alignedTable : alignedTables)
+                createRangePartition
+                (
+                    alignedTable,
+                    new RangePartition
+                    (
+                        getPartitionName(alignedTable, from),
+                        partition.from(),
+                        partition.to()
+                    )
+                );
+            created.add(partition);
+            LOG.info("Created {} partition {}", table, partition);
+        }
+        return created;
+    }
+
+    public Optional<String> findPartitionColumn(String table)
+    {
+        return template.queryForList
+        (
+            FIND_PARTITION_COLUMN_QUERY,
+            new MapSqlParameterSource().addValue("table", table),
+            String.class
+        ).stream().findAny();
+    }
+
+    /**
+     * @param table partitioned table
+     * @return validated exclusive upper bound of the default partition
+     */
+    public Optional<OffsetDateTime> findDefaultPartitionBound(String table)
+    {
+        String column = findPartitionColumn(table).orElseThrow();
+        String defaultPartition = getDefaultPartitionName(table);
+        return Optional.ofNullable(template.query
+        (
+            FIND_DEFAULT_BOUND_QUERY,
+            new MapSqlParameterSource()
+                .addValue("table", defaultPartition)
+                .addValue("constraint", getCheckName(defaultPartition, column)),
+            DAOUtils.OFFSET_DATE_TIME_RESULT_SET_EXTRACTOR
+        ));
+    }
+
+    /**
+     * @param table partitioned table
+     * @param to max upper bound
+     * @return true if the default partition of the table has a validated upper bound that
+     * is not after {@code to}
+     */
+    public boolean isDefaultPartitionBounded(String table, OffsetDateTime to)
+    {
+        return findDefaultPartitionBound(table)
+            .filter(bound->!bound.isAfter(to))
+            .isPresent();
+    }
+
+    /**
+     * <p>
+     *     Adds a CHECK constraint that keeps the default partition below {@code to}, range
+     *     partitions that start at or after {@code to} can be created and attached without
+     *     scanning the default partition. The new constraint is validated without blocking
+     *     writes, and replaces the previous constraint only if the validation succeeds.
+     * </p>
+     * <p>
+     *     The bound is raised when the first range partition is dropped, so rows of the
+     *     dropped range are routed to the default partition instead of being rejected.
+     *     Nothing is done if the default partition is already bounded at {@code to}.
+     * </p>
+     *
+     * @param table partitioned table
+     * @param to exclusive upper bound of the default partition
+     * @return true if the default partition is bounded
+     */
+    public boolean boundDefaultPartition(String table, OffsetDateTime to)
+    {
+        if(findDefaultPartitionBound(table).filter(bound->bound.isEqual(to)).isPresent())
+            return true;
+
+        String column = requireIdentifier(findPartitionColumn(table).orElseThrow());
+        String defaultPartition = requireIdentifier(getDefaultPartitionName(table));
+        String check = getCheckName(defaultPartition, column);
+        String newCheck = check + NEW_CHECK_SUFFIX;
+        JdbcTemplate jdbcTemplate = template.getJdbcTemplate();
+        jdbcTemplate.execute(DROP_CONSTRAINT_TEMPLATE.formatted(defaultPartition, newCheck));
+        jdbcTemplate.execute(ADD_UPPER_BOUND_TEMPLATE
+            .formatted(defaultPartition, newCheck, column, to.toInstant().toString()));
+        try
+        {
+            jdbcTemplate.execute(VALIDATE_CONSTRAINT_TEMPLATE.formatted(defaultPartition, newCheck));
+        }
+        catch(DataIntegrityViolationException ex)
+        {
+            jdbcTemplate.execute(DROP_CONSTRAINT_TEMPLATE.formatted(defaultPartition, newCheck));
+            LOG.warn
+            (
+                "{} contains rows that are not before {}, it will be scanned by partition DDL",
+                defaultPartition, to
+            );
+            return false;
+        }
+        jdbcTemplate.execute(DROP_CONSTRAINT_TEMPLATE.formatted(defaultPartition, check));
+        jdbcTemplate.execute(RENAME_CONSTRAINT_TEMPLATE.formatted(defaultPartition, newCheck, check));
+        LOG.info("Bounded {} partition before {}", defaultPartition, to);
+        return true;
+    }
+
+    /**
+     * Attaches an existing table as a range partition. The table is scanned unless it has a
+     * CHECK constraint that matches the range, and the default partition is scanned unless
+     * it's {@link #boundDefaultPartition(String, OffsetDateTime) bounded} below the range.
+     *
+     * @param table partitioned table
+     * @param partition existing table to attach
+     */
+    public void attachRangePartition(String table, RangePartition partition)
+    {
+        template.getJdbcTemplate()
+            .execute(ATTACH_RANGE_PARTITION_TEMPLATE.formatted((Object[]) getDdlArgs(table, partition)));
+    }
+
+    /**
+     * Detaches and drops a partition. Referencing rows must be removed beforehand, foreign
+     * key actions are not triggered.
+     */
+    public void dropPartition(String table, String partition)
+    {
+        template.getJdbcTemplate().execute(DETACH_PARTITION_TEMPLATE
+            .formatted(requireIdentifier(table), requireIdentifier(partition)));
+        template.getJdbcTemplate().execute(DROP_TABLE_TEMPLATE.formatted(requireIdentifier(partition)));
+    }
+
+    public Optional<OffsetDateTime> findMax(String table, String column)
+    {
+        return Optional.ofNullable(template.query
+        (
+            FIND_MAX_TEMPLATE.formatted(requireIdentifier(table), requireIdentifier(column)),
+            DAOUtils.OFFSET_DATE_TIME_RESULT_SET_EXTRACTOR
+        ));
+    }
+
+}
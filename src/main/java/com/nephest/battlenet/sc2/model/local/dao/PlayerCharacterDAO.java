@@ -1,18 +1,24 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.model.local.dao;
 
 import com.nephest.battlenet.sc2.model.BasePlayerCharacter;
+import com.nephest.battlenet.sc2.model.Partition;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.Account;
+import com.nephest.battlenet.sc2.model.local.Clan;
 import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
 import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
+import com.nephest.battlenet.sc2.model.local.inner.CharacterFingerprintData;
+import com.nephest.battlenet.sc2.model.local.inner.PrefixIndex;
 import com.nephest.battlenet.sc2.model.util.BookmarkedResult;
 import com.nephest.battlenet.sc2.model.util.PostgreSQLUtils;
 import com.nephest.battlenet.sc2.model.util.SimpleBookmarkedResultSetExtractor;
 import com.nephest.battlenet.sc2.web.service.BlizzardPrivacyService;
+import com.nephest.battlenet.sc2.web.service.FingerprintStore;
 import java.sql.Types;
 import java.time.OffsetDateTime;
 import java.util.Arrays;
@@ -21,9 +27,11 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
@@ -208,6 +216,60 @@ public class PlayerCharacterDAO
         + "realm AS \"player_character.realm\", "
         + "battlenet_id AS \"player_character.battlenet_id\" ";
 
+    private static final String MERGE_SET_QUERY =
+        "WITH "
+        + "vals AS (VALUES :characters), "
+        + "selected AS "
+        + "("
+            + "SELECT player_character.id, player_character.account_id, "
+            + "v.region, v.realm, v.battlenet_id, "
+            + "v.account_id AS new_account_id, v.name "
+            + "FROM vals v(account_id, region, battlenet_id, realm, name) "
+            + "INNER JOIN player_character USING(region, realm, battlenet_id) "
+            + "ORDER BY region, realm, battlenet_id "
+            + "FOR UPDATE"
+        + "), "
+        + "updated AS "
+        + "("
+            + "UPDATE player_character "
+            + "SET account_id=v.new_account_id, "
+            + "name=v.name, "
+            + "updated=NOW() "
+            + "FROM selected v "
+            + "WHERE player_character.id = v.id "
+            + "AND "
+            + "("
+                + "player_character.account_id != v.new_account_id "
+                + "OR player_character.name != v.name "
+            + ") "
+            + "AND player_character.anonymous IS NULL "
+            + "RETURNING player_character.id, player_character.account_id "
+        + "), "
+        + REBOUND + ", "
+        + "missing AS "
+        + "("
+            + "SELECT v.account_id, v.region, v.battlenet_id, v.realm, v.name "
+            + "FROM vals v(account_id, region, battlenet_id, realm, name) "
+            + "LEFT JOIN selected ON v.region = selected.region "
+                + "AND v.realm = selected.realm "
+                + "AND v.battlenet_id = selected.battlenet_id "
+            + "WHERE selected.id IS NULL"
+        + "), "
+        + "inserted AS "
+        + "("
+            + "INSERT INTO player_character "
+            + "(account_id, region, battlenet_id, realm, name) "
+            + "SELECT * FROM missing "
+            + "ORDER BY region, realm, battlenet_id "
+            + "ON CONFLICT(region, realm, battlenet_id) DO UPDATE SET "
+            + "account_id=excluded.account_id, "
+            + "name=excluded.name "
+            + "RETURNING " + ID_SELECT
+        + ") "
+        + "SELECT " + ID_SELECT + "FROM selected "
+        + "UNION "
+        + "SELECT * FROM inserted";
+
     private static final String UPDATE_CHARACTERS =
         "WITH "
         + "vals AS (VALUES :characters), "
@@ -231,6 +293,48 @@ public class PlayerCharacterDAO
         + "SELECT " + ID_SELECT
         + "FROM lock_filter";
 
+    private static final String FIND_UNCHANGED_ACCOUNTS_AND_CHARACTERS =
+        "SELECT player_character.id AS \"player_character.id\", "
+        + "player_character.region AS \"player_character.region\", "
+        + "player_character.realm AS \"player_character.realm\", "
+        + "player_character.battlenet_id AS \"player_character.battlenet_id\" "
+        + "FROM (VALUES :characters) v(partition, battle_tag, region, realm, battlenet_id, name, season) "
+        + "INNER JOIN player_character USING(region, realm, battlenet_id) "
+        + "INNER JOIN account ON player_character.account_id = account.id "
+        + "WHERE player_character.name = v.name "
+        + "AND player_character.updated >= :updatedMin "
+        + "AND player_character.anonymous IS NULL "
+        + "AND account.partition = v.partition "
+        + "AND account.battle_tag = v.battle_tag "
+        + "AND account.battle_tag_last_season >= v.season "
+        + "AND account.updated >= :updatedMin "
+        + "AND account.anonymous IS NULL";
+
+    private static final String FIND_FINGERPRINTS =
+        "SELECT player_character.id AS \"player_character.id\", "
+        + "player_character.account_id AS \"player_character.account_id\", "
+        + "player_character.region AS \"player_character.region\", "
+        + "player_character.realm AS \"player_character.realm\", "
+        + "player_character.battlenet_id AS \"player_character.battlenet_id\", "
+        + "player_character.name AS \"player_character.name\", "
+        + "account.partition AS \"account.partition\", "
+        + "account.battle_tag AS \"account.battle_tag\", "
+        + "account.battle_tag_last_season AS \"account.battle_tag_last_season\", "
+        + "LEAST(player_character.updated, account.updated) AS \"updated\", "
+        + "clan.id AS \"clan.id\", "
+        + "clan.tag AS \"clan.tag\", "
+        + "clan.region AS \"clan.region\", "
+        + "clan.name AS \"clan.name\", "
+        + "clan_member.updated AS \"clan_member.updated\" "
+        + "FROM player_character "
+        + "INNER JOIN account ON player_character.account_id = account.id "
+        + "LEFT JOIN clan_member ON player_character.id = clan_member.player_character_id "
+        + "LEFT JOIN clan ON clan_member.clan_id = clan.id "
+        + "WHERE player_character.updated >= :updatedMin "
+        + "AND account.updated >= :updatedMin "
+        + "AND player_character.anonymous IS NULL "
+        + "AND account.anonymous IS NULL";
+
     private static final String UPDATE_ACCOUNTS_AND_CHARACTERS =
         "WITH "
         + "vals AS (VALUES :characters), "
@@ -318,10 +422,35 @@ public class PlayerCharacterDAO
         + "WHERE id = :id";
 
     private static final String ANONYMIZE_EXPIRED_CHARACTERS =
-        "UPDATE player_character "
-        + "SET name = '" + BasePlayerCharacter.DEFAULT_FAKE_FULL_NAME + "' "
-        + "WHERE updated >= :from "
-        + "AND updated < NOW() - INTERVAL '" + BlizzardPrivacyService.DATA_TTL.toDays() + " days' ";
+        "WITH expired AS "
+        + "("
+            + "SELECT id, substring(name from '^.*(?=(#))') AS sub_name "
+            + "FROM player_character "
+            + "WHERE updated >= :from "
+            + "AND updated < NOW() - INTERVAL '" + BlizzardPrivacyService.DATA_TTL.toDays() + " days' "
+            + "AND name != '" + BasePlayerCharacter.DEFAULT_FAKE_FULL_NAME + "' "
+            + "FOR UPDATE"
+        + "), "
+        + "anonymized AS "
+        + "("
+            + "UPDATE player_character "
+            + "SET name = '" + BasePlayerCharacter.DEFAULT_FAKE_FULL_NAME + "' "
+            + "FROM expired "
+            + "WHERE player_character.id = expired.id "
+            + "RETURNING expired.sub_name"
+        + ") "
+        + "SELECT DISTINCT sub_name "
+        + "FROM anonymized "
+        + "WHERE sub_name IS NOT NULL "
+        //other characters may use the same name, byte-wise range of "sub_name#*" names
+        + "AND NOT EXISTS "
+        + "("
+            + "SELECT 1 "
+            + "FROM player_character "
+            + "WHERE player_character.name ~>=~ (anonymized.sub_name || '#') "
+            + "AND player_character.name ~<~ (anonymized.sub_name || '$') "
+            + "AND NOT EXISTS(SELECT 1 FROM expired WHERE expired.id = player_character.id)"
+        + ")";
 
     private static final String UPDATE_UPDATED =
         "UPDATE player_character "
@@ -456,6 +585,13 @@ public class PlayerCharacterDAO
         + "ORDER BY MAX(rating_max) DESC "
         + "LIMIT :limit";
 
+    private static final String FIND_NAME_WITHOUT_DISCRIMINATOR_INDEX =
+        "SELECT substring(name from '^.*(?=(#))') AS sub_name, MAX(rating_max) AS rating_max "
+        + "FROM player_character "
+        + "INNER JOIN player_character_stats ON player_character.id = player_character_stats.player_character_id "
+        + "WHERE name != '" + BasePlayerCharacter.DEFAULT_FAKE_FULL_NAME + "' "
+        + "GROUP BY sub_name";
+
     private static final String FIND_BY_IDS =
         "SELECT " + STD_SELECT
         + "FROM player_character "
@@ -492,19 +628,23 @@ public class PlayerCharacterDAO
     private static RowMapper<PlayerCharacter> ID_ROW_MAPPER;
     private static ResultSetExtractor<PlayerCharacter> ID_EXTRACTOR;
     private static ResultSetExtractor<BookmarkedResult<List<PlayerCharacter>>> BOOKMARKED_STD_ROW_EXTRACTOR;
+    private static RowMapper<CharacterFingerprintData> FINGERPRINT_ROW_MAPPER;
 
     private final NamedParameterJdbcTemplate template;
     private final ConversionService conversionService;
+    private final FingerprintStore fingerprintStore;
 
     @Autowired
     public PlayerCharacterDAO
     (
         @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
-        @Qualifier("sc2StatsConversionService") ConversionService conversionService
+        @Qualifier("sc2StatsConversionService") ConversionService conversionService,
+        @Lazy FingerprintStore fingerprintStore
     )
     {
         this.template = template;
         this.conversionService = conversionService;
+        this.fingerprintStore = fingerprintStore;
         initMappers(conversionService);
     }
 
@@ -534,6 +674,33 @@ public class PlayerCharacterDAO
 
         if(BOOKMARKED_STD_ROW_EXTRACTOR == null) BOOKMARKED_STD_ROW_EXTRACTOR
             = new SimpleBookmarkedResultSetExtractor<>(STD_ROW_MAPPER, "team.rating", "team.id");
+        if(FINGERPRINT_ROW_MAPPER == null) FINGERPRINT_ROW_MAPPER = (rs, i)->
+        {
+            int clanId = rs.getInt("clan.id");
+            Clan clan = rs.wasNull()
+                ? null
+                : new Clan
+                (
+                    clanId,
+                    rs.getString("clan.tag"),
+                    conversionService.convert(rs.getInt("clan.region"), Region.class),
+                    rs.getString("clan.name")
+                );
+            return new CharacterFingerprintData
+            (
+                new Account
+                (
+                    rs.getLong("player_character.account_id"),
+                    conversionService.convert(rs.getInt("account.partition"), Partition.class),
+                    rs.getString("account.battle_tag")
+                ),
+                STD_ROW_MAPPER.mapRow(rs, i),
+                rs.getInt("account.battle_tag_last_season"),
+                rs.getObject("updated", OffsetDateTime.class),
+                clan,
+                rs.getObject("clan_member.updated", OffsetDateTime.class)
+            );
+        };
     }
 
     public static RowMapper<PlayerCharacter> getStdRowMapper()
@@ -569,9 +736,37 @@ public class PlayerCharacterDAO
     {
         MapSqlParameterSource params = createParameterSource(character);
         character.setId(template.query(MERGE_QUERY, params, DAOUtils.LONG_EXTRACTOR));
+        fingerprintStore.invalidate(List.of(character));
         return character;
     }
 
+    /**
+     * Set-based version of {@link #merge(PlayerCharacter)}. All characters are merged in a
+     * single statement, row locks are acquired in the natural id order.
+     *
+     * @param characters characters with valid account ids
+     * @return supplied {@code characters} with ids set
+     */
+    public Set<PlayerCharacter> merge(Set<PlayerCharacter> characters)
+    {
+        if(characters.isEmpty()) return characters;
+
+        List<Object[]> data = characters.stream()
+            .map(c->new Object[]
+            {
+                c.getAccountId(),
+                conversionService.convert(c.getRegion(), Integer.class),
+                c.getBattlenetId(),
+                c.getRealm(),
+                c.getName()
+            })
+            .collect(Collectors.toList());
+        SqlParameterSource params = new MapSqlParameterSource().addValue("characters", data);
+        List<PlayerCharacter> ids = template.query(MERGE_SET_QUERY, params, ID_ROW_MAPPER);
+        fingerprintStore.invalidate(characters);
+        return DAOUtils.updateOriginals(characters, ids, (o, m)->o.setId(m.getId()));
+    }
+
     /*
         updateCharacters and updateAccountsAndCharacters methods are primarily used to update historical BattleTags,
         names, and timestamps. This ensures full compliance with the Blizzard ToS.
@@ -632,6 +827,55 @@ public class PlayerCharacterDAO
         );
     }
 
+    /**
+     * Finds characters whose BattleTag and name are the same as in the supplied data, and
+     * whose account and character were updated recently. Updating such characters would
+     * only refresh their timestamps.
+     *
+     * @param accountsAndCharacters account and character data
+     * @param updatedMin min account and character updated timestamp
+     * @return ids of unchanged characters
+     */
+    public List<PlayerCharacter> findUnchangedAccountsAndCharacters
+    (
+        Set<AccountCharacterData> accountsAndCharacters,
+        OffsetDateTime updatedMin
+    )
+    {
+        if(accountsAndCharacters.isEmpty()) return List.of();
+
+        List<Object[]> data = accountsAndCharacters.stream()
+            .map(c->new Object[]
+            {
+                conversionService.convert(c.getAccount().getPartition(), Integer.class),
+                c.getAccount().getBattleTag(),
+                conversionService.convert(c.getCharacter().getRegion(), Integer.class),
+                c.getCharacter().getRealm(),
+                c.getCharacter().getBattlenetId(),
+                c.getCharacter().getName(),
+                c.getSeason()
+            })
+            .collect(Collectors.toList());
+        SqlParameterSource params = new MapSqlParameterSource()
+            .addValue("characters", data)
+            .addValue("updatedMin", updatedMin);
+        return template.query(FIND_UNCHANGED_ACCOUNTS_AND_CHARACTERS, params, ID_ROW_MAPPER);
+    }
+
+    /**
+     * Streams current data of characters whose account and character were updated recently.
+     * The stream must be closed.
+     *
+     * @param updatedMin min account and character updated timestamp
+     * @return account, character, and clan data
+     */
+    public Stream<CharacterFingerprintData> findFingerprints(OffsetDateTime updatedMin)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("updatedMin", updatedMin);
+        return template.queryForStream(FIND_FINGERPRINTS, params, FINGERPRINT_ROW_MAPPER);
+    }
+
     public int updateAnonymousFlag( Long id, Boolean anonymous)
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
@@ -648,10 +892,18 @@ public class PlayerCharacterDAO
         return anonymous != null && anonymous;
     }
 
-    public int anonymizeExpiredCharacters(OffsetDateTime from)
+    /**
+     * Anonymizes names of characters that were not updated for
+     * {@link BlizzardPrivacyService#DATA_TTL}. Anonymized characters are skipped.
+     *
+     * @param from only characters that were updated after this timestamp are anonymized
+     * @return anonymized names without discriminator that are no longer used by other
+     * characters
+     */
+    public List<String> anonymizeExpiredCharacters(OffsetDateTime from)
     {
         MapSqlParameterSource params = new MapSqlParameterSource().addValue("from", from);
-        return template.update(ANONYMIZE_EXPIRED_CHARACTERS, params);
+        return template.queryForList(ANONYMIZE_EXPIRED_CHARACTERS, params, String.class);
     }
 
     public int updateUpdated(OffsetDateTime updated, Set<Long> ids)
@@ -879,6 +1131,20 @@ public class PlayerCharacterDAO
         return template.queryForList(FIND_NAMES_WITHOUT_DISCRIMINATOR_BY_NAME_LIKE, params, String.class);
     }
 
+    /**
+     * @return names without discriminator ranked by max rating, anonymized names are
+     * excluded
+     */
+    public PrefixIndex findNameWithoutDiscriminatorIndex()
+    {
+        return template.query(FIND_NAME_WITHOUT_DISCRIMINATOR_INDEX, new MapSqlParameterSource(), rs->
+        {
+            PrefixIndex.Builder builder = new PrefixIndex.Builder();
+            while(rs.next()) builder.add(rs.getString("sub_name"), rs.getInt("rating_max"));
+            return builder.build();
+        });
+    }
+
     public List<Long> findIdsByAccountIds(Set<Long> accountIds)
     {
         if(accountIds.isEmpty()) return List.of();
@@ -3,10 +3,16 @@
 
 package com.nephest.battlenet.sc2.model.local.dao;
 
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
 import com.nephest.battlenet.sc2.model.local.PlayerCharacterReport;
 import com.nephest.battlenet.sc2.model.local.PopulationState;
+import com.nephest.battlenet.sc2.model.local.inner.LeaguePopulation;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.convert.ConversionService;
@@ -110,6 +116,43 @@ public class PopulationStateDAO
             + "AND league_team_count.queue_type = global_team_count.queue_type "
             + "AND league_team_count.team_type = global_team_count.team_type";
 
+    private static final String TAKE_SNAPSHOT_BY_LEAGUE_POPULATION =
+        "WITH vals AS(VALUES :populations) "
+        + "INSERT INTO "
+        + "population_state"
+        + "(league_id, global_team_count, region_team_count, league_team_count) "
+        + "SELECT league.id, v.global_team_count, v.region_team_count, v.league_team_count "
+        + "FROM vals v"
+        + "("
+            + "region, queue_type, team_type, league_type, "
+            + "global_team_count, region_team_count, league_team_count"
+        + ") "
+        + "INNER JOIN season ON season.battlenet_id = :season AND season.region = v.region "
+        + "INNER JOIN league ON league.season_id = season.id "
+            + "AND league.queue_type = v.queue_type "
+            + "AND league.team_type = v.team_type "
+            + "AND league.type = v.league_type";
+
+    private static final String FIND_LEAGUE_POPULATION =
+        "WITH "
+        + "cheaters AS "
+        + "( "
+            + String.format(TeamDAO.FIND_CHEATER_TEAMS_BY_SEASONS_TEMPLATE, "DISTINCT(team_id)")
+        + "), "
+        + "league_population AS "
+        + "("
+            + "SELECT region, queue_type, team_type, league_type, COUNT(*) AS count "
+            + "FROM team "
+            + "WHERE season = :season "
+            + "AND id NOT IN(SELECT team_id FROM cheaters) "
+            + "GROUP BY region, queue_type, team_type, league_type"
+        + ") "
+        + "SELECT region, queue_type, team_type, league_type, "
+        + "SUM(count) OVER(PARTITION BY queue_type, team_type) AS global_team_count, "
+        + "SUM(count) OVER(PARTITION BY queue_type, team_type, region) AS region_team_count, "
+        + "count AS league_team_count "
+        + "FROM league_population";
+
     private static final String FIND_BY_IDS = "SELECT " + STD_SELECT
         + "FROM population_state "
         + "WHERE id IN(:ids)";
@@ -133,6 +176,7 @@ public class PopulationStateDAO
     private final NamedParameterJdbcTemplate template;
     private final ConversionService conversionService;
     private final SeasonDAO seasonDAO;
+    private final RowMapper<LeaguePopulation> leaguePopulationRowMapper;
 
     @Autowired
     public PopulationStateDAO
@@ -145,6 +189,16 @@ public class PopulationStateDAO
         this.template = template;
         this.conversionService = conversionService;
         this.seasonDAO = seasonDAO;
+        leaguePopulationRowMapper = (rs, i)->new LeaguePopulation
+        (
+            conversionService.convert(rs.getInt("region"), Region.class),
+            conversionService.convert(rs.getInt("queue_type"), QueueType.class),
+            conversionService.convert(rs.getInt("team_type"), TeamType.class),
+            conversionService.convert(rs.getInt("league_type"), BaseLeague.LeagueType.class),
+            rs.getInt("global_team_count"),
+            rs.getInt("region_team_count"),
+            rs.getInt("league_team_count")
+        );
     }
 
     /**
@@ -167,6 +221,57 @@ public class PopulationStateDAO
         return template.update(TAKE_SNAPSHOT, params);
     }
 
+    /**
+     * <p>
+     *     Creates a partial population snapshot. Only leagues of the {@code populations} are
+     *     included, other leagues keep their previous snapshots.
+     * </p>
+     * @param season target season
+     * @param populations league populations, counts must exclude cheaters
+     * @return number of created snapshots
+     */
+    public int takeSnapshot(int season, List<LeaguePopulation> populations)
+    {
+        if(populations.isEmpty()) return 0;
+
+        List<Object[]> data = populations.stream()
+            .map(p->new Object[]{
+                conversionService.convert(p.region(), Integer.class),
+                conversionService.convert(p.queueType(), Integer.class),
+                conversionService.convert(p.teamType(), Integer.class),
+                conversionService.convert(p.leagueType(), Integer.class),
+                p.globalTeamCount(),
+                p.regionTeamCount(),
+                p.leagueTeamCount()
+            })
+            .collect(Collectors.toList());
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("season", season)
+            .addValue("populations", data);
+        return template.update(TAKE_SNAPSHOT_BY_LEAGUE_POPULATION, params);
+    }
+
+    /**
+     * Counts non-cheater teams of the season. This is the same population that is used
+     * in {@link #takeSnapshot(Collection) full snapshots}, but it is calculated from the team
+     * table, so it doesn't depend on league stats.
+     *
+     * @param season target season
+     * @return league populations
+     */
+    public List<LeaguePopulation> findLeaguePopulation(int season)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("season", season)
+            .addValue("seasons", List.of(season))
+            .addValue
+            (
+                "cheaterReportType",
+                conversionService.convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class)
+            );
+        return template.query(FIND_LEAGUE_POPULATION, params, leaguePopulationRowMapper);
+    }
+
     public List<PopulationState> findByIds(Collection<Integer> ids)
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
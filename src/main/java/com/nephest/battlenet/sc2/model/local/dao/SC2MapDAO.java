@@ -1,8 +1,9 @@
-// Copyright (C) 2020-2023 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.model.local.dao;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Region;
@@ -88,7 +89,7 @@ public class SC2MapDAO
         rs.getString("map.name")
     );
 
-    private final SeasonDAO seasonDAO;
+    private final SeasonRegistry seasonRegistry;
 
     private final NamedParameterJdbcTemplate template;
     private final ConversionService conversionService;
@@ -96,12 +97,12 @@ public class SC2MapDAO
     @Autowired
     public SC2MapDAO
     (
-        SeasonDAO seasonDAO,
+        SeasonRegistry seasonRegistry,
         @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
         @Qualifier("sc2StatsConversionService") ConversionService conversionService
     )
     {
-        this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
         this.template = template;
         this.conversionService = conversionService;
     }
@@ -144,7 +145,7 @@ public class SC2MapDAO
     {
         return find
         (
-            seasonDAO.getMaxBattlenetId(),
+            seasonRegistry.getMaxBattlenetId(),
             List.of(Region.values()),
             List.of(BaseLeague.LeagueType.values()),
             QueueType.LOTV_1V1,
@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.model.local.dao;
 
+import com.nephest.battlenet.sc2.cache.LadderScanCache;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.Season;
 import java.sql.Types;
@@ -248,7 +249,23 @@ public class SeasonDAO
             .collect(Collectors.toList());
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    /**
+     * Uncached version of {@code findListByBattlenetId(null)}
+     *
+     * @return all seasons
+     */
+    public List<Season> findAll()
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("battlenetId", null, Types.INTEGER);
+        return template.query(FIND_LIST_BY_BATTLENET_ID, params, STD_ROW_MAPPER);
+    }
+
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public List<Season> findListByBattlenetId(@Nullable Integer battlenetId)
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
@@ -256,13 +273,21 @@ public class SeasonDAO
         return template.query(FIND_LIST_BY_BATTLENET_ID, params, STD_ROW_MAPPER);
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public Integer getMaxBattlenetId()
     {
         return template.query(FIND_MAX_BATTLENET_ID_QUERY, DAOUtils.INT_EXTRACTOR);
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public Integer getMaxBattlenetId(Region region)
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
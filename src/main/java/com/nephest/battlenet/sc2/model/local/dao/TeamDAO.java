@@ -20,10 +20,11 @@ import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
 import com.nephest.battlenet.sc2.model.local.PlayerCharacterReport;
 import com.nephest.battlenet.sc2.model.local.Team;
 import com.nephest.battlenet.sc2.model.local.TeamMember;
+import com.nephest.battlenet.sc2.model.local.inner.IdRange;
 import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyId;
 import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyIdEntry;
 import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyUid;
-import com.nephest.battlenet.sc2.web.service.StatsService;
+import com.nephest.battlenet.sc2.model.local.inner.TeamRank;
 import jakarta.validation.Valid;
 import java.sql.Types;
 import java.time.Duration;
@@ -67,6 +68,7 @@ implements BasicEntityOperations<Team>
     public static final Duration VALID_LADDER_RESET_DURATION = Duration.ofMinutes(9);
     public static final Duration MIN_DURATION_BETWEEN_SEASONS = Duration.ofSeconds(2);
     public static final String LEGACY_ID_SECTION_DELIMITER = "~";
+    public static final int RANK_BATCH_SIZE = 5000;
 
     public static final String STD_SELECT =
         "team.id AS \"team.id\", "
@@ -299,6 +301,14 @@ implements BasicEntityOperations<Team>
     private static final String FIND_CHEATER_TEAM_IDS_BY_SEASON_QUERY =
         String.format(FIND_CHEATER_TEAMS_BY_SEASONS_TEMPLATE, "DISTINCT(team_id)");
 
+    private static final String FIND_ID_RANGE_BY_REGION_AND_SEASON =
+        """
+        SELECT MIN(id) AS min, MAX(id) AS max
+        FROM team
+        WHERE region = :region
+        AND season = :season
+        """;
+
     private static final String FIND_MAX_LAST_PLAYED_BY_REGION_AND_SEASON =
         """
         SELECT MAX(last_played)
@@ -307,26 +317,25 @@ implements BasicEntityOperations<Team>
         AND season = :season
         """;
 
+    /*
+        Population snapshots can be partial, so the last snapshot is looked up for every league
+        of the season instead of taking the last N snapshots.
+     */
     public static final String LAST_POPULATION_SNAPSHOT =
-        "last_population_snapshot AS"
+        "last_population_snapshot_filter AS"
         + "("
-        + "SELECT id, league_id "
-        + "FROM population_state "
-        + "ORDER BY id DESC "
-        + "LIMIT " +
-        Region.values().length
-            //-1 to offset 1v1 and archon
-            * (QueueType.getTypes(StatsService.VERSION).size() - 1)
-            * BaseLeague.LeagueType.values().length
-            * TeamType.values().length
-            * 2 //offset season change
-        + "), "
-        + "last_population_snapshot_filter AS"
+        + "SELECT last_population_snapshot.id, league.id AS league_id "
+        + "FROM season "
+        + "INNER JOIN league ON season.id = league.season_id "
+        + "INNER JOIN LATERAL "
         + "("
-        + "SELECT DISTINCT ON(league_id) "
-        + "* "
-        + "FROM last_population_snapshot "
-        + "ORDER BY league_id DESC, id DESC"
+            + "SELECT id "
+            + "FROM population_state "
+            + "WHERE population_state.league_id = league.id "
+            + "ORDER BY id DESC "
+            + "LIMIT 1"
+        + ") last_population_snapshot ON true "
+        + "WHERE season.battlenet_id = :season"
         + ") ";
 
     private static final String CALCULATE_RANK_QUERY =
@@ -366,6 +375,62 @@ implements BasicEntityOperations<Team>
         + "LEFT JOIN last_population_snapshot_filter USING(league_id) "
         + "WHERE team.id = ranks.id";
 
+    private static final String FIND_RANKS_QUERY =
+        "WITH "
+        + "cheaters AS "
+        + "( "
+            + FIND_CHEATER_TEAM_IDS_BY_SEASON_QUERY
+        + ") "
+        + "SELECT id, "
+        + "RANK() OVER(PARTITION BY queue_type, team_type ORDER BY rating DESC) as global_rank, "
+        + "RANK() OVER(PARTITION BY queue_type, team_type, region ORDER BY rating DESC) as region_rank, "
+        + "RANK() OVER(PARTITION BY queue_type, team_type, region, league_type ORDER BY rating DESC) as league_rank "
+        + "FROM team "
+        + "WHERE season = :season "
+        + "AND id NOT IN(SELECT team_id FROM cheaters)";
+
+    private static final String UPDATE_RANKS_BY_IDS_QUERY =
+        "WITH vals AS(VALUES :ranks) "
+        + "UPDATE team "
+        + "SET global_rank = v.global_rank, "
+        + "region_rank = v.region_rank, "
+        + "league_rank = v.league_rank "
+        + "FROM vals v(id, global_rank, region_rank, league_rank) "
+        + "WHERE team.id = v.id";
+
+    private static final String NULLIFY_RANKS_BY_IDS_QUERY =
+        "UPDATE team "
+        + "SET global_rank = null, "
+        + "region_rank = null, "
+        + "league_rank = null "
+        + "WHERE id IN(:ids) "
+        + "AND global_rank IS NOT NULL";
+
+    private static final String UPDATE_POPULATION_STATE_QUERY =
+        "WITH "
+        + LAST_POPULATION_SNAPSHOT + ", "
+        + "cheaters AS "
+        + "( "
+            + FIND_CHEATER_TEAM_IDS_BY_SEASON_QUERY
+        + ") "
+        + "UPDATE team "
+        + "SET population_state_id = last_population_snapshot_filter.id "
+        + "FROM division "
+        + "INNER JOIN league_tier ON division.league_tier_id = league_tier.id "
+        + "LEFT JOIN last_population_snapshot_filter USING(league_id) "
+        + "WHERE team.season = :season "
+        + "AND team.division_id = division.id "
+        + "AND team.id NOT IN(SELECT team_id FROM cheaters) "
+        + "AND team.population_state_id IS DISTINCT FROM last_population_snapshot_filter.id";
+
+    private static final RowMapper<TeamRank> RANK_ROW_MAPPER = (rs, i)->new TeamRank
+    (
+        rs.getLong("id"),
+        rs.getInt("global_rank"),
+        rs.getInt("region_rank"),
+        rs.getInt("league_rank")
+    );
+
     private static final Map<Race, String> FIND_1V1_TEAM_BY_FAVOURITE_RACE_QUERIES = new EnumMap<>(Race.class);
 
     private static RowMapper<Team> STD_ROW_MAPPER;
@@ -381,6 +446,14 @@ implements BasicEntityOperations<Team>
             List.of(TeamMemberDAO.STD_ROW_MAPPER.mapRow(rs, 0))));
     };
 
+    private static final ResultSetExtractor<Optional<IdRange>> ID_RANGE_EXTRACTOR = (rs)->
+    {
+        if(!rs.next()) return Optional.empty();
+
+        long min = rs.getLong("min");
+        return rs.wasNull() ? Optional.empty() : Optional.of(new IdRange(min, rs.getLong("max")));
+    };
+
 
     private final NamedParameterJdbcTemplate template;
     private final ConversionService conversionService;
@@ -688,6 +761,75 @@ implements BasicEntityOperations<Team>
         LOG.debug("Calculated team ranks for {} season", season);
     }
 
+    /**
+     * Calculates ranks of all non-cheater teams of the season without updating them.
+     *
+     * @param season target season
+     * @return calculated ranks
+     */
+    public List<TeamRank> findRanks(int season)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("season", season)
+            .addValue("seasons", season)
+            .addValue
+            (
+                "cheaterReportType",
+                conversionService.convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class)
+            );
+        return template.query(FIND_RANKS_QUERY, params, RANK_ROW_MAPPER);
+    }
+
+    /**
+     * Updates team ranks by team ids. Population state id is not updated, use
+     * {@link #updatePopulationStateIds(int)} for this.
+     *
+     * @param ranks new ranks
+     * @return number of updated teams
+     */
+    public int updateRanks(List<TeamRank> ranks)
+    {
+        int count = 0;
+        for(int i = 0; i < ranks.size(); i += RANK_BATCH_SIZE)
+        {
+            List<Object[]> data = ranks.subList(i, Math.min(i + RANK_BATCH_SIZE, ranks.size())).stream()
+                .map(r->new Object[]{r.teamId(), r.globalRank(), r.regionRank(), r.leagueRank()})
+                .collect(Collectors.toList());
+            MapSqlParameterSource params = new MapSqlParameterSource().addValue("ranks", data);
+            count += template.update(UPDATE_RANKS_BY_IDS_QUERY, params);
+        }
+        return count;
+    }
+
+    public int nullifyRanks(Set<Long> ids)
+    {
+        if(ids.isEmpty()) return 0;
+
+        MapSqlParameterSource params = new MapSqlParameterSource().addValue("ids", ids);
+        return template.update(NULLIFY_RANKS_BY_IDS_QUERY, params);
+    }
+
+    /**
+     * Updates population state id of all non-cheater teams of the season, only rows that point
+     * to an old snapshot are updated. This is the population state part of
+     * {@link #updateRanks(int)}.
+     *
+     * @param season target season
+     * @return number of updated teams
+     */
+    public int updatePopulationStateIds(int season)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("season", season)
+            .addValue("seasons", season)
+            .addValue
+            (
+                "cheaterReportType",
+                conversionService.convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class)
+            );
+        return template.update(UPDATE_POPULATION_STATE_QUERY, params);
+    }
+
     public Optional<Map.Entry<Team, List<TeamMember>>> find1v1TeamByFavoriteRace
     (
         int season,
@@ -714,6 +856,17 @@ implements BasicEntityOperations<Team>
         return template.query(FIND_CHEATER_TEAM_IDS_BY_SEASON_QUERY, params, DAOUtils.LONG_MAPPER);
     }
 
+    /**
+     * @return inclusive id range of region season teams, empty if there are no teams
+     */
+    public Optional<IdRange> findIdRange(Region region, int season)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("region", conversionService.convert(region, Integer.class))
+            .addValue("season", season);
+        return template.query(FIND_ID_RANGE_BY_REGION_AND_SEASON, params, ID_RANGE_EXTRACTOR);
+    }
+
     @Cacheable("last-played-max")
     public Optional<OffsetDateTime> findMaxLastPlayed(Region region, int season)
     {
@@ -3,9 +3,12 @@
 
 package com.nephest.battlenet.sc2.model.local.dao;
 
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.inner.KeysetChunk;
 import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.convert.ConversionService;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -14,9 +17,13 @@ import org.springframework.stereotype.Repository;
 public class TeamStateArchiveDAO
 {
 
-    private static final String ARCHIVE =
+    /*
+        "%1$s" is the team id filter, "%2$s" is the list of additional CTEs.
+     */
+    private static final String ARCHIVE_CTE_TEMPLATE =
         """
-        WITH archive_group AS
+        %2$s
+        archive_group AS
         (
             SELECT DISTINCT ON(team_id)
             team_id,
@@ -24,7 +31,7 @@ public class TeamStateArchiveDAO
             last_value(timestamp) OVER team_rating_window as rating_max_ts,
             last_value(timestamp) OVER team_timestamp_window as timestamp_last_ts
             FROM team_state
-            WHERE team_id IN(:teamIds)
+            WHERE team_id IN(%1$s)
             WINDOW team_rating_window AS
             (
                 PARTITION BY team_id
@@ -53,22 +60,43 @@ public class TeamStateArchiveDAO
             AS archive(team_id, timestamp)
             ORDER BY archive.team_id, archive.timestamp
         )
+        """;
+
+    private static final String INSERT_ARCHIVE =
+        """
         INSERT INTO team_state_archive(team_id, timestamp)
         SELECT team_id, timestamp FROM archive
         """;
 
+    private static final String ARCHIVE =
+        "WITH " + ARCHIVE_CTE_TEMPLATE.formatted(":teamIds", "") + INSERT_ARCHIVE;
+
+    private static final String ARCHIVE_CHUNK =
+        "WITH "
+        + ARCHIVE_CTE_TEMPLATE.formatted
+        (
+            "SELECT id FROM team_filter",
+            TeamStateDAO.REGION_SEASON_TEAM_CHUNK_FILTER + ","
+        )
+        + ", inserted AS (" + INSERT_ARCHIVE + "RETURNING 1) "
+        + "SELECT (SELECT MAX(id) FROM team_filter) AS last_id, "
+        + "(SELECT COUNT(*) FROM inserted) AS count";
+
     private static final String DELETE_ARCHIVE =
         "DELETE FROM team_state_archive WHERE team_id IN(:teamIds)";
 
     private final NamedParameterJdbcTemplate template;
+    private final ConversionService conversionService;
 
     @Autowired
     public TeamStateArchiveDAO
     (
-        @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template
+        @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
+        @Qualifier("sc2StatsConversionService") ConversionService conversionService
     )
     {
         this.template = template;
+        this.conversionService = conversionService;
     }
 
     public int archive(Set<Long> teamIds)
@@ -80,6 +108,23 @@ public class TeamStateArchiveDAO
         return template.update(ARCHIVE, params);
     }
 
+    /**
+     * Archives states of up to {@code limit} region season teams with ids in the
+     * ({@code afterId}, {@code maxId}] range.
+     *
+     * @return last id of the chunk and number of archived states
+     */
+    public KeysetChunk archive(Region region, int season, long afterId, long maxId, int limit)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("region", conversionService.convert(region, Integer.class))
+            .addValue("season", season)
+            .addValue("afterId", afterId)
+            .addValue("maxId", maxId)
+            .addValue("limit", limit);
+        return template.queryForObject(ARCHIVE_CHUNK, params, TeamStateDAO.KEYSET_CHUNK_ROW_MAPPER);
+    }
+
     public int delete(Set<Long> teamIds)
     {
         if(teamIds.isEmpty()) return 0;
@@ -5,6 +5,11 @@ package com.nephest.battlenet.sc2.model.local.dao;
 
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.TeamState;
+import com.nephest.battlenet.sc2.model.local.inner.KeysetChunk;
+import com.nephest.battlenet.sc2.model.local.inner.RangePartition;
+import com.nephest.battlenet.sc2.model.util.PostgreSQLBinaryCopyWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Types;
 import java.time.OffsetDateTime;
 import java.util.List;
@@ -13,7 +18,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -27,6 +34,9 @@ public class TeamStateDAO
     private static final Logger LOG = LoggerFactory.getLogger(TeamStateDAO.class);
 
     public static final int TEAM_SNAPSHOT_BATCH_SIZE = 200;
+    public static final String TABLE = "team_state";
+    public static final String DEFAULT_PARTITION = TABLE + "_default";
+    public static final String ARCHIVED_PARTITION_SUFFIX = "_archived";
 
     public static final String STD_SELECT =
         "team_state.team_id AS \"team_state.team_id\", "
@@ -54,7 +64,7 @@ public class TeamStateDAO
         "INSERT INTO team_state (team_id, \"timestamp\", division_id, games, rating, secondary) "
         + "VALUES (:teamId, :timestamp, :divisionId, :games, :rating, :secondary)";
 
-    private static final String TAKE_TEAM_SNAPSHOT =
+    private static final String TAKE_TEAM_SNAPSHOT_TEMPLATE =
         "INSERT INTO team_state "
         + "("
             + "team_id, \"timestamp\", division_id, wins, games, rating, secondary, "
@@ -69,28 +79,175 @@ public class TeamStateDAO
         + "global_rank, region_rank, league_rank, "
         + "population_state.region_team_count, "
         + "team.population_state_id "
-        + "FROM team "
+        + "FROM %1$s"
         + "LEFT JOIN population_state ON team.population_state_id = population_state.id "
-        + "WHERE team.id IN(:teamIds)";
+        + "%2$s";
+
+    private static final String TAKE_TEAM_SNAPSHOT = String.format
+    (
+        TAKE_TEAM_SNAPSHOT_TEMPLATE,
+        "team ",
+        "WHERE team.id IN(:teamIds)"
+    );
+
+    /*
+        Keyset paginated path. Snapshots of region season teams are taken in a single
+        statement, one chunk of team ids at a time. The last id of the chunk is returned to
+        continue from it.
+     */
+    public static final String REGION_SEASON_TEAM_CHUNK_FILTER =
+        "team_filter AS "
+        + "("
+            + "SELECT id "
+            + "FROM team "
+            + "WHERE id > :afterId "
+            + "AND id <= :maxId "
+            + "AND region = :region "
+            + "AND season = :season "
+            + "ORDER BY id "
+            + "LIMIT :limit"
+        + ") ";
+
+    private static final String TAKE_TEAM_SNAPSHOT_CHUNK =
+        "WITH " + REGION_SEASON_TEAM_CHUNK_FILTER + ", "
+        + "inserted AS "
+        + "("
+            + String.format
+            (
+                TAKE_TEAM_SNAPSHOT_TEMPLATE,
+                "team_filter INNER JOIN team ON team_filter.id = team.id ",
+                "RETURNING 1"
+            )
+        + ") "
+        + "SELECT (SELECT MAX(id) FROM team_filter) AS last_id, "
+        + "(SELECT COUNT(*) FROM inserted) AS count";
+
+    public static final RowMapper<KeysetChunk> KEYSET_CHUNK_ROW_MAPPER = (rs, i)->new KeysetChunk
+    (
+        DAOUtils.getLong(rs, "last_id"),
+        rs.getInt("count")
+    );
+
+    /*
+        Binary COPY path. Team ids or states are streamed into temporary staging tables and
+        then inserted in a single statement. Staging tables are bound to the session and are
+        truncated on commit.
+     */
+    private static final String CREATE_SNAPSHOT_STAGING_TABLE =
+        "CREATE TEMPORARY TABLE IF NOT EXISTS team_state_snapshot_staging "
+        + "("
+            + "team_id BIGINT NOT NULL"
+        + ") "
+        + "ON COMMIT DELETE ROWS";
+
+    private static final String COPY_SNAPSHOT_STAGING =
+        "COPY team_state_snapshot_staging(team_id) FROM STDIN (FORMAT binary)";
+
+    private static final String TAKE_TEAM_SNAPSHOT_FROM_STAGING = String.format
+    (
+        TAKE_TEAM_SNAPSHOT_TEMPLATE,
+        "(SELECT DISTINCT team_id FROM team_state_snapshot_staging) staging "
+            + "INNER JOIN team ON staging.team_id = team.id ",
+        ""
+    );
+
+    private static final String CLEAR_SNAPSHOT_STAGING =
+        "TRUNCATE team_state_snapshot_staging";
+
+    private static final String CREATE_STATE_STAGING_TABLE =
+        "CREATE TEMPORARY TABLE IF NOT EXISTS team_state_staging "
+        + "("
+            + "team_id BIGINT NOT NULL, "
+            + "\"timestamp\" TIMESTAMP WITH TIME ZONE NOT NULL, "
+            + "division_id INTEGER NOT NULL, "
+            + "games SMALLINT NOT NULL, "
+            + "rating SMALLINT NOT NULL, "
+            + "secondary BOOLEAN"
+        + ") "
+        + "ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STATE_STAGING =
+        "COPY team_state_staging(team_id, \"timestamp\", division_id, games, rating, secondary) "
+        + "FROM STDIN (FORMAT binary)";
+
+    private static final String SAVE_STATE_FROM_STAGING =
+        "INSERT INTO team_state (team_id, \"timestamp\", division_id, games, rating, secondary) "
+        + "SELECT team_id, \"timestamp\", division_id, games, rating, secondary "
+        + "FROM team_state_staging";
+
+    private static final String CLEAR_STATE_STAGING =
+        "TRUNCATE team_state_staging";
 
     public static final String REMOVE_EXPIRED_TEMPLATE = """
         WITH delete_filter AS
         (
             SELECT team_id, timestamp
-            FROM team_state
+            FROM %1$s
             LEFT JOIN team_state_archive USING(team_id, timestamp)
             WHERE timestamp >= :from AND timestamp < :to
-            %1$s
+            %2$s
             AND team_state_archive.team_id IS NULL
         )
-            DELETE FROM team_state
+            DELETE FROM %1$s
             USING delete_filter
-            WHERE team_state.team_id = delete_filter.team_id
-                AND team_state.timestamp = delete_filter.timestamp
+            WHERE %1$s.team_id = delete_filter.team_id
+                AND %1$s.timestamp = delete_filter.timestamp
         """;
-    private static final String REMOVE_EXPIRED_MAIN_QUERY = REMOVE_EXPIRED_TEMPLATE.formatted("");
+    private static final String REMOVE_EXPIRED_MAIN_QUERY =
+        REMOVE_EXPIRED_TEMPLATE.formatted(TABLE, "");
     private static final String REMOVE_EXPIRED_SECONDARY_QUERY =
-        REMOVE_EXPIRED_TEMPLATE.formatted("AND secondary = true");
+        REMOVE_EXPIRED_TEMPLATE.formatted(TABLE, "AND secondary = true");
+    private static final String REMOVE_EXPIRED_MAIN_DEFAULT_PARTITION_QUERY =
+        REMOVE_EXPIRED_TEMPLATE.formatted(DEFAULT_PARTITION, "");
+
+    /*
+        Partition rotation. Archived states never expire, so they are moved into a new
+        partition of the same range, and the old partition is dropped as a whole.
+        "%1$s" is the expired partition, "%2$s" is the new archive-only partition. The new
+        partition is created with a CHECK constraint of its range, so it's attached without
+        a scan. The constraint is redundant after that.
+     */
+    private static final String COLUMNS =
+        "team_id, \"timestamp\", division_id, population_state_id, wins, games, rating, "
+        + "global_rank, region_rank, league_rank, region_team_count, secondary";
+
+    private static final String CREATE_ARCHIVED_PARTITION_TEMPLATE =
+        "CREATE TABLE \"%2$s\" "
+        + "("
+            + "LIKE " + TABLE + " INCLUDING DEFAULTS, "
+            + "CONSTRAINT \"%2$s_range\" "
+                + "CHECK (\"timestamp\" >= '%3$s' AND \"timestamp\" < '%4$s')"
+        + ")";
+    private static final String DROP_ARCHIVED_PARTITION_RANGE_TEMPLATE =
+        "ALTER TABLE \"%2$s\" DROP CONSTRAINT \"%2$s_range\"";
+
+    private static final String COPY_ARCHIVED_STATES_TEMPLATE =
+        "INSERT INTO \"%2$s\"(" + COLUMNS + ") "
+        + "SELECT " + COLUMNS + " "
+        + "FROM \"%1$s\" "
+        + "INNER JOIN team_state_archive USING(team_id, \"timestamp\")";
+
+    private static final String REMOVE_ARCHIVE_RANGE =
+        "DELETE FROM team_state_archive "
+        + "WHERE \"timestamp\" >= :from "
+        + "AND \"timestamp\" < :to";
+
+    /*
+        Matches expire before team states, this is a safety net. Team state timestamps of
+        match participants are within the identification frame of the match date. Match
+        participants have a copy of the match date, so match partitions aren't scanned.
+     */
+    private static final String REMOVE_MATCH_PARTICIPANT_TEAM_STATE_RANGE =
+        "UPDATE match_participant "
+        + "SET team_state_timestamp = NULL "
+        + "WHERE match_participant.match_date >= :matchFrom "
+        + "AND match_participant.match_date < :to "
+        + "AND match_participant.team_state_timestamp >= :from "
+        + "AND match_participant.team_state_timestamp < :to";
+
+    private static final String RESTORE_ARCHIVE_TEMPLATE =
+        "INSERT INTO team_state_archive(team_id, \"timestamp\") "
+        + "SELECT team_id, \"timestamp\" FROM \"%2$s\"";
 
     private static final String GET_COUNT_BY_TIMESTAMP_START_AND_REGION =
         "SELECT COUNT(*) "
@@ -131,16 +288,22 @@ public class TeamStateDAO
 
     private final NamedParameterJdbcTemplate template;
     private final ConversionService conversionService;
+    private final PartitionDAO partitionDAO;
+
+    @Value("${com.nephest.battlenet.sc2.team.state.copy:#{'false'}}")
+    private boolean copy;
 
     @Autowired
     public TeamStateDAO
     (
         @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
-        @Qualifier("sc2StatsConversionService") ConversionService conversionService
+        @Qualifier("sc2StatsConversionService") ConversionService conversionService,
+        PartitionDAO partitionDAO
     )
     {
         this.template = template;
         this.conversionService = conversionService;
+        this.partitionDAO = partitionDAO;
     }
 
     public static MapSqlParameterSource createParameterSource(TeamState history)
@@ -154,6 +317,22 @@ public class TeamStateDAO
             .addValue("secondary", history.getSecondary());
     }
 
+    public boolean isCopy()
+    {
+        return copy;
+    }
+
+    /**
+     * <p>
+     *     Switches between the binary COPY and the batched insert paths.
+     * </p>
+     * @param copy true to stream team states via the binary COPY
+     */
+    public void setCopy(boolean copy)
+    {
+        this.copy = copy;
+    }
+
     /**
      * <p>
      *     This method should be used only in tests. Production code should use
@@ -163,9 +342,11 @@ public class TeamStateDAO
      * @param states states to save
      * @return batch numbers of saves states
      */
+    @Transactional
     public int[] saveState(Set<TeamState> states)
     {
         if(states.isEmpty()) return DAOUtils.EMPTY_INT_ARRAY;
+        if(copy) return new int[]{copyState(states)};
 
         MapSqlParameterSource[] params = states.stream()
             .map(TeamStateDAO::createParameterSource)
@@ -185,10 +366,61 @@ public class TeamStateDAO
         return template.update(TAKE_TEAM_SNAPSHOT, params);
     }
 
+    private int copyState(Set<TeamState> states)
+    {
+        template.getJdbcTemplate().execute(CREATE_STATE_STAGING_TABLE);
+        template.getJdbcTemplate().execute((ConnectionCallback<Long>) connection->
+        {
+            try(PostgreSQLBinaryCopyWriter writer = PostgreSQLBinaryCopyWriter.of(connection, COPY_STATE_STAGING))
+            {
+                for(TeamState state : states)
+                    writer.startRow(6)
+                        .writeLong(state.getTeamId())
+                        .writeTimestamp(state.getDateTime())
+                        .writeInt(state.getDivisionId())
+                        .writeShort(state.getGames())
+                        .writeShort(state.getRating())
+                        .writeBoolean(state.getSecondary());
+                return writer.finish();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+        int count = template.getJdbcTemplate().update(SAVE_STATE_FROM_STAGING);
+        template.getJdbcTemplate().execute(CLEAR_STATE_STAGING);
+        return count;
+    }
+
+    private int takeSnapshotCopy(List<Long> teamIds, OffsetDateTime timestamp)
+    {
+        template.getJdbcTemplate().execute(CREATE_SNAPSHOT_STAGING_TABLE);
+        template.getJdbcTemplate().execute((ConnectionCallback<Long>) connection->
+        {
+            try(PostgreSQLBinaryCopyWriter writer = PostgreSQLBinaryCopyWriter.of(connection, COPY_SNAPSHOT_STAGING))
+            {
+                for(Long teamId : teamIds) writer.startRow(1).writeLong(teamId);
+                return writer.finish();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("mainQueueType", conversionService.convert(TeamState.MAIN_QUEUE_TYPE, Integer.class))
+            .addValue("timestamp", timestamp, Types.TIMESTAMP_WITH_TIMEZONE);
+        int count = template.update(TAKE_TEAM_SNAPSHOT_FROM_STAGING, params);
+        template.getJdbcTemplate().execute(CLEAR_SNAPSHOT_STAGING);
+        return count;
+    }
+
     @Transactional
     public int takeSnapshot(List<Long> teamIds, OffsetDateTime timestamp)
     {
         if(teamIds.isEmpty()) return 0;
+        if(copy) return takeSnapshotCopy(teamIds, timestamp);
 
         int count = 0;
         for(int i = 0; i < teamIds.size();)
@@ -201,6 +433,33 @@ public class TeamStateDAO
         return count;
     }
 
+    /**
+     * Takes snapshots of up to {@code limit} region season teams with ids in the
+     * ({@code afterId}, {@code maxId}] range.
+     *
+     * @return last id of the chunk and number of created snapshots
+     */
+    public KeysetChunk takeSnapshot
+    (
+        Region region,
+        int season,
+        long afterId,
+        long maxId,
+        int limit,
+        OffsetDateTime timestamp
+    )
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("mainQueueType", conversionService.convert(TeamState.MAIN_QUEUE_TYPE, Integer.class))
+            .addValue("region", conversionService.convert(region, Integer.class))
+            .addValue("season", season)
+            .addValue("afterId", afterId)
+            .addValue("maxId", maxId)
+            .addValue("limit", limit)
+            .addValue("timestamp", timestamp, Types.TIMESTAMP_WITH_TIMEZONE);
+        return template.queryForObject(TAKE_TEAM_SNAPSHOT_CHUNK, params, KEYSET_CHUNK_ROW_MAPPER);
+    }
+
     /**
      * <p>
      *     calls {@link #takeSnapshot(List, OffsetDateTime) takeSnapshot} with null datetime.
@@ -223,6 +482,85 @@ public class TeamStateDAO
         return template.update(query, params);
     }
 
+    /**
+     * Removes expired non-archived states from the default partition only. Range partitions
+     * are expected to be {@link #rotatePartition(RangePartition) rotated} instead. The
+     * default partition is bounded below the first range partition, see
+     * {@link PartitionDAO#boundDefaultPartition(String, OffsetDateTime)}, so it only holds
+     * states that predate partitioning, and is emptied by this method over time.
+     */
+    public int removeFromDefaultPartition(OffsetDateTime from, OffsetDateTime to)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", from)
+            .addValue("to", to);
+        return template.update(REMOVE_EXPIRED_MAIN_DEFAULT_PARTITION_QUERY, params);
+    }
+
+    public boolean isPartitioned()
+    {
+        return partitionDAO.isPartitioned(TABLE);
+    }
+
+    public static boolean isArchivedPartition(RangePartition partition)
+    {
+        return partition.name().endsWith(ARCHIVED_PARTITION_SUFFIX);
+    }
+
+    /**
+     * <p>
+     *     Replaces an expired partition with a new partition of the same range that contains
+     *     only archived states. Non-archived states are dropped with the old partition
+     *     without leaving dead tuples or index bloat behind. Match participants that still
+     *     reference states of the range are unlinked.
+     * </p>
+     *
+     * @param partition expired partition
+     * @return new archive-only partition
+     */
+    @Transactional
+    public RangePartition rotatePartition(RangePartition partition)
+    {
+        if(isArchivedPartition(partition))
+            throw new IllegalArgumentException("Partition is already rotated: " + partition.name());
+
+        RangePartition archived = new RangePartition
+        (
+            partition.name() + ARCHIVED_PARTITION_SUFFIX,
+            partition.from(),
+            partition.to()
+        );
+        String name = PartitionDAO.requireIdentifier(partition.name());
+        String archivedName = PartitionDAO.requireIdentifier(archived.name());
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("from", partition.from())
+            .addValue("to", partition.to())
+            .addValue
+            (
+                "matchFrom",
+                partition.from().minusMinutes(MatchParticipantDAO.IDENTIFICATION_FRAME_MINUTES)
+            );
+
+        template.getJdbcTemplate().execute(CREATE_ARCHIVED_PARTITION_TEMPLATE.formatted
+        (
+            name,
+            archivedName,
+            partition.from().toInstant().toString(),
+            partition.to().toInstant().toString()
+        ));
+        int archivedCount = template.getJdbcTemplate()
+            .update(COPY_ARCHIVED_STATES_TEMPLATE.formatted(name, archivedName));
+        template.update(REMOVE_ARCHIVE_RANGE, params);
+        template.update(REMOVE_MATCH_PARTICIPANT_TEAM_STATE_RANGE, params);
+        partitionDAO.dropPartition(TABLE, name);
+        partitionDAO.attachRangePartition(TABLE, archived);
+        template.getJdbcTemplate()
+            .execute(DROP_ARCHIVED_PARTITION_RANGE_TEMPLATE.formatted(name, archivedName));
+        template.getJdbcTemplate().update(RESTORE_ARCHIVE_TEMPLATE.formatted(name, archivedName));
+        LOG.info("Rotated team state partition {}, {} archived states", name, archivedCount);
+        return archived;
+    }
+
     public Integer getCount(Region region, OffsetDateTime from)
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
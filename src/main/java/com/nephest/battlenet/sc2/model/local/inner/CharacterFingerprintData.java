@@ -0,0 +1,29 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import com.nephest.battlenet.sc2.model.local.Account;
+import com.nephest.battlenet.sc2.model.local.Clan;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import java.time.OffsetDateTime;
+
+/**
+ * Current account, character, and clan of a recently updated character.
+ *
+ * @param updated min of account and character updated timestamps
+ * @param clan current clan, null if the character is not a clan member
+ * @param clanMemberUpdated clan member updated timestamp, null if the character is not a
+ *                          clan member
+ */
+public record CharacterFingerprintData
+(
+    Account account,
+    PlayerCharacter character,
+    int battleTagLastSeason,
+    OffsetDateTime updated,
+    Clan clan,
+    OffsetDateTime clanMemberUpdated
+)
+{
+}
@@ -0,0 +1,277 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.HistoryColumn;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.StaticColumn;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * <p>
+ *     Immutable team history that is stored column by column in primitive arrays. Rows are
+ *     ordered by timestamp. Timestamps are stored as epoch microseconds, other columns are
+ *     stored as ints where {@link #NULL} represents SQL NULL.
+ * </p>
+ * <p>
+ *     Values are returned in the same form as {@link TeamHistoryDAO} returns them: timestamps
+ *     are epoch seconds, static values are kept as they were read from the DB.
+ * </p>
+ */
+public final class ColumnarTeamHistory
+{
+
+    public static final int NULL = Integer.MIN_VALUE;
+    public static final Set<HistoryColumn> COLUMNS = Collections.unmodifiableSet(Arrays
+        .stream(HistoryColumn.values())
+        .filter(c->!c.isExpanded() && c != HistoryColumn.TIMESTAMP)
+        .collect(Collectors.toCollection(()->EnumSet.noneOf(HistoryColumn.class))));
+
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long[] EMPTY_TIMESTAMPS = new long[0];
+
+    private final long teamId;
+    private final Map<StaticColumn, Object> staticData;
+    private final long[] timestamps;
+    private final Map<HistoryColumn, int[]> columns;
+
+    private ColumnarTeamHistory
+    (
+        long teamId,
+        Map<StaticColumn, Object> staticData,
+        long[] timestamps,
+        Map<HistoryColumn, int[]> columns
+    )
+    {
+        this.teamId = teamId;
+        this.staticData = staticData;
+        this.timestamps = timestamps;
+        this.columns = columns;
+    }
+
+    public static ColumnarTeamHistory empty(long teamId)
+    {
+        Map<HistoryColumn, int[]> columns = new EnumMap<>(HistoryColumn.class);
+        for(HistoryColumn column : COLUMNS) columns.put(column, new int[0]);
+        return new ColumnarTeamHistory(teamId, Map.of(), EMPTY_TIMESTAMPS, columns);
+    }
+
+    public static long toEpochMicros(OffsetDateTime odt)
+    {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, odt.toInstant());
+    }
+
+    public long getTeamId()
+    {
+        return teamId;
+    }
+
+    public int size()
+    {
+        return timestamps.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return timestamps.length == 0;
+    }
+
+    public Object getStaticValue(StaticColumn column)
+    {
+        return staticData.get(column);
+    }
+
+    public long getTimestamp(int ix)
+    {
+        return timestamps[ix];
+    }
+
+    public long getLastTimestamp()
+    {
+        return timestamps[timestamps.length - 1];
+    }
+
+    public int getInt(HistoryColumn column, int ix)
+    {
+        return columns.get(column)[ix];
+    }
+
+    public Integer getInteger(HistoryColumn column, int ix)
+    {
+        int val = columns.get(column)[ix];
+        return val == NULL ? null : val;
+    }
+
+    /**
+     * @param epochMicros timestamp
+     * @return index of the first row with timestamp that is equal to or greater than the
+     * supplied timestamp, {@link #size()} if there are no such rows.
+     */
+    public int lowerBound(long epochMicros)
+    {
+        int low = 0;
+        int high = timestamps.length;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(timestamps[mid] < epochMicros)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param column history column
+     * @param from inclusive index
+     * @param to exclusive index
+     * @return column values in the same form as they are returned by SQL queries
+     */
+    public List<?> getColumn(HistoryColumn column, int from, int to)
+    {
+        Object[] result = new Object[to - from];
+        if(column == HistoryColumn.TIMESTAMP)
+        {
+            for(int i = from; i < to; i++)
+                result[i - from] = Math.floorDiv(timestamps[i], MICROS_PER_SECOND);
+        }
+        else
+        {
+            int[] values = columns.get(column);
+            if(values == null) throw new IllegalArgumentException("Unsupported column: " + column);
+            for(int i = from; i < to; i++)
+                result[i - from] = values[i] == NULL ? null : values[i];
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * @param newer history of the same team
+     * @return history with rows of the newer history that are newer than the last row of this
+     * history, or this history if there are no such rows.
+     */
+    public ColumnarTeamHistory append(ColumnarTeamHistory newer)
+    {
+        if(newer.getTeamId() != teamId)
+            throw new IllegalArgumentException("Team id mismatch: " + teamId + ", " + newer.getTeamId());
+        if(isEmpty()) return newer;
+
+        int start = newer.lowerBound(getLastTimestamp() + 1);
+        int added = newer.size() - start;
+        if(added == 0) return this;
+
+        long[] newTimestamps = Arrays.copyOf(timestamps, timestamps.length + added);
+        System.arraycopy(newer.timestamps, start, newTimestamps, timestamps.length, added);
+        Map<HistoryColumn, int[]> newColumns = new EnumMap<>(HistoryColumn.class);
+        for(Map.Entry<HistoryColumn, int[]> entry : columns.entrySet())
+        {
+            int[] values = Arrays.copyOf(entry.getValue(), timestamps.length + added);
+            System.arraycopy(newer.columns.get(entry.getKey()), start, values, timestamps.length, added);
+            newColumns.put(entry.getKey(), values);
+        }
+        //static team data can't change, but newer rows are read with newer team data
+        return new ColumnarTeamHistory(teamId, newer.staticData, newTimestamps, newColumns);
+    }
+
+    /**
+     * @param from inclusive index
+     * @param to exclusive index
+     * @param retained timestamps of the rows in the index range that are retained
+     * @return history without the rows in the index range whose timestamps are not retained,
+     * or this history if all rows are retained. Rows outside of the index range are always
+     * retained.
+     */
+    public ColumnarTeamHistory retain(int from, int to, Set<Long> retained)
+    {
+        int[] kept = new int[timestamps.length];
+        int size = 0;
+        for(int i = 0; i < timestamps.length; i++)
+            if(i < from || i >= to || retained.contains(timestamps[i])) kept[size++] = i;
+        if(size == timestamps.length) return this;
+
+        long[] newTimestamps = new long[size];
+        for(int i = 0; i < size; i++) newTimestamps[i] = timestamps[kept[i]];
+        Map<HistoryColumn, int[]> newColumns = new EnumMap<>(HistoryColumn.class);
+        for(Map.Entry<HistoryColumn, int[]> entry : columns.entrySet())
+        {
+            int[] values = new int[size];
+            for(int i = 0; i < size; i++) values[i] = entry.getValue()[kept[i]];
+            newColumns.put(entry.getKey(), values);
+        }
+        return new ColumnarTeamHistory(teamId, staticData, newTimestamps, newColumns);
+    }
+
+    public static class Builder
+    {
+
+        private final long teamId;
+        private final Map<StaticColumn, Object> staticData;
+        private long[] timestamps = new long[16];
+        private final Map<HistoryColumn, int[]> columns = new EnumMap<>(HistoryColumn.class);
+        private int size;
+
+        public Builder(long teamId, Map<StaticColumn, Object> staticData)
+        {
+            this.teamId = teamId;
+            this.staticData = staticData.isEmpty()
+                ? Map.of()
+                : Collections.unmodifiableMap(new EnumMap<>(staticData));
+            for(HistoryColumn column : COLUMNS) columns.put(column, new int[timestamps.length]);
+        }
+
+        public long getTeamId()
+        {
+            return teamId;
+        }
+
+        /**
+         * Adds a new row. Rows must be added in timestamp order.
+         *
+         * @param epochMicros row timestamp
+         * @return row index that should be used to set column values
+         */
+        public int add(long epochMicros)
+        {
+            if(size > 0 && timestamps[size - 1] > epochMicros)
+                throw new IllegalArgumentException("Rows must be ordered by timestamp");
+            if(size == timestamps.length)
+            {
+                int capacity = timestamps.length * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                columns.replaceAll((c, values)->Arrays.copyOf(values, capacity));
+            }
+            timestamps[size] = epochMicros;
+            return size++;
+        }
+
+        public Builder set(HistoryColumn column, int ix, Integer value)
+        {
+            columns.get(column)[ix] = value == null ? NULL : value;
+            return this;
+        }
+
+        public ColumnarTeamHistory build()
+        {
+            Map<HistoryColumn, int[]> trimmed = new EnumMap<>(HistoryColumn.class);
+            columns.forEach((c, values)->trimmed.put(c, Arrays.copyOf(values, size)));
+            return new ColumnarTeamHistory(teamId, staticData, Arrays.copyOf(timestamps, size), trimmed);
+        }
+
+    }
+
+}
@@ -0,0 +1,18 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+/**
+ * Id range of a set of rows.
+ *
+ * @param min inclusive lower bound
+ * @param max inclusive upper bound
+ */
+public record IdRange
+(
+    long min,
+    long max
+)
+{
+}
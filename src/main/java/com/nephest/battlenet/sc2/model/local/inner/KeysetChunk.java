@@ -0,0 +1,25 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+/**
+ * Result of a keyset paginated operation.
+ *
+ * @param lastId last processed id, next chunk starts after it. Null if there was nothing
+ *               to process.
+ * @param count number of affected rows
+ */
+public record KeysetChunk
+(
+    Long lastId,
+    int count
+)
+{
+
+    public boolean isEmpty()
+    {
+        return lastId == null;
+    }
+
+}
@@ -0,0 +1,227 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import com.nephest.battlenet.sc2.model.BaseLeague.LeagueType;
+import com.nephest.battlenet.sc2.model.Region;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>
+ *     Immutable ladder of a (season, queue, team type) tuple. Teams are split into segments by
+ *     (region, league) and every segment is sorted by (rating DESC, id DESC), which is the
+ *     order of the anchored ladder queries. Only sort keys are stored, team data must be loaded
+ *     by ids.
+ * </p>
+ * <p>
+ *     An anchored page of any region/league combination is found by binary searching the
+ *     anchor in every selected segment and merging the segments from there, so the cost
+ *     depends on the page size and the number of selected segments rather than on the size
+ *     of the ladder.
+ * </p>
+ */
+public final class LadderSnapshot
+{
+
+    private static final int LEAGUE_COUNT = LeagueType.values().length;
+    private static final int SEGMENT_COUNT = Region.values().length * LEAGUE_COUNT;
+    private static final long[] EMPTY = new long[0];
+
+    private final long[][] ratings;
+    private final long[][] ids;
+    private final int size;
+
+    private LadderSnapshot(long[][] ratings, long[][] ids, int size)
+    {
+        this.ratings = ratings;
+        this.ids = ids;
+        this.size = size;
+    }
+
+    private static int getSegment(Region region, LeagueType league)
+    {
+        return region.ordinal() * LEAGUE_COUNT + league.ordinal();
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    private static int compare(long rating, long id, long otherRating, long otherId)
+    {
+        int result = Long.compare(rating, otherRating);
+        return result != 0 ? result : Long.compare(id, otherId);
+    }
+
+    /**
+     * @return index of the first team that is ranked lower than the anchor, i.e. its
+     * (rating, id) is less than (ratingAnchor, idAnchor).
+     */
+    private int lowerBound(int segment, long ratingAnchor, long idAnchor)
+    {
+        long[] segmentRatings = ratings[segment];
+        long[] segmentIds = ids[segment];
+        int low = 0;
+        int high = segmentRatings.length;
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(compare(segmentRatings[mid], segmentIds[mid], ratingAnchor, idAnchor) >= 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds team ids of an anchored ladder page. Teams that are equal to the anchor are
+     * excluded.
+     *
+     * @param regions regions
+     * @param leagues leagues
+     * @param ratingAnchor rating anchor
+     * @param idAnchor id anchor
+     * @param forward true to find teams that are ranked lower than the anchor, false to find
+     *                teams that are ranked higher than the anchor
+     * @param offset number of teams to skip
+     * @param limit max number of teams
+     * @return team ids ordered by (rating DESC, id DESC) regardless of direction
+     */
+    public List<Long> findAnchored
+    (
+        Set<Region> regions,
+        Set<LeagueType> leagues,
+        long ratingAnchor,
+        long idAnchor,
+        boolean forward,
+        int offset,
+        int limit
+    )
+    {
+        int[] segments = new int[regions.size() * leagues.size()];
+        int[] cursors = new int[segments.length];
+        int count = 0;
+        for(Region region : regions)
+        {
+            for(LeagueType league : leagues)
+            {
+                int segment = getSegment(region, league);
+                int cursor = lowerBound(segment, ratingAnchor, idAnchor);
+                if(!forward)
+                {
+                    //skip the anchor itself when going up the ladder
+                    cursor--;
+                    if(cursor >= 0 && compare(ratings[segment][cursor], ids[segment][cursor],
+                        ratingAnchor, idAnchor) == 0) cursor--;
+                }
+                if(forward ? cursor >= ratings[segment].length : cursor < 0) continue;
+
+                segments[count] = segment;
+                cursors[count] = cursor;
+                count++;
+            }
+        }
+
+        List<Long> result = new ArrayList<>(limit);
+        int skipped = 0;
+        while(result.size() < limit && count > 0)
+        {
+            int next = 0;
+            for(int i = 1; i < count; i++)
+            {
+                int cmp = compare
+                (
+                    ratings[segments[i]][cursors[i]], ids[segments[i]][cursors[i]],
+                    ratings[segments[next]][cursors[next]], ids[segments[next]][cursors[next]]
+                );
+                if(forward ? cmp > 0 : cmp < 0) next = i;
+            }
+
+            int segment = segments[next];
+            if(skipped < offset)
+            {
+                skipped++;
+            }
+            else
+            {
+                result.add(ids[segment][cursors[next]]);
+            }
+
+            cursors[next] += forward ? 1 : -1;
+            if(forward ? cursors[next] >= ratings[segment].length : cursors[next] < 0)
+            {
+                //segment is exhausted
+                count--;
+                segments[next] = segments[count];
+                cursors[next] = cursors[count];
+            }
+        }
+        if(!forward) Collections.reverse(result);
+        return result;
+    }
+
+    public static class Builder
+    {
+
+        private final long[][] ratings = new long[SEGMENT_COUNT][];
+        private final long[][] ids = new long[SEGMENT_COUNT][];
+        private final int[] sizes = new int[SEGMENT_COUNT];
+        private int size;
+
+        public Builder()
+        {
+            Arrays.fill(ratings, EMPTY);
+            Arrays.fill(ids, EMPTY);
+        }
+
+        /**
+         * Adds a team. Teams must be added in (rating DESC, id DESC) order.
+         *
+         * @return this builder
+         */
+        public Builder add(Region region, LeagueType league, long rating, long id)
+        {
+            int segment = getSegment(region, league);
+            int segmentSize = sizes[segment];
+            if(segmentSize > 0
+                && compare(ratings[segment][segmentSize - 1], ids[segment][segmentSize - 1], rating, id) <= 0)
+                throw new IllegalArgumentException("Teams must be ordered by rating and id");
+            if(segmentSize == ratings[segment].length)
+            {
+                int capacity = Math.max(16, segmentSize * 2);
+                ratings[segment] = Arrays.copyOf(ratings[segment], capacity);
+                ids[segment] = Arrays.copyOf(ids[segment], capacity);
+            }
+            ratings[segment][segmentSize] = rating;
+            ids[segment][segmentSize] = id;
+            sizes[segment]++;
+            size++;
+            return this;
+        }
+
+        public LadderSnapshot build()
+        {
+            long[][] trimmedRatings = new long[SEGMENT_COUNT][];
+            long[][] trimmedIds = new long[SEGMENT_COUNT][];
+            for(int i = 0; i < SEGMENT_COUNT; i++)
+            {
+                trimmedRatings[i] = Arrays.copyOf(ratings[i], sizes[i]);
+                trimmedIds[i] = Arrays.copyOf(ids[i], sizes[i]);
+            }
+            return new LadderSnapshot(trimmedRatings, trimmedIds, size);
+        }
+
+    }
+
+}
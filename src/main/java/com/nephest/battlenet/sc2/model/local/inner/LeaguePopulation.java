@@ -0,0 +1,22 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+
+public record LeaguePopulation
+(
+    Region region,
+    QueueType queueType,
+    TeamType teamType,
+    BaseLeague.LeagueType leagueType,
+    int globalTeamCount,
+    int regionTeamCount,
+    int leagueTeamCount
+)
+{
+}
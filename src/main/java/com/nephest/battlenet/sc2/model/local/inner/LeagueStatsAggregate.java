@@ -0,0 +1,33 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+
+/**
+ * {@link com.nephest.battlenet.sc2.model.local.LeagueStats LeagueStats} identified by league
+ * type instead of league id. Race team counts are null for queues other than 1v1 and for races
+ * without teams.
+ */
+public record LeagueStatsAggregate
+(
+    Region region,
+    QueueType queueType,
+    TeamType teamType,
+    BaseLeague.LeagueType leagueType,
+    int teamCount,
+    int terranGamesPlayed,
+    int protossGamesPlayed,
+    int zergGamesPlayed,
+    int randomGamesPlayed,
+    Integer terranTeamCount,
+    Integer protossTeamCount,
+    Integer zergTeamCount,
+    Integer randomTeamCount
+)
+{
+}
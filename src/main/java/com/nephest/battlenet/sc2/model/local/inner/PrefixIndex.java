@@ -0,0 +1,338 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ *     Immutable case-insensitive prefix index of popularity-ranked strings. Strings are sorted
+ *     by their lower case form and stored as a single UTF-8 array with offsets, so the index
+ *     takes roughly (UTF-8 length + 8) bytes per string.
+ * </p>
+ * <p>
+ *     Prefixes that match more than {@link #SCAN_THRESHOLD} strings are "heavy", their
+ *     top {@link #TOP_SIZE} strings are precomputed. Other prefixes are resolved by a binary
+ *     search and a scan of at most {@link #SCAN_THRESHOLD} strings.
+ * </p>
+ */
+public final class PrefixIndex
+{
+
+    public static final int TOP_SIZE = 16;
+    public static final int SCAN_THRESHOLD = 256;
+
+    private static final Comparator<Entry> ENTRY_COMPARATOR = Comparator
+        .comparing(Entry::key)
+        .thenComparing(Entry::value);
+
+    private final byte[] data;
+    private final int[] offsets;
+    private final int[] scores;
+    private final Map<String, int[]> tops;
+
+    private PrefixIndex(byte[] data, int[] offsets, int[] scores, Map<String, int[]> tops)
+    {
+        this.data = data;
+        this.offsets = offsets;
+        this.scores = scores;
+        this.tops = tops;
+    }
+
+    public static String toKey(String value)
+    {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    public int size()
+    {
+        return scores.length;
+    }
+
+    /**
+     * @return approximate number of bytes that are used by the index
+     */
+    public long getBytes()
+    {
+        long bytes = data.length + offsets.length * 4L + scores.length * 4L;
+        for(Map.Entry<String, int[]> top : tops.entrySet())
+            bytes += top.getKey().length() * 2L + top.getValue().length * 4L + 64;
+        return bytes;
+    }
+
+    public int getHeavyPrefixCount()
+    {
+        return tops.size();
+    }
+
+    private String getValue(int ix)
+    {
+        return new String(data, offsets[ix], offsets[ix + 1] - offsets[ix], StandardCharsets.UTF_8);
+    }
+
+    private String getKey(int ix)
+    {
+        return toKey(getValue(ix));
+    }
+
+    private int compareToPrefix(int ix, String prefix)
+    {
+        String key = getKey(ix);
+        return key.length() > prefix.length()
+            ? key.substring(0, prefix.length()).compareTo(prefix)
+            : key.compareTo(prefix);
+    }
+
+    /**
+     * @return index of the first string whose key is greater than or equal to the prefix
+     */
+    private int lowerBound(String prefix)
+    {
+        int low = 0;
+        int high = size();
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(getKey(mid).compareTo(prefix) < 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return index of the first string whose key is greater than the prefix and doesn't
+     * start with it
+     */
+    private int upperBound(String prefix, int from)
+    {
+        int low = from;
+        int high = size();
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(compareToPrefix(mid, prefix) <= 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public boolean contains(String value)
+    {
+        String key = toKey(value);
+        for(int i = lowerBound(key); i < size() && getKey(i).equals(key); i++)
+            if(getValue(i).equals(value)) return true;
+        return false;
+    }
+
+    /**
+     * @param prefix case-insensitive prefix
+     * @param limit max number of strings
+     * @return strings that start with the prefix, ordered by score DESC
+     */
+    public List<String> find(String prefix, int limit)
+    {
+        List<String> result = new ArrayList<>(Math.min(limit, TOP_SIZE));
+        for(int ix : findIndexes(toKey(prefix), limit)) result.add(getValue(ix));
+        return result;
+    }
+
+    /**
+     * Same as {@link #find(String, int)}, but excluded strings are skipped. Precomputed tops
+     * of heavy prefixes are filtered, the prefix range is scanned only if there are not enough
+     * strings left in the top.
+     *
+     * @param prefix case-insensitive prefix
+     * @param limit max number of strings
+     * @param excluded strings that are excluded from the result
+     * @return strings that start with the prefix and are not excluded, ordered by score DESC
+     */
+    public List<String> find(String prefix, int limit, Set<String> excluded)
+    {
+        if(limit <= 0 || excluded.isEmpty()) return find(prefix, limit);
+
+        String key = toKey(prefix);
+        List<String> result = new ArrayList<>(Math.min(limit, TOP_SIZE));
+        int[] top = tops.get(key);
+        if(top != null && addValues(top, excluded, limit, result)) return result;
+
+        result.clear();
+        addValues(findIndexes(key, limit + excluded.size()), excluded, limit, result);
+        return result;
+    }
+
+    /**
+     * @return true if the result is full
+     */
+    private boolean addValues(int[] indexes, Set<String> excluded, int limit, List<String> result)
+    {
+        for(int ix : indexes)
+        {
+            String value = getValue(ix);
+            if(excluded.contains(value)) continue;
+
+            result.add(value);
+            if(result.size() >= limit) return true;
+        }
+        return false;
+    }
+
+    private int[] findIndexes(String prefix, int limit)
+    {
+        if(limit <= 0) return new int[0];
+
+        int[] top = tops.get(prefix);
+        if(top != null && limit <= top.length) return Arrays.copyOf(top, limit);
+
+        int from = lowerBound(prefix);
+        return top(scores, from, upperBound(prefix, from), limit);
+    }
+
+    /**
+     * @return indexes of the highest scores in range, ordered by (score DESC, index ASC)
+     */
+    private static int[] top(int[] scores, int from, int to, int limit)
+    {
+        int[] top = new int[Math.max(0, Math.min(limit, to - from))];
+        if(top.length == 0) return top;
+
+        int size = 0;
+        for(int i = from; i < to; i++)
+        {
+            if(size == top.length && scores[i] <= scores[top[size - 1]]) continue;
+
+            int pos = size == top.length ? size - 1 : size++;
+            while(pos > 0 && scores[top[pos - 1]] < scores[i])
+            {
+                top[pos] = top[pos - 1];
+                pos--;
+            }
+            top[pos] = i;
+        }
+        return top;
+    }
+
+    /**
+     * @param key lower case value
+     * @param value original value
+     * @param score popularity score
+     */
+    private record Entry(String key, String value, int score)
+    {
+    }
+
+    public static class Builder
+    {
+
+        private final List<Entry> entries = new ArrayList<>();
+
+        /**
+         * Adds a string to the index. The max score is used for duplicate strings, null
+         * strings are ignored.
+         *
+         * @param value string
+         * @param score popularity score, higher is better
+         * @return this builder
+         */
+        public Builder add(String value, int score)
+        {
+            if(value != null) entries.add(new Entry(toKey(value), value, score));
+            return this;
+        }
+
+        public PrefixIndex build()
+        {
+            Entry[] sorted = entries.toArray(Entry[]::new);
+            Arrays.parallelSort(sorted, ENTRY_COMPARATOR);
+            int size = 0;
+            for(int i = 0; i < sorted.length; i++)
+            {
+                if(size > 0 && sorted[size - 1].value().equals(sorted[i].value()))
+                {
+                    if(sorted[i].score() > sorted[size - 1].score()) sorted[size - 1] = sorted[i];
+                    continue;
+                }
+                sorted[size++] = sorted[i];
+            }
+
+            String[] keys = new String[size];
+            int[] scores = new int[size];
+            int[] offsets = new int[size + 1];
+            byte[][] encoded = new byte[size][];
+            for(int i = 0; i < size; i++)
+            {
+                keys[i] = sorted[i].key();
+                scores[i] = sorted[i].score();
+                encoded[i] = sorted[i].value().getBytes(StandardCharsets.UTF_8);
+                offsets[i + 1] = offsets[i] + encoded[i].length;
+            }
+            byte[] data = new byte[offsets[size]];
+            for(int i = 0; i < size; i++)
+                System.arraycopy(encoded[i], 0, data, offsets[i], encoded[i].length);
+
+            Map<String, int[]> tops = new HashMap<>();
+            addTops(keys, scores, 0, size, 0, tops);
+            return new PrefixIndex(data, offsets, scores, tops);
+        }
+
+        /*
+            Keys of the [from, to) range share the first "depth" chars. The range is split
+            by the next char until all ranges are light.
+         */
+        private static void addTops
+        (
+            String[] keys,
+            int[] scores,
+            int from,
+            int to,
+            int depth,
+            Map<String, int[]> tops
+        )
+        {
+            if(to - from <= SCAN_THRESHOLD) return;
+
+            tops.put(keys[from].substring(0, depth), top(scores, from, to, TOP_SIZE));
+            int groupFrom = from;
+            while(groupFrom < to)
+            {
+                //the key that is equal to the prefix can't be extended
+                if(keys[groupFrom].length() <= depth)
+                {
+                    groupFrom++;
+                    continue;
+                }
+
+                char c = keys[groupFrom].charAt(depth);
+                int groupTo = groupFrom + 1;
+                while(groupTo < to
+                    && keys[groupTo].length() > depth
+                    && keys[groupTo].charAt(depth) == c)
+                    groupTo++;
+                addTops(keys, scores, groupFrom, groupTo, depth + 1, tops);
+                groupFrom = groupTo;
+            }
+        }
+
+    }
+
+}
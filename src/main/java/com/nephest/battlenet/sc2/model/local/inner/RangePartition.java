@@ -0,0 +1,22 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Timestamp range partition of a partitioned table.
+ *
+ * @param name partition table name
+ * @param from inclusive lower bound
+ * @param to exclusive upper bound
+ */
+public record RangePartition
+(
+    String name,
+    OffsetDateTime from,
+    OffsetDateTime to
+)
+{
+}
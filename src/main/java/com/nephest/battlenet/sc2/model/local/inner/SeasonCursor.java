@@ -0,0 +1,32 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+/**
+ * Resumable position of a season job.
+ *
+ * @param season season that is being processed
+ * @param id last processed id
+ */
+public record SeasonCursor
+(
+    int season,
+    long id
+)
+{
+
+    public static String serialize(SeasonCursor cursor)
+    {
+        return cursor == null ? null : cursor.season() + ":" + cursor.id();
+    }
+
+    public static SeasonCursor parse(String str)
+    {
+        if(str == null || str.isEmpty()) return null;
+
+        String[] split = str.split(":");
+        return new SeasonCursor(Integer.parseInt(split[0]), Long.parseLong(split[1]));
+    }
+
+}
@@ -26,6 +26,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -481,6 +483,10 @@ public class TeamHistoryDAO
 
     }
 
+    /*
+        Timestamp filters use COALESCE instead of "IS NULL OR" so team_state partitions
+        can be pruned.
+     */
     private static final String FIND_COLUMNS_TEMPLATE =
         """
         WITH
@@ -498,16 +504,8 @@ public class TeamHistoryDAO
                     FROM team_state
                     %3$s
                     WHERE team_id IN(:teamIds)
-                    AND
-                    (
-                        :from::timestamp with time zone IS NULL
-                        OR timestamp >= :from::timestamp with time zone
-                    )
-                    AND
-                    (
-                        :to::timestamp with time zone IS NULL
-                        OR timestamp < :to::timestamp with time zone
-                    )
+                    AND timestamp >= COALESCE(:from::timestamp with time zone, '-infinity')
+                    AND timestamp < COALESCE(:to::timestamp with time zone, 'infinity')
                 ) data ORDER BY team_id, timestamp
             ) team_state_ordered
             GROUP BY team_state_ordered.team_id
@@ -541,16 +539,8 @@ public class TeamHistoryDAO
             FROM team_state
             %2$s
             WHERE %5$s IN(:teamIds)
-            AND
-            (
-                :from::timestamp with time zone IS NULL
-                OR timestamp >= :from::timestamp with time zone
-            )
-            AND
-            (
-                :to::timestamp with time zone IS NULL
-                OR timestamp < :to::timestamp with time zone
-            )
+            AND timestamp >= COALESCE(:from::timestamp with time zone, '-infinity')
+            AND timestamp < COALESCE(:to::timestamp with time zone, 'infinity')
             WINDOW w AS (PARTITION BY %4$s ORDER BY timestamp ASC ROWS BETWEEN UNBOUNDED PRECEDING AND UNBOUNDED FOLLOWING)
         )
             SELECT
@@ -560,6 +550,43 @@ public class TeamHistoryDAO
             GROUP BY %4$s
         """;
 
+    private static final String FIND_COLUMNAR_QUERY =
+        """
+        SELECT
+        team.id AS "team.team_id",
+        team.region AS "team.region",
+        team.queue_type AS "team.queue_type",
+        team.team_type AS "team.team_type",
+        team.legacy_id AS "team.legacy_id",
+        team.season AS "team.season",
+        team_state.timestamp,
+        team_state.rating,
+        team_state.games,
+        team_state.wins,
+        team_state.division_id,
+        team_state.global_rank,
+        team_state.region_rank,
+        team_state.league_rank,
+        population_state.global_team_count,
+        team_state.region_team_count,
+        population_state.league_team_count
+        FROM team
+        INNER JOIN team_state ON team.id = team_state.team_id
+        LEFT JOIN population_state ON team_state.population_state_id = population_state.id
+        WHERE team.id IN(:teamIds)
+        AND team_state.timestamp > COALESCE(:after::timestamp with time zone, '-infinity')
+        ORDER BY team.id, team_state.timestamp
+        """;
+
+    private static final String FIND_TIMESTAMPS_QUERY =
+        """
+        SELECT team_id, timestamp
+        FROM team_state
+        WHERE team_id IN(:teamIds)
+        AND timestamp >= COALESCE(:from::timestamp with time zone, '-infinity')
+        AND timestamp < :to
+        """;
+
     private static ResultSetExtractor<List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>>> COLUMN_TEAM_HISTORY_EXTRACTOR;
     private static ResultSetExtractor<List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>>> TEAM_HISTORY_SUMMARY_EXTRACTOR;
 
@@ -569,6 +596,7 @@ public class TeamHistoryDAO
     private final NamedParameterJdbcTemplate template;
     private final ConversionService sc2StatsConversionService;
     private final ConversionService minConversionService;
+    private final ResultSetExtractor<List<ColumnarTeamHistory>> columnarTeamHistoryExtractor;
 
     @Autowired
     public TeamHistoryDAO
@@ -588,6 +616,7 @@ public class TeamHistoryDAO
         this.sc2StatsConversionService = sc2StatsConversionService;
         this.minConversionService = minConversionService;
         initMappers(sc2StatsConversionService, minConversionService);
+        columnarTeamHistoryExtractor = createColumnarTeamHistoryExtractor(minConversionService);
     }
 
     private static <T extends Enum<T>> Map<T, ?>  mapGenericColumns
@@ -794,6 +823,39 @@ public class TeamHistoryDAO
         };
     }
 
+    private static ResultSetExtractor<List<ColumnarTeamHistory>> createColumnarTeamHistoryExtractor
+    (
+        ConversionService minConversionService
+    )
+    {
+        return rs->{
+            List<ColumnarTeamHistory> result = new ArrayList<>();
+            ColumnarTeamHistory.Builder builder = null;
+            while(rs.next())
+            {
+                long teamId = rs.getLong(StaticColumn.ID.getAlias());
+                if(builder == null || builder.getTeamId() != teamId)
+                {
+                    if(builder != null) result.add(builder.build());
+                    Map<StaticColumn, Object> staticData = new EnumMap<>(StaticColumn.class);
+                    for(StaticColumn column : StaticColumn.values())
+                        staticData.put(column, minConversionService
+                            .convert(rs.getObject(column.getAlias()), Object.class));
+                    builder = new ColumnarTeamHistory.Builder(teamId, staticData);
+                }
+                int ix = builder.add(ColumnarTeamHistory
+                    .toEpochMicros(rs.getObject("timestamp", OffsetDateTime.class)));
+                for(HistoryColumn column : ColumnarTeamHistory.COLUMNS)
+                {
+                    int val = rs.getInt(column.getName());
+                    builder.set(column, ix, rs.wasNull() ? null : val);
+                }
+            }
+            if(builder != null) result.add(builder.build());
+            return result;
+        };
+    }
+
     private static String generateFindColumnsQuery(HistoryParameters parameters)
     {
         List<HistoryColumn> directHistoryColumns = parameters.historyColumns().stream()
@@ -858,24 +920,119 @@ public class TeamHistoryDAO
         @NotNull Set<HistoryColumn> historyColumns,
         @NotNull GroupMode groupMode
     )
+    {
+        return find(teamIds, from, to, staticColumns, historyColumns, groupMode, this::findColumns);
+    }
+
+    /**
+     * Finds team histories using an alternative source of raw histories. Expansion, grouping
+     * and pruning are the same as in
+     * {@link #find(Set, OffsetDateTime, OffsetDateTime, Set, Set, GroupMode)}.
+     *
+     * @param source raw history source
+     */
+    public List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> find
+    (
+        @NotNull Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @Nullable OffsetDateTime to,
+        @NotNull Set<StaticColumn> staticColumns,
+        @NotNull Set<HistoryColumn> historyColumns,
+        @NotNull GroupMode groupMode,
+        @NotNull HistorySource source
+    )
     {
         if(teamIds.isEmpty() || (historyColumns.isEmpty() && staticColumns.isEmpty())) return List.of();
         checkParameters(from, to, staticColumns, groupMode);
 
         HistoryParameters parameters = new HistoryParameters(staticColumns, historyColumns);
-        String query = generateFindColumnsQuery(createExpandedParameters(parameters, groupMode));
-        MapSqlParameterSource params = new MapSqlParameterSource()
-            .addValue("teamIds", teamIds)
-            .addValue("from", from, Types.TIMESTAMP_WITH_TIMEZONE)
-            .addValue("to", to, Types.TIMESTAMP_WITH_TIMEZONE);
-        List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> history
-            = template.query(query, params, COLUMN_TEAM_HISTORY_EXTRACTOR);
+        HistoryParameters expanded = createExpandedParameters(parameters, groupMode);
+        List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> history = source.find
+        (
+            teamIds,
+            from,
+            to,
+            expanded.staticColumns(),
+            expanded.historyColumns().stream()
+                .filter(historyColumn->!historyColumn.isExpanded())
+                .collect(Collectors.toCollection(()->EnumSet.noneOf(HistoryColumn.class)))
+        );
         expandAll(history, parameters);
         history = group(history, parameters, groupMode);
         prune(history, parameters);
         return history;
     }
 
+    private List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> findColumns
+    (
+        Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @Nullable OffsetDateTime to,
+        Set<StaticColumn> staticColumns,
+        Set<HistoryColumn> historyColumns
+    )
+    {
+        String query = generateFindColumnsQuery(new HistoryParameters(staticColumns, historyColumns));
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("teamIds", teamIds)
+            .addValue("from", from, Types.TIMESTAMP_WITH_TIMEZONE)
+            .addValue("to", to, Types.TIMESTAMP_WITH_TIMEZONE);
+        return template.query(query, params, COLUMN_TEAM_HISTORY_EXTRACTOR);
+    }
+
+    /**
+     * Finds full histories of the supplied teams in columnar form. Teams without states are
+     * not included.
+     *
+     * @param teamIds team ids
+     * @param after only states that are newer than this timestamp are returned, all states
+     *              are returned if null
+     * @return team histories
+     */
+    public List<ColumnarTeamHistory> findColumnar(@NotNull Set<Long> teamIds, @Nullable OffsetDateTime after)
+    {
+        if(teamIds.isEmpty()) return List.of();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("teamIds", teamIds)
+            .addValue("after", after, Types.TIMESTAMP_WITH_TIMEZONE);
+        return template.query(FIND_COLUMNAR_QUERY, params, columnarTeamHistoryExtractor);
+    }
+
+    /**
+     * Finds timestamps of existing states of the supplied teams.
+     *
+     * @param teamIds team ids
+     * @param from inclusive, not bounded if null
+     * @param to exclusive
+     * @return team id to state timestamps map, timestamps are in
+     * {@link ColumnarTeamHistory#toEpochMicros(OffsetDateTime) epoch micros}. Teams without
+     * states in the range are not included.
+     */
+    public Map<Long, Set<Long>> findTimestamps
+    (
+        @NotNull Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @NotNull OffsetDateTime to
+    )
+    {
+        if(teamIds.isEmpty()) return Map.of();
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("teamIds", teamIds)
+            .addValue("from", from, Types.TIMESTAMP_WITH_TIMEZONE)
+            .addValue("to", to);
+        ResultSetExtractor<Map<Long, Set<Long>>> extractor = rs->
+        {
+            Map<Long, Set<Long>> result = new HashMap<>();
+            while(rs.next())
+                result.computeIfAbsent(rs.getLong("team_id"), id->new HashSet<>())
+                    .add(ColumnarTeamHistory.toEpochMicros(rs.getObject("timestamp", OffsetDateTime.class)));
+            return result;
+        };
+        return template.query(FIND_TIMESTAMPS_QUERY, params, extractor);
+    }
+
     private HistoryParameters createExpandedParameters
     (
         HistoryParameters parameters, GroupMode groupMode
@@ -1228,10 +1385,42 @@ public class TeamHistoryDAO
         @NotNull Set<SummaryColumn> summaryColumns,
         @NotNull GroupMode groupMode
     )
+    {
+        return findSummary(teamIds, from, to, staticColumns, summaryColumns, groupMode, this::findSummaryColumns);
+    }
+
+    /**
+     * Finds team history summaries using an alternative source.
+     *
+     * @param source summary source
+     */
+    public List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> findSummary
+    (
+        @NotNull Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @Nullable OffsetDateTime to,
+        @NotNull Set<StaticColumn> staticColumns,
+        @NotNull Set<SummaryColumn> summaryColumns,
+        @NotNull GroupMode groupMode,
+        @NotNull SummarySource source
+    )
     {
         if(teamIds.isEmpty() || (summaryColumns.isEmpty() && staticColumns.isEmpty())) return List.of();
         checkParameters(from, to, staticColumns, groupMode);
 
+        return source.find(teamIds, from, to, staticColumns, summaryColumns, groupMode);
+    }
+
+    private List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> findSummaryColumns
+    (
+        Set<Long> teamIds,
+        @Nullable OffsetDateTime from,
+        @Nullable OffsetDateTime to,
+        Set<StaticColumn> staticColumns,
+        Set<SummaryColumn> summaryColumns,
+        GroupMode groupMode
+    )
+    {
         String query = generateFindSummaryQuery
         (
             new HistorySummaryParameters(staticColumns, summaryColumns),
@@ -1244,6 +1433,45 @@ public class TeamHistoryDAO
         return template.query(query, params, TEAM_HISTORY_SUMMARY_EXTRACTOR);
     }
 
+    /**
+     * Source of raw team histories. One history per team that has states in the
+     * [from, to) range must be returned, histories must contain all supplied static and
+     * history columns, history columns are never expanded. Data maps must be mutable.
+     */
+    @FunctionalInterface
+    public interface HistorySource
+    {
+
+        List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> find
+        (
+            Set<Long> teamIds,
+            @Nullable OffsetDateTime from,
+            @Nullable OffsetDateTime to,
+            Set<StaticColumn> staticColumns,
+            Set<HistoryColumn> historyColumns
+        );
+
+    }
+
+    /**
+     * Source of team history summaries, parameters are validated beforehand.
+     */
+    @FunctionalInterface
+    public interface SummarySource
+    {
+
+        List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> find
+        (
+            Set<Long> teamIds,
+            @Nullable OffsetDateTime from,
+            @Nullable OffsetDateTime to,
+            Set<StaticColumn> staticColumns,
+            Set<SummaryColumn> summaryColumns,
+            GroupMode groupMode
+        );
+
+    }
+
     private record HistoryParameters
     (
         @NotNull Set<StaticColumn> staticColumns,
@@ -0,0 +1,31 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Race;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+
+/**
+ * Contribution of a team to the stats of its league.
+ *
+ * @param race race encoded in the legacy id of a 1v1 team, null for other queues
+ */
+public record TeamLeagueStats
+(
+    long teamId,
+    Region region,
+    QueueType queueType,
+    TeamType teamType,
+    BaseLeague.LeagueType leagueType,
+    Race race,
+    int terranGamesPlayed,
+    int protossGamesPlayed,
+    int zergGamesPlayed,
+    int randomGamesPlayed
+)
+{
+}
@@ -0,0 +1,14 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+public record TeamRank
+(
+    long teamId,
+    int globalRank,
+    int regionRank,
+    int leagueRank
+)
+{
+}
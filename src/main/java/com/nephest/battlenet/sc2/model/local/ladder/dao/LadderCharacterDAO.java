@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.model.local.ladder.dao;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.BasePlayerCharacter;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Race;
@@ -13,7 +14,6 @@ import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
 import com.nephest.battlenet.sc2.model.local.dao.ClanDAO;
 import com.nephest.battlenet.sc2.model.local.dao.DAOUtils;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamMemberDAO;
 import com.nephest.battlenet.sc2.model.local.ladder.LadderDistinctCharacter;
 import com.nephest.battlenet.sc2.model.local.ladder.LadderPlayerSearchStats;
@@ -281,7 +281,7 @@ public class LadderCharacterDAO
 
     private final NamedParameterJdbcTemplate template;
     private final ConversionService conversionService;
-    private final SeasonDAO seasonDAO;
+    private final SeasonRegistry seasonRegistry;
 
     private final RowMapper<LadderDistinctCharacter> DISTINCT_CHARACTER_ROW_MAPPER;
     private final ResultSetExtractor<LadderDistinctCharacter> DISTINCT_CHARACTER_EXTRACTOR;
@@ -291,12 +291,12 @@ public class LadderCharacterDAO
     (
         @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
         @Qualifier("sc2StatsConversionService") ConversionService conversionService,
-        SeasonDAO seasonDAO
+        SeasonRegistry seasonRegistry
     )
     {
         this.template = template;
         this.conversionService = conversionService;
-        this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
         DISTINCT_CHARACTER_ROW_MAPPER =
         (rs, num)->
         {
@@ -362,7 +362,7 @@ public class LadderCharacterDAO
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("name", name)
             .addValue("likeName", likeName)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class));
@@ -374,7 +374,7 @@ public class LadderCharacterDAO
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("battleTag", battleTag)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class));
@@ -386,7 +386,7 @@ public class LadderCharacterDAO
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("accountId", accountId)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class));
@@ -402,7 +402,7 @@ public class LadderCharacterDAO
             .addValue("region", Integer.parseInt(split[split.length - 3]))
             .addValue("realm", Integer.parseInt(split[split.length - 2]))
             .addValue("battlenetId", Long.parseLong(split[split.length - 1]))
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class));
@@ -413,7 +413,7 @@ public class LadderCharacterDAO
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("playerCharacterId", playerCharacterId)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class));
@@ -434,7 +434,7 @@ public class LadderCharacterDAO
 
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("playerCharacterIds", playerCharacterIds)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class));
@@ -452,7 +452,7 @@ public class LadderCharacterDAO
 
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("clanTag", clanTag)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class));
@@ -466,7 +466,7 @@ public class LadderCharacterDAO
 
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("accountId", accountId)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class));
@@ -478,7 +478,7 @@ public class LadderCharacterDAO
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("playerCharacterId", playerCharacterId)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class))
@@ -492,7 +492,7 @@ public class LadderCharacterDAO
     {
         MapSqlParameterSource params = new MapSqlParameterSource()
             .addValue("accountId", accountId)
-            .addValue("season", seasonDAO.getMaxBattlenetId())
+            .addValue("season", seasonRegistry.getMaxBattlenetId())
             .addValue("queueType", conversionService.convert(CURRENT_STATS_QUEUE_TYPE, Integer.class))
             .addValue("cheaterReportType", conversionService
                 .convert(PlayerCharacterReport.PlayerCharacterReportType.CHEATER, Integer.class))
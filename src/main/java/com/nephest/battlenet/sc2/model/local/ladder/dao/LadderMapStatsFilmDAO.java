@@ -1,8 +1,9 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.model.local.ladder.dao;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.BaseLeagueTier;
 import com.nephest.battlenet.sc2.model.QueueType;
@@ -22,7 +23,6 @@ import com.nephest.battlenet.sc2.model.local.dao.MapStatsFilmDAO;
 import com.nephest.battlenet.sc2.model.local.dao.MapStatsFilmFrameDAO;
 import com.nephest.battlenet.sc2.model.local.dao.MapStatsFilmSpecDAO;
 import com.nephest.battlenet.sc2.model.local.dao.SC2MapDAO;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.ladder.LadderMapStatsFilm;
 import java.time.Duration;
 import java.util.EnumSet;
@@ -42,7 +42,7 @@ public class LadderMapStatsFilmDAO
     private final MapStatsFilmSpecDAO mapStatsFilmSpecDAO;
     private final MapStatsFilmDAO mapStatsFilmDAO;
     private final MapStatsFilmFrameDAO mapStatsFilmFrameDAO;
-    private final SeasonDAO seasonDAO;
+    private final SeasonRegistry seasonRegistry;
     private final LeagueDAO leagueDAO;
     private final LeagueTierDAO leagueTierDAO;
     private final SC2MapDAO mapDAO;
@@ -53,7 +53,7 @@ public class LadderMapStatsFilmDAO
         MapStatsFilmSpecDAO mapStatsFilmSpecDAO,
         MapStatsFilmDAO mapStatsFilmDAO,
         MapStatsFilmFrameDAO mapStatsFilmFrameDAO,
-        SeasonDAO seasonDAO,
+        SeasonRegistry seasonRegistry,
         LeagueDAO leagueDAO,
         LeagueTierDAO leagueTierDAO,
         SC2MapDAO mapDAO
@@ -62,7 +62,7 @@ public class LadderMapStatsFilmDAO
         this.mapStatsFilmSpecDAO = mapStatsFilmSpecDAO;
         this.mapStatsFilmDAO = mapStatsFilmDAO;
         this.mapStatsFilmFrameDAO = mapStatsFilmFrameDAO;
-        this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
         this.leagueDAO = leagueDAO;
         this.leagueTierDAO = leagueTierDAO;
         this.mapDAO = mapDAO;
@@ -89,7 +89,7 @@ public class LadderMapStatsFilmDAO
             .collect(Collectors.toMap(MapStatsFilmSpec::getId, Function.identity()));
         if(specs.isEmpty()) return null;
 
-        Map<Integer, Season> seasons = seasonDAO.findListByBattlenetId(season).stream()
+        Map<Integer, Season> seasons = seasonRegistry.findListByBattlenetId(season).stream()
             .filter(s->regions.contains(s.getRegion()))
             .collect(Collectors.toMap(Season::getId, Function.identity()));
         if(seasons.isEmpty()) return null;
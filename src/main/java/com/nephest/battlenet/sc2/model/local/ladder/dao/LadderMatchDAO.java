@@ -73,8 +73,10 @@ public class LadderMatchDAO
 
         + "FROM match_filter "
         + "INNER JOIN match ON match_filter.id = match.id "
+            + "AND match_filter.date = match.date "
         + "INNER JOIN map ON match.map_id = map.id "
         + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+            + "AND match.date = match_participant.match_date "
         + "LEFT JOIN team ON match_participant.team_id = team.id "
         + "LEFT JOIN division ON team.division_id = division.id "
         + "LEFT JOIN league_tier ON division.league_tier_id = league_tier.id "
@@ -109,15 +111,18 @@ public class LadderMatchDAO
             + "SELECT date, type, map_id, region "
             + "FROM match_participant "
             + "INNER JOIN match ON match_participant.match_id = match.id "
+                + "AND match_participant.match_date = match.date "
             + "WHERE player_character_id IN(:playerCharacterIds) "
+            + "AND match_participant.match_date %1$s= :dateAnchor "
         + "), "
         + "match_filter AS "
         + "("
             + "SELECT DISTINCT ON (date, type, map_id, region) "
-            + "id "
+            + "id, date "
             + "FROM participant_filter "
             + "INNER JOIN match USING(date, type, map_id, region) "
             + "WHERE (date, type, map_id, region) %1$s (:dateAnchor, :typeAnchor, :mapIdAnchor, :regionAnchor) "
+            + "AND date %1$s= :dateAnchor "
             + "AND (array_length(:types::smallint[], 1) IS NULL OR match.type = ANY(:types)) "
             + "ORDER BY date %2$s, type %2$s, map_id %2$s, region %2$s "
             + "LIMIT :limit"
@@ -134,10 +139,11 @@ public class LadderMatchDAO
         (
         "WITH match_filter AS "
         + "("
-            + "SELECT id "
+            + "SELECT id, date "
             + "FROM match "
             + "WHERE vod = true "
             + "AND (date, type, map_id, region) < (:dateAnchor, :typeAnchor, :mapIdAnchor, :regionAnchor) "
+            + "AND date <= :dateAnchor "
             + "AND (:mapId::integer IS NULL OR map_id = :mapId) "
             + "AND (:minDuration::integer IS NULL OR duration >= :minDuration) "
             + "AND (:maxDuration::integer IS NULL OR duration <= :maxDuration) "
@@ -156,11 +162,12 @@ public class LadderMatchDAO
         "WITH "
         + "vs_match_filter AS "
         + "( "
-            + "SELECT DISTINCT(id) FROM "
+            + "SELECT c.id, c.date FROM "
             + "( "
-                + "SELECT match.id, match_participant.player_character_id "
+                + "SELECT match.id, match.date, match_participant.player_character_id "
                 + "FROM match "
                 + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                    + "AND match.date = match_participant.match_date "
                 + "INNER JOIN player_character ON match_participant.player_character_id = player_character.id "
                 + "INNER JOIN clan_member ON player_character.id = clan_member.player_character_id "
                 + "WHERE "
@@ -171,9 +178,10 @@ public class LadderMatchDAO
 
                 + "UNION "
 
-                + "SELECT match.id, player_character_id "
+                + "SELECT match.id, match.date, player_character_id "
                 + "FROM match "
                 + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                    + "AND match.date = match_participant.match_date "
                 + "INNER JOIN player_character ON match_participant.player_character_id = player_character.id "
                 + "LEFT JOIN team ON match_participant.team_id = team.id "
                 + "WHERE "
@@ -182,44 +190,47 @@ public class LadderMatchDAO
                 + "AND match.type NOT IN (:excludeTypes) "
                 + "%1$s "
             + ") c "
-            + "GROUP BY c.id "
+            + "GROUP BY c.id, c.date "
             + "HAVING COUNT(*) > 1 "
         + "),"
         + "match_filter_g1 AS "
         + "("
-            + "SELECT id, MAX(decision) AS decision "
+            + "SELECT id, date, MAX(decision) AS decision "
             + "FROM "
             + "("
-                + "SELECT vs_match_filter.id, MAX(match_participant.decision) AS decision "
+                + "SELECT vs_match_filter.id, vs_match_filter.date, MAX(match_participant.decision) AS decision "
                 + "FROM vs_match_filter "
                 + "INNER JOIN match_participant ON vs_match_filter.id = match_participant.match_id "
+                    + "AND vs_match_filter.date = match_participant.match_date "
                 + "INNER JOIN player_character ON match_participant.player_character_id = player_character.id "
                 + "INNER JOIN clan_member ON player_character.id = clan_member.player_character_id "
                 + "WHERE "
                 + "clan_member.clan_id = ANY (:clans1) "
-                + "GROUP BY vs_match_filter.id "
+                + "GROUP BY vs_match_filter.id, vs_match_filter.date "
                 + "HAVING MAX(match_participant.decision) = MIN(match_participant.decision) "
 
                 + "UNION "
 
-                + "SELECT vs_match_filter.id, MAX(match_participant.decision) AS decision "
+                + "SELECT vs_match_filter.id, vs_match_filter.date, MAX(match_participant.decision) AS decision "
                 + "FROM vs_match_filter "
                 + "INNER JOIN match_participant ON vs_match_filter.id = match_participant.match_id "
+                    + "AND vs_match_filter.date = match_participant.match_date "
                 + "LEFT JOIN team ON match_participant.team_id = team.id "
                 + "WHERE "
                 + "(team.queue_type, team.team_type, team.region, team.legacy_id) IN (:teams1) "
-                + "GROUP BY vs_match_filter.id "
+                + "GROUP BY vs_match_filter.id, vs_match_filter.date "
                 + "HAVING MAX(match_participant.decision) = MIN(match_participant.decision) "
             + ") g1 "
-            + "GROUP BY id "
+            + "GROUP BY id, date "
             + "HAVING MAX(decision) = MIN(decision) "
         + "), "
         + "match_filter AS "
         + "( "
-            + "SELECT MAX(match.id) AS id, MAX(match_participant.decision) AS decision "
+            + "SELECT MAX(match.id) AS id, date, MAX(match_participant.decision) AS decision "
             + "FROM match_filter_g1 "
-            + "INNER JOIN match USING (id) "
+            + "INNER JOIN match USING (id, date) "
             + "INNER JOIN match_participant ON match.id = match_participant.match_id "
+                + "AND match.date = match_participant.match_date "
             + "INNER JOIN player_character ON match_participant.player_character_id = player_character.id "
             + "LEFT JOIN clan_member ON player_character.id = clan_member.player_character_id "
             + "LEFT JOIN team ON match_participant.team_id = team.id "
@@ -252,6 +263,7 @@ public class LadderMatchDAO
         (
             VERSUS_FILTER_TEMPLATE,
             "AND (date, type, map_id, match.region) %1$s (:dateAnchor, :typeAnchor, :mapIdAnchor, :regionAnchor) "
+            + "AND match.date %1$s= :dateAnchor "
             + "AND (array_length(:types::smallint[], 1) IS NULL OR match.type = ANY(:types)) ",
             "%2$s",
             "LIMIT :limit"
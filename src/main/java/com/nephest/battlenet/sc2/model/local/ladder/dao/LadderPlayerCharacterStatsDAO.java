@@ -1,14 +1,14 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.model.local.ladder.dao;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Race;
 import com.nephest.battlenet.sc2.model.TeamType;
 import com.nephest.battlenet.sc2.model.local.dao.DAOUtils;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterStatsDAO;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.ladder.LadderPlayerCharacterStats;
 import com.nephest.battlenet.sc2.model.local.ladder.LadderPlayerSearchStats;
 import java.util.EnumMap;
@@ -30,7 +30,7 @@ public class LadderPlayerCharacterStatsDAO
 
     private final NamedParameterJdbcTemplate template;
     private final ConversionService conversionService;
-    private final SeasonDAO seasonDAO;
+    private final SeasonRegistry seasonRegistry;
 
     private static RowMapper<LadderPlayerCharacterStats> STD_ROW_MAPPER;
 
@@ -38,12 +38,12 @@ public class LadderPlayerCharacterStatsDAO
     (
         @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
         @Qualifier("sc2StatsConversionService") ConversionService conversionService,
-        SeasonDAO seasonDAO
+        SeasonRegistry seasonRegistry
     )
     {
         this.template = template;
         this.conversionService = conversionService;
-        this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
         initQueries(conversionService);
         initMappers(conversionService);
     }
@@ -170,7 +170,7 @@ public class LadderPlayerCharacterStatsDAO
             FIND_GLOBAL_STATS_LIST_BY_PLAYER_CHARACTER_ID_QUERY,
             new MapSqlParameterSource()
                 .addValue("playerCharacterId", playerCharacterId)
-                .addValue("season", seasonDAO.getMaxBattlenetId()),
+                .addValue("season", seasonRegistry.getMaxBattlenetId()),
             STD_ROW_MAPPER
         );
     }
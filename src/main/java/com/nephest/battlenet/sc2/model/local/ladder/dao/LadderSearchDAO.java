@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.model.local.ladder.dao;
 
+import com.nephest.battlenet.sc2.cache.LadderScanCache;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Race;
@@ -21,6 +22,7 @@ import com.nephest.battlenet.sc2.model.local.dao.PopulationStateDAO;
 import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamMemberDAO;
+import com.nephest.battlenet.sc2.model.local.inner.LadderSnapshot;
 import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyId;
 import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyUid;
 import com.nephest.battlenet.sc2.model.local.ladder.LadderTeam;
@@ -32,9 +34,12 @@ import java.sql.SQLException;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -276,6 +281,14 @@ public class LadderSearchDAO
         + LADDER_SEARCH_TEAM_FROM_FULL_BODY
         + "WHERE team_member.team_id IN(:ids)";
 
+    private static final String FIND_SNAPSHOT =
+        "SELECT id, region, league_type, rating "
+        + "FROM team "
+        + "WHERE season = :seasonId "
+        + "AND queue_type = :queueType "
+        + "AND team_type = :teamType "
+        + "ORDER BY rating DESC, id DESC";
+
     private NamedParameterJdbcTemplate template;
     private ConversionService conversionService;
     private SeasonDAO seasonDAO;
@@ -470,7 +483,11 @@ public class LadderSearchDAO
         return new PagedSearchResult<>(null, (long) getResultsPerPage(), finalPage, teams);
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public List<Season> findSeasonList()
     {
         return seasonDAO.findListByFirstBattlenetId();
@@ -620,4 +637,40 @@ public class LadderSearchDAO
         return template.query(FIND_TEAMS_BY_IDS, params, LADDER_TEAMS_EXTRACTOR);
     }
 
+    /**
+     * @param ids team ids
+     * @return teams in the same order as the supplied ids, missing teams are skipped
+     */
+    public List<LadderTeam> findOrderedTeamsByIds(List<Long> ids)
+    {
+        if(ids.isEmpty()) return List.of();
+
+        Map<Long, LadderTeam> teams = findTeamsByIds(new HashSet<>(ids)).stream()
+            .collect(Collectors.toMap(LadderTeam::getId, Function.identity()));
+        return ids.stream()
+            .map(teams::get)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    public LadderSnapshot findSnapshot(int season, QueueType queueType, TeamType teamType)
+    {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("seasonId", season)
+            .addValue("queueType", conversionService.convert(queueType, Integer.class))
+            .addValue("teamType", conversionService.convert(teamType, Integer.class));
+        return template.query(FIND_SNAPSHOT, params, rs->
+        {
+            LadderSnapshot.Builder builder = new LadderSnapshot.Builder();
+            while(rs.next()) builder.add
+            (
+                conversionService.convert(rs.getInt("region"), Region.class),
+                conversionService.convert(rs.getInt("league_type"), League.LeagueType.class),
+                rs.getLong("rating"),
+                rs.getLong("id")
+            );
+            return builder.build();
+        });
+    }
+
 }
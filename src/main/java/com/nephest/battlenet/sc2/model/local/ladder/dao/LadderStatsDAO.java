@@ -1,8 +1,10 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.model.local.ladder.dao;
 
+import com.nephest.battlenet.sc2.cache.LadderScanCache;
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.BaseLeagueTier;
 import com.nephest.battlenet.sc2.model.QueueType;
@@ -79,7 +81,7 @@ public class LadderStatsDAO
     private final NamedParameterJdbcTemplate template;
     private ConversionService conversionService;
     private final QueueStatsDAO queueStatsDAO;
-    public final SeasonDAO seasonDAO;
+    public final SeasonRegistry seasonRegistry;
 
     private final ResultSetExtractor<Map<Integer, Map<Region, Map<BaseLeague.LeagueType, LadderSearchStatsResult>>>>
         LADDER_STATS_EXTRACTOR =
@@ -140,16 +142,21 @@ public class LadderStatsDAO
         @Qualifier("sc2StatsNamedTemplate") NamedParameterJdbcTemplate template,
         @Qualifier("sc2StatsConversionService") ConversionService conversionService,
         @Autowired QueueStatsDAO queueStatsDAO,
-        @Autowired SeasonDAO seasonDAO
+        @Autowired SeasonRegistry seasonRegistry
     )
     {
         this.template = template;
         this.conversionService = conversionService;
         this.queueStatsDAO = queueStatsDAO;
-        this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
     }
 
-    @Cacheable(cacheNames="fqdn-ladder-scan", condition="#a0 eq #root.target.seasonDAO.maxBattlenetId")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR,
+        condition = "#a0 eq #root.target.seasonRegistry.maxBattlenetId"
+    )
     public Map<Region, Map<BaseLeague.LeagueType, Map<BaseLeagueTier.LeagueTierType, Integer[]>>> findLeagueBounds
     (
         int season,
@@ -180,7 +187,11 @@ public class LadderStatsDAO
     }
 
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public Map<Integer, MergedLadderSearchStatsResult> findStats
     (
         Set<Region> regions,
@@ -199,7 +210,11 @@ public class LadderStatsDAO
         return result;
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public Map<QueueType, Map<TeamType, Map<Integer, MergedLadderSearchStatsResult>>> findStats()
     {
         Set<Region> regions = Set.of(Region.values());
@@ -218,7 +233,11 @@ public class LadderStatsDAO
         return result;
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public List<QueueStats> findQueueStats(QueueType queueType, TeamType teamType)
     {
         return queueStatsDAO.findQueueStats(queueType, teamType);
@@ -0,0 +1,211 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+/**
+ * <p>
+ *     Writes rows in the PostgreSQL binary COPY format. Rows are streamed to the underlying
+ *     output stream, so the data is never fully buffered in memory. Supported types:
+ *     bigint, integer, smallint, boolean, timestamp with time zone.
+ * </p>
+ * <p>
+ *     Call {@link #finish()} after the last row to write the trailer, then {@link #close()}
+ *     to finish the copy operation. The copy operation is cancelled if the writer is closed
+ *     before it was finished, use try-with-resources to cancel failed copies.
+ * </p>
+ */
+public class PostgreSQLBinaryCopyWriter
+implements AutoCloseable
+{
+
+    public static final int DEFAULT_BUFFER_SIZE = 65536;
+    public static final byte[] SIGNATURE =
+        new byte[]{'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    public static final OffsetDateTime POSTGRESQL_EPOCH =
+        OffsetDateTime.of(2000, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private final DataOutputStream out;
+    private final PGCopyOutputStream copyOut;
+    private long rowCount = 0;
+    private boolean finished = false;
+    private boolean closed = false;
+
+    public PostgreSQLBinaryCopyWriter(OutputStream out)
+    throws IOException
+    {
+        this(out, null);
+    }
+
+    private PostgreSQLBinaryCopyWriter(OutputStream out, PGCopyOutputStream copyOut)
+    throws IOException
+    {
+        this.out = new DataOutputStream(out);
+        this.copyOut = copyOut;
+        writeHeader();
+    }
+
+    public static PostgreSQLBinaryCopyWriter of(Connection connection, String copyQuery)
+    throws SQLException, IOException
+    {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        PGCopyOutputStream copyOut = new PGCopyOutputStream(pgConnection, copyQuery);
+        return new PostgreSQLBinaryCopyWriter
+        (
+            new BufferedOutputStream(copyOut, DEFAULT_BUFFER_SIZE),
+            copyOut
+        );
+    }
+
+    private void writeHeader()
+    throws IOException
+    {
+        out.write(SIGNATURE);
+        //flags
+        out.writeInt(0);
+        //header extension length
+        out.writeInt(0);
+    }
+
+    public PostgreSQLBinaryCopyWriter startRow(int fieldCount)
+    throws IOException
+    {
+        out.writeShort(fieldCount);
+        rowCount++;
+        return this;
+    }
+
+    public PostgreSQLBinaryCopyWriter writeNull()
+    throws IOException
+    {
+        out.writeInt(-1);
+        return this;
+    }
+
+    public PostgreSQLBinaryCopyWriter writeLong(Long val)
+    throws IOException
+    {
+        if(val == null) return writeNull();
+
+        out.writeInt(Long.BYTES);
+        out.writeLong(val);
+        return this;
+    }
+
+    public PostgreSQLBinaryCopyWriter writeInt(Integer val)
+    throws IOException
+    {
+        if(val == null) return writeNull();
+
+        out.writeInt(Integer.BYTES);
+        out.writeInt(val);
+        return this;
+    }
+
+    public PostgreSQLBinaryCopyWriter writeShort(Integer val)
+    throws IOException
+    {
+        if(val == null) return writeNull();
+        if(val > Short.MAX_VALUE || val < Short.MIN_VALUE)
+            throw new IllegalArgumentException("Smallint overflow: " + val);
+
+        out.writeInt(Short.BYTES);
+        out.writeShort(val);
+        return this;
+    }
+
+    public PostgreSQLBinaryCopyWriter writeBoolean(Boolean val)
+    throws IOException
+    {
+        if(val == null) return writeNull();
+
+        out.writeInt(1);
+        out.writeByte(val ? 1 : 0);
+        return this;
+    }
+
+    public PostgreSQLBinaryCopyWriter writeTimestamp(OffsetDateTime val)
+    throws IOException
+    {
+        if(val == null) return writeNull();
+
+        out.writeInt(Long.BYTES);
+        out.writeLong(ChronoUnit.MICROS.between(POSTGRESQL_EPOCH, val));
+        return this;
+    }
+
+    public long getRowCount()
+    {
+        return rowCount;
+    }
+
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * Writes the trailer. Must be called after the last row, otherwise the copy operation
+     * is cancelled by {@link #close()}.
+     *
+     * @return number of written rows
+     */
+    public long finish()
+    throws IOException
+    {
+        if(finished) return rowCount;
+
+        //trailer
+        out.writeShort(-1);
+        out.flush();
+        finished = true;
+        return rowCount;
+    }
+
+    /**
+     * Finishes the copy operation if {@link #finish()} was called, cancels it otherwise.
+     * Incomplete rows are never sent to the server, so the original exception of a failed
+     * copy is not replaced by a protocol error.
+     */
+    @Override
+    public void close()
+    throws IOException
+    {
+        if(closed) return;
+
+        closed = true;
+        if(finished || copyOut == null)
+        {
+            //plain streams are closed without the trailer if the copy was not finished
+            out.close();
+            return;
+        }
+
+        try
+        {
+            //buffered bytes are discarded
+            if(copyOut.isActive()) copyOut.cancelCopy();
+        }
+        catch (SQLException e)
+        {
+            throw new IOException(e);
+        }
+        finally
+        {
+            copyOut.close();
+        }
+    }
+
+}
@@ -15,8 +15,15 @@ public class PostgreSQLUtils
 
     public static final String TRANSACTION_USER_ID_PARAMETER_NAME = "sc2pulse.user_id";
 
+    //partitioned tables have no tuples of their own, partition tuples are summed instead
     private static final String GET_APPROXIMATE_COUNT_QUERY =
-        "SELECT reltuples::bigint FROM pg_class WHERE relname = ?";
+        "SELECT CASE WHEN bool_or(parent.relkind = 'p') "
+            + "THEN SUM(GREATEST(child.reltuples, 0)) "
+            + "ELSE MAX(parent.reltuples) END::bigint "
+        + "FROM pg_class parent "
+        + "LEFT JOIN pg_inherits ON parent.oid = pg_inherits.inhparent "
+        + "LEFT JOIN pg_class child ON pg_inherits.inhrelid = child.oid "
+        + "WHERE parent.relname = ?";
     private static final String SET_TRANSACTION_USER_ID_QUERY =
         "SELECT set_config('" + TRANSACTION_USER_ID_PARAMETER_NAME + "', ?, true)";
     private static final String GET_TRANSACTION_USER_ID_QUERY =
@@ -0,0 +1,323 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.util;
+
+import com.nephest.battlenet.sc2.model.Region;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>
+ *     Partitioned DB writer. Each partition(region or a hash of a natural id) is mapped to its
+ *     own single-threaded lane, so writes of a partition are ordered, while writes of different
+ *     partitions are committed in parallel. Lane tasks must write partition-specific rows
+ *     only. Rows that are shared between partitions(accounts) must be written in a shared
+ *     stage. Shared stages are striped by a natural id, see
+ *     {@link #callShared(Object, Supplier)}, so unrelated shared rows are written in
+ *     parallel too. {@link #callShared(Supplier)} locks all shared stages.
+ * </p>
+ * <p>
+ *     Shared rows that are upserted idempotently should be written by an
+ *     {@link #callSharedAutonomous(Object, Supplier) autonomous} stage that commits its own
+ *     short transaction, so the stage lock is not held by the regional writes that follow
+ *     it, and lanes of the same stage commit their regional writes in parallel.
+ * </p>
+ * <p>
+ *     Deadlocks are prevented by the following rules:
+ * </p>
+ * <ul>
+ *     <li>A shared stage is executed by one lane at a time, its lock is held until the
+ *     current transaction is completed. Transactions that lock the same shared rows never
+ *     overlap. Shared stage locks are acquired in ascending stage order.</li>
+ *     <li>An autonomous shared stage commits its own transaction before its lock is released.
+ *     It can wait for regional transactions of other lanes that reference the same shared
+ *     rows, but these transactions don't need the stage lock anymore, so there are no
+ *     cycles. The calling transaction must not lock shared rows before the stage.</li>
+ *     <li>Tasks of exclusive executors(see {@link #newExclusiveExecutor(int, ThreadFactory)})
+ *     never overlap with lane tasks. The DB code that is not partition-aware must be executed
+ *     by an exclusive executor.</li>
+ * </ul>
+ * <p>
+ *     Exclusive tasks must not wait for lane tasks, and lane tasks must not wait for exclusive
+ *     tasks.
+ * </p>
+ */
+public class PartitionedDbWriter
+implements AutoCloseable
+{
+
+    public static final String LANE_THREAD_POOL_NAME = "p-db-lane-";
+
+    private final ReadWriteLock laneLock = new ReentrantReadWriteLock(true);
+    private final ReentrantLock[] sharedStageLocks;
+    private final ExecutorService[] lanes;
+
+    public PartitionedDbWriter(int laneCount)
+    {
+        if(laneCount < 1) throw new IllegalArgumentException("Lane count must be positive");
+
+        lanes = new ExecutorService[laneCount];
+        for(int i = 0; i < laneCount; i++) lanes[i] = Executors.newSingleThreadExecutor
+        (
+            new CustomizableThreadFactory(LANE_THREAD_POOL_NAME + i + "-")
+        );
+        sharedStageLocks = new ReentrantLock[laneCount];
+        for(int i = 0; i < laneCount; i++) sharedStageLocks[i] = new ReentrantLock(true);
+    }
+
+    public int getLaneCount()
+    {
+        return lanes.length;
+    }
+
+    public int getLane(Region region)
+    {
+        return region.ordinal() % lanes.length;
+    }
+
+    /**
+     * @param naturalId natural id with a stable hash code
+     * @return lane of the natural id
+     */
+    public int getLane(Object naturalId)
+    {
+        return Math.floorMod(naturalId.hashCode(), lanes.length);
+    }
+
+    /**
+     * @param naturalId natural id of shared rows with a stable hash code
+     * @return shared stage of the natural id
+     */
+    public int getSharedStage(Object naturalId)
+    {
+        return Math.floorMod(naturalId.hashCode(), sharedStageLocks.length);
+    }
+
+    public <T> Future<T> submit(int lane, Callable<T> task)
+    {
+        return lanes[lane].submit(()->
+        {
+            laneLock.readLock().lock();
+            try
+            {
+                return task.call();
+            }
+            finally
+            {
+                laneLock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Non-blocking version of {@link #submit(Region, Runnable)}.
+     *
+     * @param region region
+     * @param task lane task
+     * @return future that is completed when the task is finished
+     */
+    public CompletableFuture<Void> runAsync(Region region, Runnable task)
+    {
+        return CompletableFuture.runAsync(()->
+        {
+            laneLock.readLock().lock();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                laneLock.readLock().unlock();
+            }
+        }, lanes[getLane(region)]);
+    }
+
+    public Future<Void> submit(Region region, Runnable task)
+    {
+        return submit(getLane(region), ()->
+        {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a shared entity stage. If there is an active transaction, the stage lock is held
+     * until the transaction is completed, otherwise it's released when the stage is finished.
+     * Rows that are locked by the stage must belong to the natural id.
+     *
+     * @param naturalId natural id of shared rows, see {@link #getSharedStage(Object)}
+     * @param stage shared entity writes
+     * @return stage result
+     * @param <T> result type
+     * @throws IllegalStateException if the current thread holds a lock of a higher stage
+     */
+    public <T> T callShared(Object naturalId, Supplier<T> stage)
+    {
+        int ix = getSharedStage(naturalId);
+        return callShared(ix, ix, stage, true);
+    }
+
+    /**
+     * Same as {@link #callShared(Object, Supplier)}, but locks all shared stages. Use it
+     * when shared rows can't be mapped to one natural id.
+     */
+    public <T> T callShared(Supplier<T> stage)
+    {
+        return callShared(0, sharedStageLocks.length - 1, stage, true);
+    }
+
+    /**
+     * Same as {@link #callShared(Object, Supplier)}, but the stage lock is released when
+     * the stage is finished, even if there is an active transaction. The stage must commit
+     * its writes in its own transaction(i.e. a {@code REQUIRES_NEW} transaction), and must
+     * not be rolled back with the current transaction. Use it for idempotent upserts only.
+     *
+     * @param naturalId natural id of shared rows, see {@link #getSharedStage(Object)}
+     * @param stage shared entity writes that are committed by the stage
+     * @return stage result
+     * @param <T> result type
+     * @throws IllegalStateException if the current thread holds a lock of a higher stage
+     */
+    public <T> T callSharedAutonomous(Object naturalId, Supplier<T> stage)
+    {
+        int ix = getSharedStage(naturalId);
+        return callShared(ix, ix, stage, false);
+    }
+
+    private <T> T callShared(int from, int to, Supplier<T> stage, boolean holdUntilCompletion)
+    {
+        checkSharedLockOrder(from, to);
+
+        for(int i = from; i <= to; i++) sharedStageLocks[i].lock();
+        boolean releaseOnCompletion = false;
+        try
+        {
+            if(holdUntilCompletion && TransactionSynchronizationManager.isSynchronizationActive())
+            {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+                {
+                    @Override
+                    public void afterCompletion(int status)
+                    {
+                        unlockShared(from, to);
+                    }
+                });
+                releaseOnCompletion = true;
+            }
+            return stage.get();
+        }
+        finally
+        {
+            if(!releaseOnCompletion) unlockShared(from, to);
+        }
+    }
+
+    //a thread must not wait for a lower stage while holding a higher stage
+    private void checkSharedLockOrder(int from, int to)
+    {
+        int maxHeld = -1;
+        for(int i = 0; i < sharedStageLocks.length; i++)
+            if(sharedStageLocks[i].isHeldByCurrentThread()) maxHeld = i;
+        for(int i = from; i <= to; i++)
+            if(!sharedStageLocks[i].isHeldByCurrentThread() && i < maxHeld) throw new IllegalStateException
+            (
+                "Shared stage " + maxHeld + " is locked, stage " + i + " can't be locked"
+            );
+    }
+
+    private void unlockShared(int from, int to)
+    {
+        for(int i = to; i >= from; i--) sharedStageLocks[i].unlock();
+    }
+
+    public void runShared(Object naturalId, Runnable stage)
+    {
+        callShared(naturalId, ()->
+        {
+            stage.run();
+            return null;
+        });
+    }
+
+    public void runSharedAutonomous(Object naturalId, Runnable stage)
+    {
+        callSharedAutonomous(naturalId, ()->
+        {
+            stage.run();
+            return null;
+        });
+    }
+
+    public void runShared(Runnable stage)
+    {
+        callShared(()->
+        {
+            stage.run();
+            return null;
+        });
+    }
+
+    /**
+     * Creates an executor whose tasks never overlap with lane tasks and with each other.
+     *
+     * @param threads thread count
+     * @param threadFactory thread factory
+     * @return exclusive executor
+     */
+    public ExecutorService newExclusiveExecutor(int threads, ThreadFactory threadFactory)
+    {
+        return new ThreadPoolExecutor
+        (
+            threads, threads,
+            0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory
+        )
+        {
+
+            @Override
+            protected void beforeExecute(Thread thread, Runnable runnable)
+            {
+                laneLock.writeLock().lock();
+                super.beforeExecute(thread, runnable);
+            }
+
+            @Override
+            protected void afterExecute(Runnable runnable, Throwable throwable)
+            {
+                try
+                {
+                    super.afterExecute(runnable, throwable);
+                }
+                finally
+                {
+                    laneLock.writeLock().unlock();
+                }
+            }
+
+        };
+    }
+
+    @Override
+    public void close()
+    {
+        for(ExecutorService lane : lanes) lane.shutdown();
+    }
+
+}
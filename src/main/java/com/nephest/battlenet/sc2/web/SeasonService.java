@@ -1,8 +1,9 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.web;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.local.Season;
 import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,16 +16,19 @@ public class SeasonService
 {
 
     private final SeasonDAO seasonDAO;
+    private final SeasonRegistry seasonRegistry;
     private SeasonService service;
 
     @Autowired
     public SeasonService
     (
         SeasonDAO seasonDAO,
+        SeasonRegistry seasonRegistry,
         @Lazy SeasonService service
     )
     {
         this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
         this.service = service;
     }
 
@@ -40,13 +44,21 @@ public class SeasonService
 
     public Season merge(Season season)
     {
-        Season existing = seasonDAO.find(season.getRegion(), season.getBattlenetId())
+        Season existing = seasonRegistry.find(season.getRegion(), season.getBattlenetId())
             .orElse(null);
         if(existing == null || !haveEqualDates(season, existing))
-            return service.update(season);
+        {
+            Season updated = service.update(season);
+            seasonRegistry.reload();
+            return updated;
+        }
 
         if(!haveEqualYearAndNumber(season, existing))
-            return seasonDAO.merge(season);
+        {
+            Season merged = seasonDAO.merge(season);
+            seasonRegistry.reload();
+            return merged;
+        }
 
         if(season.getId() == null) season.setId(existing.getId());
         return season;
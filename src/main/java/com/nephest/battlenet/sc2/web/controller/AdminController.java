@@ -3,22 +3,40 @@
 
 package com.nephest.battlenet.sc2.web.controller;
 
+import com.nephest.battlenet.sc2.cache.LadderScanCache;
+import com.nephest.battlenet.sc2.cache.LadderPageCache;
+import com.nephest.battlenet.sc2.cache.ResponseBodyCache;
+import com.nephest.battlenet.sc2.cache.SearchSuggestionIndex;
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
+import com.nephest.battlenet.sc2.cache.TeamHistoryCache;
 import com.nephest.battlenet.sc2.config.Cron;
 import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.inner.RangePartition;
 import com.nephest.battlenet.sc2.web.service.AlternativeLadderService;
 import com.nephest.battlenet.sc2.web.service.BlizzardSC2API;
+import com.nephest.battlenet.sc2.web.service.CharacterMatchWatermark;
+import com.nephest.battlenet.sc2.web.service.FingerprintStore;
+import com.nephest.battlenet.sc2.web.service.LadderBatchPipeline;
+import com.nephest.battlenet.sc2.web.service.LadderValidatorStore;
+import com.nephest.battlenet.sc2.web.service.LeagueStatsAggregator;
 import com.nephest.battlenet.sc2.web.service.MatchService;
+import com.nephest.battlenet.sc2.web.service.PopulationCounter;
 import com.nephest.battlenet.sc2.web.service.StatsService;
 import com.nephest.battlenet.sc2.web.service.SupporterService;
+import com.nephest.battlenet.sc2.web.service.TeamRankEngine;
+import com.nephest.battlenet.sc2.web.service.TeamStateService;
 import io.swagger.v3.oas.annotations.Hidden;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -46,6 +64,42 @@ public class AdminController
     @Autowired
     private SupporterService supporterService;
 
+    @Autowired
+    private LadderScanCache ladderScanCache;
+
+    @Autowired
+    private TeamHistoryCache teamHistoryCache;
+
+    @Autowired
+    private LadderPageCache ladderPageCache;
+
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private SearchSuggestionIndex searchSuggestionIndex;
+
+    @Autowired
+    private SeasonRegistry seasonRegistry;
+
+    @Autowired
+    private LadderBatchPipeline ladderBatchPipeline;
+
+    @Autowired
+    private TeamRankEngine teamRankEngine;
+
+    @Autowired
+    private PopulationCounter populationCounter;
+
+    @Autowired
+    private LeagueStatsAggregator leagueStatsAggregator;
+
+    @Autowired
+    private FingerprintStore fingerprintStore;
+
+    @Autowired
+    private TeamStateService teamStateService;
+
     //lazy for tests
     @Autowired @Lazy
     private Cron cron;
@@ -70,6 +124,190 @@ public class AdminController
         statsService.setPartialUpdate2(region, request.getMethod().equals("POST"));
     }
 
+    @RequestMapping
+    (
+        value = "/update/ladder/conditional",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setConditionalLadderRequests(HttpServletRequest request)
+    {
+        statsService.setConditionalLadderRequests(request.getMethod().equals("POST"));
+    }
+
+    @GetMapping("/update/ladder/conditional/stats")
+    public Map<Region, LadderValidatorStore.Stats> getConditionalLadderRequestStats()
+    {
+        return sc2API.getLadderValidators().getStats();
+    }
+
+    @GetMapping("/update/ladder/pipeline/stats")
+    public Map<Region, LadderBatchPipeline.Stats> getLadderPipelineStats()
+    {
+        return ladderBatchPipeline.getStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/update/match/watermark",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setMatchWatermark(HttpServletRequest request)
+    {
+        matchService.setWatermarkEnabled(request.getMethod().equals("POST"));
+    }
+
+    @GetMapping("/update/match/watermark/stats")
+    public CharacterMatchWatermark.Stats getMatchWatermarkStats()
+    {
+        return matchService.getWatermarkStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/update/match/partition",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setMatchPartitioning(HttpServletRequest request)
+    {
+        matchService.setPartitioning(request.getMethod().equals("POST"));
+    }
+
+    @PostMapping("/update/match/partition/update")
+    public List<RangePartition> updateMatchPartitions()
+    {
+        return matchService.updatePartitions();
+    }
+
+    @RequestMapping
+    (
+        value = "/update/rank/incremental",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setIncrementalRanks(HttpServletRequest request)
+    {
+        teamRankEngine.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @RequestMapping
+    (
+        value = "/update/rank/incremental/verify",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setIncrementalRankVerification(HttpServletRequest request)
+    {
+        teamRankEngine.setVerificationEnabled(request.getMethod().equals("POST"));
+    }
+
+    @GetMapping("/update/rank/incremental/verify/{season}")
+    public int verifyIncrementalRanks(@PathVariable("season") int season)
+    {
+        return teamRankEngine.verify(season);
+    }
+
+    @RequestMapping
+    (
+        value = "/update/population/delta",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setDeltaPopulation(HttpServletRequest request)
+    {
+        populationCounter.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @PostMapping("/update/population/delta/reconcile/interval/{durationMillis}")
+    public void setPopulationReconciliationInterval(@PathVariable("durationMillis") long durationMillis)
+    {
+        populationCounter.setReconciliationInterval(Duration.ofMillis(durationMillis));
+    }
+
+    @GetMapping("/update/population/delta/reconcile/{season}")
+    public int reconcilePopulation(@PathVariable("season") int season)
+    {
+        return populationCounter.reconcile(season);
+    }
+
+    @RequestMapping
+    (
+        value = "/update/stats/league/incremental",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setIncrementalLeagueStats(HttpServletRequest request)
+    {
+        leagueStatsAggregator.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @PostMapping("/update/stats/league/incremental/check/interval/{durationMillis}")
+    public void setLeagueStatsCheckInterval(@PathVariable("durationMillis") long durationMillis)
+    {
+        leagueStatsAggregator.setCheckInterval(Duration.ofMillis(durationMillis));
+    }
+
+    @GetMapping("/update/stats/league/incremental/check/{season}")
+    public int checkLeagueStats(@PathVariable("season") int season)
+    {
+        return leagueStatsAggregator.check(season);
+    }
+
+    @GetMapping("/update/stats/league/incremental/stats")
+    public LeagueStatsAggregator.Stats getLeagueStatsAggregatorStats()
+    {
+        return leagueStatsAggregator.getStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/fingerprint",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setFingerprintStore(HttpServletRequest request)
+    {
+        fingerprintStore.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @PostMapping("/fingerprint/rebuild")
+    public void rebuildFingerprints()
+    {
+        fingerprintStore.rebuild();
+    }
+
+    @GetMapping("/fingerprint/stats")
+    public FingerprintStore.Stats getFingerprintStats()
+    {
+        return fingerprintStore.getStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/update/team/state/partition",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setTeamStatePartitioning(HttpServletRequest request)
+    {
+        teamStateService.setPartitioning(request.getMethod().equals("POST"));
+    }
+
+    @PostMapping("/update/team/state/partition/create")
+    public List<RangePartition> createTeamStatePartitions()
+    {
+        return teamStateService.createPartitions();
+    }
+
+    @RequestMapping
+    (
+        value = "/update/team/state/chunked",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setTeamStateChunked(HttpServletRequest request)
+    {
+        teamStateService.setChunked(request.getMethod().equals("POST"));
+    }
+
+    @GetMapping("/update/team/state/chunked/progress")
+    public List<TeamStateService.JobProgress> getTeamStateJobProgress()
+    {
+        return teamStateService.getJobProgress();
+    }
+
     @PostMapping("/update/match/frame/{durationMillis}")
     public ResponseEntity<Object> setMatchUpdateTimeFrame(@PathVariable("durationMillis") long durationMillis)
     {
@@ -104,6 +342,18 @@ public class AdminController
         alternativeLadderService.removeProfileLadderWebRegion(region);
     }
 
+    @PostMapping("/alternative/discovery/parallel")
+    public void enableParallelAlternativeDiscovery()
+    {
+        alternativeLadderService.setParallelDiscovery(true);
+    }
+
+    @DeleteMapping("/alternative/discovery/parallel")
+    public void disableParallelAlternativeDiscovery()
+    {
+        alternativeLadderService.setParallelDiscovery(false);
+    }
+
     @PostMapping("/alternative/discovery/web/region/{region}")
     public void addAlternativeWebRegion(@PathVariable("region") Region region)
     {
@@ -283,4 +533,102 @@ public class AdminController
         sc2API.setProfileLadderRetryCount(region, BlizzardSC2API.PROFILE_LADDER_RETRY_COUNT);
     }
 
+    @GetMapping("/cache/ladder-scan/stats")
+    public Map<String, LadderScanCache.CacheRegionStats> getLadderScanCacheStats()
+    {
+        return ladderScanCache.getStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/cache/team-history",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setTeamHistoryCache(HttpServletRequest request)
+    {
+        teamHistoryCache.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @GetMapping("/cache/team-history/stats")
+    public TeamHistoryCache.Stats getTeamHistoryCacheStats()
+    {
+        return teamHistoryCache.getStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/cache/ladder-page",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setLadderPageCache(HttpServletRequest request)
+    {
+        ladderPageCache.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @GetMapping("/cache/ladder-page/stats")
+    public LadderPageCache.Stats getLadderPageCacheStats()
+    {
+        return ladderPageCache.getStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/cache/response-body",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setResponseBodyCache(HttpServletRequest request)
+    {
+        responseBodyCache.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @GetMapping("/cache/response-body/stats")
+    public ResponseBodyCache.Stats getResponseBodyCacheStats()
+    {
+        return responseBodyCache.getStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/cache/search-suggestions",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setSearchSuggestionIndex(HttpServletRequest request)
+    {
+        searchSuggestionIndex.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @PostMapping("/cache/search-suggestions/rebuild")
+    public void rebuildSearchSuggestionIndex()
+    {
+        searchSuggestionIndex.rebuild();
+    }
+
+    @GetMapping("/cache/search-suggestions/stats")
+    public SearchSuggestionIndex.Stats getSearchSuggestionIndexStats()
+    {
+        return searchSuggestionIndex.getStats();
+    }
+
+    @RequestMapping
+    (
+        value = "/cache/season-registry",
+        method = {RequestMethod.POST, RequestMethod.DELETE}
+    )
+    public void setSeasonRegistry(HttpServletRequest request)
+    {
+        seasonRegistry.setEnabled(request.getMethod().equals("POST"));
+    }
+
+    @PostMapping("/cache/season-registry/reload")
+    public void reloadSeasonRegistry()
+    {
+        seasonRegistry.reload();
+    }
+
+    @GetMapping("/cache/season-registry/stats")
+    public SeasonRegistry.Stats getSeasonRegistryStats()
+    {
+        return seasonRegistry.getStats();
+    }
+
 }
@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.web.controller;
 
+import com.nephest.battlenet.sc2.cache.LadderPageCache;
 import com.nephest.battlenet.sc2.model.BaseLeague.LeagueType;
 import com.nephest.battlenet.sc2.model.BaseLeagueTier.LeagueTierType;
 import com.nephest.battlenet.sc2.model.QueueType;
@@ -17,7 +18,6 @@ import com.nephest.battlenet.sc2.model.local.ladder.LadderTeam;
 import com.nephest.battlenet.sc2.model.local.ladder.MergedLadderSearchStatsResult;
 import com.nephest.battlenet.sc2.model.local.ladder.PagedSearchResult;
 import com.nephest.battlenet.sc2.model.local.ladder.dao.LadderMapStatsDAO;
-import com.nephest.battlenet.sc2.model.local.ladder.dao.LadderSearchDAO;
 import com.nephest.battlenet.sc2.model.local.ladder.dao.LadderStatsDAO;
 import com.nephest.battlenet.sc2.web.service.MapService;
 import com.nephest.battlenet.sc2.web.service.WebServiceUtil;
@@ -43,7 +43,7 @@ public class LadderController
     public static final int PAGE_COUNT_MAX = 15;
 
     @Autowired
-    private LadderSearchDAO ladderSearch;
+    private LadderPageCache ladderPageCache;
 
     @Autowired
     private LadderStatsDAO ladderStatsDAO;
@@ -94,7 +94,7 @@ public class LadderController
         if(diamond) leagues.add(LeagueType.DIAMOND);
         if(master) leagues.add(LeagueType.MASTER);
         if(grandmaster) leagues.add(LeagueType.GRANDMASTER);
-        return ladderSearch.findAnchored
+        return ladderPageCache.findAnchored
         (
             season,
             regions,
@@ -1,11 +1,11 @@
-// Copyright (C) 2020-2022 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.web.controller;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.local.Period;
 import com.nephest.battlenet.sc2.model.local.Season;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.ladder.LadderSeasonState;
 import com.nephest.battlenet.sc2.model.local.ladder.dao.LadderSearchDAO;
 import com.nephest.battlenet.sc2.model.local.ladder.dao.LadderSeasonStateDAO;
@@ -30,7 +30,7 @@ public class SeasonController
     private LadderSearchDAO ladderSearch;
 
     @Autowired
-    private SeasonDAO seasonDAO;
+    private SeasonRegistry seasonRegistry;
 
     @GetMapping("/list")
     public List<Season> getSeasons()
@@ -41,7 +41,7 @@ public class SeasonController
     @GetMapping("/list/all")
     public List<Season> getAllSeasons(@RequestParam(name = "season", required = false) Integer season)
     {
-        return seasonDAO.findListByBattlenetId(season);
+        return seasonRegistry.findListByBattlenetId(season);
     }
 
     @GetMapping("/state/{to}/{period}")
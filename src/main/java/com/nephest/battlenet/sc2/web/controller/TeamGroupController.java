@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.web.controller;
 
+import com.nephest.battlenet.sc2.cache.TeamHistoryCache;
 import com.nephest.battlenet.sc2.config.openapi.TeamLegacyUids;
 import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO;
 import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyUid;
@@ -35,7 +36,7 @@ public class TeamGroupController
     private LadderSearchDAO ladderSearchDAO;
 
     @Autowired
-    private TeamHistoryDAO teamHistoryDAO;
+    private TeamHistoryCache teamHistoryCache;
 
     @GetMapping("/flat") @TeamGroup
     public ResponseEntity<Object> getCharacterIds(@TeamGroup Set<Long> teamIds)
@@ -101,7 +102,7 @@ public class TeamGroupController
 
         return getHistoryParametersError(staticColumns, groupMode, from , to)
             .orElseGet(()->WebServiceUtil.notFoundIfEmpty(
-                teamHistoryDAO.find(teamIds, from, to, staticColumns, historyColumns, groupMode)));
+                teamHistoryCache.find(teamIds, from, to, staticColumns, historyColumns, groupMode)));
     }
 
     @GetMapping("/history/summary") @TeamGroup
@@ -118,7 +119,7 @@ public class TeamGroupController
     {
         return getHistoryParametersError(staticColumns, groupMode, from , to)
             .orElseGet(()->WebServiceUtil.notFoundIfEmpty(
-                teamHistoryDAO.findSummary(teamIds, from, to, staticColumns, summaryColumns, groupMode)));
+                teamHistoryCache.findSummary(teamIds, from, to, staticColumns, summaryColumns, groupMode)));
     }
 
 }
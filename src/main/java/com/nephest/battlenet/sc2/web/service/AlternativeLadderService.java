@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.web.service;
 
+import com.nephest.battlenet.sc2.cache.LadderScanCache;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.BaseLeagueTier;
 import com.nephest.battlenet.sc2.model.BasePlayerCharacter;
@@ -37,6 +38,7 @@ import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamMemberDAO;
 import com.nephest.battlenet.sc2.model.local.dao.VarDAO;
+import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
 import com.nephest.battlenet.sc2.model.local.inner.AlternativeTeamData;
 import com.nephest.battlenet.sc2.model.local.inner.ClanMemberEventData;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
@@ -47,17 +49,18 @@ import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -72,6 +75,7 @@ import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Validator;
+import reactor.core.publisher.Flux;
 import reactor.util.function.Tuple2;
 import reactor.util.function.Tuple3;
 import reactor.util.function.Tuples;
@@ -117,6 +121,9 @@ public class AlternativeLadderService
     private final LeagueTierDAO leagueTierDao;
     private final DivisionDAO divisionDao;
     private final FastTeamDAO fastTeamDAO;
+    private final TeamRankEngine teamRankEngine;
+    private final PopulationCounter populationCounter;
+    private final LeagueStatsAggregator leagueStatsAggregator;
     private final TeamDAO teamDao;
     private final AccountDAO accountDAO;
     private final PlayerCharacterDAO playerCharacterDao;
@@ -132,6 +139,8 @@ public class AlternativeLadderService
     @Value("${com.nephest.battlenet.sc2.ladder.alternative.web.auto:#{'false'}}")
     private boolean autoWeb;
     private boolean separateWebQueue = false;
+    @Value("${com.nephest.battlenet.sc2.ladder.alternative.discovery.parallel:#{'false'}}")
+    private boolean parallelDiscovery;
 
     @Autowired
     public AlternativeLadderService
@@ -141,6 +150,9 @@ public class AlternativeLadderService
         LeagueTierDAO leagueTierDao,
         DivisionDAO divisionDao,
         FastTeamDAO fastTeamDAO,
+        TeamRankEngine teamRankEngine,
+        PopulationCounter populationCounter,
+        LeagueStatsAggregator leagueStatsAggregator,
         TeamDAO teamDao,
         AccountDAO accountDAO,
         PlayerCharacterDAO playerCharacterDao,
@@ -159,6 +171,9 @@ public class AlternativeLadderService
         this.leagueTierDao = leagueTierDao;
         this.divisionDao = divisionDao;
         this.fastTeamDAO = fastTeamDAO;
+        this.teamRankEngine = teamRankEngine;
+        this.populationCounter = populationCounter;
+        this.leagueStatsAggregator = leagueStatsAggregator;
         this.teamDao = teamDao;
         this.accountDAO = accountDAO;
         this.playerCharacterDao = playerCharacterDao;
@@ -178,6 +193,7 @@ public class AlternativeLadderService
     public static final int LEGACY_LADDER_WEB_BATCH_SIZE = 200;
     public static final int CONTINUE_SEASON_DISCOVERY_BATCH_SIZE = 25;
     public static final int CONTINUE_SEASON_DISCOVERY_LADDER_OFFSET = 3;
+    public static final int DISCOVERY_PARALLELISM = 4;
     public static final BaseLeagueTier.LeagueTierType ALTERNATIVE_TIER = null;
 
     @PostConstruct
@@ -252,6 +268,16 @@ public class AlternativeLadderService
         this.separateWebQueue = separateWebQueue;
     }
 
+    public boolean isParallelDiscovery()
+    {
+        return parallelDiscovery;
+    }
+
+    public void setParallelDiscovery(boolean parallelDiscovery)
+    {
+        this.parallelDiscovery = parallelDiscovery;
+    }
+
     public List<Future<Void>> updateSeason
     (
         Season season,
@@ -405,9 +431,18 @@ public class AlternativeLadderService
 
     public List<Future<Void>> discoverSeason(Season season, boolean web)
     {
-        long lastDivision = divisionDao.findLastDivision(season.getBattlenetId() - 1, season.getRegion())
+        Optional<Long> previousLastDivision =
+            divisionDao.findLastDivision(season.getBattlenetId() - 1, season.getRegion());
+        long lastDivision = previousLastDivision
             .orElse(BlizzardSC2API.LAST_LADDER_IDS.get(season.getRegion())) + 1;
-        return discoverSeason(season, lastDivision, web, null, true);
+        Long expectedEnd = parallelDiscovery
+            ? previousLastDivision
+                .flatMap(last->divisionDao
+                    .findLastDivision(season.getBattlenetId() - 2, season.getRegion())
+                    .map(first->lastDivision + (last - first)))
+                .orElse(null)
+            : null;
+        return discoverSeason(season, lastDivision, expectedEnd, web, null, true);
     }
 
     private long getLastDivision(Season season)
@@ -426,6 +461,7 @@ public class AlternativeLadderService
         (
             season,
             lastDivision,
+            null,
             isDiscoveryWebRegion(season.getRegion()),
             CONTINUE_SEASON_DISCOVERY_BATCH_SIZE,
             false
@@ -442,10 +478,15 @@ public class AlternativeLadderService
         continueSeasonDiscovery(season);
     }
 
+    /**
+     * @param expectedEnd expected end of the ladder id range, exclusive. Used by parallel
+     *                    discovery to pick the first probe.
+     */
     private List<Future<Void>> discoverSeason
     (
         Season season,
         long lastDivision,
+        @Nullable Long expectedEnd,
         boolean web,
         @Nullable Integer batchSize,
         boolean updateInstant
@@ -453,15 +494,76 @@ public class AlternativeLadderService
     {
         LOG.info("Discovering {} ladders", season);
 
-        List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> profileIds
-            = getProfileLadderIds(season, lastDivision, batchSize);
-        LOG.info("{} {} ladders found", profileIds.size(), season);
-        List<Future<Void>> tasks =
-            updateLadders(season, QueueType.getTypes(StatsService.VERSION), profileIds, web);
+        List<Future<Void>> tasks;
+        if(parallelDiscovery)
+        {
+            tasks = discoverSeasonInParallel(season, lastDivision, expectedEnd, web, batchSize);
+        }
+        else
+        {
+            List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> profileIds
+                = getProfileLadderIds(season, lastDivision, batchSize);
+            LOG.info("{} {} ladders found", profileIds.size(), season);
+            tasks = updateLadders(season, QueueType.getTypes(StatsService.VERSION), profileIds, web);
+        }
         if(updateInstant) discoveryInstants.get(season.getRegion()).setValueAndSave(SC2Pulse.instant());
         return tasks;
     }
 
+    /*
+        Discovered ids are streamed into the ladder update, so the season is checked before
+        every batch of ladders is submitted for saving, and after the discovery to report a
+        season change. The discovery can take a while, the season can change in the middle
+        of it.
+     */
+    private List<Future<Void>> discoverSeasonInParallel
+    (
+        Season season,
+        long lastDivision,
+        @Nullable Long expectedEnd,
+        boolean web,
+        @Nullable Integer batchSize
+    )
+    {
+        boolean webDiscovery = isDiscoveryWebRegion(season.getRegion());
+        if(webDiscovery) LOG.warn("Using web API for ladder discovery for {}", season);
+        LadderDiscovery<Tuple3<Region, BlizzardPlayerCharacter[], Long>> discovery = new LadderDiscovery<>
+        (
+            (from, to)->api.getProfileLadderIds(season.getRegion(), from, to, webDiscovery),
+            lastDivision,
+            getDiscoveryBatchSize(webDiscovery, batchSize),
+            getDiscoveryErrorThreshold(webDiscovery),
+            DISCOVERY_PARALLELISM
+        );
+        long end = discovery.findEnd(expectedEnd);
+        LOG.info
+        (
+            "{} ladder range: {}-{}, expected end: {}, {} probes",
+            season, lastDivision, end, expectedEnd, discovery.getProbeCount()
+        );
+        checkSeason(season);
+        AtomicInteger discovered = new AtomicInteger();
+        Flux<Tuple3<Region, BlizzardPlayerCharacter[], Long>> ids = discovery.discover(expectedEnd)
+            .doOnNext(id->{
+                discovered.getAndIncrement();
+                LOG.debug("Ladder discovered: {} {}", id.getT1(), id.getT3());
+            });
+        Set<QueueType> queueTypes = QueueType.getTypes(StatsService.VERSION);
+        if(web) LOG.warn("Using web API for {}", season);
+        List<Future<Void>> tasks = submitProfileLadders
+        (
+            season,
+            ids.buffer(LADDER_BATCH_SIZE)
+                .flatMap(batch->web
+                    ? api.getProfileLadders(batch, queueTypes, true)
+                    : api.getProfileLadders(batch, queueTypes)),
+            true
+        );
+        LOG.info("{} {} ladders found", discovered.get(), season);
+        checkSeason(season);
+        return tasks;
+    }
+
     private List<Future<Void>> updateLadders
     (
         Season season,
@@ -471,23 +573,63 @@ public class AlternativeLadderService
     )
     {
         if(web) LOG.warn("Using web API for {}", season);
+        return submitProfileLadders
+        (
+            season,
+            web ? api.getProfileLadders(ladders, queueTypes, true) : api.getProfileLadders(ladders, queueTypes),
+            false
+        );
+    }
+
+    /**
+     * @param checkSeason check the season before every batch is submitted. Batches that were
+     *                    submitted before a season change are still saved.
+     */
+    private List<Future<Void>> submitProfileLadders
+    (
+        Season season,
+        Flux<Tuple2<BlizzardProfileLadder, Tuple3<Region, BlizzardPlayerCharacter[], Long>>> ladders,
+        boolean checkSeason
+    )
+    {
         List<Future<Void>> dbTasks = new ArrayList<>();
-        (web ? api.getProfileLadders(ladders, queueTypes, true) : api.getProfileLadders(ladders, queueTypes))
+        ladders
             .buffer(LADDER_BATCH_SIZE)
             .toStream()
-            .forEach((r)->dbTasks.add(dbExecutorService.submit(()->alternativeLadderService.saveProfileLadders(season, r), null)));
+            .forEach((r)->{
+                if(checkSeason) checkSeason(season);
+                dbTasks.add(dbExecutorService.submit(()->alternativeLadderService.saveProfileLadders(season, r), null));
+            });
         return dbTasks;
     }
 
+    private static int getDiscoveryBatchSize(boolean webDiscovery, @Nullable Integer batchSize)
+    {
+        return batchSize != null
+            ? batchSize
+            : webDiscovery ? LEGACY_LADDER_WEB_BATCH_SIZE : LEGACY_LADDER_BATCH_SIZE;
+    }
+
+    private static int getDiscoveryErrorThreshold(boolean webDiscovery)
+    {
+        return webDiscovery ? ALTERNATIVE_LADDER_WEB_ERROR_THRESHOLD : ALTERNATIVE_LADDER_ERROR_THRESHOLD;
+    }
+
+    private void checkSeason(Season season)
+    {
+        Season currentSeason = Season.of(sc2WebServiceUtil.getCurrentOrLastOrExistingSeason(
+            season.getRegion(), season.getBattlenetId()), season.getRegion());
+        if(!Objects.equals(season.getBattlenetId(), currentSeason.getBattlenetId()))
+            throw new IllegalStateException("Season changed when ladder discovery was in progress");
+    }
+
     private List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> getProfileLadderIds
     (Season season, long lastDivision, @Nullable Integer batchSize)
     {
         boolean webDiscovery = isDiscoveryWebRegion(season.getRegion());
         if(webDiscovery) LOG.warn("Using web API for ladder discovery for {}", season);
-        int errorThreshold = webDiscovery ? ALTERNATIVE_LADDER_WEB_ERROR_THRESHOLD : ALTERNATIVE_LADDER_ERROR_THRESHOLD;
-        batchSize = batchSize != null
-            ? batchSize
-            : webDiscovery ? LEGACY_LADDER_WEB_BATCH_SIZE : LEGACY_LADDER_BATCH_SIZE;
+        int errorThreshold = getDiscoveryErrorThreshold(webDiscovery);
+        batchSize = getDiscoveryBatchSize(webDiscovery, batchSize);
         List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> profileLadderIds = new ArrayList<>();
         AtomicInteger discovered = new AtomicInteger(1);
         while(discovered.get() > 0)
@@ -509,10 +651,7 @@ public class AlternativeLadderService
             if(batchSize - discovered.get() > errorThreshold) break;
             lastDivision+=batchSize;
         }
-        Season seasonAfterScan = Season.of(sc2WebServiceUtil.getCurrentOrLastOrExistingSeason(
-            season.getRegion(), season.getBattlenetId()), season.getRegion());
-        if(!Objects.equals(season.getBattlenetId(), seasonAfterScan.getBattlenetId()))
-            throw new IllegalStateException("Season changed when ladder discovery was in progress");
+        checkSeason(season);
         return profileLadderIds;
     }
 
@@ -562,6 +701,9 @@ public class AlternativeLadderService
         Set<Team> changedTeams = fastTeamDAO
             .merge(validTeams.stream().map(Tuple2::getT1).collect(Collectors.toSet()));
         teamDao.merge(changedTeams);
+        teamRankEngine.update(changedTeams);
+        populationCounter.update(changedTeams);
+        leagueStatsAggregator.update(changedTeams);
         validTeams.stream()
             .filter(t->t.getT1().getId() != null)
             .forEach(t->extractTeamData(
@@ -684,23 +826,37 @@ public class AlternativeLadderService
         );
     }
 
-    //this ensures the consistent order for concurrent entities(accounts and players)
+    //set-based merges acquire locks in the natural id order, this prevents deadlocks
     private void saveNewCharacterData
     (List<AlternativeTeamData> newTeams, Set<TeamMember> teamMembers)
     {
         if(newTeams.size() == 0) return;
 
-        newTeams.sort(Comparator.comparing(AlternativeTeamData::getAccount, Account.NATURAL_ID_COMPARATOR));
-        for(AlternativeTeamData curMembers : newTeams)
-            accountDAO.merge(curMembers.getAccount(), curMembers.getCharacter());
-
-        newTeams.sort(Comparator.comparing(AlternativeTeamData::getCharacter, PlayerCharacter.NATURAL_ID_COMPARATOR));
+        Map<PlayerCharacter, Account> accounts = accountDAO.merge(newTeams.stream()
+                .map(t->new AccountCharacterData(t.getAccount(), t.getCharacter(), null, null))
+                .collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(
+                AccountCharacterData::getCharacter,
+                AccountCharacterData::getAccount,
+                (l, r)->l
+            ));
         for(AlternativeTeamData curNewTeam : newTeams)
         {
-            Account account = curNewTeam.getAccount();
+            Long accountId = accounts.get(curNewTeam.getCharacter()).getId();
+            curNewTeam.getAccount().setId(accountId);
+            curNewTeam.getCharacter().setAccountId(accountId);
+        }
 
-            curNewTeam.getCharacter().setAccountId(account.getId());
-            PlayerCharacter character = playerCharacterDao.merge(curNewTeam.getCharacter());
+        Map<PlayerCharacter, PlayerCharacter> characters = playerCharacterDao.merge(newTeams.stream()
+                .map(AlternativeTeamData::getCharacter)
+                .collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(Function.identity(), Function.identity()));
+        for(AlternativeTeamData curNewTeam : newTeams)
+        {
+            PlayerCharacter character = characters.get(curNewTeam.getCharacter());
+            curNewTeam.getCharacter().setId(character.getId());
 
             Team team = curNewTeam.getTeam();
             TeamMember teamMember = new TeamMember(team.getId(), character.getId(), null, null, null, null);
@@ -710,12 +866,11 @@ public class AlternativeLadderService
         }
     }
 
-    //this ensures the consistent order for concurrent entities
     private void savePlayerCharacters(Set<PlayerCharacter> characters)
     {
         if(characters.isEmpty()) return;
 
-        characters.stream().sorted(PlayerCharacter.NATURAL_ID_COMPARATOR).forEach(playerCharacterDao::merge);
+        playerCharacterDao.merge(characters);
     }
 
     public Division getOrCreateDivision
@@ -733,7 +888,11 @@ public class AlternativeLadderService
         return divisionDao.merge(new Division(null, tier.getId(), battlenetId));
     }
 
-    @Cacheable(cacheNames = "fqdn-ladder-scan", keyGenerator = "fqdnSimpleKeyGenerator")
+    @Cacheable
+    (
+        cacheResolver = LadderScanCache.RESOLVER,
+        keyGenerator = LadderScanCache.KEY_GENERATOR
+    )
     public LeagueTier createLeagueTier(Season season, BaseLeague bLeague)
     {
         return leagueTierDao.findByLadder(
@@ -1,14 +1,14 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.web.service;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.blizzard.BlizzardFullPlayerCharacter;
 import com.nephest.battlenet.sc2.model.local.Account;
 import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
 import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
 import java.time.Duration;
@@ -27,19 +27,19 @@ public class BlizzardDataService
 
     public static final Duration ACCOUNT_IMPORT_DURATION = Duration.ofDays(365 * 10);
 
-    private final SeasonDAO seasonDAO;
+    private final SeasonRegistry seasonRegistry;
     private final AccountDAO accountDAO;
     private final PlayerCharacterDAO playerCharacterDAO;
 
     @Autowired
     public BlizzardDataService
     (
-        SeasonDAO seasonDAO,
+        SeasonRegistry seasonRegistry,
         AccountDAO accountDAO,
         PlayerCharacterDAO playerCharacterDAO
     )
     {
-        this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
         this.accountDAO = accountDAO;
         this.playerCharacterDAO = playerCharacterDAO;
     }
@@ -58,7 +58,7 @@ public class BlizzardDataService
             .map(PlayerCharacter::getId)
             .forEach(id->playerCharacterDAO.updateAnonymousFlag(id, false));
 
-        Integer curSeason = seasonDAO.getMaxBattlenetId();
+        Integer curSeason = seasonRegistry.getMaxBattlenetId();
         Set<AccountCharacterData> importedData = characters
             .stream()
             .map(c->new AccountCharacterData(account, c, true, curSeason))
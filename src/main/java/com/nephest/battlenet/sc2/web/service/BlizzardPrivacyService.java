@@ -3,6 +3,7 @@
 
 package com.nephest.battlenet.sc2.web.service;
 
+import com.nephest.battlenet.sc2.cache.SearchSuggestionIndex;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.PlayerCharacterNaturalId;
 import com.nephest.battlenet.sc2.model.QueueType;
@@ -39,13 +40,21 @@ import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
@@ -86,6 +95,20 @@ public class BlizzardPrivacyService
         OffsetDateTime.of(2015, 1, 1, 0, 0, 0, 0, SC2Pulse.offsetDateTime().getOffset());
     private static final Map<QueueType, Set<BaseLeague.LeagueType>> UPDATE_DATA
         = LadderUpdateContext.ALL;
+    public static final Duration SWEEP_TIME_FRAME = Duration.ofDays(1);
+    public static final Duration SWEEP_SLICE_TIME_FRAME = Duration.ofMinutes(10);
+    public static final int SWEEP_SLICES = (int) (SWEEP_TIME_FRAME.toSeconds() / SWEEP_SLICE_TIME_FRAME.toSeconds());
+    public static final long SWEEP_REGION_COMPLETED = Long.MAX_VALUE;
+    /*
+        A slice is failed and retried by the next run if more ladders than this share of
+        the slice were not fetched, or if any batch was not saved.
+     */
+    public static final double SWEEP_MAX_LADDER_ERROR_RATE = 0.1;
+    /*
+        Unchanged characters are skipped only if they will be updated again before their data
+        expires, an old season is updated at least once per OLD_LADDER_DATA_TTL.
+     */
+    public static final Duration UNCHANGED_UPDATED_MAX = DATA_TTL.minus(OLD_LADDER_DATA_TTL).dividedBy(2);
     public static final String REQUEST_LIMIT_PRIORITY_NAME = "privacy";
     public static final int REQUEST_LIMIT_PRIORITY_SLOTS = 1;
 
@@ -96,6 +119,8 @@ public class BlizzardPrivacyService
     private final AccountDAO accountDAO;
     private final PlayerCharacterDAO playerCharacterDAO;
     private final ClanService clanService;
+    private final FingerprintStore fingerprintStore;
+    private final SearchSuggestionIndex searchSuggestionIndex;
     private final ExecutorService dbExecutorService;
     private final Scheduler secondaryDbScheduler;
     private final ExecutorService webExecutorService;
@@ -111,9 +136,16 @@ public class BlizzardPrivacyService
     private InstantVar lastAnonymizeInstant;
     private TimerVar fullAnonymizeTask;
     private InstantVar lastUpdatedCharacterInstant;
+    private LongVar sweepSeason;
+    private final Map<Region, LongVar> sweepCursors = new EnumMap<>(Region.class);
+    private final Map<Region, List<Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>>>
+        sweepLadderIds = new ConcurrentHashMap<>();
+    private final Map<Region, List<Tuple3<Region, BlizzardPlayerCharacter[], Long>>>
+        sweepAlternativeLadderIds = new ConcurrentHashMap<>();
     private Future<?> characterUpdateTask = CompletableFuture.completedFuture(null);
     private final SingleRunnable updateOldDataTask;
     private final boolean updateCharacterProfiles;
+    private boolean sweep;
 
     @Autowired
     public BlizzardPrivacyService
@@ -126,13 +158,16 @@ public class BlizzardPrivacyService
         AccountDAO accountDAO,
         PlayerCharacterDAO playerCharacterDAO,
         ClanService clanService,
+        FingerprintStore fingerprintStore,
+        SearchSuggestionIndex searchSuggestionIndex,
         @Qualifier("dbExecutorService") ExecutorService dbExecutorService,
         @Qualifier("secondaryDbScheduler") Scheduler secondaryDbScheduler,
         @Qualifier("webExecutorService") ExecutorService webExecutorService,
         Validator validator,
         SC2WebServiceUtil sc2WebServiceUtil,
         GlobalContext globalContext,
-        @Value("${com.nephest.battlenet.sc2.privacy.character.profile.update:#{'true'}}") boolean updateCharacterProfiles
+        @Value("${com.nephest.battlenet.sc2.privacy.character.profile.update:#{'true'}}") boolean updateCharacterProfiles,
+        @Value("${com.nephest.battlenet.sc2.privacy.sweep:#{'false'}}") boolean sweep
     )
     {
         this.api = api;
@@ -142,6 +177,8 @@ public class BlizzardPrivacyService
         this.accountDAO = accountDAO;
         this.playerCharacterDAO = playerCharacterDAO;
         this.clanService = clanService;
+        this.fingerprintStore = fingerprintStore;
+        this.searchSuggestionIndex = searchSuggestionIndex;
         this.dbExecutorService = dbExecutorService;
         this.secondaryDbScheduler = secondaryDbScheduler;
         this.webExecutorService = webExecutorService;
@@ -152,9 +189,19 @@ public class BlizzardPrivacyService
         this.globalContext = globalContext;
         initVars(varDAO);
         api.addRequestLimitPriority(REQUEST_LIMIT_PRIORITY_NAME, REQUEST_LIMIT_PRIORITY_SLOTS);
-        updateOldDataTask = new SingleRunnable(this::doUpdateOldSeasons, webExecutorService);
+        updateOldDataTask = new SingleRunnable(()->{
+            if(this.sweep)
+            {
+                doSweepOldSeasons();
+            }
+            else
+            {
+                doUpdateOldSeasons();
+            }
+        }, webExecutorService);
         this.updateCharacterProfiles = updateCharacterProfiles;
         if(!this.updateCharacterProfiles) LOG.warn("Character profile updates are disabled");
+        this.sweep = sweep;
     }
 
     private void initVars(VarDAO varDAO)
@@ -172,11 +219,15 @@ public class BlizzardPrivacyService
             FULL_ANONYMIZATION_DATA_TIME_FRAME,
             ()->
             {
-                int count = accountDAO.anonymizeExpiredAccounts(DEFAULT_ANONYMIZE_START);
-                LOG.info("Executed full account anonymization. Anonymized accounts: {}.", count);
+                List<String> battleTags = accountDAO.anonymizeExpiredAccounts(DEFAULT_ANONYMIZE_START);
+                LOG.info("Executed full account anonymization. Removed BattleTags: {}.", battleTags.size());
+                searchSuggestionIndex.remove(List.of(), battleTags);
             }
         );
         lastUpdatedCharacterInstant = new InstantVar(varDAO, "blizzard.privacy.character.updated", false);
+        sweepSeason = new LongVar(varDAO, "blizzard.privacy.sweep.season", false);
+        for(Region region : Region.values()) sweepCursors
+            .put(region, new LongVar(varDAO, "blizzard.privacy.sweep." + region.getId() + ".ladder", false));
         try
         {
             lastUpdatedSeason.load();
@@ -198,6 +249,8 @@ public class BlizzardPrivacyService
             lastUpdatedCharacterInstant.load();
             if(lastUpdatedCharacterInstant.getValue() == null)
                 lastUpdatedCharacterInstant.setValueAndSave(DEFAULT_ANONYMIZE_START.toInstant());
+            sweepSeason.load();
+            for(LongVar cursor : sweepCursors.values()) cursor.load();
         }
         catch (Exception ex)
         {
@@ -225,6 +278,26 @@ public class BlizzardPrivacyService
         return lastUpdatedCharacterId;
     }
 
+    protected LongVar getSweepSeason()
+    {
+        return sweepSeason;
+    }
+
+    protected LongVar getSweepCursor(Region region)
+    {
+        return sweepCursors.get(region);
+    }
+
+    public boolean isSweep()
+    {
+        return sweep;
+    }
+
+    public void setSweep(boolean sweep)
+    {
+        this.sweep = sweep;
+    }
+
     public Future<?> getCharacterUpdateTask()
     {
         return characterUpdateTask;
@@ -246,7 +319,17 @@ public class BlizzardPrivacyService
     @Scheduled(cron="0 0 6 * * *", zone = "UTC")
     public void updateOldSeasons()
     {
-        updateOldDataTask.tryRun();
+        if(!sweep) updateOldDataTask.tryRun();
+    }
+
+    /**
+     * Runs the next slice of the checkpointed sweep if it is enabled.
+     * {@link #SWEEP_SLICES} slices are executed per {@link #SWEEP_TIME_FRAME}.
+     */
+    @Scheduled(cron="0 */10 * * * *", zone = "UTC")
+    public void sweepOldSeasons()
+    {
+        if(sweep) updateOldDataTask.tryRun();
     }
 
     private void doUpdateOldSeasons()
@@ -270,6 +353,11 @@ public class BlizzardPrivacyService
             }
         }
         MiscUtil.awaitAndLogExceptions(dbTasks, true);
+        completeSeasonUpdate(season, current);
+    }
+
+    private void completeSeasonUpdate(int season, boolean current)
+    {
         lastUpdatedSeasonInstant.setValueAndSave(SC2Pulse.instant());
         if(current)
         {
@@ -283,6 +371,156 @@ public class BlizzardPrivacyService
         LOG.info("Updated old names and BattleTags for season {}", season);
     }
 
+    /*
+        The sweep updates the same ladders as doUpdateOldSeasons, but only a slice of ladders
+        of every region is updated per run, so the season is spread across SWEEP_TIME_FRAME.
+        Ladders are sorted by id, the last updated ladder id of every region is saved after
+        each slice, so the sweep is resumed after restarts and failures. The cursor is not
+        moved if the slice fails, a failed slice is retried by the next run.
+     */
+    private void doSweepOldSeasons()
+    {
+        Integer season = sweepSeason.getValue() != null
+            ? Integer.valueOf(sweepSeason.getValue().intValue())
+            : getSeasonToUpdate();
+        if(season == null) return;
+
+        if(sweepSeason.getValue() == null)
+        {
+            resetSweep();
+            sweepSeason.setValueAndSave((long) season);
+            LOG.info("Started names and BattleTags sweep for season {}", season);
+        }
+        boolean current = seasonDAO.getMaxBattlenetId().equals(season);
+
+        List<Future<Void>> dbTasks = new ArrayList<>();
+        for(Region region : globalContext.getActiveRegions())
+        {
+            if(isSweepCompleted(region)) continue;
+            dbTasks.add(webExecutorService.submit(()->sweepSlice(region, season, current), null));
+        }
+        MiscUtil.awaitAndLogExceptions(dbTasks, true);
+        if(globalContext.getActiveRegions().stream().allMatch(this::isSweepCompleted))
+        {
+            resetSweep();
+            completeSeasonUpdate(season, current);
+        }
+    }
+
+    private void resetSweep()
+    {
+        sweepSeason.setValueAndSave(null);
+        for(LongVar cursor : sweepCursors.values()) cursor.setValueAndSave(null);
+        sweepLadderIds.clear();
+        sweepAlternativeLadderIds.clear();
+    }
+
+    private boolean isSweepCompleted(Region region)
+    {
+        Long cursor = sweepCursors.get(region).getValue();
+        return cursor != null && cursor == SWEEP_REGION_COMPLETED;
+    }
+
+    private void sweepSlice(Region region, int seasonId, boolean currentSeason)
+    {
+        if(!statsService.isAlternativeUpdate(region, currentSeason))
+        {
+            sweepSlice
+            (
+                region, seasonId, sweepLadderIds,
+                r->getLadderIds(r, seasonId, currentSeason),
+                l->l.getT4().getLadderId(),
+                slice->update(slice, seasonId, currentSeason)
+            );
+        }
+        else
+        {
+            sweepSlice
+            (
+                region, seasonId, sweepAlternativeLadderIds,
+                r->getAlternativeLadderIds(r, seasonId),
+                Tuple3::getT3,
+                slice->alternativeUpdate(region, slice)
+            );
+        }
+    }
+
+    /*
+        Every region is swept by its own task, ladder ids of a region are loaded outside the
+        concurrent map to avoid blocking other regions while they are fetched.
+     */
+    private <T> void sweepSlice
+    (
+        Region region,
+        int seasonId,
+        Map<Region, List<T>> sweepLadderIds,
+        Function<Region, List<T>> ladderIdLoader,
+        ToLongFunction<T> ladderId,
+        Function<List<T>, UpdateResult> updater
+    )
+    {
+        List<T> ladderIds = sweepLadderIds.get(region);
+        if(ladderIds == null)
+        {
+            ladderIds = sortByLadderId(ladderIdLoader.apply(region), ladderId);
+            sweepLadderIds.put(region, ladderIds);
+        }
+        LongVar cursor = sweepCursors.get(region);
+        long lastLadderId = cursor.getValue() != null ? cursor.getValue() : Long.MIN_VALUE;
+        List<T> slice = getSweepSlice(ladderIds, lastLadderId, ladderId);
+        UpdateResult result = updater.apply(slice);
+        if(!result.isSuccessful(SWEEP_MAX_LADDER_ERROR_RATE)) throw new IllegalStateException(String.format
+        (
+            "Failed to sweep %s names and BattleTags for season %s after ladder %s: %s",
+            region, seasonId, lastLadderId, result
+        ));
+
+        long sweptLadderId = getSweptLadderId(ladderIds, slice, ladderId);
+        cursor.setValueAndSave(sweptLadderId);
+        LOG.debug("Swept {} names and BattleTags for season {}, ladder {}", region, seasonId, sweptLadderId);
+    }
+
+    private static <T> List<T> sortByLadderId(List<T> ladderIds, ToLongFunction<T> ladderId)
+    {
+        List<T> sorted = new ArrayList<>(ladderIds);
+        sorted.sort(Comparator.comparingLong(ladderId));
+        return sorted;
+    }
+
+    private static <T> List<T> getSweepSlice(List<T> ladderIds, long lastLadderId, ToLongFunction<T> ladderId)
+    {
+        int sliceSize = (int) Math.ceil((double) ladderIds.size() / SWEEP_SLICES);
+        return ladderIds.stream()
+            .filter(l->ladderId.applyAsLong(l) > lastLadderId)
+            .limit(sliceSize)
+            .toList();
+    }
+
+    private static <T> long getSweptLadderId(List<T> ladderIds, List<T> slice, ToLongFunction<T> ladderId)
+    {
+        if(slice.isEmpty()) return SWEEP_REGION_COMPLETED;
+
+        long last = ladderId.applyAsLong(slice.get(slice.size() - 1));
+        return last == ladderId.applyAsLong(ladderIds.get(ladderIds.size() - 1))
+            ? SWEEP_REGION_COMPLETED
+            : last;
+    }
+
+    /**
+     * @param ladders requested ladders
+     * @param fetchedLadders ladders that were fetched
+     * @param failedBatches account and character batches that were not saved
+     */
+    private record UpdateResult(int ladders, int fetchedLadders, int failedBatches)
+    {
+
+        public boolean isSuccessful(double maxLadderErrorRate)
+        {
+            return failedBatches == 0 && ladders - fetchedLadders <= ladders * maxLadderErrorRate;
+        }
+
+    }
+
     private boolean shouldHandleExpiredData()
     {
         return lastAnonymizeInstant.getValue().plusSeconds(BlizzardPrivacyService.DATA_TTL.toSeconds())
@@ -303,22 +541,44 @@ public class BlizzardPrivacyService
         fullAnonymizeTask.runIfAvailable().block();
         Instant anonymizeInstant = SC2Pulse.offsetDateTime().minusSeconds(BlizzardPrivacyService.DATA_TTL.toSeconds()).toInstant();
         OffsetDateTime from = OffsetDateTime.ofInstant(lastAnonymizeInstant.getValue(), ZoneId.systemDefault());
-        int accounts = accountDAO.anonymizeExpiredAccounts(from);
-        int characters = playerCharacterDAO.anonymizeExpiredCharacters(from);
+        List<String> battleTags = accountDAO.anonymizeExpiredAccounts(from);
+        List<String> names = playerCharacterDAO.anonymizeExpiredCharacters(from);
         lastAnonymizeInstant.setValueAndSave(anonymizeInstant);
-        if(accounts > 0 || characters > 0) LOG.info("Anonymized {} accounts and {} characters", accounts, characters);
+        if(!battleTags.isEmpty() || !names.isEmpty())
+        {
+            LOG.info("Anonymized expired data, removed {} BattleTags and {} names", battleTags.size(), names.size());
+            searchSuggestionIndex.remove(names, battleTags);
+        }
     }
 
     protected void update(Region region, int seasonId, boolean currentSeason)
+    {
+        update(getLadderIds(region, seasonId, currentSeason), seasonId, currentSeason);
+    }
+
+    private List<Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> getLadderIds
+    (Region region, int seasonId, boolean currentSeason)
     {
         BlizzardSeason bSeason = sc2WebServiceUtil.getExternalOrExistingSeason(region, seasonId);
-        List<Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> ladderIds =
-            statsService.getLadderIds(StatsService.getLeagueIds(bSeason, region, UPDATE_DATA), currentSeason);
+        return statsService.getLadderIds(StatsService.getLeagueIds(bSeason, region, UPDATE_DATA), currentSeason);
+    }
+
+    private UpdateResult update
+    (
+        List<Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> ladderIds,
+        int seasonId,
+        boolean currentSeason
+    )
+    {
+        AtomicInteger fetchedLadders = new AtomicInteger();
+        AtomicInteger failedBatches = new AtomicInteger();
         api.getLadders(ladderIds, -1, Map.of(), REQUEST_LIMIT_PRIORITY_NAME)
+            .doOnNext(l->fetchedLadders.incrementAndGet())
             .flatMap(l->Flux.fromStream(extractPrivateInfo(l, seasonId, currentSeason)))
             .buffer(ACCOUNT_AND_CHARACTER_BATCH_SIZE)
-            .flatMap(l->process(l, currentSeason))
+            .flatMap(l->process(l, currentSeason, t->failedBatches.incrementAndGet()))
             .blockLast();
+        return new UpdateResult(ladderIds.size(), fetchedLadders.get(), failedBatches.get());
     }
 
     private Stream<Tuple2<ClanMemberEventData, AccountCharacterData>> extractPrivateInfo
@@ -349,14 +609,14 @@ public class BlizzardPrivacyService
     private Mono<Void> process
     (
         List<Tuple2<ClanMemberEventData, AccountCharacterData>> members,
-        boolean currentSeason
+        boolean currentSeason,
+        Consumer<? super Throwable> onError
     )
     {
         return WebServiceUtil.getOnErrorLogAndSkipMono(Flux.fromIterable(members)
             .map(Tuple2::getT2)
             .collect(Collectors.toSet())
-            .flatMap(privateData->Mono.fromCallable(()->
-                playerCharacterDAO.updateAccountsAndCharacters(privateData))
+            .flatMap(privateData->Mono.fromCallable(()->updateAccountsAndCharacters(privateData))
                 .subscribeOn(secondaryDbScheduler))
             .doOnNext(data->LOG.debug("Updated {} accounts and characters", data.size()))
             .then
@@ -370,14 +630,104 @@ public class BlizzardPrivacyService
                             .subscribeOn(secondaryDbScheduler))
                     : Mono.empty()
             )
-            .then());
+            .then(),
+            onError);
+    }
+
+    /*
+        Unchanged characters are skipped by the fingerprint store, and by the sweep. The
+        daily update without the fingerprint store keeps refreshing all timestamps.
+     */
+    private Set<PlayerCharacter> updateAccountsAndCharacters(Set<AccountCharacterData> accountsAndCharacters)
+    {
+        Set<AccountCharacterData> changed = new HashSet<>(fingerprintStore
+            .removeUnchanged(FingerprintStore.ACCOUNT_CHARACTER, accountsAndCharacters));
+        Set<PlayerCharacter> characters = new HashSet<>();
+        for(AccountCharacterData data : accountsAndCharacters)
+            if(!changed.contains(data)) characters.add(data.getCharacter());
+        if(!characters.isEmpty())
+            LOG.debug("Skipped {} accounts and characters with unchanged fingerprints", characters.size());
+        if(sweep) changed = removeUnchanged(changed, characters);
+
+        characters.addAll(playerCharacterDAO.updateAccountsAndCharacters(changed));
+        //names are updated only by fresh data, DB state of other data is unknown
+        fingerprintStore.putWritten
+        (
+            FingerprintStore.ACCOUNT_CHARACTER,
+            changed.stream().filter(d->Boolean.TRUE.equals(d.isFresh())).toList()
+        );
+        return characters;
+    }
+
+    private Set<AccountCharacterData> removeUnchanged
+    (
+        Set<AccountCharacterData> accountsAndCharacters,
+        Set<PlayerCharacter> unchangedCharacters
+    )
+    {
+        Map<PlayerCharacter, Long> unchanged = playerCharacterDAO.findUnchangedAccountsAndCharacters
+        (
+            accountsAndCharacters,
+            SC2Pulse.offsetDateTime().minus(UNCHANGED_UPDATED_MAX)
+        )
+            .stream()
+            .collect(Collectors.toMap(c->c, PlayerCharacter::getId, (l, r)->l));
+        if(unchanged.isEmpty()) return accountsAndCharacters;
+
+        Set<AccountCharacterData> changed = new HashSet<>();
+        int skipped = 0;
+        for(AccountCharacterData data : accountsAndCharacters)
+        {
+            Long id = unchanged.get(data.getCharacter());
+            if(id == null)
+            {
+                changed.add(data);
+            }
+            else
+            {
+                data.getCharacter().setId(id);
+                unchangedCharacters.add(data.getCharacter());
+                skipped++;
+            }
+        }
+        LOG.debug("Skipped {} unchanged accounts and characters", skipped);
+        return changed;
+    }
+
+    private Set<PlayerCharacter> updateChangedCharacters(Set<PlayerCharacter> characters)
+    {
+        List<PlayerCharacter> changed = fingerprintStore
+            .removeUnchanged(FingerprintStore.CHARACTER, characters);
+        Set<PlayerCharacter> updated = new HashSet<>(characters);
+        changed.forEach(updated::remove);
+        if(!updated.isEmpty())
+            LOG.debug("Skipped {} characters with unchanged fingerprints", updated.size());
+
+        Set<PlayerCharacter> written = playerCharacterDAO.updateCharacters(Set.copyOf(changed));
+        fingerprintStore.putWritten(FingerprintStore.CHARACTER, written);
+        updated.addAll(written);
+        return updated;
     }
 
     private void alternativeUpdate(Region region, int seasonId)
+    {
+        alternativeUpdate(region, getAlternativeLadderIds(region, seasonId));
+    }
+
+    private List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> getAlternativeLadderIds(Region region, int seasonId)
     {
         Season season = new Season(null, seasonId, region, null, null, null, null);
-        List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> ladderIds = alternativeLadderService
-            .getExistingLadderIds(season, UPDATE_DATA);
+        return alternativeLadderService.getExistingLadderIds(season, UPDATE_DATA);
+    }
+
+    private UpdateResult alternativeUpdate
+    (
+        Region region,
+        List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> ladderIds
+    )
+    {
+        AtomicInteger fetchedLadders = new AtomicInteger();
+        AtomicInteger failedBatches = new AtomicInteger();
         api.getProfileLadders
         (
             ladderIds,
@@ -385,10 +735,12 @@ public class BlizzardPrivacyService
             alternativeLadderService.isProfileLadderWebRegion(region),
             REQUEST_LIMIT_PRIORITY_NAME
         )
+            .doOnNext(l->fetchedLadders.incrementAndGet())
             .flatMap(l->Flux.fromStream(extractAlternativePrivateInfo(l)))
             .buffer(ACCOUNT_AND_CHARACTER_BATCH_SIZE)
-            .flatMap(this::processAlternative)
+            .flatMap(l->processAlternative(l, t->failedBatches.incrementAndGet()))
             .blockLast();
+        return new UpdateResult(ladderIds.size(), fetchedLadders.get(), failedBatches.get());
     }
 
     private Stream<Tuple2<ClanMemberEventData, PlayerCharacter>> extractAlternativePrivateInfo
@@ -411,13 +763,14 @@ public class BlizzardPrivacyService
 
     private Mono<Void> processAlternative
     (
-        List<Tuple2<ClanMemberEventData, PlayerCharacter>> members
+        List<Tuple2<ClanMemberEventData, PlayerCharacter>> members,
+        Consumer<? super Throwable> onError
     )
     {
         return WebServiceUtil.getOnErrorLogAndSkipMono(Flux.fromIterable(members)
             .map(Tuple2::getT2)
             .collect(Collectors.toSet())
-            .flatMap(chars->Mono.fromCallable(()->playerCharacterDAO.updateCharacters(chars))
+            .flatMap(chars->Mono.fromCallable(()->updateChangedCharacters(chars))
                 .subscribeOn(secondaryDbScheduler))
             .doOnNext(chars->LOG.debug("Updated {} characters", chars.size()))
             .thenMany(Flux.fromIterable(members))
@@ -426,7 +779,8 @@ public class BlizzardPrivacyService
             .collectList()
             .flatMap(clans-> Mono.fromRunnable(()->clanService.saveClans(clans))
                 .subscribeOn(secondaryDbScheduler))
-            .then());
+            .then(),
+            onError);
     }
 
     protected Integer getSeasonToUpdate()
@@ -501,8 +855,11 @@ public class BlizzardPrivacyService
             .toStream()
             .forEach(l->{
                 dbTasks.add(dbExecutorService.submit(()->
-                    LOG.info("Updated {} characters that are about to expire",
-                        playerCharacterDAO.updateCharacters(Set.copyOf(l)).size())));
+                {
+                    Set<PlayerCharacter> updated = playerCharacterDAO.updateCharacters(Set.copyOf(l));
+                    searchSuggestionIndex.addCharacters(updated);
+                    LOG.info("Updated {} characters that are about to expire", updated.size());
+                }));
             });
         lastUpdatedCharacterInstant.setValueAndSave(SC2Pulse.instant());
         lastUpdatedCharacterId.setValueAndSave(batch.get(batch.size() - 1).getId());
@@ -21,7 +21,6 @@ import com.nephest.battlenet.sc2.model.TeamType;
 import com.nephest.battlenet.sc2.model.blizzard.BlizzardDataSeason;
 import com.nephest.battlenet.sc2.model.blizzard.BlizzardFullPlayerCharacter;
 import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadder;
-import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadderLeague;
 import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadderMembership;
 import com.nephest.battlenet.sc2.model.blizzard.BlizzardLeague;
 import com.nephest.battlenet.sc2.model.blizzard.BlizzardLeagueTier;
@@ -49,10 +48,10 @@ import com.nephest.battlenet.sc2.util.MiscUtil;
 import com.nephest.battlenet.sc2.web.util.ReactorRateLimiter;
 import jakarta.annotation.PostConstruct;
 import jakarta.validation.ValidationException;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.HashMap;
@@ -70,6 +69,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
@@ -155,6 +157,7 @@ extends BaseAPI
     private final ReactorRateLimiter webRateLimiter = new ReactorRateLimiter();
     private final Map<Region, APIHealthMonitor> webHealthMonitors = new EnumMap<>(Region.class);
     private final Map<Region, APIHealthMonitor> matchHealthMonitors = new EnumMap<>(Region.class);
+    private final LadderValidatorStore ladderValidators = new LadderValidatorStore();
     private final VarDAO varDAO;
     private final GlobalContext globalContext;
 
@@ -946,6 +949,108 @@ extends BaseAPI
         return getLadder(region, id, null);
     }
 
+    public LadderValidatorStore getLadderValidators()
+    {
+        return ladderValidators;
+    }
+
+    /**
+     * Conditional ladder request. Validators of the previous response are sent back to the API,
+     * and the ladder is skipped if the API responds with 304 or if the response content is
+     * the same.
+     *
+     * @param region ladder region
+     * @param id ladder id
+     * @param priorityName request priority name
+     * @return ladder, or empty mono if the ladder wasn't modified since the previous request
+     */
+    public Mono<BlizzardLadder> getLadderIfModified
+    (
+        Region region,
+        Long id,
+        String priorityName
+    )
+    {
+        return Mono.defer(()->
+        {
+            LadderValidatorStore.Validators validators = ladderValidators.get(region, id);
+            return getWebClient(region)
+                .get()
+                .uri(regionUri != null ? regionUri : (region.getBaseUrl() + "data/sc2/ladder/{0}"), id)
+                .accept(APPLICATION_JSON)
+                .headers(headers->LadderValidatorStore.setConditionalHeaders(headers, validators))
+                //the status is checked before the body is buffered
+                .exchangeToMono(response->
+                {
+                    if(response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED))
+                    {
+                        if(validators != null) ladderValidators.put(region, id, validators.notModified());
+                        ladderValidators.addNotModified(region);
+                        return response.releaseBody().then(Mono.<BlizzardLadder>empty());
+                    }
+                    if(response.statusCode().isError())
+                        return response.createException().flatMap(Mono::<BlizzardLadder>error);
+
+                    HttpHeaders headers = response.headers().asHttpHeaders();
+                    return response.bodyToMono(byte[].class)
+                        .defaultIfEmpty(new byte[0])
+                        .flatMap(body->Mono.justOrEmpty
+                        (
+                            readLadderIfModified(region, id, validators, headers, body)
+                        ));
+                });
+        })
+            .retryWhen(ReactorRateLimiter.retryWhen(
+                regionalRateLimiters.get(region), getRetry(region, WebServiceUtil.RETRY, false), priorityName))
+            .delaySubscription(Mono.defer(()->
+                ReactorRateLimiter.requestSlot(regionalRateLimiters.get(region), priorityName)))
+            .doOnRequest(s->healthMonitors.get(region).addRequest())
+            .doOnError(t->healthMonitors.get(region).addError());
+    }
+
+    private BlizzardLadder readLadderIfModified
+    (
+        Region region,
+        Long id,
+        LadderValidatorStore.Validators validators,
+        HttpHeaders headers,
+        byte[] body
+    )
+    {
+        LadderValidatorStore.Validators newValidators
+            = LadderValidatorStore.Validators.of(headers, body);
+        if(validators != null && validators.contentHash() == newValidators.contentHash())
+        {
+            ladderValidators.put(region, id, newValidators.unchangedSince(validators));
+            ladderValidators.addUnchanged(region);
+            return null;
+        }
+
+        BlizzardLadder ladder;
+        try
+        {
+            ladder = objectMapper.readValue(body, BlizzardLadder.class);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Invalid ladder " + region + " " + id, e);
+        }
+        ladderValidators.put(region, id, newValidators);
+        ladderValidators.addModified(region);
+        return ladder;
+    }
+
+    public Flux<Tuple2<BlizzardLadder, Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>>> getLaddersIfModified
+    (
+        Iterable<? extends Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> ladderIds,
+        String priorityName
+    )
+    {
+        return Flux.fromIterable(ladderIds)
+            .flatMap(d->WebServiceUtil.getOnErrorLogAndSkipMono(
+                getLadderIfModified(d.getT2(), d.getT4().getLadderId(), priorityName).zipWith(Mono.just(d))));
+    }
+
     public Mono<BlizzardLadder> getFilteredLadder
     (
         Region region,
@@ -959,8 +1064,8 @@ extends BaseAPI
             .uri(regionUri != null ? regionUri : (region.getBaseUrl() + "data/sc2/ladder/{0}"), id)
             .accept(APPLICATION_JSON)
             .retrieve()
-            .bodyToMono(String.class)
-            .map(s->extractNewTeams(s, startingFromEpochSeconds))
+            .bodyToFlux(DataBuffer.class)
+            .as(buffers->FilteredLadderDecoder.decode(objectMapper, buffers, startingFromEpochSeconds))
             .retryWhen(ReactorRateLimiter.retryWhen(
                 regionalRateLimiters.get(region), getRetry(region, WebServiceUtil.RETRY, false), priorityName))
             .delaySubscription(Mono.defer(()->
@@ -979,29 +1084,6 @@ extends BaseAPI
         return getFilteredLadder(region, id, startingFromEpochSeconds, null);
     }
 
-    private BlizzardLadder extractNewTeams(String s, long startingFromEpochSeconds)
-    {
-        try
-        {
-            ArrayList<BlizzardTeam> teams = new ArrayList<>();
-            JsonNode root = objectMapper.readTree(s);
-            for(JsonNode team : root.at("/team"))
-            {
-                long timestamp = team.findValue("last_played_time_stamp").asLong();
-                if(timestamp > startingFromEpochSeconds) teams.add(objectMapper.treeToValue(team, BlizzardTeam.class));
-            }
-            return new BlizzardLadder
-            (
-                teams.toArray(BlizzardTeam[]::new),
-                objectMapper.treeToValue(root.at("/league"), BlizzardLadderLeague.class)
-            );
-        }
-        catch (JsonProcessingException e)
-        {
-            throw new IllegalStateException("Invalid json structure", e);
-        }
-    }
-
     public Flux<Tuple2<BlizzardLadder, Long>> getLadders
     (
         Region region,
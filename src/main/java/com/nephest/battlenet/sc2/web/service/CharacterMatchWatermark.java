@@ -0,0 +1,308 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.PlayerCharacterNaturalId;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardMatch;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import reactor.util.function.Tuple2;
+
+/**
+ * <p>
+ *     Per-character "newest saved match date" watermark. Matches that are at or below the
+ *     watermark of their character were saved in earlier cycles and are filtered out before
+ *     they reach the DB. Watermarks are loaded lazily, in batches, the first time a
+ *     character is seen.
+ * </p>
+ * <p>
+ *     Watermarks are stored in an open-addressing hash table over primitive arrays, keyed by
+ *     character id, values are epoch seconds. This class is thread-safe.
+ * </p>
+ * <p>
+ *     The table is bounded. Watermarks of inactive characters should be removed via
+ *     {@link #trim(OffsetDateTime)}, and the table is cleared when it reaches its max size.
+ *     Removed watermarks are loaded again the next time their characters are seen.
+ * </p>
+ */
+public class CharacterMatchWatermark
+{
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_SIZE = 500_000;
+    /*
+        Character ids are positive, so 0 can be used as an empty slot marker.
+     */
+    private static final long EMPTY_KEY = 0;
+    /*
+        The character was loaded, but it has no matches.
+     */
+    private static final long NO_MATCHES = Long.MIN_VALUE;
+
+    private final Function<Set<Long>, Map<Long, OffsetDateTime>> loader;
+    private final int maxSize;
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    /**
+     * @param loader finds last match dates of characters, characters without matches
+     *               must not be included
+     */
+    public CharacterMatchWatermark(Function<Set<Long>, Map<Long, OffsetDateTime>> loader)
+    {
+        this(loader, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param loader finds last match dates of characters, characters without matches
+     *               must not be included
+     * @param maxSize max number of characters, the table is cleared when it's full
+     */
+    public CharacterMatchWatermark
+    (
+        Function<Set<Long>, Map<Long, OffsetDateTime>> loader,
+        int maxSize
+    )
+    {
+        if(maxSize < 1) throw new IllegalArgumentException("Max size must be positive");
+        this.loader = loader;
+        this.maxSize = maxSize;
+        init();
+    }
+
+    /**
+     * @param skipped matches that were filtered out
+     * @param written matches that passed the filter and were saved
+     * @param characters characters in the watermark index
+     */
+    public record Stats(long skipped, long written, int characters)
+    {
+
+        public double getSkippedRatio()
+        {
+            long total = skipped + written;
+            return total == 0 ? 0 : skipped / (double) total;
+        }
+
+    }
+
+    private void init()
+    {
+        init(DEFAULT_CAPACITY);
+    }
+
+    private void init(int capacity)
+    {
+        keys = new long[capacity];
+        values = new long[capacity];
+        size = 0;
+    }
+
+    public synchronized void clear()
+    {
+        init();
+    }
+
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Removes watermarks that are older than the supplied date, including watermarks of
+     * characters without matches, and shrinks the table.
+     *
+     * @param before min retained watermark
+     * @return number of removed watermarks
+     */
+    public synchronized int trim(OffsetDateTime before)
+    {
+        long min = before.toEpochSecond();
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        int oldSize = size;
+        int retained = 0;
+        for(int i = 0; i < oldKeys.length; i++)
+            if(oldKeys[i] != EMPTY_KEY && oldValues[i] >= min) retained++;
+        if(retained == oldSize) return 0;
+
+        int capacity = DEFAULT_CAPACITY;
+        while(retained * 2 > capacity) capacity *= 2;
+        init(capacity);
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            if(oldKeys[i] == EMPTY_KEY || oldValues[i] < min) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+        size = retained;
+        return oldSize - retained;
+    }
+
+    /**
+     * @param matches fetched matches
+     * @return matches that are newer than the watermark of their character
+     */
+    public List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> filter
+    (
+        List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> matches
+    )
+    {
+        load(matches);
+        List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> fresh = new ArrayList<>(matches.size());
+        synchronized(this)
+        {
+            for(Tuple2<BlizzardMatch, PlayerCharacterNaturalId> match : matches)
+            {
+                Long id = getId(match.getT2());
+                if(id == null)
+                {
+                    fresh.add(match);
+                    continue;
+                }
+                int slot = find(id);
+                if(keys[slot] == EMPTY_KEY || values[slot] < match.getT1().getDate().toEpochSecond())
+                    fresh.add(match);
+            }
+        }
+        skipped.add(matches.size() - fresh.size());
+        return fresh;
+    }
+
+    /*
+        The DB is queried outside of the lock, concurrent loads of the same character are
+        harmless because watermarks are only moved forward.
+     */
+    private void load(List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> matches)
+    {
+        Set<Long> missing = new HashSet<>();
+        synchronized(this)
+        {
+            for(Tuple2<BlizzardMatch, PlayerCharacterNaturalId> match : matches)
+            {
+                Long id = getId(match.getT2());
+                if(id != null && keys[find(id)] == EMPTY_KEY) missing.add(id);
+            }
+        }
+        if(missing.isEmpty()) return;
+
+        Map<Long, OffsetDateTime> dates = loader.apply(missing);
+        synchronized(this)
+        {
+            for(Long id : missing)
+            {
+                OffsetDateTime date = dates.get(id);
+                advance(id, date == null ? NO_MATCHES : date.toEpochSecond());
+            }
+        }
+    }
+
+    /**
+     * Moves the watermarks forward. Must be called only after the matches are committed.
+     *
+     * @param matches saved matches
+     */
+    public synchronized void update(List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> matches)
+    {
+        for(Tuple2<BlizzardMatch, PlayerCharacterNaturalId> match : matches)
+        {
+            Long id = getId(match.getT2());
+            if(id != null) advance(id, match.getT1().getDate().toEpochSecond());
+        }
+        written.add(matches.size());
+    }
+
+    /**
+     * @param characterId character id
+     * @return watermark in epoch seconds, null if the character is not loaded or has no matches
+     */
+    public synchronized Long get(long characterId)
+    {
+        int slot = find(characterId);
+        return keys[slot] == EMPTY_KEY || values[slot] == NO_MATCHES ? null : values[slot];
+    }
+
+    public Stats getStats()
+    {
+        return new Stats(skipped.sum(), written.sum(), size());
+    }
+
+    private static Long getId(PlayerCharacterNaturalId naturalId)
+    {
+        return naturalId instanceof PlayerCharacter character ? character.getId() : null;
+    }
+
+    private void advance(long id, long value)
+    {
+        int slot = find(id);
+        if(keys[slot] == EMPTY_KEY)
+        {
+            if(size >= maxSize)
+            {
+                init();
+                slot = find(id);
+            }
+            keys[slot] = id;
+            values[slot] = value;
+            if(++size * 2 > keys.length) grow();
+        }
+        else if(values[slot] < value)
+        {
+            values[slot] = value;
+        }
+    }
+
+    /*
+        The table is kept at most half full to keep probe sequences short.
+     */
+    private int find(long id)
+    {
+        int mask = keys.length - 1;
+        int slot = (int) mix(id) & mask;
+        while(keys[slot] != EMPTY_KEY && keys[slot] != id) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow()
+    {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            if(oldKeys[i] == EMPTY_KEY) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private static long mix(long id)
+    {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    /**
+     * @return estimated heap usage of the index arrays in bytes
+     */
+    public synchronized long getHeapUsage()
+    {
+        return (long) keys.length * Long.BYTES * 2;
+    }
+
+}
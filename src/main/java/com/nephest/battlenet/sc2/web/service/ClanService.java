@@ -71,6 +71,7 @@ public class ClanService
     private final ClanMemberEventDAO clanMemberEventDAO;
     private final BlizzardSC2API api;
     private final AlternativeLadderService alternativeLadderService;
+    private final FingerprintStore fingerprintStore;
     private final ExecutorService dbExecutorService;
     private final ExecutorService webExecutorService;
 
@@ -104,6 +105,7 @@ public class ClanService
         BlizzardSC2API api,
         EventService eventService,
         @Lazy AlternativeLadderService alternativeLadderService,
+        FingerprintStore fingerprintStore,
         @Qualifier("dbExecutorService") ExecutorService dbExecutorService,
         @Qualifier("webExecutorService") ExecutorService webExecutorService
     )
@@ -114,6 +116,7 @@ public class ClanService
         this.clanMemberEventDAO = clanMemberEventDAO;
         this.api = api;
         this.alternativeLadderService = alternativeLadderService;
+        this.fingerprintStore = fingerprintStore;
         this.dbExecutorService = dbExecutorService;
         this.webExecutorService = webExecutorService;
         init(varDAO);
@@ -374,9 +377,13 @@ public class ClanService
     public void saveClans(Collection<ClanMemberEventData> clanData)
     {
         if(clanData.isEmpty()) return;
-        List<ClanMemberEventData> clans = clanData.stream()
-            .filter(clanUpdatePredicate)
-            .collect(Collectors.toList());
+        List<ClanMemberEventData> clans = fingerprintStore.removeUnchanged
+        (
+            FingerprintStore.CLAN_MEMBER,
+            clanData.stream()
+                .filter(clanUpdatePredicate)
+                .collect(Collectors.toList())
+        );
         LOG.debug("Saving clans {}/{}", clans.size(), clanData.size());
         if(clans.isEmpty()) return;
 
@@ -404,6 +411,7 @@ public class ClanService
             .collect(Collectors.toSet());
         clanMemberDAO.remove(charactersWithNoClan);
         createClanEvents(clans);
+        fingerprintStore.putWritten(FingerprintStore.CLAN_MEMBER, clans);
     }
 
     private void createClanEvents(Collection<ClanMemberEventData> clans)
@@ -0,0 +1,259 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadder;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadderLeague;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardTeam;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ *     Non-blocking token-streaming decoder of the blizzard ladder. Input buffers are fed into
+ *     the jackson async parser as they arrive, so the full response is never buffered. Teams
+ *     are bound straight into {@link BlizzardTeam}, teams that were last played at or before
+ *     the cutoff are skipped without binding. Only the current team's tokens are buffered.
+ * </p>
+ * <p>
+ *     Instances are stateful, use {@link #decode(ObjectMapper, Flux, long)} to decode a
+ *     response.
+ * </p>
+ */
+public class FilteredLadderDecoder
+{
+
+    public static final String TEAMS_FIELD = "team";
+    public static final String LEAGUE_FIELD = "league";
+    public static final String LAST_PLAYED_FIELD = "last_played_time_stamp";
+
+    private final ObjectMapper objectMapper;
+    private final long startingFromEpochSeconds;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private final List<BlizzardTeam> teams = new ArrayList<>();
+    private BlizzardLadderLeague league;
+
+    private int depth = 0;
+    private String rootField;
+    private boolean inTeams = false;
+
+    private TokenBuffer buffer;
+    private boolean capturingTeam;
+    private boolean skippingTeam;
+    private int captureDepth;
+    private String captureField;
+    private Long lastPlayed;
+
+    public FilteredLadderDecoder(ObjectMapper objectMapper, long startingFromEpochSeconds)
+    {
+        this.objectMapper = objectMapper;
+        this.startingFromEpochSeconds = startingFromEpochSeconds;
+        try
+        {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * @param objectMapper mapper that is used to bind teams and league
+     * @param buffers response body
+     * @param startingFromEpochSeconds teams that were last played at or before this
+     *                                 timestamp are skipped
+     * @return ladder that contains fresh teams only
+     */
+    public static Mono<BlizzardLadder> decode
+    (
+        ObjectMapper objectMapper,
+        Flux<DataBuffer> buffers,
+        long startingFromEpochSeconds
+    )
+    {
+        return buffers
+            .reduceWith
+            (
+                ()->new FilteredLadderDecoder(objectMapper, startingFromEpochSeconds),
+                FilteredLadderDecoder::feed
+            )
+            .map(FilteredLadderDecoder::finish);
+    }
+
+    public FilteredLadderDecoder feed(DataBuffer dataBuffer)
+    {
+        try
+        {
+            byte[] bytes = new byte[dataBuffer.readableByteCount()];
+            dataBuffer.read(bytes);
+            return feed(bytes, 0, bytes.length);
+        }
+        finally
+        {
+            DataBufferUtils.release(dataBuffer);
+        }
+    }
+
+    public FilteredLadderDecoder feed(byte[] bytes, int offset, int length)
+    {
+        try
+        {
+            feeder.feedInput(bytes, offset, offset + length);
+            parse();
+            return this;
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Invalid json structure", e);
+        }
+    }
+
+    public BlizzardLadder finish()
+    {
+        try
+        {
+            feeder.endOfInput();
+            parse();
+            if(depth != 0 || buffer != null) throw new IllegalStateException("Incomplete json");
+            parser.close();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Invalid json structure", e);
+        }
+        return new BlizzardLadder(teams.toArray(BlizzardTeam[]::new), league);
+    }
+
+    private void parse()
+    throws IOException
+    {
+        JsonToken token;
+        while((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE)
+        {
+            if(buffer != null)
+            {
+                capture(token);
+            }
+            else
+            {
+                handle(token);
+            }
+        }
+    }
+
+    private void handle(JsonToken token)
+    throws IOException
+    {
+        switch(token)
+        {
+            case FIELD_NAME:
+                if(depth == 1) rootField = parser.currentName();
+                break;
+            case START_OBJECT:
+                if(inTeams && depth == 2)
+                {
+                    startCapture(true);
+                    return;
+                }
+                if(depth == 1 && LEAGUE_FIELD.equals(rootField))
+                {
+                    startCapture(false);
+                    return;
+                }
+                depth++;
+                break;
+            case START_ARRAY:
+                if(depth == 1 && TEAMS_FIELD.equals(rootField)) inTeams = true;
+                depth++;
+                break;
+            case END_ARRAY:
+                depth--;
+                if(depth == 1) inTeams = false;
+                break;
+            case END_OBJECT:
+                depth--;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void startCapture(boolean team)
+    throws IOException
+    {
+        buffer = new TokenBuffer(parser);
+        capturingTeam = team;
+        skippingTeam = false;
+        captureDepth = depth;
+        captureField = null;
+        lastPlayed = null;
+        buffer.copyCurrentEvent(parser);
+        depth++;
+    }
+
+    private void capture(JsonToken token)
+    throws IOException
+    {
+        if(capturingTeam && depth == captureDepth + 1)
+        {
+            if(token == JsonToken.FIELD_NAME)
+            {
+                captureField = parser.currentName();
+            }
+            else if(token == JsonToken.VALUE_NUMBER_INT && LAST_PLAYED_FIELD.equals(captureField))
+            {
+                lastPlayed = parser.getLongValue();
+                //stale team, stop buffering and ignore the rest of the object
+                if(lastPlayed <= startingFromEpochSeconds) skippingTeam = true;
+            }
+        }
+        if(!skippingTeam) buffer.copyCurrentEvent(parser);
+
+        if(token.isStructStart())
+        {
+            depth++;
+        }
+        else if(token.isStructEnd())
+        {
+            depth--;
+            if(depth == captureDepth) finishCapture();
+        }
+    }
+
+    private void finishCapture()
+    throws IOException
+    {
+        try(JsonParser bufferParser = buffer.asParser(objectMapper))
+        {
+            if(!capturingTeam)
+            {
+                league = objectMapper.readValue(bufferParser, BlizzardLadderLeague.class);
+            }
+            else if(!skippingTeam)
+            {
+                teams.add(objectMapper.readValue(bufferParser, BlizzardTeam.class));
+            }
+        }
+        finally
+        {
+            buffer.close();
+            buffer = null;
+        }
+    }
+
+}
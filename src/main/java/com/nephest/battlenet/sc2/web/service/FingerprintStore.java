@@ -0,0 +1,544 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
+import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
+import com.nephest.battlenet.sc2.model.local.inner.CharacterFingerprintData;
+import com.nephest.battlenet.sc2.model.local.inner.ClanMemberEventData;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>
+ *     Fingerprints of the last written account, character, and clan member data. A 64-bit
+ *     hash of the character natural id is mapped to a 64-bit hash of the written data, its
+ *     version(season), character id, and write timestamp. Data is unchanged if its
+ *     fingerprint was written recently, such data is dropped before it reaches the DB.
+ *     Everything else, including evicted fingerprints, is written to the DB as usual, so the
+ *     DB remains the exact fallback.
+ * </p>
+ * <p>
+ *     Fingerprints are stored in a fixed size 4-way set associative table of primitive
+ *     arrays, the oldest fingerprint of a full set is evicted. Writes also refresh the data
+ *     timestamps that are used by the anonymization, fingerprints expire after
+ *     {@link Fingerprint#ttl()} to keep them fresh. The table is rebuilt from recently
+ *     updated characters on startup.
+ * </p>
+ */
+@Component
+public class FingerprintStore
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(FingerprintStore.class);
+
+    public static final int WAYS = 4;
+    public static final int REBUILD_BATCH_SIZE = 1000;
+    private static final long EMPTY = 0;
+    private static final long NO_CLAN = 1;
+
+    public enum Kind
+    {
+        ACCOUNT_CHARACTER, CHARACTER, CLAN_MEMBER
+    }
+
+    /**
+     * @param kind fingerprint kind, different kinds of the same character are independent
+     * @param character character whose natural id is the fingerprint key
+     * @param value hash of the data
+     * @param version data version, data is unchanged if its version is not greater than
+     *                the written version
+     * @param ttl max fingerprint age
+     * @param <T> data type
+     */
+    public record Fingerprint<T>
+    (
+        Kind kind,
+        Function<T, PlayerCharacter> character,
+        ToLongFunction<T> value,
+        ToIntFunction<T> version,
+        Duration ttl
+    )
+    {}
+
+    /*
+        The fresh flag is not hashed, fresh and stale writes of the same data have the same
+        effect. Callers save only fresh writes, other writes don't update names.
+     */
+    public static final Fingerprint<AccountCharacterData> ACCOUNT_CHARACTER = new Fingerprint<>
+    (
+        Kind.ACCOUNT_CHARACTER,
+        AccountCharacterData::getCharacter,
+        d->hash
+        (
+            d.getAccount().getPartition(),
+            d.getAccount().getBattleTag(),
+            d.getCharacter().getName()
+        ),
+        AccountCharacterData::getSeason,
+        BlizzardPrivacyService.UNCHANGED_UPDATED_MAX
+    );
+
+    public static final Fingerprint<PlayerCharacter> CHARACTER = new Fingerprint<>
+    (
+        Kind.CHARACTER,
+        Function.identity(),
+        c->hash(c.getName()),
+        c->0,
+        BlizzardPrivacyService.UNCHANGED_UPDATED_MAX
+    );
+
+    /*
+        Clan member timestamps are used to find inactive clan members, keep them fresher
+        than that.
+     */
+    public static final Fingerprint<ClanMemberEventData> CLAN_MEMBER = new Fingerprint<>
+    (
+        Kind.CLAN_MEMBER,
+        ClanMemberEventData::getCharacter,
+        d->d.getClan() == null
+            ? NO_CLAN
+            : hash(d.getClan().getTag(), d.getClan().getRegion(), d.getClan().getName()),
+        d->0,
+        ClanService.CLAN_MEMBER_INACTIVE_AFTER.dividedBy(2)
+    );
+
+    private static final List<Fingerprint<?>> FINGERPRINTS =
+        List.of(ACCOUNT_CHARACTER, CHARACTER, CLAN_MEMBER);
+    private static final List<Kind> CHARACTER_KINDS = List.of(Kind.ACCOUNT_CHARACTER, Kind.CHARACTER);
+
+    /**
+     * @param lookups number of looked up rows
+     * @param hits number of unchanged rows
+     * @param hitRate hits/lookups
+     */
+    public record KindStats(long lookups, long hits, double hitRate)
+    {}
+
+    /**
+     * @param capacity max number of fingerprints
+     * @param size current number of fingerprints
+     * @param evictions number of fingerprints evicted from full sets
+     * @param rebuilt number of fingerprints loaded by the last rebuild
+     * @param kinds lookup stats by kind
+     */
+    public record Stats
+    (
+        int capacity,
+        int size,
+        long evictions,
+        long rebuilt,
+        Map<Kind, KindStats> kinds
+    )
+    {}
+
+    private final PlayerCharacterDAO playerCharacterDAO;
+    private final ExecutorService dbExecutorService;
+    private final int setMask;
+    private final long[] keys;
+    private final long[] values;
+    private final long[] ids;
+    private final int[] versions;
+    private final int[] writtenMinutes;
+    private final long[] lookups = new long[Kind.values().length];
+    private final long[] hits = new long[Kind.values().length];
+    private int size;
+    private long evictions;
+    private long rebuilt;
+    private boolean enabled;
+    private Future<?> rebuildTask = CompletableFuture.completedFuture(null);
+
+    @Autowired
+    public FingerprintStore
+    (
+        PlayerCharacterDAO playerCharacterDAO,
+        @Qualifier("dbExecutorService") ExecutorService dbExecutorService,
+        @Value("${com.nephest.battlenet.sc2.fingerprint:#{'false'}}") boolean enabled,
+        @Value("${com.nephest.battlenet.sc2.fingerprint.capacity:#{'1048576'}}") int capacity
+    )
+    {
+        if(capacity < WAYS) throw new IllegalArgumentException("Capacity must be at least " + WAYS);
+        this.playerCharacterDAO = playerCharacterDAO;
+        this.dbExecutorService = dbExecutorService;
+        this.enabled = enabled;
+        int sets = Integer.highestOneBit(capacity / WAYS);
+        setMask = sets - 1;
+        keys = new long[sets * WAYS];
+        values = new long[sets * WAYS];
+        ids = new long[sets * WAYS];
+        versions = new int[sets * WAYS];
+        writtenMinutes = new int[sets * WAYS];
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        if(enabled) rebuildTask = dbExecutorService.submit(this::rebuild);
+    }
+
+    public Future<?> getRebuildTask()
+    {
+        return rebuildTask;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Fingerprints are cleared when the store is disabled, they would miss writes made
+     * while the store is disabled.
+     *
+     * @param enabled enabled flag
+     */
+    public synchronized void setEnabled(boolean enabled)
+    {
+        if(!enabled) clear();
+        this.enabled = enabled;
+    }
+
+    /**
+     * Loads fingerprints of recently updated characters from the DB. Fingerprints of newer
+     * writes are not replaced.
+     */
+    public void rebuild()
+    {
+        OffsetDateTime updatedMin = SC2Pulse.offsetDateTime().minus(FINGERPRINTS.stream()
+            .map(Fingerprint::ttl)
+            .max(Duration::compareTo)
+            .orElseThrow());
+        long count = 0;
+        try(Stream<CharacterFingerprintData> data = playerCharacterDAO.findFingerprints(updatedMin))
+        {
+            List<CharacterFingerprintData> batch = new ArrayList<>(REBUILD_BATCH_SIZE);
+            Iterator<CharacterFingerprintData> iterator = data.iterator();
+            while(iterator.hasNext())
+            {
+                batch.add(iterator.next());
+                if(batch.size() == REBUILD_BATCH_SIZE)
+                {
+                    count += rebuild(batch);
+                    batch.clear();
+                }
+            }
+            count += rebuild(batch);
+        }
+        synchronized(this)
+        {
+            rebuilt = count;
+        }
+        LOG.info("Rebuilt {} fingerprints", count);
+    }
+
+    private synchronized long rebuild(List<CharacterFingerprintData> batch)
+    {
+        if(!enabled) return 0;
+
+        long count = 0;
+        for(CharacterFingerprintData row : batch)
+        {
+            int updated = toMinutes(row.updated().toInstant());
+            count += put
+            (
+                ACCOUNT_CHARACTER,
+                new AccountCharacterData(row.account(), row.character(), true, row.battleTagLastSeason()),
+                updated
+            );
+            count += put(CHARACTER, row.character(), updated);
+            if(row.clanMemberUpdated() != null) count += put
+            (
+                CLAN_MEMBER,
+                new ClanMemberEventData(row.character(), row.clan(), null),
+                toMinutes(row.clanMemberUpdated().toInstant())
+            );
+        }
+        return count;
+    }
+
+    /**
+     * Removes unchanged data. Character ids of unchanged data are set from fingerprints.
+     *
+     * @param fingerprint fingerprint
+     * @param data data
+     * @return changed data, or all data if the store is disabled
+     * @param <T> data type
+     */
+    public synchronized <T> List<T> removeUnchanged(Fingerprint<T> fingerprint, Collection<T> data)
+    {
+        if(!enabled || data.isEmpty()) return new ArrayList<>(data);
+
+        int writtenMin = toMinutes(SC2Pulse.instant().minus(fingerprint.ttl()));
+        List<T> changed = new ArrayList<>(data.size());
+        int kind = fingerprint.kind().ordinal();
+        for(T row : data)
+        {
+            lookups[kind]++;
+            PlayerCharacter character = fingerprint.character().apply(row);
+            if(!hasNaturalId(character))
+            {
+                changed.add(row);
+                continue;
+            }
+
+            int slot = find(key(fingerprint.kind(), character));
+            if
+            (
+                slot < 0
+                || values[slot] != fingerprint.value().applyAsLong(row)
+                || versions[slot] < fingerprint.version().applyAsInt(row)
+                || writtenMinutes[slot] < writtenMin
+                || (character.getId() != null && character.getId() != ids[slot])
+            )
+            {
+                changed.add(row);
+                continue;
+            }
+
+            hits[kind]++;
+            if(character.getId() == null) character.setId(ids[slot]);
+        }
+        return changed;
+    }
+
+    /**
+     * Saves fingerprints of written data. Data without character ids is ignored. If there
+     * is an active transaction, fingerprints are saved after it's committed.
+     *
+     * @param fingerprint fingerprint
+     * @param data written data
+     * @param <T> data type
+     */
+    public <T> void putWritten(Fingerprint<T> fingerprint, Collection<T> data)
+    {
+        if(!enabled || data.isEmpty()) return;
+
+        if(TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            List<T> copy = List.copyOf(data);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    put(fingerprint, copy);
+                }
+            });
+        }
+        else
+        {
+            put(fingerprint, data);
+        }
+    }
+
+    /**
+     * Removes account and character fingerprints of characters that were written bypassing
+     * the store, e.g. merged by ladder updates. If there is an active transaction,
+     * fingerprints are removed again after it's committed, concurrent writes that were
+     * committed in the meantime could have saved them.
+     *
+     * @param characters written characters
+     */
+    public void invalidate(Collection<PlayerCharacter> characters)
+    {
+        if(!enabled || characters.isEmpty()) return;
+
+        List<PlayerCharacter> copy = List.copyOf(characters);
+        remove(copy);
+        if(TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    remove(copy);
+                }
+            });
+        }
+    }
+
+    private synchronized void remove(Collection<PlayerCharacter> characters)
+    {
+        if(!enabled) return;
+
+        for(PlayerCharacter character : characters)
+        {
+            if(!hasNaturalId(character)) continue;
+
+            for(Kind kind : CHARACTER_KINDS)
+            {
+                int slot = find(key(kind, character));
+                if(slot < 0) continue;
+
+                keys[slot] = EMPTY;
+                size--;
+            }
+        }
+    }
+
+    private synchronized <T> void put(Fingerprint<T> fingerprint, Collection<T> data)
+    {
+        if(!enabled) return;
+
+        int written = toMinutes(SC2Pulse.instant());
+        for(T row : data) put(fingerprint, row, written);
+    }
+
+    private <T> int put(Fingerprint<T> fingerprint, T row, int written)
+    {
+        PlayerCharacter character = fingerprint.character().apply(row);
+        if(!hasNaturalId(character) || character.getId() == null) return 0;
+
+        long key = key(fingerprint.kind(), character);
+        int target = find(key);
+        if(target >= 0)
+        {
+            if(writtenMinutes[target] > written) return 0;
+        }
+        else
+        {
+            target = findEmptyOrOldest(key);
+        }
+        if(keys[target] == EMPTY)
+        {
+            size++;
+        }
+        else if(keys[target] != key)
+        {
+            evictions++;
+        }
+        keys[target] = key;
+        values[target] = fingerprint.value().applyAsLong(row);
+        versions[target] = fingerprint.version().applyAsInt(row);
+        ids[target] = character.getId();
+        writtenMinutes[target] = written;
+        return 1;
+    }
+
+    private int find(long key)
+    {
+        int base = ((int) key & setMask) * WAYS;
+        for(int slot = base; slot < base + WAYS; slot++)
+            if(keys[slot] == key) return slot;
+        return -1;
+    }
+
+    private int findEmptyOrOldest(long key)
+    {
+        int base = ((int) key & setMask) * WAYS;
+        int oldest = base;
+        for(int slot = base; slot < base + WAYS; slot++)
+        {
+            if(keys[slot] == EMPTY) return slot;
+            if(writtenMinutes[slot] < writtenMinutes[oldest]) oldest = slot;
+        }
+        return oldest;
+    }
+
+    private static boolean hasNaturalId(PlayerCharacter character)
+    {
+        return character != null
+            && character.getRegion() != null
+            && character.getRealm() != null
+            && character.getBattlenetId() != null;
+    }
+
+    private static int toMinutes(Instant instant)
+    {
+        return (int) (instant.getEpochSecond() / 60);
+    }
+
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long key(Kind kind, PlayerCharacter character)
+    {
+        long h = mix(((long) kind.ordinal() << 32) | character.getRegion().ordinal());
+        h = mix(h ^ character.getRealm());
+        h = mix(h ^ character.getBattlenetId());
+        return h == EMPTY ? 1 : h;
+    }
+
+    /**
+     * @param parts hashed parts, nulls are allowed
+     * @return 64-bit FNV-1a hash of parts
+     */
+    public static long hash(Object... parts)
+    {
+        long h = 0xcbf29ce484222325L;
+        for(Object part : parts)
+        {
+            if(part == null)
+            {
+                h = (h ^ 0xFF) * 0x100000001b3L;
+            }
+            else
+            {
+                String str = part.toString();
+                for(int i = 0; i < str.length(); i++) h = (h ^ str.charAt(i)) * 0x100000001b3L;
+            }
+            //separator
+            h = (h ^ 0xFE) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    public synchronized void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    public synchronized Stats getStats()
+    {
+        Map<Kind, KindStats> kinds = new EnumMap<>(Kind.class);
+        for(Kind kind : Kind.values())
+        {
+            long kindLookups = lookups[kind.ordinal()];
+            long kindHits = hits[kind.ordinal()];
+            kinds.put(kind, new KindStats
+            (
+                kindLookups,
+                kindHits,
+                kindLookups == 0 ? 0 : kindHits / (double) kindLookups
+            ));
+        }
+        return new Stats(keys.length, size, evictions, rebuilt, kinds);
+    }
+
+}
@@ -0,0 +1,205 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * <p>
+ *     Season bookkeeping of in-memory replacements of season-wide SQL calculations. State of
+ *     the last {@link #SEASON_COUNT} seasons is kept in memory. A season is seeded from the DB
+ *     by the subclass, and is then updated with teams that were changed by ladder updates.
+ *     Changed teams are applied after the transaction that wrote them is committed, so teams
+ *     of rolled back transactions never reach the in-memory state.
+ * </p>
+ * <p>
+ *     Season state is guarded by the monitor of this object.
+ * </p>
+ *
+ * @param <S> season state
+ */
+public abstract class IncrementalSeasonCache<S>
+{
+
+    public static final int SEASON_COUNT = 2;
+    public static final int MAX_LOGGED_MISMATCHES = 10;
+
+    private final Map<Integer, S> seasons = new TreeMap<>();
+    private boolean enabled;
+
+    protected IncrementalSeasonCache(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param added cheaters that were not known before
+     * @param removed known cheaters that are no longer confirmed
+     */
+    protected record CheaterDiff(Set<Long> added, Set<Long> removed)
+    {
+
+        public boolean isEmpty()
+        {
+            return added.isEmpty() && removed.isEmpty();
+        }
+
+    }
+
+    /**
+     * Applies a changed team to the state of its season. Called while holding the monitor.
+     *
+     * @param state season state
+     * @param team changed team
+     */
+    protected abstract void apply(S state, Team team);
+
+    /**
+     * Applies changed teams to loaded seasons. If there is an active transaction, teams are
+     * applied after it's committed. Teams of seasons that are not loaded are ignored, they
+     * will be loaded from the DB when the season is seeded.
+     *
+     * @param teams changed teams, ids must be set
+     */
+    public void update(Collection<Team> teams)
+    {
+        if(!isEnabled() || teams.isEmpty()) return;
+
+        if(TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            List<Team> copy = List.copyOf(teams);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    applyTeams(copy);
+                }
+            });
+        }
+        else
+        {
+            applyTeams(teams);
+        }
+    }
+
+    private synchronized void applyTeams(Collection<Team> teams)
+    {
+        if(!enabled || seasons.isEmpty()) return;
+
+        for(Team team : teams)
+        {
+            if(team.getId() == null) continue;
+
+            S state = seasons.get(team.getSeason());
+            if(state != null) apply(state, team);
+        }
+    }
+
+    protected synchronized S getSeason(int season)
+    {
+        return seasons.get(season);
+    }
+
+    /**
+     * Adds a season, the oldest seasons are evicted when there are more than
+     * {@link #SEASON_COUNT} seasons.
+     */
+    protected synchronized void putSeason(int season, S state)
+    {
+        seasons.put(season, state);
+        while(seasons.size() > SEASON_COUNT) seasons.remove(seasons.keySet().iterator().next());
+    }
+
+    /**
+     * Removes a season, it will be reseeded next time.
+     */
+    protected synchronized void removeSeason(int season)
+    {
+        seasons.remove(season);
+    }
+
+    public synchronized void clear()
+    {
+        seasons.clear();
+    }
+
+    public synchronized boolean isLoaded(int season)
+    {
+        return seasons.containsKey(season);
+    }
+
+    public synchronized boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public synchronized void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        if(!enabled) seasons.clear();
+    }
+
+    /**
+     * @param teamDAO team DAO
+     * @param season target season
+     * @param cheaters teams that are skipped
+     * @param consumer consumer of season teams of all regions
+     */
+    protected static void forEachTeam
+    (
+        TeamDAO teamDAO,
+        int season,
+        Set<Long> cheaters,
+        Consumer<Team> consumer
+    )
+    {
+        for(Region region : Region.values())
+        {
+            try(Stream<Team> teams = teamDAO.find(region, season))
+            {
+                teams.filter(t->!cheaters.contains(t.getId())).forEach(consumer);
+            }
+        }
+    }
+
+    /**
+     * Replaces {@code known} cheaters with current {@code cheaters}.
+     *
+     * @param known known cheaters, modified by this method
+     * @param cheaters current cheaters
+     * @return difference between known and current cheaters
+     */
+    protected static CheaterDiff updateCheaters(Set<Long> known, Set<Long> cheaters)
+    {
+        Set<Long> added = new HashSet<>(cheaters);
+        added.removeAll(known);
+        Set<Long> removed = new HashSet<>(known);
+        removed.removeAll(cheaters);
+        if(!added.isEmpty() || !removed.isEmpty())
+        {
+            known.clear();
+            known.addAll(cheaters);
+        }
+        return new CheaterDiff(added, removed);
+    }
+
+    protected static void addMismatch(List<String> examples, Object expected, Object actual)
+    {
+        if(examples.size() < MAX_LOGGED_MISMATCHES) examples.add(expected + " != " + actual);
+    }
+
+}
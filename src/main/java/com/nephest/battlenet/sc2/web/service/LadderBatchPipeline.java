@@ -0,0 +1,323 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.Region;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * <p>
+ *     Bounded fetch/persist pipeline. Fetched items are grouped into batches, at most
+ *     {@link #getMaxInFlightBatches()} batches per region are persisted or waiting to be
+ *     persisted at the same time. Upstream demand is limited by the in-flight limit, so
+ *     fetchers are slowed down instead of buffering everything in memory when the DB is
+ *     slower than the API.
+ * </p>
+ * <p>
+ *     The batch size is adapted to the observed commit latency: it's halved when a commit
+ *     takes longer than the target, and increased by the min batch size when a commit takes
+ *     less than a half of the target.
+ * </p>
+ */
+@Component
+public class LadderBatchPipeline
+{
+
+    public static final int DEFAULT_MAX_IN_FLIGHT_BATCHES = 2;
+    public static final int DEFAULT_MIN_BATCH_SIZE = 50;
+    public static final int DEFAULT_MAX_BATCH_SIZE = StatsService.LADDER_BATCH_SIZE;
+    public static final Duration DEFAULT_TARGET_COMMIT_LATENCY = Duration.ofSeconds(2);
+
+    private final int maxInFlightBatches;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetCommitLatencyNanos;
+    private final Map<Region, RegionState> states = new EnumMap<>(Region.class);
+
+    @Autowired
+    public LadderBatchPipeline
+    (
+        @Value("${com.nephest.battlenet.sc2.ladder.batch.in.flight:#{'2'}}") int maxInFlightBatches,
+        @Value("${com.nephest.battlenet.sc2.ladder.batch.size.min:#{'50'}}") int minBatchSize,
+        @Value("${com.nephest.battlenet.sc2.ladder.batch.size.max:#{'600'}}") int maxBatchSize,
+        @Value("${com.nephest.battlenet.sc2.ladder.batch.commit.target:#{'2000'}}") long targetCommitLatencyMillis
+    )
+    {
+        if(maxInFlightBatches < 1) throw new IllegalArgumentException("In-flight batch limit must be positive");
+        if(minBatchSize < 1 || minBatchSize > maxBatchSize)
+            throw new IllegalArgumentException("Invalid batch size range: " + minBatchSize + "-" + maxBatchSize);
+
+        this.maxInFlightBatches = maxInFlightBatches;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetCommitLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetCommitLatencyMillis);
+        for(Region region : Region.values()) states.put(region, new RegionState(maxBatchSize));
+    }
+
+    public LadderBatchPipeline()
+    {
+        this
+        (
+            DEFAULT_MAX_IN_FLIGHT_BATCHES,
+            DEFAULT_MIN_BATCH_SIZE,
+            DEFAULT_MAX_BATCH_SIZE,
+            DEFAULT_TARGET_COMMIT_LATENCY.toMillis()
+        );
+    }
+
+    /**
+     * @param count number of completed stage executions
+     * @param avgMillis average stage latency in milliseconds
+     * @param maxMillis max stage latency in milliseconds
+     */
+    public record LatencyStats(long count, double avgMillis, double maxMillis)
+    {
+
+        private static LatencyStats of(LatencyCounter counter)
+        {
+            long count = counter.count.sum();
+            return new LatencyStats
+            (
+                count,
+                count == 0 ? 0 : counter.totalNanos.sum() / (double) count / 1_000_000,
+                counter.maxNanos.get() / 1_000_000D
+            );
+        }
+
+    }
+
+    /**
+     * @param batchSize current batch size
+     * @param pendingItems fetched items that were not persisted yet
+     * @param maxPendingItems max observed value of {@code pendingItems}
+     * @param inFlightBatches batches that are persisted or waiting to be persisted
+     * @param assembly time between the first item of a batch and batch submission
+     * @param queue time between batch submission and the start of persistence
+     * @param commit persistence time
+     */
+    public record Stats
+    (
+        int batchSize,
+        int pendingItems,
+        int maxPendingItems,
+        int inFlightBatches,
+        LatencyStats assembly,
+        LatencyStats queue,
+        LatencyStats commit
+    )
+    {}
+
+    /**
+     * Groups items into batches and persists them, waiting for a free in-flight slot before
+     * requesting more items from upstream. Failed batches are logged and skipped.
+     *
+     * @param region region, batch size and metrics are tracked per region
+     * @param items items to persist
+     * @param persister saves a batch
+     * @param executor executes a persistence task asynchronously
+     * @return mono that is completed when all batches are persisted
+     * @param <T> item type
+     */
+    public <T> Mono<Void> process
+    (
+        Region region,
+        Flux<T> items,
+        Consumer<List<T>> persister,
+        Function<Runnable, CompletableFuture<Void>> executor
+    )
+    {
+        RegionState state = states.get(region);
+        return Flux.defer(()->
+        {
+            Batcher batcher = new Batcher(state);
+            return items
+                .doOnNext(i->state.addPending(1))
+                .bufferUntil(i->batcher.cut())
+                .flatMap
+                (
+                    batch->persist(state, batch, batcher.getStart(), persister, executor),
+                    maxInFlightBatches,
+                    1
+                );
+        })
+            .then();
+    }
+
+    private <T> Mono<Void> persist
+    (
+        RegionState state,
+        List<T> batch,
+        long assemblyStart,
+        Consumer<List<T>> persister,
+        Function<Runnable, CompletableFuture<Void>> executor
+    )
+    {
+        long submitted = System.nanoTime();
+        state.assembly.add(submitted - assemblyStart);
+        state.inFlightBatches.incrementAndGet();
+        return WebServiceUtil.getOnErrorLogAndSkipMono(Mono.fromFuture(()->executor.apply(()->
+        {
+            long start = System.nanoTime();
+            state.queue.add(start - submitted);
+            persister.accept(batch);
+            long commit = System.nanoTime() - start;
+            state.commit.add(commit);
+            adapt(state, commit);
+        })))
+            .doFinally(s->
+            {
+                state.inFlightBatches.decrementAndGet();
+                state.addPending(-batch.size());
+            });
+    }
+
+    private void adapt(RegionState state, long commitNanos)
+    {
+        state.batchSize.getAndUpdate(size->
+        {
+            if(commitNanos > targetCommitLatencyNanos) return Math.max(minBatchSize, size / 2);
+            if(commitNanos < targetCommitLatencyNanos / 2) return Math.min(maxBatchSize, size + minBatchSize);
+            return size;
+        });
+    }
+
+    public int getMaxInFlightBatches()
+    {
+        return maxInFlightBatches;
+    }
+
+    public int getMinBatchSize()
+    {
+        return minBatchSize;
+    }
+
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    public int getBatchSize(Region region)
+    {
+        return states.get(region).batchSize.get();
+    }
+
+    public Stats getStats(Region region)
+    {
+        RegionState state = states.get(region);
+        return new Stats
+        (
+            state.batchSize.get(),
+            state.pendingItems.get(),
+            state.maxPendingItems.get(),
+            state.inFlightBatches.get(),
+            LatencyStats.of(state.assembly),
+            LatencyStats.of(state.queue),
+            LatencyStats.of(state.commit)
+        );
+    }
+
+    public Map<Region, Stats> getStats()
+    {
+        Map<Region, Stats> stats = new EnumMap<>(Region.class);
+        for(Region region : Region.values()) stats.put(region, getStats(region));
+        return stats;
+    }
+
+    private static class LatencyCounter
+    {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void add(long nanos)
+        {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+    }
+
+    private static class RegionState
+    {
+
+        private final AtomicInteger batchSize;
+        private final AtomicInteger pendingItems = new AtomicInteger();
+        private final AtomicInteger maxPendingItems = new AtomicInteger();
+        private final AtomicInteger inFlightBatches = new AtomicInteger();
+        private final LatencyCounter assembly = new LatencyCounter();
+        private final LatencyCounter queue = new LatencyCounter();
+        private final LatencyCounter commit = new LatencyCounter();
+
+        private RegionState(int batchSize)
+        {
+            this.batchSize = new AtomicInteger(batchSize);
+        }
+
+        private void addPending(int delta)
+        {
+            int pending = pendingItems.addAndGet(delta);
+            if(delta > 0) maxPendingItems.accumulateAndGet(pending, Math::max);
+        }
+
+    }
+
+    /*
+        Stateful batch boundary predicate. The batch size is read when a new batch is started,
+        so adaptation is applied to the next batch.
+     */
+    private static class Batcher
+    {
+
+        private final RegionState state;
+        private int size;
+        private int limit;
+        private long start;
+
+        private Batcher(RegionState state)
+        {
+            this.state = state;
+        }
+
+        private boolean cut()
+        {
+            if(size == 0)
+            {
+                limit = state.batchSize.get();
+                start = System.nanoTime();
+            }
+            if(++size < limit) return false;
+
+            size = 0;
+            return true;
+        }
+
+        /*
+            Buffers are emitted synchronously by the item that completes them, or by the
+            upstream completion, so this is the start of the last emitted batch.
+         */
+        private long getStart()
+        {
+            return start;
+        }
+
+    }
+
+}
@@ -0,0 +1,216 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Flux;
+
+/**
+ * <p>
+ *     Single use ladder id discovery. Ids are probed in windows of {@code windowSize} ids. A
+ *     window is dense if it has no more than {@code errorThreshold} missing ids, the id range
+ *     ends at the first sparse window, the same rule that is used by the sequential scan.
+ * </p>
+ * <p>
+ *     The end of the range is found by probing the expected end window, galloping forward
+ *     from the last dense window, and bisecting between the last dense and the first sparse
+ *     windows. Gallop steps are probed concurrently, every gallop round probes twice as many
+ *     steps as the previous round, up to {@code parallelism} steps. The first round probes one
+ *     step, so an accurate expected end doesn't waste probes. The remaining windows are then
+ *     fetched concurrently, so the discovery time is bounded by the rate limit rather than by
+ *     the latency of the slowest id in every window. Windows are fetched once, probed windows
+ *     are reused by the scan.
+ * </p>
+ *
+ * @param <T> discovered id type
+ */
+public class LadderDiscovery<T>
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LadderDiscovery.class);
+
+    private final BiFunction<Long, Long, Flux<T>> fetcher;
+    private final long from;
+    private final int windowSize;
+    private final int errorThreshold;
+    private final int parallelism;
+    private final NavigableMap<Integer, List<T>> probes = new TreeMap<>();
+    private Integer endWindow;
+
+    /**
+     * @param fetcher fetches discovered ids of [from, toExcluded) range
+     * @param from first id
+     * @param windowSize number of ids in a window
+     * @param errorThreshold max number of missing ids in a dense window
+     * @param parallelism number of concurrently fetched windows
+     */
+    public LadderDiscovery
+    (
+        BiFunction<Long, Long, Flux<T>> fetcher,
+        long from,
+        int windowSize,
+        int errorThreshold,
+        int parallelism
+    )
+    {
+        if(windowSize < 1) throw new IllegalArgumentException("Window size must be positive");
+        if(parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive");
+        this.fetcher = Objects.requireNonNull(fetcher);
+        this.from = from;
+        this.windowSize = windowSize;
+        this.errorThreshold = errorThreshold;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Finds the end of the id range, blocks until probes are fetched.
+     *
+     * @param expectedEnd expected end of the id range, exclusive. Previous season density
+     *                    is a good estimation.
+     * @return end of the id range, exclusive. This is the end of the first sparse window.
+     */
+    public synchronized long findEnd(@Nullable Long expectedEnd)
+    {
+        if(endWindow == null)
+        {
+            //the last full window before the expected end is expected to be dense
+            endWindow = findEndWindow(expectedEnd == null || expectedEnd <= from
+                ? null
+                : (int) Math.min((expectedEnd - from) / windowSize - 1, Integer.MAX_VALUE / 2));
+            LOG.debug("Ladder discovery range: {}-{}, {} probes", from, getEnd(), probes.size());
+        }
+        return getEnd();
+    }
+
+    private long getEnd()
+    {
+        return from + (long) (endWindow + 1) * windowSize;
+    }
+
+    private int findEndWindow(@Nullable Integer expectedWindow)
+    {
+        if(!probe(0)) return 0;
+
+        int lo = 0;
+        Integer hi = null;
+        if(expectedWindow != null && expectedWindow > 0)
+        {
+            if(probe(expectedWindow))
+            {
+                lo = expectedWindow;
+            }
+            else
+            {
+                hi = expectedWindow;
+            }
+        }
+        int step = 1;
+        for(int width = 1; hi == null; width = Math.min(width * 2, parallelism))
+        {
+            //the same windows the sequential gallop would probe if all of them were dense
+            List<Integer> windows = new ArrayList<>(width);
+            for(int i = 0, window = lo; i < width; i++, step *= 2)
+            {
+                window += step;
+                windows.add(window);
+            }
+            List<Boolean> dense = probe(windows);
+            for(int i = 0; i < windows.size(); i++)
+            {
+                if(dense.get(i))
+                {
+                    lo = windows.get(i);
+                }
+                else
+                {
+                    hi = windows.get(i);
+                    break;
+                }
+            }
+        }
+        while(hi - lo > 1)
+        {
+            int mid = (lo + hi) >>> 1;
+            if(probe(mid))
+            {
+                lo = mid;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return hi;
+    }
+
+    private boolean probe(int window)
+    {
+        return probe(List.of(window)).get(0);
+    }
+
+    /**
+     * Fetches windows concurrently.
+     *
+     * @param windows windows to probe
+     * @return density flags of the windows, in the same order
+     */
+    private List<Boolean> probe(List<Integer> windows)
+    {
+        List<List<T>> fetched = Flux.fromIterable(windows)
+            .flatMapSequential(window->fetch(window).collectList(), parallelism)
+            .collectList()
+            .block();
+        List<Boolean> dense = new ArrayList<>(windows.size());
+        for(int i = 0; i < windows.size(); i++)
+        {
+            List<T> ids = fetched == null ? List.of() : fetched.get(i);
+            probes.put(windows.get(i), ids);
+            dense.add(windowSize - ids.size() <= errorThreshold);
+        }
+        return dense;
+    }
+
+    private Flux<T> fetch(int window)
+    {
+        long windowFrom = from + (long) window * windowSize;
+        return fetcher.apply(windowFrom, windowFrom + windowSize);
+    }
+
+    /**
+     * Finds the end of the range if it wasn't found yet, and returns all discovered ids.
+     * Ids of probed windows of the range are emitted first, the remaining windows are fetched
+     * concurrently and their ids are emitted as soon as they are discovered. Concurrent gallop
+     * steps can probe windows after the end of the range, their ids are not emitted.
+     *
+     * @param expectedEnd see {@link #findEnd(Long)}
+     * @return discovered ids
+     */
+    public synchronized Flux<T> discover(@Nullable Long expectedEnd)
+    {
+        findEnd(expectedEnd);
+        List<T> probed = new ArrayList<>();
+        probes.headMap(endWindow, true).values().forEach(probed::addAll);
+        return Flux.fromIterable(probed)
+            .concatWith(Flux.range(0, endWindow)
+                .filter(window->!probes.containsKey(window))
+                .flatMap(this::fetch, parallelism));
+    }
+
+    /**
+     * @return number of fetched probe windows
+     */
+    public synchronized int getProbeCount()
+    {
+        return probes.size();
+    }
+
+}
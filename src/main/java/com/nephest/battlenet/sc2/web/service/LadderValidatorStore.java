@@ -0,0 +1,306 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.Region;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * <p>
+ *     Per-ladder response validators that are used to send conditional ladder requests.
+ *     ETag and Last-Modified headers are sent back to the API, the content hash is used to
+ *     detect unchanged ladders when the API ignores conditional headers.
+ * </p>
+ * <p>
+ *     Validators are kept in memory and are persisted by the caller together with saved
+ *     ladders, use {@link #load(Collection)} to restore them after a restart. Ladders that
+ *     were not modified several times in a row are requested less often, see
+ *     {@link #tryRequest(Region, long, int)}. This class is thread-safe.
+ * </p>
+ */
+public class LadderValidatorStore
+{
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<Region, Map<Long, Validators>> validators = new EnumMap<>(Region.class);
+    private final Map<Region, Counters> counters = new EnumMap<>(Region.class);
+    private volatile boolean loaded = false;
+
+    public LadderValidatorStore()
+    {
+        for(Region region : Region.values())
+        {
+            validators.put(region, new ConcurrentHashMap<>());
+            counters.put(region, new Counters());
+        }
+    }
+
+    /**
+     * @param eTag ETag header, nullable
+     * @param lastModified Last-Modified header, nullable
+     * @param contentHash 64-bit hash of the response body
+     * @param unchanged number of consecutive requests that returned the same ladder
+     * @param skipped number of consecutive cycles in which the ladder was not requested
+     */
+    public record Validators
+    (
+        String eTag,
+        String lastModified,
+        long contentHash,
+        int unchanged,
+        int skipped
+    )
+    {
+
+        public Validators(String eTag, String lastModified, long contentHash)
+        {
+            this(eTag, lastModified, contentHash, 0, 0);
+        }
+
+        public static Validators of(HttpHeaders headers, byte[] body)
+        {
+            return new Validators
+            (
+                headers.getFirst(HttpHeaders.ETAG),
+                headers.getFirst(HttpHeaders.LAST_MODIFIED),
+                hash(body)
+            );
+        }
+
+        /**
+         * @param previous validators of the previous request that had the same content
+         * @return these validators with the unchanged streak of the previous validators
+         * incremented by one
+         */
+        public Validators unchangedSince(Validators previous)
+        {
+            return new Validators(eTag, lastModified, contentHash, previous.unchanged() + 1, 0);
+        }
+
+        public Validators notModified()
+        {
+            return new Validators(eTag, lastModified, contentHash, unchanged + 1, 0);
+        }
+
+        public Validators skip()
+        {
+            return new Validators(eTag, lastModified, contentHash, unchanged, skipped + 1);
+        }
+
+    }
+
+    public record Entry(Region region, long ladderId, Validators validators)
+    {
+    }
+
+    /**
+     * @param modified ladders that were downloaded and changed
+     * @param notModified ladders that were not downloaded due to 304 response
+     * @param unchanged ladders that were downloaded, but had the same content
+     * @param skipped ladders that were not requested because they were not modified recently
+     */
+    public record Stats(long modified, long notModified, long unchanged, long skipped)
+    {
+
+        public long getRequests()
+        {
+            return modified + notModified + unchanged;
+        }
+
+        public double getNotModifiedRatio()
+        {
+            return ratio(notModified);
+        }
+
+        public double getUnchangedRatio()
+        {
+            return ratio(unchanged);
+        }
+
+        /**
+         * @return ratio of skipped requests to all ladders, including skipped ladders
+         */
+        public double getSkippedRatio()
+        {
+            long ladders = getRequests() + skipped;
+            return ladders == 0 ? 0.0 : skipped / (double) ladders;
+        }
+
+        private double ratio(long count)
+        {
+            long requests = getRequests();
+            return requests == 0 ? 0.0 : count / (double) requests;
+        }
+
+    }
+
+    private static class Counters
+    {
+
+        private final LongAdder modified = new LongAdder();
+        private final LongAdder notModified = new LongAdder();
+        private final LongAdder unchanged = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+
+    }
+
+    /**
+     * @param headers request headers
+     * @param validators validators of the previous response, nullable
+     */
+    public static void setConditionalHeaders(HttpHeaders headers, Validators validators)
+    {
+        if(validators == null) return;
+
+        if(validators.eTag() != null) headers.set(HttpHeaders.IF_NONE_MATCH, validators.eTag());
+        if(validators.lastModified() != null)
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, validators.lastModified());
+    }
+
+    public static long hash(byte[] bytes)
+    {
+        long hash = FNV_OFFSET;
+        for(byte b : bytes) hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        return hash;
+    }
+
+    public Validators get(Region region, long ladderId)
+    {
+        return validators.get(region).get(ladderId);
+    }
+
+    /**
+     * @return validators of ladders that have them
+     */
+    public List<Entry> getEntries(Region region, Collection<Long> ladderIds)
+    {
+        Map<Long, Validators> regionValidators = validators.get(region);
+        List<Entry> entries = new ArrayList<>(ladderIds.size());
+        for(Long ladderId : ladderIds)
+        {
+            Validators ladderValidators = regionValidators.get(ladderId);
+            if(ladderValidators != null) entries.add(new Entry(region, ladderId, ladderValidators));
+        }
+        return entries;
+    }
+
+    public boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * Loads persisted validators. Validators that were received after the previous load are
+     * not replaced.
+     *
+     * @param entries persisted validators
+     */
+    public void load(Collection<Entry> entries)
+    {
+        for(Entry entry : entries)
+            validators.get(entry.region()).putIfAbsent(entry.ladderId(), entry.validators());
+        loaded = true;
+    }
+
+    /**
+     * Decides whether a ladder must be requested in this cycle. A ladder that was not
+     * modified N times in a row is skipped for min(N, maxSkippedCycles) cycles between
+     * requests, so rarely changing ladders don't consume rate limiter slots every cycle.
+     * New games of skipped ladders are saved late, so skipping is disabled by default and
+     * unchanged ladders are requested every cycle, they are not saved if they were not
+     * modified.
+     *
+     * @param region ladder region
+     * @param ladderId ladder id
+     * @param maxSkippedCycles max number of consecutive cycles a ladder can be skipped for,
+     * 0 to request all ladders
+     * @return true if the ladder must be requested, false if it was skipped
+     */
+    public boolean tryRequest(Region region, long ladderId, int maxSkippedCycles)
+    {
+        if(maxSkippedCycles <= 0) return true;
+
+        boolean[] request = new boolean[]{true};
+        validators.get(region).computeIfPresent(ladderId, (id, v)->
+        {
+            if(v.skipped() >= Math.min(v.unchanged(), maxSkippedCycles)) return v;
+
+            request[0] = false;
+            return v.skip();
+        });
+        if(!request[0]) counters.get(region).skipped.increment();
+        return request[0];
+    }
+
+    public void put(Region region, long ladderId, Validators ladderValidators)
+    {
+        validators.get(region).put(ladderId, ladderValidators);
+    }
+
+    /**
+     * Removes ladder validators, the next request of this ladder will be unconditional. Use
+     * this method when a ladder was downloaded, but wasn't saved.
+     *
+     * @param region ladder region
+     * @param ladderId ladder id
+     */
+    public void remove(Region region, long ladderId)
+    {
+        validators.get(region).remove(ladderId);
+    }
+
+    public void clear()
+    {
+        validators.values().forEach(Map::clear);
+    }
+
+    public int size(Region region)
+    {
+        return validators.get(region).size();
+    }
+
+    public void addModified(Region region)
+    {
+        counters.get(region).modified.increment();
+    }
+
+    public void addNotModified(Region region)
+    {
+        counters.get(region).notModified.increment();
+    }
+
+    public void addUnchanged(Region region)
+    {
+        counters.get(region).unchanged.increment();
+    }
+
+    public Stats getStats(Region region)
+    {
+        Counters regionCounters = counters.get(region);
+        return new Stats
+        (
+            regionCounters.modified.sum(),
+            regionCounters.notModified.sum(),
+            regionCounters.unchanged.sum(),
+            regionCounters.skipped.sum()
+        );
+    }
+
+    public Map<Region, Stats> getStats()
+    {
+        Map<Region, Stats> stats = new EnumMap<>(Region.class);
+        for(Region region : Region.values()) stats.put(region, getStats(region));
+        return stats;
+    }
+
+}
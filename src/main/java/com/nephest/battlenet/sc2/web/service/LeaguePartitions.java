@@ -0,0 +1,71 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.Team;
+
+/**
+ * Dense (queue, team type, region, league) partition indexes that are derived from enum
+ * ordinals. A league partition index encodes its region(queue, team type, region) and
+ * global(queue, team type) partition indexes, so it can be used as an array index of all
+ * three partition levels.
+ */
+final class LeaguePartitions
+{
+
+    static final int TEAM_TYPES = TeamType.values().length;
+    static final int REGIONS = Region.values().length;
+    static final int LEAGUES = BaseLeague.LeagueType.values().length;
+    static final int GLOBAL_COUNT = QueueType.values().length * TEAM_TYPES;
+    static final int REGION_COUNT = GLOBAL_COUNT * REGIONS;
+    static final int COUNT = REGION_COUNT * LEAGUES;
+
+    private LeaguePartitions(){}
+
+    static int of(Region region, QueueType queue, TeamType teamType, BaseLeague.LeagueType league)
+    {
+        int global = queue.ordinal() * TEAM_TYPES + teamType.ordinal();
+        return (global * REGIONS + region.ordinal()) * LEAGUES + league.ordinal();
+    }
+
+    static int of(Team team)
+    {
+        return of(team.getRegion(), team.getQueueType(), team.getTeamType(), team.getLeagueType());
+    }
+
+    static int toRegion(int partition)
+    {
+        return partition / LEAGUES;
+    }
+
+    static int toGlobal(int partition)
+    {
+        return partition / LEAGUES / REGIONS;
+    }
+
+    static Region region(int partition)
+    {
+        return Region.values()[partition / LEAGUES % REGIONS];
+    }
+
+    static QueueType queueType(int partition)
+    {
+        return QueueType.values()[toGlobal(partition) / TEAM_TYPES];
+    }
+
+    static TeamType teamType(int partition)
+    {
+        return TeamType.values()[toGlobal(partition) % TEAM_TYPES];
+    }
+
+    static BaseLeague.LeagueType leagueType(int partition)
+    {
+        return BaseLeague.LeagueType.values()[partition % LEAGUES];
+    }
+
+}
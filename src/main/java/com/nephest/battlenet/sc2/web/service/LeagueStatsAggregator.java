@@ -0,0 +1,452 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.Race;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.dao.LeagueStatsDAO;
+import com.nephest.battlenet.sc2.model.local.inner.LeagueStatsAggregate;
+import com.nephest.battlenet.sc2.model.local.inner.TeamLeagueStats;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ *     Incremental replacement of {@link LeagueStatsDAO#mergeCalculateForSeason(int)}. Team
+ *     counts, games played by race, and 1v1 race team counts are kept in memory for every
+ *     (season, region, queue, team type, league). Teams changed by ladder updates are marked
+ *     as dirty, their current stats are loaded by id when league stats are calculated, and
+ *     the difference between old and new team stats is applied to league stats. Only leagues
+ *     whose stats have changed are written.
+ * </p>
+ * <p>
+ *     A season is seeded from the DB when its stats are calculated for the first time. The
+ *     full SQL recalculation is periodically executed as a consistency check, the season is
+ *     reseeded if the SQL stats differ.
+ * </p>
+ */
+@Component
+public class LeagueStatsAggregator
+extends IncrementalSeasonCache<LeagueStatsAggregator.SeasonStats>
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeagueStatsAggregator.class);
+
+    public static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofHours(1);
+
+    private final LeagueStatsDAO leagueStatsDAO;
+    private final LatencyCounter fullLatency = new LatencyCounter();
+    private final LatencyCounter incrementalLatency = new LatencyCounter();
+    private final LongAdder writtenLeagues = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private Duration checkInterval = DEFAULT_CHECK_INTERVAL;
+
+    @Autowired
+    public LeagueStatsAggregator
+    (
+        LeagueStatsDAO leagueStatsDAO,
+        @Value("${com.nephest.battlenet.sc2.stats.league.incremental:#{'false'}}") boolean enabled
+    )
+    {
+        super(enabled);
+        this.leagueStatsDAO = leagueStatsDAO;
+    }
+
+    /**
+     * @param count number of calculations
+     * @param avgMillis average calculation time in milliseconds
+     * @param maxMillis max calculation time in milliseconds
+     */
+    public record LatencyStats(long count, double avgMillis, double maxMillis)
+    {
+
+        private static LatencyStats of(LatencyCounter counter)
+        {
+            long count = counter.count.sum();
+            return new LatencyStats
+            (
+                count,
+                count == 0 ? 0 : counter.totalNanos.sum() / (double) count / 1_000_000,
+                counter.maxNanos.get() / 1_000_000D
+            );
+        }
+
+    }
+
+    /**
+     * @param full full SQL calculations, this includes consistency checks
+     * @param incremental incremental calculations
+     * @param writtenLeagues number of leagues written by incremental calculations
+     * @param mismatches number of mismatched leagues found by consistency checks
+     */
+    public record Stats
+    (
+        LatencyStats full,
+        LatencyStats incremental,
+        long writtenLeagues,
+        long mismatches
+    )
+    {}
+
+    /**
+     * Marks the team as dirty. Teams are marked after commit, so their committed stats are
+     * loaded by the next calculation.
+     */
+    @Override
+    protected void apply(SeasonStats stats, Team team)
+    {
+        stats.dirty.add(team.getId());
+    }
+
+    /**
+     * Calculates league stats of the season.
+     *
+     * @param season target season
+     */
+    public void calculate(int season)
+    {
+        if(!isEnabled())
+        {
+            calculateFull(season);
+            return;
+        }
+
+        long start = System.nanoTime();
+        Set<Long> dirty;
+        SeasonStats stats;
+        synchronized(this)
+        {
+            stats = getSeason(season);
+            if(stats == null)
+            {
+                stats = seed(season);
+                dirty = Set.of();
+            }
+            else
+            {
+                dirty = new HashSet<>(stats.dirty);
+                stats.dirty.clear();
+            }
+        }
+        List<TeamLeagueStats> teams = leagueStatsDAO.findTeamStats(dirty);
+        List<LeagueStatsAggregate> changed;
+        synchronized(this)
+        {
+            Set<Long> removed = new HashSet<>(dirty);
+            for(TeamLeagueStats team : teams)
+            {
+                stats.put(team);
+                removed.remove(team.teamId());
+            }
+            for(Long id : removed) stats.remove(id);
+            changed = stats.collectChanged();
+        }
+        try
+        {
+            leagueStatsDAO.merge(season, changed);
+        }
+        catch (RuntimeException e)
+        {
+            //written stats are unknown after a failed write, reseed the season next time
+            removeSeason(season);
+            throw e;
+        }
+        boolean check;
+        synchronized(this)
+        {
+            stats.commit(changed);
+            check = !stats.checkedAt.plus(checkInterval).isAfter(SC2Pulse.instant());
+        }
+        incrementalLatency.add(System.nanoTime() - start);
+        writtenLeagues.add(changed.size());
+        LOG.debug
+        (
+            "Calculated league stats for {} season: {} dirty teams, {} leagues",
+            season, dirty.size(), changed.size()
+        );
+        if(check) check(season);
+    }
+
+    private void calculateFull(int season)
+    {
+        long start = System.nanoTime();
+        leagueStatsDAO.mergeCalculateForSeason(season);
+        fullLatency.add(System.nanoTime() - start);
+    }
+
+    private SeasonStats seed(int season)
+    {
+        SeasonStats stats = new SeasonStats();
+        try(Stream<TeamLeagueStats> teams = leagueStatsDAO.findTeamStats(season))
+        {
+            teams.forEach(stats::put);
+        }
+        putSeason(season, stats);
+        LOG.info("Seeded league stats aggregator: season {}, {} teams", season, stats.size());
+        return stats;
+    }
+
+    /**
+     * Recalculates league stats with SQL and compares them with the in-memory stats. The
+     * season is reseeded on the next calculation if there are any mismatches.
+     *
+     * @param season target season
+     * @return number of mismatched leagues
+     */
+    public int check(int season)
+    {
+        calculateFull(season);
+        List<LeagueStatsAggregate> expected = leagueStatsDAO.findAggregates(season);
+        List<String> examples = new ArrayList<>();
+        int count = 0;
+        synchronized(this)
+        {
+            SeasonStats stats = getSeason(season);
+            if(stats == null) return 0;
+
+            Map<Integer, LeagueStatsAggregate> actual = stats.calculate();
+            for(LeagueStatsAggregate league : expected)
+            {
+                int partition = LeaguePartitions.of
+                (
+                    league.region(),
+                    league.queueType(),
+                    league.teamType(),
+                    league.leagueType()
+                );
+                LeagueStatsAggregate actualLeague = actual.remove(partition);
+                //merges don't remove stats of empty leagues
+                if(actualLeague == null && stats.teamCounts[partition] == 0) continue;
+                if(league.equals(actualLeague)) continue;
+
+                count++;
+                addMismatch(examples, league, actualLeague);
+            }
+            for(LeagueStatsAggregate league : actual.values())
+            {
+                count++;
+                addMismatch(examples, null, league);
+            }
+            if(count > 0)
+            {
+                removeSeason(season);
+            }
+            else
+            {
+                stats.checkedAt = SC2Pulse.instant();
+            }
+        }
+        mismatches.add(count);
+        if(count > 0)
+        {
+            LOG.warn("League stats aggregator mismatch: season {}, {} leagues, {}", season, count, examples);
+        }
+        else
+        {
+            LOG.debug("League stats aggregator checked: season {}", season);
+        }
+        return count;
+    }
+
+    public Stats getStats()
+    {
+        return new Stats
+        (
+            LatencyStats.of(fullLatency),
+            LatencyStats.of(incrementalLatency),
+            writtenLeagues.sum(),
+            mismatches.sum()
+        );
+    }
+
+    public synchronized Duration getCheckInterval()
+    {
+        return checkInterval;
+    }
+
+    public synchronized void setCheckInterval(Duration checkInterval)
+    {
+        this.checkInterval = Objects.requireNonNull(checkInterval);
+    }
+
+    private static class LatencyCounter
+    {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void add(long nanos)
+        {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+    }
+
+    /*
+        Team stats are stored in slots of primitive arrays, see LeaguePartitions for partition
+        indexes.
+     */
+    static class SeasonStats
+    {
+
+        private static final int DEFAULT_CAPACITY = 1024;
+        private static final int PARTITIONS = LeaguePartitions.COUNT;
+        private static final int RACES = Race.values().length;
+        private static final byte NO_RACE = -1;
+
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private final Set<Long> dirty = new HashSet<>();
+        private final int[] teamCounts = new int[PARTITIONS];
+        private final long[] gamesPlayed = new long[PARTITIONS * RACES];
+        private final int[] raceTeamCounts = new int[PARTITIONS * RACES];
+        private final LeagueStatsAggregate[] written = new LeagueStatsAggregate[PARTITIONS];
+        private int[] partitions = new int[DEFAULT_CAPACITY];
+        private byte[] races = new byte[DEFAULT_CAPACITY];
+        private int[] teamGamesPlayed = new int[DEFAULT_CAPACITY * RACES];
+        private int slotCount;
+        private Instant checkedAt = SC2Pulse.instant();
+
+        private int size()
+        {
+            return slots.size();
+        }
+
+        private void put(TeamLeagueStats team)
+        {
+            Integer slot = slots.get(team.teamId());
+            if(slot == null)
+            {
+                slot = newSlot(team.teamId());
+            }
+            else
+            {
+                add(slot, -1);
+            }
+            partitions[slot] = LeaguePartitions.of(team.region(), team.queueType(), team.teamType(), team.leagueType());
+            races[slot] = team.race() == null ? NO_RACE : (byte) team.race().ordinal();
+            int gamesIx = slot * RACES;
+            teamGamesPlayed[gamesIx + Race.TERRAN.ordinal()] = team.terranGamesPlayed();
+            teamGamesPlayed[gamesIx + Race.PROTOSS.ordinal()] = team.protossGamesPlayed();
+            teamGamesPlayed[gamesIx + Race.ZERG.ordinal()] = team.zergGamesPlayed();
+            teamGamesPlayed[gamesIx + Race.RANDOM.ordinal()] = team.randomGamesPlayed();
+            add(slot, 1);
+        }
+
+        /*
+            Slots of removed teams are not reused, teams are rarely removed.
+         */
+        private void remove(long id)
+        {
+            Integer slot = slots.remove(id);
+            if(slot != null) add(slot, -1);
+        }
+
+        private int newSlot(long id)
+        {
+            if(slotCount == partitions.length)
+            {
+                int capacity = partitions.length * 2;
+                partitions = Arrays.copyOf(partitions, capacity);
+                races = Arrays.copyOf(races, capacity);
+                teamGamesPlayed = Arrays.copyOf(teamGamesPlayed, capacity * RACES);
+            }
+            int slot = slotCount++;
+            slots.put(id, slot);
+            return slot;
+        }
+
+        private void add(int slot, int sign)
+        {
+            int partition = partitions[slot];
+            teamCounts[partition] += sign;
+            for(int race = 0; race < RACES; race++)
+                gamesPlayed[partition * RACES + race] += (long) sign * teamGamesPlayed[slot * RACES + race];
+            if(races[slot] != NO_RACE) raceTeamCounts[partition * RACES + races[slot]] += sign;
+        }
+
+        private Integer raceTeamCount(int partition, Race race)
+        {
+            int count = raceTeamCounts[partition * RACES + race.ordinal()];
+            return count == 0 ? null : count;
+        }
+
+        /**
+         * @return stats of leagues with teams by partition
+         */
+        private Map<Integer, LeagueStatsAggregate> calculate()
+        {
+            Map<Integer, LeagueStatsAggregate> leagues = new HashMap<>();
+            for(int partition = 0; partition < PARTITIONS; partition++)
+            {
+                if(teamCounts[partition] == 0) continue;
+
+                int gamesIx = partition * RACES;
+                leagues.put(partition, new LeagueStatsAggregate
+                (
+                    LeaguePartitions.region(partition),
+                    LeaguePartitions.queueType(partition),
+                    LeaguePartitions.teamType(partition),
+                    LeaguePartitions.leagueType(partition),
+                    teamCounts[partition],
+                    (int) gamesPlayed[gamesIx + Race.TERRAN.ordinal()],
+                    (int) gamesPlayed[gamesIx + Race.PROTOSS.ordinal()],
+                    (int) gamesPlayed[gamesIx + Race.ZERG.ordinal()],
+                    (int) gamesPlayed[gamesIx + Race.RANDOM.ordinal()],
+                    raceTeamCount(partition, Race.TERRAN),
+                    raceTeamCount(partition, Race.PROTOSS),
+                    raceTeamCount(partition, Race.ZERG),
+                    raceTeamCount(partition, Race.RANDOM)
+                ));
+            }
+            return leagues;
+        }
+
+        /**
+         * Stats are not marked as written until they are {@link #commit(List) committed}.
+         * Leagues without teams are skipped, the SQL version doesn't remove their stats too.
+         *
+         * @return leagues whose stats are different from the written stats
+         */
+        private List<LeagueStatsAggregate> collectChanged()
+        {
+            List<LeagueStatsAggregate> changed = new ArrayList<>();
+            for(Map.Entry<Integer, LeagueStatsAggregate> entry : calculate().entrySet())
+                if(!entry.getValue().equals(written[entry.getKey()])) changed.add(entry.getValue());
+            return changed;
+        }
+
+        private void commit(List<LeagueStatsAggregate> leagues)
+        {
+            for(LeagueStatsAggregate league : leagues) written[LeaguePartitions.of
+            (
+                league.region(),
+                league.queueType(),
+                league.teamType(),
+                league.leagueType()
+            )] = league;
+        }
+
+    }
+
+}
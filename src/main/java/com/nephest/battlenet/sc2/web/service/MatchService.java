@@ -21,6 +21,7 @@ import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
 import com.nephest.battlenet.sc2.model.local.dao.SC2MapDAO;
 import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.dao.VarDAO;
+import com.nephest.battlenet.sc2.model.local.inner.RangePartition;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
 import com.nephest.battlenet.sc2.service.EventService;
 import java.time.Duration;
@@ -43,6 +44,7 @@ import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.lang.NonNull;
 import org.springframework.retry.annotation.Retryable;
@@ -66,6 +68,7 @@ public class MatchService
     public static final int FAILED_MATCHES_MAX = 100;
     public static final Duration MATCH_UPDATE_FRAME = Duration.ofMinutes(50);
     public static final String REQUEST_LIMIT_PRIORITY_NAME = "match";
+    public static final int PARTITIONS_AHEAD = 2;
 
     private final BlizzardSC2API api;
     private final MatchDAO matchDAO;
@@ -83,6 +86,16 @@ public class MatchService
     private final Map<Region, Var<Set<PlayerCharacter>>> pendingCharacters = new EnumMap<>(Region.class);
     private TimerVar updateMatchesTask;
     private UpdateContext updateContext;
+    private final CharacterMatchWatermark matchWatermark;
+
+    @Value("${com.nephest.battlenet.sc2.match.watermark:#{'false'}}")
+    private boolean watermarkEnabled;
+
+    @Value("${com.nephest.battlenet.sc2.match.partition:#{'false'}}")
+    private boolean partitioning;
+
+    @Value("${com.nephest.battlenet.sc2.match.partition.length:#{'7'}}")
+    private int partitionLengthDays;
 
     @Autowired @Lazy
     private MatchService matchService;
@@ -114,6 +127,7 @@ public class MatchService
         this.eventService = eventService;
         this.updateService = updateService;
         this.globalContext = globalContext;
+        this.matchWatermark = new CharacterMatchWatermark(matchParticipantDAO::findLastMatchDates);
         subToEvents(eventService);
         initVars(varDAO);
         validationPredicate = DAOUtils.beanValidationPredicate(validator);
@@ -238,6 +252,59 @@ public class MatchService
         return Collections.unmodifiableSet(webRegions.getValue());
     }
 
+    public boolean isWatermarkEnabled()
+    {
+        return watermarkEnabled;
+    }
+
+    public void setWatermarkEnabled(boolean watermarkEnabled)
+    {
+        this.watermarkEnabled = watermarkEnabled;
+        if(!watermarkEnabled) matchWatermark.clear();
+        LOG.info("Match watermark: {}", watermarkEnabled);
+    }
+
+    public CharacterMatchWatermark.Stats getWatermarkStats()
+    {
+        return matchWatermark.getStats();
+    }
+
+    public boolean isPartitioning()
+    {
+        return partitioning;
+    }
+
+    public void setPartitioning(boolean partitioning)
+    {
+        this.partitioning = partitioning;
+        LOG.info("Match partitioning: {}", partitioning);
+    }
+
+    public int getPartitionLengthDays()
+    {
+        return partitionLengthDays;
+    }
+
+    public void setPartitionLengthDays(int partitionLengthDays)
+    {
+        this.partitionLengthDays = partitionLengthDays;
+    }
+
+    /**
+     * Creates future match partitions and drops expired ones. Does nothing if match tables
+     * are not partitioned.
+     *
+     * @return created partitions
+     */
+    public List<RangePartition> updatePartitions()
+    {
+        if(!matchDAO.isPartitioned()) return List.of();
+
+        List<RangePartition> created = matchDAO.createPartitions(partitionLengthDays, PARTITIONS_AHEAD);
+        for(RangePartition partition : matchDAO.findExpiredPartitions()) matchDAO.dropPartition(partition);
+        return created;
+    }
+
     private Mono<Void> update()
     {
         return copyAndClearPendingCharacters()
@@ -337,7 +404,11 @@ public class MatchService
     {
         return saveMatches(pendingCharacters)
             .reduce(0, Integer::sum)
-            .doOnSuccess(count->LOG.info("Saved {} matches for {}", count, pendingCharacters.keySet()))
+            .doOnSuccess(count->
+            {
+                LOG.info("Saved {} matches for {}", count, pendingCharacters.keySet());
+                if(watermarkEnabled) LOG.info("Match watermark: {}", matchWatermark.getStats());
+            })
             .flatMap(this::postUpdate);
     }
 
@@ -347,7 +418,18 @@ public class MatchService
         (
             ()->
             {
+                if(partitioning)
+                {
+                    updatePartitions();
+                }
+                //default partitions reject new matches once range partitions exist
+                else if(matchDAO.isPartitioned() && matchDAO.hasRangePartitions())
+                {
+                    matchDAO.createPartitions(partitionLengthDays, PARTITIONS_AHEAD);
+                }
                 matchDAO.removeExpired();
+                int trimmed = matchWatermark.trim(SC2Pulse.offsetDateTime().minusDays(MatchDAO.TTL_DAYS));
+                if(trimmed > 0) LOG.info("Trimmed {} match watermarks", trimmed);
                 matchService.updateMeta(getUpdateContext());
                 if(api.isAutoForceRegion() && matchCount < 1)
                 {
@@ -398,9 +480,23 @@ public class MatchService
             .doOnComplete(()->{if(saveFailedCharacters) failedCharacters.add(errors);});
     }
 
+    /*
+        Matches are fetched for each character, but most of them were saved in previous cycles.
+        The watermark filters such matches out. Skipped matches are still counted as found
+        matches, the count is used to detect broken APIs.
+     */
     private Mono<Integer> saveMatches(List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> matches)
     {
-        return WebServiceUtil.blockingCallable(()->matchService.saveMatchesSync(matches));
+        if(!watermarkEnabled)
+            return WebServiceUtil.blockingCallable(()->matchService.saveMatchesSync(matches));
+
+        return WebServiceUtil.blockingCallable(()->
+        {
+            List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> fresh = matchWatermark.filter(matches);
+            int saved = fresh.isEmpty() ? 0 : matchService.saveMatchesSync(fresh);
+            matchWatermark.update(fresh);
+            return saved + matches.size() - fresh.size();
+        });
     }
 
     //This method fails in a rare occasion due to unknown reason. Retry for now, should be properly fixed later.
@@ -435,12 +531,14 @@ public class MatchService
         for(int i = 0; i < meta.size(); i++)
         {
             Tuple4<SC2Map, Match, BaseMatch.Decision, PlayerCharacterNaturalId> participant = meta.get(i);
+            Match savedMatch = updatedMatches.get(participant.getT2());
             participantBatch[i] = new MatchParticipant
             (
-                updatedMatches.get(participant.getT2()).getId(),
+                savedMatch.getId(),
                 ((PlayerCharacter) participant.getT4()).getId(),
                 participant.getT3()
             );
+            participantBatch[i].setMatchDate(savedMatch.getDate());
         }
         matchParticipantDAO.merge(Set.copyOf(Arrays.asList(participantBatch)));
         LOG.debug("Saved {} matches", matches.size());
@@ -0,0 +1,328 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.dao.PopulationStateDAO;
+import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
+import com.nephest.battlenet.sc2.model.local.inner.LeaguePopulation;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ *     Delta based replacement of {@link PopulationStateDAO#takeSnapshot(Collection)}. Team
+ *     counts are kept in memory for every (season, region, queue, team type, league) and are
+ *     updated with teams that were inserted or moved by ladder updates. Snapshots are created
+ *     only for leagues whose league, region, or global counts have changed since the last
+ *     snapshot.
+ * </p>
+ * <p>
+ *     A season is seeded from the DB when its snapshot is taken for the first time. Counters
+ *     are periodically reconciled with the SQL counts, the season is reseeded if they differ.
+ *     Confirmed cheaters are excluded, the cheater list is refreshed on every snapshot.
+ * </p>
+ */
+@Component
+public class PopulationCounter
+extends IncrementalSeasonCache<PopulationCounter.SeasonPopulation>
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(PopulationCounter.class);
+
+    public static final Duration DEFAULT_RECONCILIATION_INTERVAL = Duration.ofHours(1);
+
+    private final PopulationStateDAO populationStateDAO;
+    private final TeamDAO teamDAO;
+    private Duration reconciliationInterval = DEFAULT_RECONCILIATION_INTERVAL;
+
+    @Autowired
+    public PopulationCounter
+    (
+        PopulationStateDAO populationStateDAO,
+        TeamDAO teamDAO,
+        @Value("${com.nephest.battlenet.sc2.population.delta:#{'false'}}") boolean enabled
+    )
+    {
+        super(enabled);
+        this.populationStateDAO = populationStateDAO;
+        this.teamDAO = teamDAO;
+    }
+
+    @Override
+    protected void apply(SeasonPopulation population, Team team)
+    {
+        population.put(team);
+    }
+
+    /**
+     * Takes population snapshots of the seasons. Make sure you updated league stats before
+     * calling this method, the SQL version depends on them.
+     *
+     * @param seasons target seasons
+     */
+    public void takeSnapshot(Collection<Integer> seasons)
+    {
+        if(!isEnabled())
+        {
+            populationStateDAO.takeSnapshot(seasons);
+            return;
+        }
+
+        for(int season : seasons) takeSnapshot(season);
+    }
+
+    private void takeSnapshot(int season)
+    {
+        Set<Long> cheaters = new HashSet<>(teamDAO.findCheaterTeamIds(season));
+        List<LeaguePopulation> changed;
+        SeasonPopulation population;
+        synchronized(this)
+        {
+            population = getSeason(season);
+            if(population == null) population = seed(season, cheaters);
+            updateCheaters(population, cheaters);
+            changed = population.collectChanged();
+        }
+        try
+        {
+            populationStateDAO.takeSnapshot(season, changed);
+        }
+        catch (RuntimeException e)
+        {
+            //persisted counts are unknown after a failed write, reseed the season next time
+            removeSeason(season);
+            throw e;
+        }
+        boolean reconcile;
+        synchronized(this)
+        {
+            population.commit(changed);
+            reconcile = !population.reconciledAt.plus(reconciliationInterval).isAfter(SC2Pulse.instant());
+        }
+        LOG.debug("Created {} population snapshots for {} season", changed.size(), season);
+        if(reconcile) reconcile(season);
+    }
+
+    private SeasonPopulation seed(int season, Set<Long> cheaters)
+    {
+        SeasonPopulation population = new SeasonPopulation();
+        forEachTeam(teamDAO, season, cheaters, population::put);
+        population.cheaters.addAll(cheaters);
+        putSeason(season, population);
+        LOG.info("Seeded population counter: season {}, {} teams", season, population.size());
+        return population;
+    }
+
+    private void updateCheaters(SeasonPopulation population, Set<Long> cheaters)
+    {
+        CheaterDiff diff = updateCheaters(population.cheaters, cheaters);
+        if(diff.isEmpty()) return;
+
+        for(Long id : diff.added()) population.remove(id);
+        for(Team team : teamDAO.findByIds(diff.removed())) population.put(team);
+    }
+
+    /**
+     * Compares counters with SQL counts. The season is reseeded on the next snapshot if there
+     * are any mismatches.
+     *
+     * @param season target season
+     * @return number of mismatched leagues, including leagues that are missing from either side
+     */
+    public int reconcile(int season)
+    {
+        List<LeaguePopulation> expected = populationStateDAO.findLeaguePopulation(season);
+        List<String> examples = new ArrayList<>();
+        int mismatches = 0;
+        synchronized(this)
+        {
+            SeasonPopulation population = getSeason(season);
+            if(population == null) return expected.size();
+
+            Map<Integer, LeaguePopulation> actual = population.calculate();
+            for(LeaguePopulation league : expected)
+            {
+                LeaguePopulation actualLeague = actual.remove(LeaguePartitions.of
+                (
+                    league.region(),
+                    league.queueType(),
+                    league.teamType(),
+                    league.leagueType()
+                ));
+                if(league.equals(actualLeague)) continue;
+
+                mismatches++;
+                addMismatch(examples, league, actualLeague);
+            }
+            for(LeaguePopulation league : actual.values())
+            {
+                if(league.leagueTeamCount() == 0) continue;
+
+                mismatches++;
+                addMismatch(examples, null, league);
+            }
+            if(mismatches > 0)
+            {
+                removeSeason(season);
+            }
+            else
+            {
+                population.reconciledAt = SC2Pulse.instant();
+            }
+        }
+        if(mismatches > 0)
+        {
+            LOG.warn("Population counter mismatch: season {}, {} leagues, {}", season, mismatches, examples);
+        }
+        else
+        {
+            LOG.debug("Population counter reconciled: season {}", season);
+        }
+        return mismatches;
+    }
+
+    public synchronized Duration getReconciliationInterval()
+    {
+        return reconciliationInterval;
+    }
+
+    public synchronized void setReconciliationInterval(Duration reconciliationInterval)
+    {
+        this.reconciliationInterval = Objects.requireNonNull(reconciliationInterval);
+    }
+
+    /*
+        Counts are indexed by league partitions, see LeaguePartitions.
+     */
+    static class SeasonPopulation
+    {
+
+        private static final int PARTITIONS = LeaguePartitions.COUNT;
+
+        private final Map<Long, Integer> teams = new HashMap<>();
+        private final Set<Long> cheaters = new HashSet<>();
+        private final int[] counts = new int[PARTITIONS];
+        private final int[] persistedGlobalCounts = new int[PARTITIONS];
+        private final int[] persistedRegionCounts = new int[PARTITIONS];
+        private final int[] persistedLeagueCounts = new int[PARTITIONS];
+        private Instant reconciledAt = SC2Pulse.instant();
+
+        private SeasonPopulation()
+        {
+            Arrays.fill(persistedLeagueCounts, -1);
+        }
+
+        private int size()
+        {
+            return teams.size();
+        }
+
+        private void put(Team team)
+        {
+            if(cheaters.contains(team.getId())) return;
+
+            int partition = LeaguePartitions.of(team);
+            Integer previous = teams.put(team.getId(), partition);
+            if(previous != null)
+            {
+                if(previous == partition) return;
+                counts[previous]--;
+            }
+            counts[partition]++;
+        }
+
+        private void remove(long id)
+        {
+            Integer partition = teams.remove(id);
+            if(partition != null) counts[partition]--;
+        }
+
+        /**
+         * @return league populations by partition, including leagues with 0 teams
+         */
+        private Map<Integer, LeaguePopulation> calculate()
+        {
+            int[] regionCounts = new int[LeaguePartitions.REGION_COUNT];
+            int[] globalCounts = new int[LeaguePartitions.GLOBAL_COUNT];
+            for(int partition = 0; partition < PARTITIONS; partition++)
+            {
+                regionCounts[LeaguePartitions.toRegion(partition)] += counts[partition];
+                globalCounts[LeaguePartitions.toGlobal(partition)] += counts[partition];
+            }
+
+            Map<Integer, LeaguePopulation> populations = new HashMap<>();
+            for(int partition = 0; partition < PARTITIONS; partition++)
+            {
+                if(counts[partition] == 0 && persistedLeagueCounts[partition] == -1) continue;
+
+                populations.put(partition, new LeaguePopulation
+                (
+                    LeaguePartitions.region(partition),
+                    LeaguePartitions.queueType(partition),
+                    LeaguePartitions.teamType(partition),
+                    LeaguePartitions.leagueType(partition),
+                    globalCounts[LeaguePartitions.toGlobal(partition)],
+                    regionCounts[LeaguePartitions.toRegion(partition)],
+                    counts[partition]
+                ));
+            }
+            return populations;
+        }
+
+        /**
+         * Snapshots are not marked as persisted until they are {@link #commit(List) committed}.
+         *
+         * @return leagues whose counts are different from the persisted counts
+         */
+        private List<LeaguePopulation> collectChanged()
+        {
+            List<LeaguePopulation> changed = new ArrayList<>();
+            for(Map.Entry<Integer, LeaguePopulation> entry : calculate().entrySet())
+            {
+                int partition = entry.getKey();
+                LeaguePopulation population = entry.getValue();
+                if(population.globalTeamCount() != persistedGlobalCounts[partition]
+                    || population.regionTeamCount() != persistedRegionCounts[partition]
+                    || population.leagueTeamCount() != persistedLeagueCounts[partition])
+                        changed.add(population);
+            }
+            return changed;
+        }
+
+        private void commit(List<LeaguePopulation> populations)
+        {
+            for(LeaguePopulation population : populations)
+            {
+                int partition = LeaguePartitions.of
+                (
+                    population.region(),
+                    population.queueType(),
+                    population.teamType(),
+                    population.leagueType()
+                );
+                persistedGlobalCounts[partition] = population.globalTeamCount();
+                persistedRegionCounts[partition] = population.regionTeamCount();
+                persistedLeagueCounts[partition] = population.leagueTeamCount();
+            }
+        }
+
+    }
+
+}
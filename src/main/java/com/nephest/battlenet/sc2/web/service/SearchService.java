@@ -1,15 +1,14 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.web.service;
 
+import com.nephest.battlenet.sc2.cache.SearchSuggestionIndex;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.SocialMedia;
 import com.nephest.battlenet.sc2.model.local.Account;
 import com.nephest.battlenet.sc2.model.local.PlayerCharacterLink;
-import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
-import com.nephest.battlenet.sc2.model.local.dao.ClanDAO;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterLinkDAO;
 import com.nephest.battlenet.sc2.model.local.ladder.LadderDistinctCharacter;
@@ -54,8 +53,7 @@ public class SearchService
     public static final int ID_SEARCH_MAX_SEASONS = 10;
 
     private final PlayerCharacterDAO playerCharacterDAO;
-    private final AccountDAO accountDAO;
-    private final ClanDAO clanDAO;
+    private final SearchSuggestionIndex searchSuggestionIndex;
     private final LadderCharacterDAO ladderCharacterDAO;
     private final PlayerCharacterLinkDAO playerCharacterLinkDAO;
     private final Map<SocialMedia, ExternalCharacterSearch> externalSearch;
@@ -85,16 +83,14 @@ public class SearchService
     public SearchService
     (
         PlayerCharacterDAO playerCharacterDAO,
-        AccountDAO accountDAO,
-        ClanDAO clanDAO,
+        SearchSuggestionIndex searchSuggestionIndex,
         LadderCharacterDAO ladderCharacterDAO,
         PlayerCharacterLinkDAO playerCharacterLinkDAO,
         List<ExternalCharacterSearch> externalSearches
     )
     {
         this.playerCharacterDAO = playerCharacterDAO;
-        this.accountDAO = accountDAO;
-        this.clanDAO = clanDAO;
+        this.searchSuggestionIndex = searchSuggestionIndex;
         this.ladderCharacterDAO = ladderCharacterDAO;
         this.playerCharacterLinkDAO = playerCharacterLinkDAO;
         externalSearch = externalSearches.stream()
@@ -107,21 +103,39 @@ public class SearchService
             ));
     }
 
-    @Cacheable(cacheNames = "character-search-suggestions")
+    /**
+     * @return true if search suggestions are served by DAO queries and should be cached.
+     * The index is updated immediately, its suggestions are never cached because cached
+     * suggestions would hide new names and show removed names.
+     */
+    public boolean isSuggestionCacheable()
+    {
+        return !searchSuggestionIndex.isLoaded();
+    }
+
+    @Cacheable
+    (
+        cacheNames = "character-search-suggestions",
+        condition = "#root.target.suggestionCacheable"
+    )
     public List<String> suggest(String term, int limit)
     {
         switch(SearchType.of(term))
         {
             case BATTLE_TAG:
-                return accountDAO.findBattleTags(term, limit);
+                return searchSuggestionIndex.findBattleTags(term, limit);
             case CLAN:
-                return clanTagsToSearchTerms(clanDAO.findTags(extractClanTag(term), limit));
+                return clanTagsToSearchTerms(searchSuggestionIndex.findClanTags(extractClanTag(term), limit));
             default:
-                return playerCharacterDAO.findNamesWithoutDiscriminator(term, limit);
+                return searchSuggestionIndex.findNamesWithoutDiscriminator(term, limit);
         }
     }
 
-    @Cacheable(cacheNames = "character-search-suggestions")
+    @Cacheable
+    (
+        cacheNames = "character-search-suggestions",
+        condition = "#root.target.suggestionCacheable"
+    )
     public List<String> suggestIfQuick(String term, int limit)
     {
         return isQuickSearch(term) ? suggest(term, limit) : List.of();
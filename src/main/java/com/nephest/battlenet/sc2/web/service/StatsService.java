@@ -3,8 +3,11 @@
 
 package com.nephest.battlenet.sc2.web.service;
 
+import com.nephest.battlenet.sc2.cache.LadderScanCache;
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.BaseLeagueTier;
+import com.nephest.battlenet.sc2.model.Partition;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.TeamType;
@@ -34,22 +37,23 @@ import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
 import com.nephest.battlenet.sc2.model.local.dao.DAOUtils;
 import com.nephest.battlenet.sc2.model.local.dao.DivisionDAO;
 import com.nephest.battlenet.sc2.model.local.dao.FastTeamDAO;
+import com.nephest.battlenet.sc2.model.local.dao.LadderValidatorDAO;
 import com.nephest.battlenet.sc2.model.local.dao.LeagueDAO;
-import com.nephest.battlenet.sc2.model.local.dao.LeagueStatsDAO;
 import com.nephest.battlenet.sc2.model.local.dao.LeagueTierDAO;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterStatsDAO;
-import com.nephest.battlenet.sc2.model.local.dao.PopulationStateDAO;
 import com.nephest.battlenet.sc2.model.local.dao.QueueStatsDAO;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamMemberDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamStateDAO;
 import com.nephest.battlenet.sc2.model.local.dao.VarDAO;
+import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
 import com.nephest.battlenet.sc2.model.local.inner.ClanMemberEventData;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
 import com.nephest.battlenet.sc2.service.EventService;
 import com.nephest.battlenet.sc2.util.LogUtil;
+import com.nephest.battlenet.sc2.util.MiscUtil;
+import com.nephest.battlenet.sc2.util.PartitionedDbWriter;
 import com.nephest.battlenet.sc2.web.SeasonService;
 import jakarta.annotation.PostConstruct;
 import java.time.Duration;
@@ -59,7 +63,6 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -82,7 +85,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.Validator;
 import reactor.core.publisher.Flux;
@@ -342,6 +347,13 @@ public class StatsService
     @Value("${com.nephest.battlenet.sc2.ladder.forceUpdate:#{'false'}}")
     private boolean forceUpdate;
 
+    @Value("${com.nephest.battlenet.sc2.ladder.conditional:#{'false'}}")
+    private boolean conditionalLadderRequests;
+
+    //opt-in, new games of skipped ladders are saved up to N cycles late
+    @Value("${com.nephest.battlenet.sc2.ladder.conditional.skip.max:#{'0'}}")
+    private int maxSkippedLadderCycles;
+
     private final Map<Region, InstantVar> forcedUpdateInstants = new EnumMap<>(Region.class);
     private final Map<Region, InstantVar> forcedAlternativeUpdateInstants = new EnumMap<>(Region.class);
     private final Map<Region, LongVar> partialUpdates = new EnumMap<>(Region.class);
@@ -354,25 +366,29 @@ public class StatsService
 
     private AlternativeLadderService alternativeLadderService;
     private BlizzardSC2API api;
-    private SeasonDAO seasonDao;
+    private SeasonRegistry seasonRegistry;
     private LeagueDAO leagueDao;
     private LeagueTierDAO leagueTierDao;
     private DivisionDAO divisionDao;
     private TeamDAO teamDao;
     private FastTeamDAO fastTeamDAO;
+    private TeamRankEngine teamRankEngine;
     private TeamStateDAO teamStateDAO;
     private AccountDAO accountDao;
     private PlayerCharacterDAO playerCharacterDao;
     private TeamMemberDAO teamMemberDao;
     private QueueStatsDAO queueStatsDAO;
-    private LeagueStatsDAO leagueStatsDao;
+    private LeagueStatsAggregator leagueStatsAggregator;
     private PlayerCharacterStatsDAO playerCharacterStatsDAO;
-    private PopulationStateDAO populationStateDAO;
+    private PopulationCounter populationCounter;
     private VarDAO varDAO;
+    private LadderValidatorDAO ladderValidatorDAO;
     private SeasonService seasonService;
     private SC2WebServiceUtil sc2WebServiceUtil;
     private ConversionService conversionService;
     private ExecutorService dbExecutorService;
+    private PartitionedDbWriter ladderDbWriter;
+    private LadderBatchPipeline ladderBatchPipeline;
     private ClanService clanService;
     private EventService eventService;
     private Predicate<BlizzardTeam> teamValidationPredicate;
@@ -384,51 +400,59 @@ public class StatsService
     (
         AlternativeLadderService alternativeLadderService,
         BlizzardSC2API api,
-        SeasonDAO seasonDao,
+        SeasonRegistry seasonRegistry,
         LeagueDAO leagueDao,
         LeagueTierDAO leagueTierDao,
         DivisionDAO divisionDao,
         TeamDAO teamDao,
         FastTeamDAO fastTeamDAO,
+        TeamRankEngine teamRankEngine,
         TeamStateDAO teamStateDAO,
         AccountDAO accountDao,
         PlayerCharacterDAO playerCharacterDao,
         TeamMemberDAO teamMemberDao,
         QueueStatsDAO queueStatsDAO,
-        LeagueStatsDAO leagueStatsDao,
+        LeagueStatsAggregator leagueStatsAggregator,
         PlayerCharacterStatsDAO playerCharacterStatsDAO,
-        PopulationStateDAO populationStateDAO,
+        PopulationCounter populationCounter,
         VarDAO varDAO,
+        LadderValidatorDAO ladderValidatorDAO,
         SeasonService seasonService,
         SC2WebServiceUtil sc2WebServiceUtil,
         @Qualifier("sc2StatsConversionService") ConversionService conversionService,
         Validator validator,
         @Qualifier("dbExecutorService") ExecutorService dbExecutorService,
+        PartitionedDbWriter ladderDbWriter,
+        LadderBatchPipeline ladderBatchPipeline,
         ClanService clanService,
         EventService eventService
     )
     {
         this.alternativeLadderService = alternativeLadderService;
         this.api = api;
-        this.seasonDao = seasonDao;
+        this.seasonRegistry = seasonRegistry;
         this.leagueDao = leagueDao;
         this.leagueTierDao = leagueTierDao;
         this.divisionDao = divisionDao;
         this.teamDao = teamDao;
         this.fastTeamDAO = fastTeamDAO;
+        this.teamRankEngine = teamRankEngine;
         this.teamStateDAO = teamStateDAO;
         this.accountDao = accountDao;
         this.playerCharacterDao = playerCharacterDao;
         this.teamMemberDao = teamMemberDao;
         this.queueStatsDAO = queueStatsDAO;
-        this.leagueStatsDao = leagueStatsDao;
+        this.leagueStatsAggregator = leagueStatsAggregator;
         this.playerCharacterStatsDAO = playerCharacterStatsDAO;
-        this.populationStateDAO = populationStateDAO;
+        this.populationCounter = populationCounter;
         this.varDAO = varDAO;
+        this.ladderValidatorDAO = ladderValidatorDAO;
         this.seasonService = seasonService;
         this.sc2WebServiceUtil = sc2WebServiceUtil;
         this.conversionService = conversionService;
         this.dbExecutorService = dbExecutorService;
+        this.ladderDbWriter = ladderDbWriter;
+        this.ladderBatchPipeline = ladderBatchPipeline;
         this.clanService = clanService;
         this.eventService = eventService;
         this.teamValidationPredicate = DAOUtils.beanValidationPredicate(validator);
@@ -474,6 +498,16 @@ public class StatsService
         }
     }
 
+    public boolean isConditionalLadderRequests()
+    {
+        return conditionalLadderRequests;
+    }
+
+    public void setConditionalLadderRequests(boolean conditionalLadderRequests)
+    {
+        this.conditionalLadderRequests = conditionalLadderRequests;
+    }
+
     protected void setNestedService(StatsService statsService)
     {
         this.statsService = statsService;
@@ -494,11 +528,11 @@ public class StatsService
         return forcedAlternativeUpdateInstants;
     }
 
-    @CacheEvict(cacheNames="fqdn-ladder-scan", allEntries=true)
+    @CacheEvict(cacheResolver = LadderScanCache.RESOLVER, allEntries = true)
     public void updateAll(Map<Region, Map<QueueType, Set<BaseLeague.LeagueType>>> data)
     {
         long start = System.currentTimeMillis();
-        int lastSeasonIx = api.getLastSeason(Region.EU, seasonDao.getMaxBattlenetId()).block().getId() + 1;
+        int lastSeasonIx = api.getLastSeason(Region.EU, seasonRegistry.getMaxBattlenetId()).block().getId() + 1;
         for(int season = BlizzardSC2API.FIRST_SEASON; season < lastSeasonIx; season++)
         {
             updateSeason(season, data);
@@ -510,7 +544,10 @@ public class StatsService
         LOG.info("Updated all after {} seconds", seconds);
     }
 
-    @CacheEvict(cacheNames="fqdn-ladder-scan", allEntries=true)
+    /*
+        The ladder scan cache is invalidated by the ladder update event, only the touched
+        (region, season, queue) tuples are evicted. See LadderScanCache.
+     */
     public Map<Region, LadderUpdateTaskContext<Void>> updateCurrent
     (
         Map<Region, Map<QueueType, Set<BaseLeague.LeagueType>>> data,
@@ -533,6 +570,9 @@ public class StatsService
 
         Duration duration = Duration.between(start, SC2Pulse.instant());
         LOG.info("Updated current for {} after {}", ctx, duration);
+        if(conditionalLadderRequests)
+            for(Region region : data.keySet())
+                LOG.info("Conditional ladder requests {}: {}", region, api.getLadderValidators().getStats(region));
         return ctx;
     }
 
@@ -628,13 +668,13 @@ public class StatsService
     (int seasonId, boolean allStats)
     {
         if(allStats) queueStatsDAO.mergeCalculateForSeason(seasonId);
-        leagueStatsDao.mergeCalculateForSeason(seasonId);
+        leagueStatsAggregator.calculate(seasonId);
     }
 
     private void takePopulationSnapshot(Set<Integer> seasons)
     {
-        populationStateDAO.takeSnapshot(seasons);
-        for(Integer seasonId : seasons) teamDao.updateRanks(seasonId);
+        populationCounter.takeSnapshot(seasons);
+        for(Integer seasonId : seasons) teamRankEngine.updateRanks(seasonId);
     }
 
     private void updateSeason
@@ -646,7 +686,8 @@ public class StatsService
     {
         BlizzardSeason bSeason = api.getSeason(region, seasonId).block();
         Season season = seasonService.merge(Season.of(bSeason, region));
-        updateLeagues(bSeason, season, data, false);
+        //season stats are calculated after this update, wait for the ladders to be saved
+        MiscUtil.awaitAndLogExceptions(updateLeagues(bSeason, season, data, false), false);
         LOG.debug("Updated leagues: {} {}", seasonId, region);
     }
 
@@ -804,13 +845,78 @@ public class StatsService
         List<Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> ladderIds
     )
     {
-        return api.getLadders(ladderIds, -1, Map.of())
-            .buffer(LADDER_BATCH_SIZE)
-            .map(l->dbExecutorService.submit(()->statsService.saveLadders(season, l), (Void) null))
-            .collectList()
-            .block();
+        //unchanged ladders are skipped by conditional requests, there is nothing to save
+        Flux<Tuple2<BlizzardLadder, Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>>> ladders =
+            conditionalLadderRequests
+                ? api.getLaddersIfModified(getConditionalLadderIds(ladderIds), null)
+                : api.getLadders(ladderIds, -1, Map.of());
+        /*
+            The pipeline is bounded, fetchers are slowed down when the DB is busy. The update
+            thread doesn't wait for the pipeline, the returned task is completed when all ladders
+            are saved.
+         */
+        Future<Void> task = ladderBatchPipeline.process
+        (
+            season.getRegion(),
+            ladders,
+            l->saveLaddersOrResetValidators(season, l),
+            r->ladderDbWriter.runAsync(season.getRegion(), r)
+        )
+            .toFuture();
+        return List.of(task);
+    }
+
+    private List<Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> getConditionalLadderIds
+    (
+        List<Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> ladderIds
+    )
+    {
+        LadderValidatorStore validators = api.getLadderValidators();
+        if(!validators.isLoaded())
+        {
+            synchronized(validators)
+            {
+                if(!validators.isLoaded()) validators.load(ladderValidatorDAO.findAll());
+            }
+        }
+        return ladderIds.stream()
+            .filter(d->validators.tryRequest(d.getT2(), d.getT4().getLadderId(), maxSkippedLadderCycles))
+            .toList();
     }
 
+    @Scheduled(cron="0 10 6 * * *")
+    public int removeExpiredLadderValidators()
+    {
+        return ladderValidatorDAO.removeExpired();
+    }
+
+    private void saveLaddersOrResetValidators
+    (
+        Season season,
+        List<Tuple2<BlizzardLadder, Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>>> ladders
+    )
+    {
+        try
+        {
+            statsService.saveLadders(season, ladders);
+        }
+        catch (RuntimeException ex)
+        {
+            //ladders weren't saved, the next request must be unconditional
+            for(Tuple2<BlizzardLadder, Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> l : ladders)
+                api.getLadderValidators().remove(l.getT2().getT2(), l.getT2().getT4().getLadderId());
+            throw ex;
+        }
+    }
+
+    /*
+        Region-specific rows(leagues, divisions, teams, characters, team members, clans) are
+        saved in the region lane. Accounts can be shared between regions of the same account
+        partition, they are upserted in a short autonomous transaction of the shared stage of
+        that partition. The stage lock is released before the regional writes, so regions of
+        the same partition wait for each other only while accounts are merged, and commit
+        their regional writes in parallel.
+     */
     @Transactional
     public void saveLadders
     (
@@ -818,12 +924,14 @@ public class StatsService
         List<Tuple2<BlizzardLadder, Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>>> ladders
     )
     {
+        List<Tuple3<Account, PlayerCharacter, TeamMember>> members = new ArrayList<>();
+        List<ClanMemberEventData> clans = new ArrayList<>();
         for(Tuple2<BlizzardLadder, Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>> l : ladders)
         {
             League league = leagueDao.merge(League.of(season, l.getT2().getT1()));
             LeagueTier tier = leagueTierDao.merge(LeagueTier.of(league, l.getT2().getT3()));
             Division division = saveDivision(season, league, tier, l.getT2().getT4());
-            int teams = updateTeams(l.getT1(), season, league, tier, division);
+            int teams = updateTeams(l.getT1(), season, league, tier, division, members, clans);
             LOG.debug
             (
                 "Ladder saved: {} {} {}({}/{} teams)",
@@ -834,6 +942,18 @@ public class StatsService
                 l.getT1().getTeams().length
             );
         }
+        ladderDbWriter.runSharedAutonomous
+        (
+            Partition.of(season.getRegion()).getId(),
+            ()->statsService.mergeAccounts(members)
+        );
+        saveRegionalEntities(members, clans);
+        //validators are saved in the same transaction, so they always match saved ladders
+        if(conditionalLadderRequests) ladderValidatorDAO.merge(api.getLadderValidators().getEntries
+        (
+            season.getRegion(),
+            ladders.stream().map(l->l.getT2().getT4().getLadderId()).toList()
+        ));
     }
 
     public Division saveDivision
@@ -864,13 +984,33 @@ public class StatsService
         LeagueTier tier,
         Division division
     )
+    {
+        List<Tuple3<Account, PlayerCharacter, TeamMember>> members = new ArrayList<>();
+        List<ClanMemberEventData> clans = new ArrayList<>();
+        int teams = updateTeams(ladder, season, league, tier, division, members, clans);
+        saveSharedEntities(members, clans);
+        return teams;
+    }
+
+    /**
+     * Saves teams and accumulates their members. Members and clans must be saved by
+     * {@link #saveSharedEntities(List, List)}.
+     */
+    private int updateTeams
+    (
+        BlizzardLadder ladder,
+        Season season,
+        League league,
+        LeagueTier tier,
+        Division division,
+        List<Tuple3<Account, PlayerCharacter, TeamMember>> members,
+        List<ClanMemberEventData> clans
+    )
     {
         BlizzardTeam[] bTeams = ladder.getTeams();
         int memberCount = league.getQueueType().getTeamFormat().getMemberCount(league.getTeamType());
-        List<Tuple3<Account, PlayerCharacter, TeamMember>> members = new ArrayList<>(bTeams.length * memberCount);
-        List<ClanMemberEventData> clans = new ArrayList<>();
-        Integer curSeason = seasonDao.getMaxBattlenetId(season.getRegion()) == null
-            ? 0 : seasonDao.getMaxBattlenetId(season.getRegion());
+        Integer maxSeason = seasonRegistry.getMaxBattlenetId(season.getRegion());
+        Integer curSeason = maxSeason == null ? 0 : maxSeason;
         List<Tuple2<Team, BlizzardTeam>> validTeams = Arrays.stream(bTeams)
             .filter(teamValidationPredicate.and(t->isValidTeam(t, memberCount)))
             .map(bTeam->Tuples.of(Team.of(season, league, tier, division, bTeam, teamDao), bTeam))
@@ -879,6 +1019,9 @@ public class StatsService
 
         Set<Team> mergedTeams = teamDao
             .merge(fastTeamDAO.merge(validTeams.stream().map(Tuple2::getT1).collect(Collectors.toSet())));
+        teamRankEngine.update(mergedTeams);
+        populationCounter.update(mergedTeams);
+        leagueStatsAggregator.update(mergedTeams);
         validTeams.stream()
             .filter(t->t.getT1().getId() != null)
             .forEach(t->{
@@ -887,11 +1030,33 @@ public class StatsService
                 if(season.getBattlenetId().equals(curSeason))
                     pendingLadderData.getTeams().add(t.getT1().getId());
             });
-        saveMembersConcurrently(members);
+        return mergedTeams.size();
+    }
+
+    private void saveSharedEntities
+    (
+        List<Tuple3<Account, PlayerCharacter, TeamMember>> members,
+        List<ClanMemberEventData> clans
+    )
+    {
+        mergeAccounts(members, accountDao);
+        saveRegionalEntities(members, clans);
+    }
+
+    /**
+     * Saves characters, team members and clans of members whose accounts were merged by
+     * {@link #mergeAccounts(List, AccountDAO)}.
+     */
+    private void saveRegionalEntities
+    (
+        List<Tuple3<Account, PlayerCharacter, TeamMember>> members,
+        List<ClanMemberEventData> clans
+    )
+    {
+        mergeCharacters(members, playerCharacterDao, teamMemberDao);
         clanService.saveClans(clans);
         pendingLadderData.getCharacters()
             .addAll(members.stream().map(Tuple3::getT2).collect(Collectors.toList()));
-        return mergedTeams.size();
     }
 
     //cross field validation
@@ -907,7 +1072,7 @@ public class StatsService
             && (team.getWins() > 0 || team.getLosses() > 0 || team.getTies() > 0);
     }
 
-    private void extractTeamMembers
+    static void extractTeamMembers
     (
         BlizzardLadder ladder,
         BlizzardTeamMember[] bMembers,
@@ -947,25 +1112,61 @@ public class StatsService
         );
     }
 
-    //this ensures the consistent order for concurrent entities(accounts and players)
-    private void saveMembersConcurrently(List<Tuple3<Account, PlayerCharacter, TeamMember>> members)
+    /**
+     * Merges accounts in a new transaction. Account merge is idempotent, so merged accounts
+     * don't have to be rolled back with the ladder transaction.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void mergeAccounts(List<Tuple3<Account, PlayerCharacter, TeamMember>> members)
     {
-        if(members.size() == 0) return;
-
-        Set<TeamMember> teamMembers = new HashSet<>(members.size(), 1.0F);
+        mergeAccounts(members, accountDao);
+    }
 
-        members.sort(Comparator.comparing(Tuple2::getT1, Account.NATURAL_ID_COMPARATOR));
-        for(Tuple3<Account, PlayerCharacter, TeamMember> curMembers : members)
-            accountDao.merge(curMembers.getT1(), curMembers.getT2());
+    //set-based merges acquire locks in the natural id order, this prevents deadlocks
+    static void mergeAccounts
+    (
+        List<Tuple3<Account, PlayerCharacter, TeamMember>> members,
+        AccountDAO accountDao
+    )
+    {
+        if(members.size() == 0) return;
 
-        members.sort(Comparator.comparing(Tuple2::getT2, PlayerCharacter.NATURAL_ID_COMPARATOR));
+        Map<PlayerCharacter, Account> accounts = accountDao.merge(members.stream()
+                .map(m->new AccountCharacterData(m.getT1(), m.getT2(), null, null))
+                .collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(
+                AccountCharacterData::getCharacter,
+                AccountCharacterData::getAccount,
+                (l, r)->l
+            ));
         for(Tuple3<Account, PlayerCharacter, TeamMember> curMembers : members)
         {
-            Account account = curMembers.getT1();
+            Long accountId = accounts.get(curMembers.getT2()).getId();
+            curMembers.getT1().setId(accountId);
+            curMembers.getT2().setAccountId(accountId);
+        }
+    }
 
-            curMembers.getT2().setAccountId(account.getId());
-            PlayerCharacter character = playerCharacterDao.merge(curMembers.getT2());
+    static void mergeCharacters
+    (
+        List<Tuple3<Account, PlayerCharacter, TeamMember>> members,
+        PlayerCharacterDAO playerCharacterDao,
+        TeamMemberDAO teamMemberDao
+    )
+    {
+        if(members.size() == 0) return;
 
+        Set<TeamMember> teamMembers = new HashSet<>(members.size(), 1.0F);
+        Map<PlayerCharacter, PlayerCharacter> characters = playerCharacterDao.merge(members.stream()
+                .map(Tuple2::getT2)
+                .collect(Collectors.toSet()))
+            .stream()
+            .collect(Collectors.toMap(Function.identity(), Function.identity()));
+        for(Tuple3<Account, PlayerCharacter, TeamMember> curMembers : members)
+        {
+            PlayerCharacter character = characters.get(curMembers.getT2());
+            curMembers.getT2().setId(character.getId());
             curMembers.getT3().setCharacterId(character.getId());
             teamMembers.add(curMembers.getT3());
         }
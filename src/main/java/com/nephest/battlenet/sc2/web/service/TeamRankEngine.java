@@ -0,0 +1,430 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
+import com.nephest.battlenet.sc2.model.local.inner.TeamRank;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>
+ *     Incremental replacement of {@link TeamDAO#updateRanks(int)}. Team ratings are kept in
+ *     rating-indexed Fenwick trees, one tree per rank partition: (queue, team type),
+ *     (queue, team type, region), and (queue, team type, region, league). The rank of a team
+ *     is the number of teams with a higher rating in the partition + 1, which is the
+ *     {@code RANK() OVER(ORDER BY rating DESC)} semantics of the SQL version.
+ * </p>
+ * <p>
+ *     A season is seeded from the DB when its ranks are updated for the first time, and is
+ *     then updated with teams that were changed by ladder updates. Only teams whose ranks
+ *     actually moved are written back. Confirmed cheaters are excluded from ranking and their
+ *     ranks are nullified, the cheater list is refreshed on every rank update.
+ * </p>
+ * <p>
+ *     The SQL version is used when the engine is disabled. The verification mode compares
+ *     the engine ranks with the SQL ranks after every update and reseeds the season if they
+ *     differ.
+ * </p>
+ */
+@Component
+public class TeamRankEngine
+extends IncrementalSeasonCache<TeamRankEngine.SeasonRanks>
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(TeamRankEngine.class);
+
+    private final TeamDAO teamDAO;
+    private boolean verificationEnabled;
+
+    @Autowired
+    public TeamRankEngine
+    (
+        TeamDAO teamDAO,
+        @Value("${com.nephest.battlenet.sc2.team.rank.incremental:#{'false'}}") boolean enabled,
+        @Value("${com.nephest.battlenet.sc2.team.rank.incremental.verify:#{'false'}}") boolean verificationEnabled
+    )
+    {
+        super(enabled);
+        this.teamDAO = teamDAO;
+        this.verificationEnabled = verificationEnabled;
+    }
+
+    @Override
+    protected void apply(SeasonRanks ranks, Team team)
+    {
+        ranks.put(team, false);
+    }
+
+    /**
+     * Updates ranks and population state ids of the season. Make sure you called
+     * {@link com.nephest.battlenet.sc2.model.local.dao.PopulationStateDAO#takeSnapshot(Collection) PopulationStateDAO.takeSnapshot}
+     * before calling this method.
+     *
+     * @param season target season
+     */
+    public void updateRanks(int season)
+    {
+        if(!isEnabled())
+        {
+            teamDAO.updateRanks(season);
+            return;
+        }
+
+        Set<Long> cheaters = new HashSet<>(teamDAO.findCheaterTeamIds(season));
+        List<TeamRank> changed;
+        SeasonRanks ranks;
+        synchronized(this)
+        {
+            ranks = getSeason(season);
+            if(ranks == null) ranks = seed(season, cheaters);
+            updateCheaters(ranks, cheaters);
+            changed = ranks.collectChanged();
+        }
+        try
+        {
+            teamDAO.updateRanks(changed);
+        }
+        catch (RuntimeException e)
+        {
+            //written ranks are unknown after a failed write, reseed the season next time
+            removeSeason(season);
+            throw e;
+        }
+        synchronized(this)
+        {
+            ranks.commit(changed);
+        }
+        teamDAO.updatePopulationStateIds(season);
+        LOG.debug("Updated {} team ranks for {} season", changed.size(), season);
+        if(verificationEnabled) verify(season);
+    }
+
+    private SeasonRanks seed(int season, Set<Long> cheaters)
+    {
+        SeasonRanks ranks = new SeasonRanks();
+        forEachTeam(teamDAO, season, cheaters, t->ranks.put(t, true));
+        ranks.cheaters.addAll(cheaters);
+        teamDAO.nullifyRanks(cheaters);
+        putSeason(season, ranks);
+        LOG.info("Seeded team rank engine: season {}, {} teams", season, ranks.size());
+        return ranks;
+    }
+
+    private void updateCheaters(SeasonRanks ranks, Set<Long> cheaters)
+    {
+        CheaterDiff diff = updateCheaters(ranks.cheaters, cheaters);
+        if(diff.isEmpty()) return;
+
+        for(Long id : diff.added()) ranks.remove(id);
+        teamDAO.nullifyRanks(diff.added());
+        for(Team team : teamDAO.findByIds(diff.removed())) ranks.put(team, false);
+    }
+
+    /**
+     * Compares engine ranks with SQL ranks. The season is reseeded on the next update if there
+     * are any mismatches.
+     *
+     * @param season target season
+     * @return number of mismatched teams, including teams that are missing from either side
+     */
+    public int verify(int season)
+    {
+        List<TeamRank> expected = teamDAO.findRanks(season);
+        List<String> examples = new ArrayList<>();
+        int mismatches;
+        synchronized(this)
+        {
+            SeasonRanks ranks = getSeason(season);
+            if(ranks == null) return expected.size();
+
+            mismatches = Math.max(0, ranks.size() - expected.size());
+            for(TeamRank rank : expected)
+            {
+                TeamRank actual = ranks.getRank(rank.teamId());
+                if(rank.equals(actual)) continue;
+
+                mismatches++;
+                addMismatch(examples, rank, actual);
+            }
+            if(mismatches > 0) removeSeason(season);
+        }
+        if(mismatches > 0)
+        {
+            LOG.warn("Team rank engine mismatch: season {}, {} teams, {}", season, mismatches, examples);
+        }
+        else
+        {
+            LOG.debug("Team rank engine verified: season {}", season);
+        }
+        return mismatches;
+    }
+
+    public synchronized TeamRank getRank(int season, long teamId)
+    {
+        SeasonRanks ranks = getSeason(season);
+        return ranks == null ? null : ranks.getRank(teamId);
+    }
+
+    public synchronized boolean isVerificationEnabled()
+    {
+        return verificationEnabled;
+    }
+
+    public synchronized void setVerificationEnabled(boolean verificationEnabled)
+    {
+        this.verificationEnabled = verificationEnabled;
+    }
+
+    /*
+        Teams are stored in slots of primitive arrays, see LeaguePartitions for partition
+        indexes.
+     */
+    static class SeasonRanks
+    {
+
+        private static final int DEFAULT_CAPACITY = 1024;
+
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private final Set<Long> cheaters = new HashSet<>();
+        private final RatingTree[] globalTrees = new RatingTree[LeaguePartitions.GLOBAL_COUNT];
+        private final RatingTree[] regionTrees = new RatingTree[LeaguePartitions.REGION_COUNT];
+        private final RatingTree[] leagueTrees = new RatingTree[LeaguePartitions.COUNT];
+        private final BitSet dirty = new BitSet(LeaguePartitions.GLOBAL_COUNT);
+        private long[] ids = new long[DEFAULT_CAPACITY];
+        private int[] partitions = new int[DEFAULT_CAPACITY];
+        private int[] ratings = new int[DEFAULT_CAPACITY];
+        private int[] globalRanks = new int[DEFAULT_CAPACITY];
+        private int[] regionRanks = new int[DEFAULT_CAPACITY];
+        private int[] leagueRanks = new int[DEFAULT_CAPACITY];
+        private int slotCount;
+
+        private static int rating(Team team)
+        {
+            return team.getRating() == null ? 0 : (int) Math.max(0, team.getRating());
+        }
+
+        private static int rank(Integer rank)
+        {
+            return rank == null ? 0 : rank;
+        }
+
+        private int size()
+        {
+            return slots.size();
+        }
+
+        /**
+         * @param team team
+         * @param seed true if the team is loaded from the DB, its current ranks are used as
+         *             written ranks in this case
+         */
+        private void put(Team team, boolean seed)
+        {
+            if(cheaters.contains(team.getId())) return;
+
+            int partition = LeaguePartitions.of(team);
+            int rating = rating(team);
+            Integer slot = slots.get(team.getId());
+            if(slot == null)
+            {
+                slot = newSlot(team.getId());
+                if(seed)
+                {
+                    globalRanks[slot] = rank(team.getGlobalRank());
+                    regionRanks[slot] = rank(team.getRegionRank());
+                    leagueRanks[slot] = rank(team.getLeagueRank());
+                }
+            }
+            else
+            {
+                if(partitions[slot] == partition && ratings[slot] == rating) return;
+                add(slot, -1);
+            }
+            partitions[slot] = partition;
+            ratings[slot] = rating;
+            add(slot, 1);
+        }
+
+        private int newSlot(long id)
+        {
+            if(slotCount == ids.length)
+            {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                partitions = Arrays.copyOf(partitions, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+                globalRanks = Arrays.copyOf(globalRanks, capacity);
+                regionRanks = Arrays.copyOf(regionRanks, capacity);
+                leagueRanks = Arrays.copyOf(leagueRanks, capacity);
+            }
+            int slot = slotCount++;
+            ids[slot] = id;
+            slots.put(id, slot);
+            return slot;
+        }
+
+        /*
+            Slots of removed teams are not reused, cheaters are rare.
+         */
+        private void remove(long id)
+        {
+            Integer slot = slots.remove(id);
+            if(slot == null) return;
+
+            add(slot, -1);
+            ids[slot] = 0;
+        }
+
+        private void add(int slot, int delta)
+        {
+            int partition = partitions[slot];
+            int global = LeaguePartitions.toGlobal(partition);
+            tree(globalTrees, global).add(ratings[slot], delta);
+            tree(regionTrees, LeaguePartitions.toRegion(partition)).add(ratings[slot], delta);
+            tree(leagueTrees, partition).add(ratings[slot], delta);
+            dirty.set(global);
+        }
+
+        private static RatingTree tree(RatingTree[] trees, int ix)
+        {
+            if(trees[ix] == null) trees[ix] = new RatingTree();
+            return trees[ix];
+        }
+
+        private TeamRank calculateRank(int slot)
+        {
+            int partition = partitions[slot];
+            int rating = ratings[slot];
+            return new TeamRank
+            (
+                ids[slot],
+                globalTrees[LeaguePartitions.toGlobal(partition)].countGreater(rating) + 1,
+                regionTrees[LeaguePartitions.toRegion(partition)].countGreater(rating) + 1,
+                leagueTrees[partition].countGreater(rating) + 1
+            );
+        }
+
+        private TeamRank getRank(long id)
+        {
+            Integer slot = slots.get(id);
+            return slot == null ? null : calculateRank(slot);
+        }
+
+        /**
+         * Calculates ranks of teams of dirty partitions and clears dirty flags. Ranks are
+         * not marked as written until they are {@link #commit(List) committed}.
+         *
+         * @return teams whose ranks are different from the written ranks
+         */
+        private List<TeamRank> collectChanged()
+        {
+            List<TeamRank> changed = new ArrayList<>();
+            if(dirty.isEmpty()) return changed;
+
+            for(int slot = 0; slot < slotCount; slot++)
+            {
+                if(ids[slot] == 0 || !dirty.get(LeaguePartitions.toGlobal(partitions[slot]))) continue;
+
+                TeamRank rank = calculateRank(slot);
+                if(rank.globalRank() != globalRanks[slot]
+                    || rank.regionRank() != regionRanks[slot]
+                    || rank.leagueRank() != leagueRanks[slot])
+                        changed.add(rank);
+            }
+            dirty.clear();
+            return changed;
+        }
+
+        private void commit(List<TeamRank> ranks)
+        {
+            for(TeamRank rank : ranks)
+            {
+                Integer slot = slots.get(rank.teamId());
+                if(slot == null) continue;
+
+                globalRanks[slot] = rank.globalRank();
+                regionRanks[slot] = rank.regionRank();
+                leagueRanks[slot] = rank.leagueRank();
+            }
+        }
+
+    }
+
+    /*
+        Fenwick tree over the rating domain. The domain grows on demand, so low rated
+        partitions stay small.
+     */
+    static class RatingTree
+    {
+
+        private static final int DEFAULT_CAPACITY = 1024;
+
+        private int[] tree = new int[DEFAULT_CAPACITY + 1];
+        private int total;
+
+        void add(int rating, int delta)
+        {
+            if(rating >= capacity()) grow(rating);
+            for(int i = rating + 1; i < tree.length; i += i & -i) tree[i] += delta;
+            total += delta;
+        }
+
+        /**
+         * @param rating rating
+         * @return number of ratings that are lower or equal to the {@code rating}
+         */
+        int countLowerOrEqual(int rating)
+        {
+            int count = 0;
+            for(int i = Math.min(rating + 1, capacity()); i > 0; i -= i & -i) count += tree[i];
+            return count;
+        }
+
+        int countGreater(int rating)
+        {
+            return total - countLowerOrEqual(rating);
+        }
+
+        int getTotal()
+        {
+            return total;
+        }
+
+        private int capacity()
+        {
+            return tree.length - 1;
+        }
+
+        /*
+            Nodes of the old tree are still valid because they cover the same ranges. New nodes
+            cover ranges that end beyond the old capacity, where all counts are 0.
+         */
+        private void grow(int rating)
+        {
+            int oldCapacity = capacity();
+            int capacity = Integer.highestOneBit(rating) << 1;
+            int[] grown = Arrays.copyOf(tree, capacity + 1);
+            for(int i = oldCapacity + 1; i <= capacity; i++)
+                grown[i] = countLowerOrEqual(oldCapacity - 1)
+                    - countLowerOrEqual(Math.min(oldCapacity, i - (i & -i)) - 1);
+            tree = grown;
+        }
+
+    }
+
+}
@@ -3,24 +3,33 @@
 
 package com.nephest.battlenet.sc2.web.service;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.InstantVar;
 import com.nephest.battlenet.sc2.model.local.LongVar;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
+import com.nephest.battlenet.sc2.model.local.Var;
+import com.nephest.battlenet.sc2.model.local.dao.PartitionDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamStateArchiveDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamStateDAO;
 import com.nephest.battlenet.sc2.model.local.dao.VarDAO;
+import com.nephest.battlenet.sc2.model.local.inner.IdRange;
+import com.nephest.battlenet.sc2.model.local.inner.KeysetChunk;
+import com.nephest.battlenet.sc2.model.local.inner.RangePartition;
+import com.nephest.battlenet.sc2.model.local.inner.SeasonCursor;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
 import com.nephest.battlenet.sc2.service.EventService;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -31,6 +40,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.Disposable;
@@ -43,56 +53,147 @@ import reactor.core.scheduler.Scheduler;
 public class TeamStateService
 {
 
+    /**
+     * Progress of a chunked season job.
+     *
+     * @param cursor last processed team id
+     * @param lastChunkDuration duration of the last chunk, including its commit
+     */
+    public record JobProgress
+    (
+        String job,
+        Region region,
+        int season,
+        long cursor,
+        long chunks,
+        long rows,
+        Duration lastChunkDuration,
+        Instant started,
+        Instant completed
+    )
+    {
+
+        public static final Comparator<JobProgress> COMPARATOR = Comparator
+            .comparing(JobProgress::job)
+            .thenComparing(JobProgress::region);
+
+        public static String key(String job, Region region)
+        {
+            return job + "." + region.name();
+        }
+
+        public static JobProgress start(String job, Region region, int season, long cursor)
+        {
+            return new JobProgress(job, region, season, cursor, 0, 0, Duration.ZERO, SC2Pulse.instant(), null);
+        }
+
+        public JobProgress next(KeysetChunk chunk, Duration duration)
+        {
+            return new JobProgress
+            (
+                job, region, season,
+                chunk.lastId(), chunks + 1, rows + chunk.count(), duration,
+                started, null
+            );
+        }
+
+        public JobProgress complete()
+        {
+            return new JobProgress
+            (
+                job, region, season,
+                cursor, chunks, rows, lastChunkDuration,
+                started, SC2Pulse.instant()
+            );
+        }
+
+    }
+
+    /**
+     * Time range that may contain removed expired team states. Archived states and states
+     * with a longer lifetime may still exist in this range.
+     *
+     * @param from inclusive, null if the range is not bounded
+     * @param to exclusive
+     */
+    public record ExpiredRange(@Nullable OffsetDateTime from, OffsetDateTime to)
+    {
+    }
+
     private static final Logger LOG = LoggerFactory.getLogger(TeamStateService.class);
 
     public static final int TEAM_ARCHIVE_BATCH_SIZE = 500;
     public static final int FINAL_TEAM_STATE_BATCH_SIZE = TEAM_ARCHIVE_BATCH_SIZE;
     public static final Duration FINAL_TEAM_SNAPSHOT_OFFSET
         = TeamDAO.MIN_DURATION_BETWEEN_SEASONS.dividedBy(2);
+    public static final int PARTITIONS_AHEAD = 2;
+    public static final String FINALIZATION_JOB = "finalization";
+    public static final String ARCHIVE_JOB = "archive";
 
-    private final SeasonDAO seasonDAO;
+    private final SeasonRegistry seasonRegistry;
     private final TeamDAO teamDAO;
     private final TeamStateDAO teamStateDAO;
     private final TeamStateArchiveDAO teamStateArchiveDAO;
+    private final PartitionDAO partitionDAO;
     private final UpdateService updateService;
     private final EventService eventService;
     private final Scheduler defaultScheduler;
     private TeamStateService service;
     private int mainLengthDays, secondaryLengthDays;
+    private boolean partitioning;
+    private int partitionLengthDays;
+    private boolean chunked;
+    private int chunkSize;
 
     private final Map<Region, LongVar> lastFinalizedSeason = new EnumMap<>(Region.class);
     private final Map<Region, LongVar> lastArchiveSeason = new EnumMap<>(Region.class);
+    private final Map<Region, Var<SeasonCursor>> finalizationCursors = new EnumMap<>(Region.class);
+    private final Map<Region, Var<SeasonCursor>> archiveCursors = new EnumMap<>(Region.class);
+    private final Map<String, JobProgress> progress = new ConcurrentHashMap<>();
+    private final AtomicLong historyRevision = new AtomicLong();
     private InstantVar lastClearInstant;
     private final Sinks.Many<LadderUpdateData> updateEvent = Sinks
         .many().multicast().onBackpressureBuffer(Region.values().length * 4, false);
+    private final Sinks.Many<ExpiredRange> expiredEvent = Sinks
+        .many().multicast().onBackpressureBuffer(Region.values().length * 4, false);
     private Disposable eventSub;
 
     @Autowired
     public TeamStateService
     (
-        SeasonDAO seasonDAO,
+        SeasonRegistry seasonRegistry,
         TeamDAO teamDAO,
         TeamStateDAO teamStateDAO,
         TeamStateArchiveDAO teamStateArchiveDAO,
+        PartitionDAO partitionDAO,
         VarDAO varDAO,
         EventService eventService,
         UpdateService updateService,
         @Qualifier("secondaryDbScheduler") Scheduler defaultScheduler,
         @Lazy TeamStateService service,
         @Value("${com.nephest.battlenet.sc2.mmr.history.main.length:#{'180'}}") int mainLengthDays,
-        @Value("${com.nephest.battlenet.sc2.mmr.history.secondary.length:#{'180'}}") int secondaryLengthDays
+        @Value("${com.nephest.battlenet.sc2.mmr.history.secondary.length:#{'180'}}") int secondaryLengthDays,
+        @Value("${com.nephest.battlenet.sc2.mmr.history.partition:#{'false'}}") boolean partitioning,
+        @Value("${com.nephest.battlenet.sc2.mmr.history.partition.length:#{'30'}}") int partitionLengthDays,
+        @Value("${com.nephest.battlenet.sc2.mmr.history.chunked:#{'false'}}") boolean chunked,
+        @Value("${com.nephest.battlenet.sc2.mmr.history.chunk.size:#{'5000'}}") int chunkSize
     )
     {
-        this.seasonDAO = seasonDAO;
+        this.seasonRegistry = seasonRegistry;
         this.teamDAO = teamDAO;
         this.teamStateDAO = teamStateDAO;
         this.teamStateArchiveDAO = teamStateArchiveDAO;
+        this.partitionDAO = partitionDAO;
         this.updateService = updateService;
         this.eventService = eventService;
         this.defaultScheduler = defaultScheduler;
         this.service = service;
         this.mainLengthDays = mainLengthDays;
         this.secondaryLengthDays = secondaryLengthDays;
+        this.partitioning = partitioning;
+        this.partitionLengthDays = partitionLengthDays;
+        this.chunked = chunked;
+        this.chunkSize = chunkSize;
         initVars(varDAO);
         subToEvents();
     }
@@ -121,6 +222,30 @@ public class TeamStateService
                     false
                 )
             );
+            finalizationCursors.put
+            (
+                region,
+                new Var<>
+                (
+                    varDAO,
+                    region.getId() + ".mmr.history.finalized.cursor",
+                    SeasonCursor::serialize,
+                    SeasonCursor::parse,
+                    false
+                )
+            );
+            archiveCursors.put
+            (
+                region,
+                new Var<>
+                (
+                    varDAO,
+                    region.getId() + ".mmr.history.archive.cursor",
+                    SeasonCursor::serialize,
+                    SeasonCursor::parse,
+                    false
+                )
+            );
         }
         lastClearInstant = new InstantVar
         (
@@ -136,6 +261,10 @@ public class TeamStateService
                 var.tryLoad();
                 if(var.getValue() == null) var.setValue(0L);
         });
+        Stream.of(finalizationCursors, archiveCursors)
+            .map(Map::values)
+            .flatMap(Collection::stream)
+            .forEach(Var::tryLoad);
 
         lastClearInstant.tryLoad();
         if(lastClearInstant.getValue() == null) lastClearInstant.setValue(Instant.MIN);
@@ -172,6 +301,11 @@ public class TeamStateService
             .map(Map::values)
             .flatMap(Collection::stream)
             .forEach(v->v.setValueAndSave(Long.MIN_VALUE));
+        Stream.of(finalizationCursors, archiveCursors)
+            .map(Map::values)
+            .flatMap(Collection::stream)
+            .forEach(v->v.setValueAndSave(null));
+        progress.clear();
         lastClearInstant.setValueAndSave(Instant.MIN);
         subToEvents();
     }
@@ -186,6 +320,16 @@ public class TeamStateService
         return lastArchiveSeason;
     }
 
+    protected Map<Region, Var<SeasonCursor>> getFinalizationCursorVars()
+    {
+        return finalizationCursors;
+    }
+
+    protected Map<Region, Var<SeasonCursor>> getArchiveCursorVars()
+    {
+        return archiveCursors;
+    }
+
     protected InstantVar getLastClearInstantVar()
     {
         return lastClearInstant;
@@ -211,11 +355,103 @@ public class TeamStateService
         this.secondaryLengthDays = secondaryLengthDays;
     }
 
+    public boolean isPartitioning()
+    {
+        return partitioning;
+    }
+
+    /**
+     * <p>
+     *     Switches between partition rotation and row-level removal of expired team states.
+     *     Partitioning requires a partitioned team_state table, the switch is ignored
+     *     otherwise.
+     * </p>
+     * @param partitioning true to manage team_state partitions
+     */
+    public void setPartitioning(boolean partitioning)
+    {
+        this.partitioning = partitioning;
+    }
+
+    public int getPartitionLengthDays()
+    {
+        return partitionLengthDays;
+    }
+
+    protected void setPartitionLengthDays(int partitionLengthDays)
+    {
+        this.partitionLengthDays = partitionLengthDays;
+    }
+
+    public boolean isChunked()
+    {
+        return chunked;
+    }
+
+    /**
+     * <p>
+     *     Switches between the keyset paginated and the single transaction season
+     *     finalization and archive paths.
+     * </p>
+     * @param chunked true to commit finalization and archive progress chunk by chunk
+     */
+    public void setChunked(boolean chunked)
+    {
+        this.chunked = chunked;
+        LOG.info("Chunked team state finalization: {}", chunked);
+    }
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    protected void setChunkSize(int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return progress of chunked jobs since startup
+     */
+    public List<JobProgress> getJobProgress()
+    {
+        return progress.values().stream()
+            .sorted(JobProgress.COMPARATOR)
+            .toList();
+    }
+
+    /**
+     * <p>
+     *     Revision of existing team histories. It's incremented when team states are inserted
+     *     outside of regular ladder snapshots, i.e. when final season snapshots are taken.
+     *     Histories that were read before the revision change may be stale even if they are
+     *     updated with new states. Removal of expired states doesn't change the revision,
+     *     see {@link #getExpiredEvent()}.
+     * </p>
+     *
+     * @return current team history revision
+     */
+    public long getHistoryRevision()
+    {
+        return historyRevision.get();
+    }
+
     public Flux<LadderUpdateData> getUpdateEvent()
     {
         return updateEvent.asFlux();
     }
 
+    /**
+     * Emitted when expired team states are removed.
+     *
+     * @return ranges of removed expired states
+     */
+    public Flux<ExpiredRange> getExpiredEvent()
+    {
+        return expiredEvent.asFlux();
+    }
+
     private void update(LadderUpdateData data)
     {
         Map<Region, Set<Integer>> updates = data.getContexts().stream()
@@ -242,7 +478,7 @@ public class TeamStateService
             //next after previous archive
             long minSeason = minSeasonFunction.apply(region);
             //not current season
-            int maxSeason = seasonDAO.getMaxBattlenetId(region) - 1;
+            int maxSeason = seasonRegistry.getMaxBattlenetId(region) - 1;
             seasons.stream()
                 //update only previous seasons that have ended already
                 .map(season->season - 1)
@@ -258,7 +494,18 @@ public class TeamStateService
         (
             updates,
             r->lastFinalizedSeason.get(r).getValue().intValue() + 1,
-            (region, season)->service.takeFinalTeamSnapshots(region, season)
+            (region, season)->
+            {
+                if(chunked)
+                {
+                    takeFinalTeamSnapshotsChunked(region, season);
+                }
+                else
+                {
+                    service.takeFinalTeamSnapshots(region, season);
+                }
+                historyRevision.incrementAndGet();
+            }
         );
     }
 
@@ -292,7 +539,17 @@ public class TeamStateService
         (
             updates,
             r->lastArchiveSeason.get(r).getValue().intValue() + 1,
-            (region, season)->service.updateArchive(region, season)
+            (region, season)->
+            {
+                if(chunked)
+                {
+                    updateArchiveChunked(region, season);
+                }
+                else
+                {
+                    service.updateArchive(region, season);
+                }
+            }
         );
     }
 
@@ -317,6 +574,114 @@ public class TeamStateService
         LOG.info("Archived team states: {} {}", region, season);
     }
 
+    public void takeFinalTeamSnapshotsChunked(Region region, int season)
+    {
+        OffsetDateTime odt = teamDAO.findMaxLastPlayed(region, season)
+            .map(lastPlayed->lastPlayed.plus(FINAL_TEAM_SNAPSHOT_OFFSET))
+            .orElse(null);
+        if(odt == null)
+        {
+            service.completeChunkedJob(lastFinalizedSeason.get(region), finalizationCursors.get(region), season);
+            return;
+        }
+
+        runChunked
+        (
+            FINALIZATION_JOB,
+            region,
+            season,
+            finalizationCursors.get(region),
+            lastFinalizedSeason.get(region),
+            (afterId, maxId)->teamStateDAO.takeSnapshot(region, season, afterId, maxId, chunkSize, odt)
+        );
+    }
+
+    public void updateArchiveChunked(Region region, int season)
+    {
+        runChunked
+        (
+            ARCHIVE_JOB,
+            region,
+            season,
+            archiveCursors.get(region),
+            lastArchiveSeason.get(region),
+            (afterId, maxId)->teamStateArchiveDAO.archive(region, season, afterId, maxId, chunkSize)
+        );
+    }
+
+    @FunctionalInterface
+    public interface ChunkTask
+    {
+
+        KeysetChunk run(long afterId, long maxId);
+
+    }
+
+    /*
+        Region season teams are processed in keyset paginated chunks, each chunk is committed
+        alongside the cursor, so an interrupted job resumes after the last committed chunk.
+        The season var is updated and the cursor is cleared only when all chunks are done.
+     */
+    private void runChunked
+    (
+        String job,
+        Region region,
+        int season,
+        Var<SeasonCursor> cursorVar,
+        LongVar seasonVar,
+        ChunkTask task
+    )
+    {
+        IdRange range = teamDAO.findIdRange(region, season).orElse(null);
+        if(range == null)
+        {
+            service.completeChunkedJob(seasonVar, cursorVar, season);
+            return;
+        }
+
+        SeasonCursor cursor = cursorVar.getValue();
+        long afterId = cursor != null && cursor.season() == season ? cursor.id() : range.min() - 1;
+        JobProgress jobProgress = JobProgress.start(job, region, season, afterId);
+        progress.put(JobProgress.key(job, region), jobProgress);
+        while(true)
+        {
+            long chunkStart = System.nanoTime();
+            KeysetChunk chunk = service.runChunk(task, afterId, range.max(), cursorVar, season);
+            if(chunk.isEmpty()) break;
+
+            afterId = chunk.lastId();
+            jobProgress = jobProgress.next(chunk, Duration.ofNanos(System.nanoTime() - chunkStart));
+            progress.put(JobProgress.key(job, region), jobProgress);
+            LOG.trace("Team state {} progress: {}", job, jobProgress);
+        }
+        service.completeChunkedJob(seasonVar, cursorVar, season);
+        jobProgress = jobProgress.complete();
+        progress.put(JobProgress.key(job, region), jobProgress);
+        LOG.info("Completed team state {}: {}", job, jobProgress);
+    }
+
+    @Transactional
+    protected KeysetChunk runChunk
+    (
+        ChunkTask task,
+        long afterId,
+        long maxId,
+        Var<SeasonCursor> cursorVar,
+        int season
+    )
+    {
+        KeysetChunk chunk = task.run(afterId, maxId);
+        if(!chunk.isEmpty()) cursorVar.setValueAndSave(new SeasonCursor(season, chunk.lastId()));
+        return chunk;
+    }
+
+    @Transactional
+    protected void completeChunkedJob(LongVar seasonVar, Var<SeasonCursor> cursorVar, int season)
+    {
+        seasonVar.setValueAndSave((long) season);
+        cursorVar.setValueAndSave(null);
+    }
+
     private int removeExpired()
     {
         UpdateContext ctx = updateService.getUpdateContext(null);
@@ -327,29 +692,114 @@ public class TeamStateService
         Duration offset = Duration.between(lastClearInstant.getValue(), currentUpdateContext);
         if(offset.isZero()) return 0;
 
-        OffsetDateTime now = SC2Pulse.offsetDateTime();
-        int removedMain = teamStateDAO.remove
+        boolean partitioned = isPartitioning() && teamStateDAO.isPartitioned();
+        List<RangePartition> rotated = List.of();
+        if(partitioned)
+        {
+            createPartitions();
+            rotated = rotatePartitions();
+        }
+        //the default partition rejects new states once range partitions exist
+        else if
         (
-            lastClearInstant.getValue() == Instant.MIN
-                ? OffsetDateTime.MIN
-                : now.minusDays(getMainLengthDays()).minus(offset),
-            now.minusDays(getMainLengthDays()),
-            true
-        );
+            teamStateDAO.isPartitioned()
+            && !partitionDAO.findRangePartitions(TeamStateDAO.TABLE).isEmpty()
+        )
+        {
+            createPartitions();
+        }
+        OffsetDateTime now = SC2Pulse.offsetDateTime();
+        boolean first = lastClearInstant.getValue() == Instant.MIN;
+        OffsetDateTime mainTo = now.minusDays(getMainLengthDays());
+        OffsetDateTime mainFrom = first ? OffsetDateTime.MIN : mainTo.minus(offset);
+        int removedMain = partitioned
+            ? teamStateDAO.removeFromDefaultPartition(mainFrom, mainTo)
+            : teamStateDAO.remove(mainFrom, mainTo, true);
         if(removedMain > 0) LOG.info("Removed {} main team states", removedMain);
 
-        int removedSecondary = teamStateDAO.remove
-        (
-            lastClearInstant.getValue() == Instant.MIN
-                ? OffsetDateTime.MIN
-                : now.minusDays(getSecondaryLengthDays()).minus(offset),
-            now.minusDays(getSecondaryLengthDays()),
-            false
-        );
+        //secondary states expire with their partitions unless they have a shorter lifetime
+        OffsetDateTime secondaryTo = now.minusDays(getSecondaryLengthDays());
+        OffsetDateTime secondaryFrom = first ? OffsetDateTime.MIN : secondaryTo.minus(offset);
+        int removedSecondary = partitioned && getSecondaryLengthDays() >= getMainLengthDays()
+            ? 0
+            : teamStateDAO.remove(secondaryFrom, secondaryTo, false);
         if(removedSecondary > 0) LOG.info("Removed {} secondary team states", removedSecondary);
 
         lastClearInstant.setValueAndSave(currentUpdateContext);
+        if(removedMain + removedSecondary > 0 || !rotated.isEmpty())
+            expiredEvent.emitNext
+            (
+                getExpiredRange(mainFrom, mainTo, secondaryFrom, secondaryTo, rotated),
+                EventService.DEFAULT_FAILURE_HANDLER
+            );
         return removedMain + removedSecondary;
     }
 
+    private static ExpiredRange getExpiredRange
+    (
+        OffsetDateTime mainFrom,
+        OffsetDateTime mainTo,
+        OffsetDateTime secondaryFrom,
+        OffsetDateTime secondaryTo,
+        List<RangePartition> rotated
+    )
+    {
+        OffsetDateTime from = Stream.concat
+        (
+            Stream.of(mainFrom, secondaryFrom),
+            rotated.stream().map(RangePartition::from)
+        )
+            .min(Comparator.naturalOrder())
+            .orElseThrow();
+        OffsetDateTime to = Stream.concat
+        (
+            Stream.of(mainTo, secondaryTo),
+            rotated.stream().map(RangePartition::to)
+        )
+            .max(Comparator.naturalOrder())
+            .orElseThrow();
+        return new ExpiredRange(from.equals(OffsetDateTime.MIN) ? null : from, to);
+    }
+
+    /**
+     * Creates future partitions and rotates expired partitions.
+     */
+    public void updatePartitions()
+    {
+        createPartitions();
+        rotatePartitions();
+    }
+
+    /**
+     * Creates partitions that cover at least {@link #PARTITIONS_AHEAD} partition lengths ahead.
+     *
+     * @return created partitions
+     */
+    public List<RangePartition> createPartitions()
+    {
+        return partitionDAO.createRangePartitions
+        (
+            TeamStateDAO.TABLE,
+            "timestamp",
+            getPartitionLengthDays(),
+            PARTITIONS_AHEAD,
+            null
+        );
+    }
+
+    /**
+     * Rotates partitions that contain only expired team states.
+     *
+     * @return rotated partitions
+     */
+    public List<RangePartition> rotatePartitions()
+    {
+        OffsetDateTime expiredTo = SC2Pulse.offsetDateTime().minusDays(getMainLengthDays());
+        return partitionDAO.findRangePartitions(TeamStateDAO.TABLE).stream()
+            .filter(partition->!TeamStateDAO.isArchivedPartition(partition))
+            .filter(partition->!partition.to().isAfter(expiredTo))
+            .map(teamStateDAO::rotatePartition)
+            .toList();
+    }
+
 }
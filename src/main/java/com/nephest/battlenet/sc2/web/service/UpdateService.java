@@ -5,6 +5,7 @@ package com.nephest.battlenet.sc2.web.service;
 
 import static com.nephest.battlenet.sc2.service.EventService.DEFAULT_FAILURE_HANDLER;
 
+import com.nephest.battlenet.sc2.cache.DataVersionRegistry;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.InstantVar;
 import com.nephest.battlenet.sc2.model.local.LadderUpdate;
@@ -41,6 +42,7 @@ public class UpdateService
 
     private final VarDAO varDAO;
     private final LadderUpdateDAO ladderUpdateDAO;
+    private final DataVersionRegistry dataVersionRegistry;
 
     private final Map<Region, UpdateContext> regionalContexts = new EnumMap<>(Region.class);
     private final Map<Region, InstantVar> externalUpdates = new EnumMap<>(Region.class);
@@ -58,11 +60,13 @@ public class UpdateService
     (
         VarDAO varDAO,
         EventService eventService,
-        LadderUpdateDAO ladderUpdateDAO
+        LadderUpdateDAO ladderUpdateDAO,
+        DataVersionRegistry dataVersionRegistry
     )
     {
         this.varDAO = varDAO;
         this.ladderUpdateDAO = ladderUpdateDAO;
+        this.dataVersionRegistry = dataVersionRegistry;
         subToEvents(eventService);
     }
 
@@ -152,6 +156,7 @@ public class UpdateService
         globalInternalUpdate.setValueAndSave(internalUpdate);
         previousGlobalContext = globalContext;
         globalContext = new UpdateContext(externalUpdate, internalUpdate);
+        dataVersionRegistry.bump(null, null);
     }
 
     public void updated(Region region, Instant externalUpdate)
@@ -160,6 +165,7 @@ public class UpdateService
         externalUpdates.get(region).setValueAndSave(externalUpdate);
         internalUpdates.get(region).setValueAndSave(internalUpdate);
         regionalContexts.put(region, new UpdateContext(externalUpdate, internalUpdate));
+        dataVersionRegistry.bump(region, null);
     }
 
     public UpdateContext getUpdateContext(Region region)
@@ -346,6 +346,20 @@ CREATE TABLE "ladder_update"
             UNIQUE ("created", "region", "queue_type", "league_type")
 );
 
+CREATE TABLE "ladder_validator"
+(
+    "region" SMALLINT NOT NULL,
+    "ladder_id" BIGINT NOT NULL,
+    "etag" TEXT,
+    "last_modified" TEXT,
+    "content_hash" BIGINT NOT NULL,
+    "updated" TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+
+    PRIMARY KEY ("region", "ladder_id")
+);
+
+CREATE INDEX "ix_ladder_validator_updated" ON "ladder_validator"("updated");
+
 CREATE TABLE "clan"
 (
     "id" SERIAL,
@@ -602,6 +616,8 @@ CREATE TABLE "population_state"
         ON DELETE CASCADE ON UPDATE CASCADE
 );
 
+CREATE INDEX "ix_population_state_league_id_id" ON "population_state"("league_id", "id");
+
 CREATE TABLE "league_tier"
 (
 
@@ -744,11 +760,19 @@ CREATE TABLE "team_state"
         FOREIGN KEY ("population_state_id")
         REFERENCES "population_state"("id")
         ON DELETE SET NULL ON UPDATE CASCADE
-);
+) PARTITION BY RANGE("timestamp");
 
 CREATE INDEX "ix_team_state_timestamp" ON "team_state"("timestamp");
 CREATE INDEX "ix_team_state_secondary_timestamp" ON "team_state"("secondary", "timestamp") WHERE "secondary" = true;
 
+-- Range partitions are created and rotated by the application, see TeamStateService
+CREATE TABLE "team_state_default" PARTITION OF "team_state" DEFAULT;
+-- Placeholder bound, lowered to the first range partition by the application so that
+-- creating and attaching range partitions doesn't scan the default partition,
+-- see PartitionDAO.boundDefaultPartition
+ALTER TABLE "team_state_default"
+    ADD CONSTRAINT "team_state_default_timestamp_check" CHECK ("timestamp" < 'infinity');
+
 CREATE TABLE team_state_archive
 (
     "team_id" BIGINT NOT NULL,
@@ -1139,7 +1163,7 @@ CREATE TABLE "match"
     "race" TEXT,
     "race_vod" TEXT,
 
-    PRIMARY KEY ("id"),
+    PRIMARY KEY ("id", "date"),
 
     CONSTRAINT "fk_match_map_id"
         FOREIGN KEY ("map_id")
@@ -1148,16 +1172,23 @@ CREATE TABLE "match"
 
     CONSTRAINT "uq_match_date_type_map_id_region"
         UNIQUE("date", "type", "map_id", "region")
-)
-WITH (fillfactor = 90);
+) PARTITION BY RANGE("date");
 
 CREATE INDEX "ix_match_updated" ON "match"("updated");
 CREATE INDEX "ix_match_vod_search" ON "match"("date", "type", "map_id", "vod", "sub_only_vod", "race_vod" text_pattern_ops, "race" text_pattern_ops, "rating_min", "duration", "rating_max")
     WHERE "vod" = true;
 
+-- Range partitions are created and dropped by the application, see MatchService
+CREATE TABLE "match_default" PARTITION OF "match" DEFAULT WITH (fillfactor = 90);
+-- Placeholder bound, lowered to the first range partition by the application,
+-- see PartitionDAO.boundDefaultPartition
+ALTER TABLE "match_default"
+    ADD CONSTRAINT "match_default_date_check" CHECK ("date" < 'infinity');
+
 CREATE TABLE "match_participant"
 (
     "match_id" BIGINT NOT NULL,
+    "match_date" TIMESTAMP WITH TIME ZONE NOT NULL,
     "player_character_id" BIGINT NOT NULL,
     "team_id" BIGINT,
     "twitch_video_id" BIGINT,
@@ -1166,11 +1197,11 @@ CREATE TABLE "match_participant"
     "decision" SMALLINT NOT NULL,
     "rating_change" SMALLINT,
 
-    PRIMARY KEY ("match_id", "player_character_id"),
+    PRIMARY KEY ("match_id", "player_character_id", "match_date"),
 
     CONSTRAINT "fk_match_participant_match_id"
-        FOREIGN KEY ("match_id")
-        REFERENCES "match"("id")
+        FOREIGN KEY ("match_id", "match_date")
+        REFERENCES "match"("id", "date")
         ON DELETE CASCADE ON UPDATE CASCADE,
     CONSTRAINT "fk_match_participant_player_character_id"
         FOREIGN KEY ("player_character_id")
@@ -1188,7 +1219,7 @@ CREATE TABLE "match_participant"
         FOREIGN KEY ("twitch_video_id")
         REFERENCES "twitch_video"("id")
         ON DELETE SET NULL ON UPDATE CASCADE
-);
+) PARTITION BY RANGE("match_date");
 
 CREATE INDEX "ix_match_participant_player_character_id" ON "match_participant"("player_character_id");
 CREATE INDEX "ix_match_participant_team_id_team_state_timestamp" ON "match_participant"("team_id", "team_state_timestamp")
@@ -1198,6 +1229,10 @@ CREATE INDEX "ix_match_participant_twitch_video_id"
     ON "match_participant"("twitch_video_id")
     WHERE "twitch_video_id" IS NOT NULL;
 
+CREATE TABLE "match_participant_default" PARTITION OF "match_participant" DEFAULT;
+ALTER TABLE "match_participant_default"
+    ADD CONSTRAINT "match_participant_default_match_date_check" CHECK ("match_date" < 'infinity');
+
 CREATE TABLE "var"
 (
     "key" TEXT NOT NULL,
@@ -0,0 +1,268 @@
+-- team_state is converted into a partitioned table. Existing rows are kept in the default
+-- partition, new range partitions are created and rotated by the application when
+-- com.nephest.battlenet.sc2.mmr.history.partition is enabled. Existing rows expire with
+-- row-level deletes from the default partition.
+
+BEGIN;
+
+ALTER TABLE team_state_archive
+    DROP CONSTRAINT "fk_team_state_archive_team_id_timestamp";
+ALTER TABLE match_participant
+    DROP CONSTRAINT "fk_match_participant_team_state_uid";
+
+ALTER TABLE team_state RENAME TO team_state_default;
+ALTER INDEX team_state_pkey RENAME TO team_state_default_pkey;
+ALTER INDEX ix_team_state_timestamp RENAME TO team_state_default_timestamp_idx;
+ALTER INDEX ix_team_state_secondary_timestamp RENAME TO team_state_default_secondary_timestamp_idx;
+
+CREATE TABLE "team_state"
+(
+    "team_id" BIGINT NOT NULL,
+    "timestamp" TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    "division_id" INTEGER NOT NULL,
+    "population_state_id" INTEGER,
+    "wins" SMALLINT,
+    "games" SMALLINT NOT NULL,
+    "rating" SMALLINT NOT NULL,
+    "global_rank" INTEGER,
+    "region_rank" INTEGER,
+    "league_rank" INTEGER,
+    "region_team_count" INTEGER,
+    "secondary" BOOLEAN,
+
+    PRIMARY KEY ("team_id", "timestamp") INCLUDE(rating, games, division_id, region_rank, region_team_count),
+
+    CONSTRAINT "fk_team_state_team_id"
+        FOREIGN KEY ("team_id")
+        REFERENCES "team"("id")
+        ON DELETE CASCADE ON UPDATE CASCADE,
+    CONSTRAINT "fk_team_state_division_id"
+        FOREIGN KEY ("division_id")
+        REFERENCES "division"("id")
+        ON DELETE CASCADE ON UPDATE CASCADE,
+    CONSTRAINT "fk_team_state_population_state_id"
+        FOREIGN KEY ("population_state_id")
+        REFERENCES "population_state"("id")
+        ON DELETE SET NULL ON UPDATE CASCADE
+) PARTITION BY RANGE("timestamp");
+
+CREATE INDEX "ix_team_state_timestamp" ON "team_state"("timestamp");
+CREATE INDEX "ix_team_state_secondary_timestamp" ON "team_state"("secondary", "timestamp") WHERE "secondary" = true;
+
+-- Existing indexes and foreign keys are reused, nothing is rebuilt
+ALTER TABLE team_state ATTACH PARTITION team_state_default DEFAULT;
+-- Placeholder bound, not validated to avoid a full scan. The application replaces it with
+-- a validated bound of the first range partition, see PartitionDAO.boundDefaultPartition
+ALTER TABLE team_state_default
+    ADD CONSTRAINT "team_state_default_timestamp_check" CHECK ("timestamp" < 'infinity')
+    NOT VALID;
+
+ALTER TABLE team_state_archive
+    ADD CONSTRAINT "fk_team_state_archive_team_id_timestamp"
+        FOREIGN KEY ("team_id", "timestamp")
+        REFERENCES "team_state"("team_id", "timestamp")
+        ON DELETE CASCADE ON UPDATE CASCADE
+        NOT VALID;
+ALTER TABLE team_state_archive
+    VALIDATE CONSTRAINT "fk_team_state_archive_team_id_timestamp";
+
+-- fk_match_participant_team_state_uid is restored after match_participant is partitioned
+
+COMMIT;
+
+VACUUM(ANALYZE) team_state;
+
+-- match and match_participant are converted into tables partitioned by match date. Existing
+-- rows are kept in the default partitions, new range partitions are created and dropped by
+-- the application when com.nephest.battlenet.sc2.match.partition is enabled. Primary keys
+-- and the match foreign key must include the partition key, so match_participant gets a
+-- copy of the match date.
+--
+-- The conversion is split into steps that can be resumed. The match date is copied in
+-- committed batches, and new primary key indexes are built concurrently, both steps can
+-- be rerun if they fail. Tables are swapped in a single transaction after that.
+
+ALTER TABLE match_participant ADD COLUMN IF NOT EXISTS "match_date" TIMESTAMP WITH TIME ZONE;
+
+-- Must run outside of a transaction block, every batch is committed
+DO
+$do$
+DECLARE
+    batch_size CONSTANT BIGINT = 100000;
+    batch_from BIGINT;
+    max_id BIGINT;
+BEGIN
+    SELECT MIN(match_id), MAX(match_id)
+    INTO batch_from, max_id
+    FROM match_participant
+    WHERE match_date IS NULL;
+
+    WHILE batch_from <= max_id LOOP
+        UPDATE match_participant
+        SET match_date = match.date
+        FROM match
+        WHERE match_participant.match_id >= batch_from
+        AND match_participant.match_id < batch_from + batch_size
+        AND match_participant.match_date IS NULL
+        AND match_participant.match_id = match.id;
+        COMMIT;
+        batch_from = batch_from + batch_size;
+    END LOOP;
+END
+$do$;
+
+-- Leftovers of failed concurrent builds are invalid and must be rebuilt
+DROP INDEX CONCURRENTLY IF EXISTS "match_default_pkey_new";
+CREATE UNIQUE INDEX CONCURRENTLY "match_default_pkey_new" ON match("id", "date");
+DROP INDEX CONCURRENTLY IF EXISTS "match_participant_default_pkey_new";
+CREATE UNIQUE INDEX CONCURRENTLY "match_participant_default_pkey_new"
+    ON match_participant("match_id", "player_character_id", "match_date");
+
+BEGIN;
+
+-- Participants that were saved after the batched copy
+UPDATE match_participant
+SET match_date = match.date
+FROM match
+WHERE match_participant.match_date IS NULL
+AND match_participant.match_id = match.id;
+ALTER TABLE match_participant ALTER COLUMN "match_date" SET NOT NULL;
+
+ALTER TABLE match_participant
+    DROP CONSTRAINT "fk_match_participant_match_id";
+
+ALTER TABLE match DROP CONSTRAINT match_pkey;
+ALTER TABLE match ADD CONSTRAINT "match_default_pkey" PRIMARY KEY USING INDEX "match_default_pkey_new";
+ALTER TABLE match RENAME TO match_default;
+ALTER TABLE match_default RENAME CONSTRAINT "uq_match_date_type_map_id_region" TO "match_default_date_type_map_id_region_key";
+ALTER TABLE match_default DROP CONSTRAINT "fk_match_map_id";
+ALTER INDEX ix_match_updated RENAME TO match_default_updated_idx;
+ALTER INDEX ix_match_vod_search RENAME TO match_default_vod_search_idx;
+
+CREATE TABLE "match"
+(
+    "id" BIGINT NOT NULL DEFAULT nextval('match_id_seq'),
+    "date" TIMESTAMP WITH TIME ZONE NOT NULL,
+    "type" SMALLINT NOT NULL,
+    "map_id" INTEGER NOT NULL,
+    "region" SMALLINT NOT NULL,
+    "updated" TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    "duration" SMALLINT,
+    "vod" BOOLEAN,
+    "sub_only_vod" BOOLEAN,
+    "rating_min" INTEGER,
+    "rating_max" INTEGER,
+    "race" TEXT,
+    "race_vod" TEXT,
+
+    PRIMARY KEY ("id", "date"),
+
+    CONSTRAINT "fk_match_map_id"
+        FOREIGN KEY ("map_id")
+        REFERENCES "map"("id")
+        ON DELETE CASCADE ON UPDATE CASCADE,
+
+    CONSTRAINT "uq_match_date_type_map_id_region"
+        UNIQUE("date", "type", "map_id", "region")
+) PARTITION BY RANGE("date");
+
+CREATE INDEX "ix_match_updated" ON "match"("updated");
+CREATE INDEX "ix_match_vod_search" ON "match"("date", "type", "map_id", "vod", "sub_only_vod", "race_vod" text_pattern_ops, "race" text_pattern_ops, "rating_min", "duration", "rating_max")
+    WHERE "vod" = true;
+
+ALTER SEQUENCE match_id_seq OWNED BY match.id;
+-- Existing indexes are reused, the map foreign key is checked
+ALTER TABLE match ATTACH PARTITION match_default DEFAULT;
+-- Placeholder bounds, not validated to avoid full scans. The application replaces them with
+-- validated bounds of the first range partition, see PartitionDAO.boundDefaultPartition
+ALTER TABLE match_default
+    ADD CONSTRAINT "match_default_date_check" CHECK ("date" < 'infinity')
+    NOT VALID;
+
+ALTER TABLE match_participant DROP CONSTRAINT match_participant_pkey;
+ALTER TABLE match_participant ADD CONSTRAINT "match_participant_default_pkey"
+    PRIMARY KEY USING INDEX "match_participant_default_pkey_new";
+ALTER TABLE match_participant RENAME TO match_participant_default;
+ALTER TABLE match_participant_default
+    DROP CONSTRAINT "fk_match_participant_player_character_id",
+    DROP CONSTRAINT "fk_match_participant_team_id",
+    DROP CONSTRAINT "fk_match_participant_twitch_video_id";
+ALTER INDEX ix_match_participant_player_character_id
+    RENAME TO match_participant_default_player_character_id_idx;
+ALTER INDEX ix_match_participant_team_id_team_state_timestamp
+    RENAME TO match_participant_default_team_id_team_state_timestamp_idx;
+ALTER INDEX ix_match_participant_twitch_video_id
+    RENAME TO match_participant_default_twitch_video_id_idx;
+
+CREATE TABLE "match_participant"
+(
+    "match_id" BIGINT NOT NULL,
+    "match_date" TIMESTAMP WITH TIME ZONE NOT NULL,
+    "player_character_id" BIGINT NOT NULL,
+    "team_id" BIGINT,
+    "twitch_video_id" BIGINT,
+    "twitch_video_offset" INTEGER,
+    "team_state_timestamp" TIMESTAMP WITH TIME ZONE,
+    "decision" SMALLINT NOT NULL,
+    "rating_change" SMALLINT,
+
+    PRIMARY KEY ("match_id", "player_character_id", "match_date")
+) PARTITION BY RANGE("match_date");
+
+CREATE INDEX "ix_match_participant_player_character_id" ON "match_participant"("player_character_id");
+CREATE INDEX "ix_match_participant_team_id_team_state_timestamp" ON "match_participant"("team_id", "team_state_timestamp")
+    WHERE "team_id" IS NOT NULL
+    OR "team_state_timestamp" IS NOT NULL;
+CREATE INDEX "ix_match_participant_twitch_video_id"
+    ON "match_participant"("twitch_video_id")
+    WHERE "twitch_video_id" IS NOT NULL;
+
+ALTER TABLE match_participant ATTACH PARTITION match_participant_default DEFAULT;
+ALTER TABLE match_participant_default
+    ADD CONSTRAINT "match_participant_default_match_date_check" CHECK ("match_date" < 'infinity')
+    NOT VALID;
+
+-- Foreign keys of partitioned tables can't be added as NOT VALID, existing rows are checked
+ALTER TABLE match_participant
+    ADD CONSTRAINT "fk_match_participant_match_id"
+        FOREIGN KEY ("match_id", "match_date")
+        REFERENCES "match"("id", "date")
+        ON DELETE CASCADE ON UPDATE CASCADE,
+    ADD CONSTRAINT "fk_match_participant_player_character_id"
+        FOREIGN KEY ("player_character_id")
+        REFERENCES "player_character"("id")
+        ON DELETE CASCADE ON UPDATE CASCADE,
+    ADD CONSTRAINT "fk_match_participant_team_id"
+        FOREIGN KEY ("team_id")
+        REFERENCES "team"("id")
+        ON DELETE SET NULL ON UPDATE CASCADE,
+    ADD CONSTRAINT "fk_match_participant_team_state_uid"
+        FOREIGN KEY ("team_id", "team_state_timestamp")
+        REFERENCES "team_state"("team_id", "timestamp")
+        ON DELETE SET NULL ON UPDATE CASCADE,
+    ADD CONSTRAINT "fk_match_participant_twitch_video_id"
+        FOREIGN KEY ("twitch_video_id")
+        REFERENCES "twitch_video"("id")
+        ON DELETE SET NULL ON UPDATE CASCADE;
+
+COMMIT;
+
+VACUUM(ANALYZE) match, match_participant;
+
+-- Validators of conditional ladder requests
+CREATE TABLE "ladder_validator"
+(
+    "region" SMALLINT NOT NULL,
+    "ladder_id" BIGINT NOT NULL,
+    "etag" TEXT,
+    "last_modified" TEXT,
+    "content_hash" BIGINT NOT NULL,
+    "updated" TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+
+    PRIMARY KEY ("region", "ladder_id")
+);
+
+CREATE INDEX "ix_ladder_validator_updated" ON "ladder_validator"("updated");
+
+-- Latest population snapshot of every league, used by delta population snapshots
+CREATE INDEX "ix_population_state_league_id_id" ON "population_state"("league_id", "id");
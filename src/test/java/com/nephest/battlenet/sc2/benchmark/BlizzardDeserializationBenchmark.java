@@ -0,0 +1,117 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadder;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadderMembership;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardMatches;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardProfileTeam;
+import com.nephest.battlenet.sc2.util.TestUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Deserialization of recorded Blizzard API responses that are parsed in every update cycle:
+ * data API ladders, legacy profile ladders, and legacy match histories. Profile ladders are
+ * parsed the same way as in {@code BlizzardSC2API#extractProfileLadder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlizzardDeserializationBenchmark
+{
+
+    private ObjectMapper objectMapper;
+    private byte[] ladder1v1;
+    private byte[] ladder4v4;
+    private byte[] profileLadder;
+    private byte[] matches;
+
+    @Setup
+    public void setup()
+    throws Exception
+    {
+        objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        ladder1v1 = read("blizzard/ladder-1v1.json");
+        ladder4v4 = read("blizzard/ladder-4v4.json");
+        profileLadder = read("blizzard/profile-ladder.json");
+        matches = read("blizzard/matches.json");
+    }
+
+    private static byte[] read(String path)
+    throws Exception
+    {
+        return TestUtil.readResource(BlizzardDeserializationBenchmark.class, path)
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public BlizzardLadder ladder1v1()
+    throws Exception
+    {
+        return objectMapper.readValue(ladder1v1, BlizzardLadder.class);
+    }
+
+    @Benchmark
+    public BlizzardLadder ladder4v4()
+    throws Exception
+    {
+        return objectMapper.readValue(ladder4v4, BlizzardLadder.class);
+    }
+
+    @Benchmark
+    public void profileLadder(Blackhole blackhole)
+    throws Exception
+    {
+        JsonNode root = objectMapper.readTree(profileLadder);
+        blackhole.consume(objectMapper.treeToValue
+        (
+            root.at("/allLadderMemberships"),
+            BlizzardLadderMembership[].class
+        ));
+        blackhole.consume(objectMapper.treeToValue(root.at("/ladderTeams"), BlizzardProfileTeam[].class));
+    }
+
+    @Benchmark
+    public BlizzardMatches matches()
+    throws Exception
+    {
+        return objectMapper.readValue(matches, BlizzardMatches.class);
+    }
+
+    public static void main(String[] args)
+    throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+            .include(BlizzardDeserializationBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build())
+            .run();
+    }
+
+}
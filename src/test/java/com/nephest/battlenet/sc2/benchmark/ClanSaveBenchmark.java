@@ -0,0 +1,134 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.benchmark;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.Clan;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.dao.ClanDAO;
+import com.nephest.battlenet.sc2.model.local.dao.ClanMemberDAO;
+import com.nephest.battlenet.sc2.model.local.dao.ClanMemberEventDAO;
+import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
+import com.nephest.battlenet.sc2.model.local.dao.VarDAO;
+import com.nephest.battlenet.sc2.model.local.inner.ClanMemberEventData;
+import com.nephest.battlenet.sc2.service.EventService;
+import com.nephest.battlenet.sc2.web.service.AlternativeLadderService;
+import com.nephest.battlenet.sc2.web.service.BlizzardSC2API;
+import com.nephest.battlenet.sc2.web.service.ClanService;
+import com.nephest.battlenet.sc2.web.service.FingerprintStore;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Flux;
+
+/**
+ * {@link ClanService#saveClans(java.util.Collection)} with stub DAOs. Measures the
+ * per-character update predicate and the grouping of clan data. Stale data is rejected by
+ * the predicate, this is what happens when the same ladder is fetched again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClanSaveBenchmark
+{
+
+    public static final int CHARACTERS = 10_000;
+    public static final int CLANS = 500;
+
+    @Param({"true", "false"})
+    public boolean fresh;
+
+    private ClanService clanService;
+    private List<ClanMemberEventData> data;
+
+    @Setup
+    public void setup()
+    {
+        EventService eventService = mock(EventService.class);
+        when(eventService.getLadderUpdateEvent()).thenReturn(Flux.never());
+        ClanDAO clanDAO = mock(ClanDAO.class);
+        when(clanDAO.merge(any())).then(i->
+        {
+            Set<Clan> clans = i.getArgument(0);
+            for(Clan clan : clans) clan.setId(clan.getTag().hashCode());
+            return clans;
+        });
+        clanService = new ClanService
+        (
+            mock(PlayerCharacterDAO.class),
+            clanDAO,
+            mock(ClanMemberDAO.class),
+            mock(ClanMemberEventDAO.class),
+            mock(VarDAO.class),
+            mock(BlizzardSC2API.class),
+            eventService,
+            mock(AlternativeLadderService.class),
+            new FingerprintStore(mock(PlayerCharacterDAO.class), mock(ExecutorService.class), false, FingerprintStore.WAYS),
+            mock(ExecutorService.class),
+            mock(ExecutorService.class)
+        );
+
+        Instant createdAt = Instant.now();
+        if(!fresh) clanService.saveClans(createData(createdAt.plusSeconds(60)));
+        data = createData(createdAt);
+    }
+
+    /*
+        Every 5th character has no clan
+     */
+    private static List<ClanMemberEventData> createData(Instant createdAt)
+    {
+        List<ClanMemberEventData> data = new ArrayList<>(CHARACTERS);
+        for(long i = 1; i <= CHARACTERS; i++)
+        {
+            PlayerCharacter character = new PlayerCharacter(i, i, Region.EU, i, 1, "name#" + i);
+            Clan clan = i % 5 == 0 ? null : Clan.of("clan" + (i % CLANS), Region.EU);
+            data.add(new ClanMemberEventData(character, clan, createdAt));
+        }
+        return data;
+    }
+
+    @Benchmark
+    public List<ClanMemberEventData> saveClans()
+    {
+        clanService.saveClans(data);
+        return data;
+    }
+
+    public static void main(String[] args)
+    throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+            .include(ClanSaveBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build())
+            .run();
+    }
+
+}
@@ -0,0 +1,123 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadder;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadderLeague;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardTeam;
+import com.nephest.battlenet.sc2.util.TestUtil;
+import com.nephest.battlenet.sc2.web.service.FilteredLadderDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the legacy String + tree parsing of filtered ladders with the token-streaming
+ * {@link FilteredLadderDecoder} on recorded ladder fixtures. Run {@link #main(String[])}, the GC
+ * profiler reports the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LadderParsingBenchmark
+{
+
+    /*
+        Netty reads the response in chunks, this is the typical chunk size.
+     */
+    public static final int CHUNK_SIZE = 8192;
+
+    @Param({"blizzard/ladder-1v1.json", "blizzard/ladder-4v4.json"})
+    public String fixture;
+
+    /*
+        0 - all teams are fresh, 50 - half of teams are stale
+     */
+    @Param({"0", "50"})
+    public int stalePercentage;
+
+    private ObjectMapper objectMapper;
+    private byte[] ladder;
+    private long cutoff;
+
+    @Setup
+    public void setup()
+    throws Exception
+    {
+        objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        ladder = TestUtil.readResource(LadderParsingBenchmark.class, fixture)
+            .getBytes(StandardCharsets.UTF_8);
+        long[] timestamps = objectMapper.readTree(ladder).findValues(FilteredLadderDecoder.LAST_PLAYED_FIELD)
+            .stream()
+            .mapToLong(JsonNode::asLong)
+            .sorted()
+            .toArray();
+        cutoff = stalePercentage == 0
+            ? 0
+            : timestamps[timestamps.length * stalePercentage / 100];
+    }
+
+    @Benchmark
+    public BlizzardLadder tree()
+    throws Exception
+    {
+        String s = new String(ladder, StandardCharsets.UTF_8);
+        ArrayList<BlizzardTeam> teams = new ArrayList<>();
+        JsonNode root = objectMapper.readTree(s);
+        for(JsonNode team : root.at("/team"))
+        {
+            long timestamp = team.findValue(FilteredLadderDecoder.LAST_PLAYED_FIELD).asLong();
+            if(timestamp > cutoff) teams.add(objectMapper.treeToValue(team, BlizzardTeam.class));
+        }
+        return new BlizzardLadder
+        (
+            teams.toArray(BlizzardTeam[]::new),
+            objectMapper.treeToValue(root.at("/league"), BlizzardLadderLeague.class)
+        );
+    }
+
+    @Benchmark
+    public BlizzardLadder streaming()
+    {
+        FilteredLadderDecoder decoder = new FilteredLadderDecoder(objectMapper, cutoff);
+        for(int i = 0; i < ladder.length; i += CHUNK_SIZE)
+            decoder.feed(ladder, i, Math.min(CHUNK_SIZE, ladder.length - i));
+        return decoder.finish();
+    }
+
+    public static void main(String[] args)
+    throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+            .include(LadderParsingBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build())
+            .run();
+    }
+
+}
@@ -0,0 +1,389 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import com.nephest.battlenet.sc2.config.AllTestConfig;
+import com.nephest.battlenet.sc2.model.BaseLeague.LeagueType;
+import com.nephest.battlenet.sc2.model.BaseLeagueTier;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.SeasonGenerator;
+import com.nephest.battlenet.sc2.model.local.ladder.LadderTeam;
+import com.nephest.battlenet.sc2.model.local.ladder.PagedSearchResult;
+import com.nephest.battlenet.sc2.model.local.ladder.dao.LadderSearchDAO;
+import com.nephest.battlenet.sc2.web.service.LadderUpdateData;
+import com.nephest.battlenet.sc2.web.service.PendingLadderData;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.EnabledIf;
+
+@SpringBootTest(classes = AllTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class LadderPageCacheIT
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(LadderPageCacheIT.class);
+
+    public static final int SEASON = SeasonGenerator.DEFAULT_SEASON_ID;
+    public static final QueueType QUEUE_TYPE = QueueType.LOTV_1V1;
+    public static final TeamType TEAM_TYPE = TeamType.ARRANGED;
+    public static final int TEAMS_PER_LEAGUE = 30;
+    public static final int[] PAGE_DIFFS = new int[]{1, 2, 3, -1, -2};
+    public static final int BENCHMARK_CLONES = 100;
+    public static final int BENCHMARK_THREADS = 8;
+    public static final int BENCHMARK_WARMUP_REQUESTS = 400;
+    public static final int BENCHMARK_REQUESTS = 4000;
+
+    @Autowired
+    private LadderPageCache ladderPageCache;
+
+    @Autowired
+    private LadderSearchDAO ladderSearchDAO;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private boolean enabledBefore;
+
+    @BeforeAll
+    public static void beforeAll
+    (
+        @Autowired DataSource dataSource,
+        @Autowired SeasonGenerator seasonGenerator,
+        @Autowired JdbcTemplate jdbcTemplate
+    )
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+        seasonGenerator.generateDefaultSeason
+        (
+            List.of(Region.values()),
+            List.of(LeagueType.values()),
+            List.of(QUEUE_TYPE),
+            TEAM_TYPE,
+            BaseLeagueTier.LeagueTierType.FIRST,
+            TEAMS_PER_LEAGUE
+        );
+        //a lot of equal ratings across regions and leagues, ids must be used to break ties
+        jdbcTemplate.update("UPDATE team SET rating = (id * 7) % 113");
+    }
+
+    @AfterAll
+    public static void afterAll(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        enabledBefore = ladderPageCache.isEnabled();
+        ladderPageCache.setEnabled(true);
+        ladderPageCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        ladderPageCache.setEnabled(enabledBefore);
+    }
+
+    public static Stream<Arguments> testFindAnchored()
+    {
+        return Stream.of
+        (
+            Arguments.of(EnumSet.allOf(Region.class), EnumSet.allOf(LeagueType.class)),
+            Arguments.of(EnumSet.of(Region.EU), EnumSet.allOf(LeagueType.class)),
+            Arguments.of(EnumSet.of(Region.US, Region.KR), EnumSet.of(LeagueType.GRANDMASTER, LeagueType.MASTER)),
+            Arguments.of(EnumSet.allOf(Region.class), EnumSet.of(LeagueType.BRONZE, LeagueType.DIAMOND)),
+            Arguments.of(EnumSet.of(Region.CN), EnumSet.of(LeagueType.GOLD))
+        );
+    }
+
+    private List<long[]> getAnchors()
+    {
+        List<long[]> anchors = new ArrayList<>();
+        //top and bottom of the ladder
+        anchors.add(new long[]{Short.MAX_VALUE, Long.MAX_VALUE});
+        anchors.add(new long[]{-1, 0});
+        //existing teams, including teams with equal ratings
+        anchors.addAll(jdbcTemplate.query
+        (
+            "SELECT rating, id FROM team WHERE id % 37 = 0 ORDER BY id",
+            (rs, i)->new long[]{rs.getLong("rating"), rs.getLong("id")}
+        ));
+        return anchors;
+    }
+
+    private static List<Long> getIds(PagedSearchResult<List<LadderTeam>> result)
+    {
+        return result.getResult().stream().map(LadderTeam::getId).toList();
+    }
+
+    private PagedSearchResult<List<LadderTeam>> find
+    (
+        Set<Region> regions,
+        Set<LeagueType> leagues,
+        long[] anchor,
+        int pageDiff
+    )
+    {
+        return ladderPageCache.findAnchored
+        (
+            SEASON,
+            regions,
+            leagues,
+            QUEUE_TYPE,
+            TEAM_TYPE,
+            10,
+            anchor[0],
+            anchor[1],
+            pageDiff
+        );
+    }
+
+    @MethodSource
+    @ParameterizedTest
+    public void testFindAnchored(Set<Region> regions, Set<LeagueType> leagues)
+    {
+        int nonEmpty = 0;
+        for(long[] anchor : getAnchors())
+        {
+            for(int pageDiff : PAGE_DIFFS)
+            {
+                PagedSearchResult<List<LadderTeam>> expected = ladderSearchDAO.findAnchored
+                (
+                    SEASON,
+                    regions,
+                    leagues,
+                    QUEUE_TYPE,
+                    TEAM_TYPE,
+                    10,
+                    anchor[0],
+                    anchor[1],
+                    pageDiff
+                );
+                PagedSearchResult<List<LadderTeam>> actual = find(regions, leagues, anchor, pageDiff);
+
+                String message = Arrays.toString(anchor) + ", " + pageDiff;
+                assertEquals(expected.getMeta().getPage(), actual.getMeta().getPage(), message);
+                assertEquals(expected.getMeta().getPerPage(), actual.getMeta().getPerPage(), message);
+                assertEquals(getIds(expected), getIds(actual), message);
+                for(int i = 0; i < expected.getResult().size(); i++)
+                    assertEquals
+                    (
+                        expected.getResult().get(i).getMembers().size(),
+                        actual.getResult().get(i).getMembers().size(),
+                        message
+                    );
+                if(!actual.getResult().isEmpty()) nonEmpty++;
+            }
+        }
+        assertFalse(nonEmpty == 0);
+    }
+
+    @Test
+    public void whenLadderIsUpdated_thenRebuildSnapshot()
+    {
+        Set<Region> regions = EnumSet.allOf(Region.class);
+        Set<LeagueType> leagues = EnumSet.allOf(LeagueType.class);
+        long[] top = new long[]{Short.MAX_VALUE, Long.MAX_VALUE};
+        long rebuilds = ladderPageCache.getStats().rebuilds();
+        long bottomId = getIds(find(regions, leagues, new long[]{-1, 0}, -1)).get(0);
+        assertNotEquals(bottomId, getIds(find(regions, leagues, top, 1)).get(0));
+
+        long rating = jdbcTemplate.queryForObject("SELECT rating FROM team WHERE id = ?", Long.class, bottomId);
+        jdbcTemplate.update("UPDATE team SET rating = 10000 WHERE id = ?", bottomId);
+        try
+        {
+            //stale snapshot is served until the update
+            assertNotEquals(bottomId, getIds(find(regions, leagues, top, 1)).get(0));
+
+            //other seasons are not rebuilt
+            PendingLadderData otherSeason = new PendingLadderData();
+            otherSeason.getStatsUpdates().add(SEASON + 1);
+            assertEquals(0, ladderPageCache.update(new LadderUpdateData(false, List.of(otherSeason), List.of())));
+            assertNotEquals(bottomId, getIds(find(regions, leagues, top, 1)).get(0));
+
+            PendingLadderData pending = new PendingLadderData();
+            pending.getStatsUpdates().add(SEASON);
+            assertEquals(1, ladderPageCache.update(new LadderUpdateData(false, List.of(pending), List.of())));
+            assertEquals(bottomId, getIds(find(regions, leagues, top, 1)).get(0));
+            assertEquals(rebuilds + 1, ladderPageCache.getStats().rebuilds());
+        }
+        finally
+        {
+            jdbcTemplate.update("UPDATE team SET rating = ? WHERE id = ?", rating, bottomId);
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile)
+    {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static void logPercentiles(String name, long[] latencies)
+    {
+        Arrays.sort(latencies);
+        LOG.info
+        (
+            "{}: p50 {} us, p99 {} us",
+            name,
+            percentile(latencies, 0.5) / 1000,
+            percentile(latencies, 0.99) / 1000
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private long[] replay(ExecutorService executor, List<Object[]> requests)
+    throws Exception
+    {
+        long[] latencies = new long[requests.size()];
+        List<Future<?>> futures = new ArrayList<>(requests.size());
+        for(int i = 0; i < requests.size(); i++)
+        {
+            int ix = i;
+            futures.add(executor.submit(()->
+            {
+                Object[] request = requests.get(ix);
+                long start = System.nanoTime();
+                find
+                (
+                    (Set<Region>) request[0],
+                    (Set<LeagueType>) request[1],
+                    (long[]) request[2],
+                    (int) request[3]
+                );
+                latencies[ix] = System.nanoTime() - start;
+            }));
+        }
+        for(Future<?> future : futures) future.get();
+        return latencies;
+    }
+
+    /*
+        Replays the same mix of anchored page requests against SQL queries and the cache from
+        several threads. Teams are cloned to get a ladder of a realistic size.
+        Disabled by default because it takes a while, enable it by setting the
+        com.nephest.battlenet.sc2.benchmark property.
+     */
+    @Test
+    @EnabledIf
+    (
+        expression = "#{environment['com.nephest.battlenet.sc2.benchmark'] != null}",
+        reason = "Benchmarks are disabled",
+        loadContext = true
+    )
+    public void benchmark()
+    throws Exception
+    {
+        jdbcTemplate.update
+        (
+            "INSERT INTO team(legacy_id, division_id, season, region, league_type, queue_type, "
+                + "team_type, tier_type, rating, points, wins, losses, ties, "
+                + "last_played, joined, primary_data_updated) "
+            + "SELECT legacy_id || '~' || i, division_id, season, region, league_type, queue_type, "
+                + "team_type, tier_type, (id * 31 + i * 17) % 7000, points, wins, losses, ties, "
+                + "last_played, joined, primary_data_updated "
+            + "FROM team, generate_series(1, ?) i",
+            BENCHMARK_CLONES
+        );
+        ExecutorService executor = Executors.newFixedThreadPool(BENCHMARK_THREADS);
+        try
+        {
+            jdbcTemplate.update
+            (
+                "INSERT INTO team_member(team_id, team_season, team_queue_type, player_character_id) "
+                + "SELECT team.id, team.season, team.queue_type, (SELECT MIN(id) FROM player_character) "
+                + "FROM team "
+                + "WHERE legacy_id LIKE '%~%'"
+            );
+            jdbcTemplate.execute("VACUUM ANALYZE team, team_member");
+            List<long[]> anchors = jdbcTemplate.query
+            (
+                "SELECT rating, id FROM team ORDER BY random() LIMIT 1000",
+                (rs, i)->new long[]{rs.getLong("rating"), rs.getLong("id")}
+            );
+            List<Set<Region>> regions = List.of
+            (
+                EnumSet.allOf(Region.class),
+                EnumSet.of(Region.EU),
+                EnumSet.of(Region.US, Region.KR)
+            );
+            List<Set<LeagueType>> leagues = List.of
+            (
+                EnumSet.allOf(LeagueType.class),
+                EnumSet.of(LeagueType.GRANDMASTER, LeagueType.MASTER),
+                EnumSet.of(LeagueType.DIAMOND)
+            );
+            Random random = new Random(1);
+            List<Object[]> requests = new ArrayList<>();
+            for(int i = 0; i < BENCHMARK_WARMUP_REQUESTS + BENCHMARK_REQUESTS; i++)
+                requests.add(new Object[]{
+                    regions.get(random.nextInt(regions.size())),
+                    leagues.get(random.nextInt(leagues.size())),
+                    anchors.get(random.nextInt(anchors.size())),
+                    PAGE_DIFFS[random.nextInt(PAGE_DIFFS.length)]
+                });
+
+            for(boolean cached : new boolean[]{false, true})
+            {
+                ladderPageCache.setEnabled(cached);
+                replay(executor, requests.subList(0, BENCHMARK_WARMUP_REQUESTS));
+                logPercentiles
+                (
+                    (cached ? "Ladder page cache" : "Ladder page SQL") + ", " + BENCHMARK_THREADS + " threads",
+                    replay(executor, requests.subList(BENCHMARK_WARMUP_REQUESTS, requests.size()))
+                );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            jdbcTemplate.update("DELETE FROM team WHERE legacy_id LIKE '%~%'");
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.Season;
+import com.nephest.battlenet.sc2.service.EventService;
+import com.nephest.battlenet.sc2.web.service.LadderUpdateData;
+import com.nephest.battlenet.sc2.web.service.LadderUpdateTaskContext;
+import com.nephest.battlenet.sc2.web.service.PendingLadderData;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+public class LadderScanCacheTest
+{
+
+    private EventService eventService;
+    private DataVersionRegistry dataVersionRegistry;
+    private LadderScanCache cache;
+    private LadderScanKeyGenerator keyGenerator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void beforeEach()
+    {
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache(LadderScanCache.NAME))
+            .thenReturn(new CaffeineCache(LadderScanCache.NAME, Caffeine.newBuilder().build()));
+        ObjectProvider<CacheManager> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(cacheManager);
+        eventService = new EventService(10, 10);
+        dataVersionRegistry = new DataVersionRegistry();
+        cache = new LadderScanCache(provider, dataVersionRegistry, eventService);
+        keyGenerator = new LadderScanKeyGenerator(new FQDNSimpleKeyGenerator());
+    }
+
+    public Object find(Integer season, Region region, QueueType queueType)
+    {
+        return null;
+    }
+
+    public Object find(Season season, BaseLeague league)
+    {
+        return null;
+    }
+
+    public Object findAll(int limit)
+    {
+        return null;
+    }
+
+    private Object key(String name, Class<?>[] types, Object... params)
+    throws NoSuchMethodException
+    {
+        Method method = LadderScanCacheTest.class.getMethod(name, types);
+        return keyGenerator.generate(this, method, params);
+    }
+
+    private Object findKey(Integer season, Region region, QueueType queueType)
+    throws NoSuchMethodException
+    {
+        return key
+        (
+            "find",
+            new Class<?>[]{Integer.class, Region.class, QueueType.class},
+            season, region, queueType
+        );
+    }
+
+    @Test
+    public void testScope()
+    throws NoSuchMethodException
+    {
+        LadderScanKey key = (LadderScanKey) findKey(10, Region.EU, QueueType.LOTV_1V1);
+        assertEquals(LadderScanCacheTest.class.getSimpleName(), key.cacheRegion());
+        assertEquals(new LadderCacheScope(Region.EU, 10, QueueType.LOTV_1V1), key.scope());
+
+        Season season = new Season(1, 11, Region.US, 2020, 1, null, null);
+        BaseLeague league = new BaseLeague
+        (
+            BaseLeague.LeagueType.BRONZE,
+            QueueType.LOTV_2V2,
+            TeamType.ARRANGED
+        );
+        key = (LadderScanKey) key("find", new Class<?>[]{Season.class, BaseLeague.class}, season, league);
+        assertEquals(new LadderCacheScope(Region.US, 11, QueueType.LOTV_2V2), key.scope());
+
+        //the param is not a season, the scope is global
+        key = (LadderScanKey) key("findAll", new Class<?>[]{int.class}, 10);
+        assertEquals(LadderCacheScope.GLOBAL, key.scope());
+    }
+
+    @Test
+    public void whenEvictScopes_thenEvictOverlappingEntriesOnly()
+    throws NoSuchMethodException
+    {
+        Object eu10 = findKey(10, Region.EU, QueueType.LOTV_1V1);
+        Object us10 = findKey(10, Region.US, QueueType.LOTV_1V1);
+        Object eu9 = findKey(9, Region.EU, QueueType.LOTV_1V1);
+        Object eu10Team = findKey(10, Region.EU, QueueType.LOTV_2V2);
+        Object eu10AnyQueue = findKey(10, Region.EU, null);
+        Object global = key("findAll", new Class<?>[]{int.class}, 10);
+        for(Object key : List.of(eu10, us10, eu9, eu10Team, eu10AnyQueue, global)) cache.put(key, 1);
+
+        assertEquals(3, cache.evict(Set.of(new LadderCacheScope(Region.EU, 10, QueueType.LOTV_1V1))));
+        assertNull(cache.get(eu10));
+        assertNull(cache.get(eu10AnyQueue));
+        assertNull(cache.get(global));
+        assertNotNull(cache.get(us10));
+        assertNotNull(cache.get(eu9));
+        assertNotNull(cache.get(eu10Team));
+
+        LadderScanCache.CacheRegionStats stats = cache.getStats()
+            .get(LadderScanCacheTest.class.getSimpleName());
+        assertEquals(new LadderScanCache.CacheRegionStats(3, 3, 3), stats);
+    }
+
+    @Test
+    public void whenGetWithLoader_thenRecordHitsAndMisses()
+    throws NoSuchMethodException
+    {
+        Object key = findKey(10, Region.EU, QueueType.LOTV_1V1);
+        assertEquals(1, cache.get(key, ()->1));
+        assertEquals(1, cache.get(key, ()->2));
+        assertTrue(cache.evictIfPresent(key));
+        assertFalse(cache.evictIfPresent(key));
+        assertEquals
+        (
+            new LadderScanCache.CacheRegionStats(1, 1, 1),
+            cache.getStats().get(LadderScanCacheTest.class.getSimpleName())
+        );
+    }
+
+    @Test
+    public void whenLadderIsUpdated_thenEvictEntriesAndBumpVersions()
+    throws NoSuchMethodException
+    {
+        Object eu10 = findKey(10, Region.EU, QueueType.LOTV_1V1);
+        Object us10 = findKey(10, Region.US, QueueType.LOTV_1V1);
+        cache.put(eu10, 1);
+        cache.put(us10, 1);
+        Set<LadderCacheScope> eu10Scope = Set.of(new LadderCacheScope(Region.EU, 10, null));
+        Set<LadderCacheScope> us10Scope = Set.of(new LadderCacheScope(Region.US, 10, null));
+        long eu10Version = dataVersionRegistry.getVersion(eu10Scope);
+        long us10Version = dataVersionRegistry.getVersion(us10Scope);
+
+        eventService.createLadderUpdateEvent(createUpdateData(new Season(1, 10, Region.EU, 2020, 1, null, null)));
+
+        assertNull(cache.get(eu10));
+        assertNotNull(cache.get(us10));
+        assertTrue(dataVersionRegistry.getVersion(eu10Scope) > eu10Version);
+        assertEquals(us10Version, dataVersionRegistry.getVersion(us10Scope));
+    }
+
+    private static LadderUpdateData createUpdateData(Season season)
+    {
+        LadderUpdateTaskContext<Void> context = new LadderUpdateTaskContext<>
+        (
+            season,
+            Map.of(QueueType.LOTV_1V1, Set.of(BaseLeague.LeagueType.BRONZE)),
+            List.of()
+        );
+        return new LadderUpdateData(false, List.of(), List.of(Map.of(season.getRegion(), context)));
+    }
+
+    @Test
+    public void testGetScopes()
+    {
+        Season season = new Season(1, 10, Region.EU, 2020, 1, null, null);
+        LadderUpdateTaskContext<Void> context = new LadderUpdateTaskContext<>
+        (
+            season,
+            Map.of(QueueType.LOTV_1V1, Set.of(BaseLeague.LeagueType.BRONZE)),
+            List.of()
+        );
+        PendingLadderData pending = new PendingLadderData();
+        pending.getStatsUpdates().add(9);
+        LadderUpdateData data = new LadderUpdateData
+        (
+            false,
+            List.of(pending),
+            List.of(Map.of(Region.EU, context))
+        );
+        assertEquals
+        (
+            Set.of
+            (
+                new LadderCacheScope(Region.EU, 10, QueueType.LOTV_1V1),
+                new LadderCacheScope(null, 9, null)
+            ),
+            LadderScanCache.getScopes(data)
+        );
+    }
+
+}
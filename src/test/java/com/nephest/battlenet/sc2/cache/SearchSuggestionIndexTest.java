@@ -0,0 +1,230 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nephest.battlenet.sc2.model.BasePlayerCharacter;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
+import com.nephest.battlenet.sc2.model.local.dao.ClanDAO;
+import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
+import com.nephest.battlenet.sc2.model.local.inner.PrefixIndex;
+import com.nephest.battlenet.sc2.service.EventService;
+import com.nephest.battlenet.sc2.util.TestUtil;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class SearchSuggestionIndexTest
+{
+
+    @Mock
+    private AccountDAO accountDAO;
+
+    @Mock
+    private PlayerCharacterDAO playerCharacterDAO;
+
+    @Mock
+    private ClanDAO clanDAO;
+
+    private EventService eventService;
+    private SearchSuggestionIndex index;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        eventService = new EventService(10, 10);
+        index = new SearchSuggestionIndex
+        (
+            accountDAO,
+            playerCharacterDAO,
+            clanDAO,
+            eventService,
+            TestUtil.EXECUTOR_SERVICE,
+            false,
+            3
+        );
+    }
+
+    private void stubIndexes(String... names)
+    {
+        PrefixIndex.Builder nameBuilder = new PrefixIndex.Builder();
+        for(int i = 0; i < names.length; i++) nameBuilder.add(names[i], names.length - i);
+        when(playerCharacterDAO.findNameWithoutDiscriminatorIndex()).thenReturn(nameBuilder.build());
+        when(accountDAO.findBattleTagIndex()).thenReturn(new PrefixIndex.Builder()
+            .add("name#1", 1)
+            .add("Name#2", 2)
+            .build());
+        when(clanDAO.findTagIndex()).thenReturn(new PrefixIndex.Builder()
+            .add("clan", 1)
+            .add("clan2", 2)
+            .build());
+    }
+
+    private void enable()
+    throws ExecutionException, InterruptedException
+    {
+        index.setEnabled(true);
+        index.getRebuildTask().getFuture().get();
+    }
+
+    private void rebuild()
+    throws ExecutionException, InterruptedException
+    {
+        index.rebuild();
+        index.getRebuildTask().getFuture().get();
+    }
+
+    private static PlayerCharacter character(String name)
+    {
+        return new PlayerCharacter(1L, 1L, Region.EU, 1L, 1, name);
+    }
+
+    @Test
+    public void whenDisabled_thenUseDAO()
+    {
+        when(playerCharacterDAO.findNamesWithoutDiscriminator("name", 10)).thenReturn(List.of("Name"));
+        when(accountDAO.findBattleTags("name#", 10)).thenReturn(List.of("Name#1"));
+        when(clanDAO.findTags("cl", 10)).thenReturn(List.of("clan"));
+        assertEquals(List.of("Name"), index.findNamesWithoutDiscriminator("name", 10));
+        assertEquals(List.of("Name#1"), index.findBattleTags("name#", 10));
+        assertEquals(List.of("clan"), index.findClanTags("cl", 10));
+
+        index.rebuild();
+        verify(playerCharacterDAO, never()).findNameWithoutDiscriminatorIndex();
+        assertFalse(index.getStats().loaded());
+        assertFalse(index.isLoaded());
+    }
+
+    @Test
+    public void whenEnabled_thenUseIndex()
+    throws ExecutionException, InterruptedException
+    {
+        stubIndexes("Name1", "name2", "Other");
+        enable();
+
+        assertEquals(List.of("Name1", "name2"), index.findNamesWithoutDiscriminator("NAME", 10));
+        assertEquals(List.of("Name#2", "name#1"), index.findBattleTags("name#", 10));
+        assertEquals(List.of("clan2"), index.findClanTags("clan", 1));
+        verify(playerCharacterDAO, never()).findNamesWithoutDiscriminator(anyString(), anyInt());
+        verify(accountDAO, never()).findBattleTags(anyString(), anyInt());
+        verify(clanDAO, never()).findTags(anyString(), anyInt());
+
+        SearchSuggestionIndex.Stats stats = index.getStats();
+        assertTrue(stats.loaded());
+        assertTrue(index.isLoaded());
+        assertEquals(3, stats.names());
+        assertEquals(2, stats.battleTags());
+        assertEquals(2, stats.clanTags());
+        assertEquals(1, stats.rebuilds());
+
+        index.setEnabled(false);
+        assertFalse(index.getStats().loaded());
+        assertFalse(index.isLoaded());
+    }
+
+    @Test
+    public void whenCharacterIsActive_thenAddNameToOverlay()
+    throws ExecutionException, InterruptedException
+    {
+        stubIndexes("Name1", "Other");
+        enable();
+
+        eventService.createLadderCharacterActivityEvent
+        (
+            character("name3#123"),
+            character("Name1#321"),
+            character(BasePlayerCharacter.DEFAULT_FAKE_FULL_NAME)
+        );
+        //overlay names are ranked after indexed names
+        assertEquals(List.of("Name1", "name3"), index.findNamesWithoutDiscriminator("na", 10));
+        assertEquals(List.of("Name1"), index.findNamesWithoutDiscriminator("na", 1));
+        assertEquals(List.of("name3"), index.findNamesWithoutDiscriminator("name3", 10));
+        assertEquals(1, index.getStats().overlayNames());
+
+        //rebuilt index contains the name
+        stubIndexes("Name1", "name3", "Other");
+        rebuild();
+        assertEquals(0, index.getStats().overlayNames());
+        assertEquals(List.of("Name1", "name3"), index.findNamesWithoutDiscriminator("na", 10));
+    }
+
+    @Test
+    public void whenDataIsRemoved_thenExcludeItBeforeRebuild()
+    throws ExecutionException, InterruptedException
+    {
+        stubIndexes("Name1", "name2", "Other");
+        enable();
+        index.addCharacters(List.of(character("name3#1")));
+
+        //the rebuild is blocked until removed values are verified
+        CountDownLatch rebuildLatch = new CountDownLatch(1);
+        PrefixIndex rebuiltNames = new PrefixIndex.Builder()
+            .add("name2", 2)
+            .add("Other", 1)
+            .build();
+        when(playerCharacterDAO.findNameWithoutDiscriminatorIndex()).thenAnswer(inv->
+        {
+            rebuildLatch.await();
+            return rebuiltNames;
+        });
+        when(accountDAO.findBattleTagIndex()).thenReturn(new PrefixIndex.Builder()
+            .add("name#1", 1)
+            .build());
+        index.remove(List.of("Name1", "name3"), List.of("Name#2"));
+        //other values fill the limit
+        assertEquals(List.of("name2"), index.findNamesWithoutDiscriminator("na", 10));
+        assertEquals(List.of("name2"), index.findNamesWithoutDiscriminator("na", 1));
+        assertEquals(List.of("name#1"), index.findBattleTags("name#", 10));
+        assertEquals(0, index.getStats().overlayNames());
+        assertEquals(3, index.getStats().removed());
+
+        rebuildLatch.countDown();
+        index.getRebuildTask().getFuture().get();
+        assertEquals(0, index.getStats().removed());
+        assertEquals(List.of("name2"), index.findNamesWithoutDiscriminator("na", 10));
+        assertEquals(List.of("name#1"), index.findBattleTags("name#", 10));
+
+        //removed name is used again
+        index.remove(List.of("name4"), List.of());
+        index.addCharacters(List.of(character("name4#1")));
+        assertEquals(List.of("name2", "name4"), index.findNamesWithoutDiscriminator("na", 10));
+    }
+
+    @Test
+    public void whenOverlayIsFull_thenRebuild()
+    throws ExecutionException, InterruptedException
+    {
+        stubIndexes("Name1");
+        enable();
+
+        assertEquals(3, index.addCharacters(List.of
+        (
+            character("a#1"),
+            character("b#1"),
+            character("c#1")
+        )));
+        assertEquals(0, index.addCharacters(List.of(character("d#1"))));
+        index.getRebuildTask().getFuture().get();
+        assertEquals(2, index.getStats().rebuilds());
+        //overlay names that are still missing in the DB are dropped
+        assertEquals(0, index.getStats().overlayNames());
+    }
+
+}
@@ -0,0 +1,131 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.Season;
+import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class SeasonRegistryTest
+{
+
+    @Mock
+    private SeasonDAO seasonDAO;
+
+    private SeasonRegistry registry;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        registry = new SeasonRegistry(seasonDAO, false);
+    }
+
+    private static Season season(int id, Region region, int battlenetId)
+    {
+        return new Season
+        (
+            id, battlenetId, region, 2020, battlenetId,
+            SC2Pulse.offsetDateTime(), SC2Pulse.offsetDateTime().plusMonths(1)
+        );
+    }
+
+    @Test
+    public void whenDisabled_thenUseDAO()
+    {
+        Season season = season(1, Region.EU, 10);
+        when(seasonDAO.find(Region.EU, 10)).thenReturn(Optional.of(season));
+        when(seasonDAO.findListByRegion(Region.EU)).thenReturn(List.of(season));
+        when(seasonDAO.findListByBattlenetId(10)).thenReturn(List.of(season));
+        when(seasonDAO.getMaxBattlenetId()).thenReturn(10);
+        when(seasonDAO.getMaxBattlenetId(Region.EU)).thenReturn(10);
+
+        assertSame(season, registry.find(Region.EU, 10).orElseThrow());
+        assertEquals(List.of(season), registry.findListByRegion(Region.EU));
+        assertEquals(List.of(season), registry.findListByBattlenetId(10));
+        assertEquals(10, registry.getMaxBattlenetId());
+        assertEquals(10, registry.getMaxBattlenetId(Region.EU));
+
+        registry.reload();
+        verify(seasonDAO, never()).findAll();
+        assertFalse(registry.getStats().loaded());
+    }
+
+    @Test
+    public void whenEnabled_thenUseSnapshot()
+    {
+        Season us9 = season(1, Region.US, 9);
+        Season eu9 = season(2, Region.EU, 9);
+        Season us10 = season(3, Region.US, 10);
+        Season eu10 = season(4, Region.EU, 10);
+        Season kr11 = season(5, Region.KR, 11);
+        when(seasonDAO.findAll()).thenReturn(List.of(us9, us10, eu9, kr11, eu10));
+        registry.setEnabled(true);
+
+        assertSame(eu10, registry.find(Region.EU, 10).orElseThrow());
+        assertTrue(registry.find(Region.EU, 11).isEmpty());
+        assertTrue(registry.find(Region.CN, 10).isEmpty());
+
+        assertEquals(List.of(us10, us9), registry.findListByRegion(Region.US));
+        assertEquals(List.of(), registry.findListByRegion(Region.CN));
+
+        //battlenet id DESC, region DESC
+        assertEquals(List.of(eu10, us10), registry.findListByBattlenetId(10));
+        assertEquals(List.of(kr11, eu10, us10, eu9, us9), registry.findListByBattlenetId(null));
+        assertEquals(List.of(), registry.findListByBattlenetId(12));
+
+        assertEquals(11, registry.getMaxBattlenetId());
+        assertEquals(10, registry.getMaxBattlenetId(Region.US));
+        assertEquals(11, registry.getMaxBattlenetId(Region.KR));
+        assertNull(registry.getMaxBattlenetId(Region.CN));
+
+        verify(seasonDAO, times(1)).findAll();
+        verify(seasonDAO, never()).find(any(), anyInt());
+        verify(seasonDAO, never()).getMaxBattlenetId();
+        SeasonRegistry.Stats stats = registry.getStats();
+        assertTrue(stats.loaded());
+        assertEquals(5, stats.seasons());
+        assertEquals(1, stats.reloads());
+
+        registry.setEnabled(false);
+        assertFalse(registry.getStats().loaded());
+    }
+
+    @Test
+    public void whenReloaded_thenSwapSnapshot()
+    {
+        Season eu10 = season(1, Region.EU, 10);
+        Season eu11 = season(2, Region.EU, 11);
+        when(seasonDAO.findAll()).thenReturn(List.of(eu10));
+        registry.setEnabled(true);
+        assertEquals(10, registry.getMaxBattlenetId());
+
+        when(seasonDAO.findAll()).thenReturn(List.of(eu10, eu11));
+        registry.reload();
+        assertEquals(11, registry.getMaxBattlenetId());
+        assertEquals(List.of(eu11, eu10), registry.findListByRegion(Region.EU));
+        assertEquals(2, registry.getStats().reloads());
+    }
+
+}
@@ -0,0 +1,476 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.config.AllTestConfig;
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.BaseLeagueTier;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.Season;
+import com.nephest.battlenet.sc2.model.local.SeasonGenerator;
+import com.nephest.battlenet.sc2.model.local.dao.LeagueStatsDAO;
+import com.nephest.battlenet.sc2.model.local.dao.PopulationStateDAO;
+import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
+import com.nephest.battlenet.sc2.model.local.dao.TeamStateDAO;
+import com.nephest.battlenet.sc2.model.local.inner.RawTeamHistoryHistoryData;
+import com.nephest.battlenet.sc2.model.local.inner.RawTeamHistoryStaticData;
+import com.nephest.battlenet.sc2.model.local.inner.RawTeamHistorySummaryData;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistory;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.GroupMode;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.HistoryColumn;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.StaticColumn;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO.SummaryColumn;
+import com.nephest.battlenet.sc2.model.local.inner.TeamHistorySummary;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import com.nephest.battlenet.sc2.web.service.LadderUpdateData;
+import com.nephest.battlenet.sc2.web.service.PendingLadderData;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.EnabledIf;
+
+@SpringBootTest(classes = AllTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class TeamHistoryCacheIT
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(TeamHistoryCacheIT.class);
+
+    public static final int TEAMS_PER_SEASON = 12;
+    public static final int SEASON_COUNT = 3;
+    public static final double AVG_DELTA = 0.000001;
+    public static final int BENCHMARK_STATES_PER_TEAM = 1000;
+    public static final int BENCHMARK_WARMUP_REQUESTS = 200;
+    public static final int BENCHMARK_REQUESTS = 2000;
+    public static final int BENCHMARK_TEAMS_PER_REQUEST_MAX = 10;
+
+    private static OffsetDateTime snapshotStart;
+
+    @Autowired
+    private TeamHistoryCache teamHistoryCache;
+
+    @Autowired
+    private TeamHistoryDAO teamHistoryDAO;
+
+    @Autowired
+    private TeamStateDAO teamStateDAO;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private boolean enabledBefore;
+
+    @BeforeAll
+    public static void beforeAll
+    (
+        @Autowired DataSource dataSource,
+        @Autowired TeamDAO teamDAO,
+        @Autowired TeamStateDAO teamStateDAO,
+        @Autowired PopulationStateDAO populationStateDAO,
+        @Autowired LeagueStatsDAO leagueStatsDAO,
+        @Autowired SeasonGenerator seasonGenerator,
+        @Autowired JdbcTemplate jdbcTemplate
+    )
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+        OffsetDateTime start = SC2Pulse.offsetDateTime().minusYears(1);
+        List<Season> seasons = new ArrayList<>();
+        for(int i = 0; i < SEASON_COUNT; i++)
+            for(Region region : new Region[]{Region.EU, Region.US})
+                seasons.add(new Season(null, i + 1, region, 2020, i,
+                    start.plusDays(i), start.plusDays(i + 1)));
+        seasonGenerator.generateSeason
+        (
+            seasons,
+            List.of(BaseLeague.LeagueType.BRONZE, BaseLeague.LeagueType.SILVER),
+            List.of(QueueType.LOTV_1V1),
+            TeamType.ARRANGED,
+            BaseLeagueTier.LeagueTierType.FIRST,
+            3
+        );
+        //legacy uid groups span all seasons
+        jdbcTemplate.update("UPDATE team SET legacy_id = '1.11.1' WHERE id IN(1, 13, 25)");
+        jdbcTemplate.update("UPDATE team SET legacy_id = '12' WHERE id IN(2, 14, 26)");
+
+        List<Long> teamIds = getTeamIds();
+        snapshotStart = start.plusDays(SEASON_COUNT + 1);
+        List<String> mutations = List.of
+        (
+            "UPDATE team SET wins = wins + 1, rating = rating + 10 WHERE id % 2 = 0",
+            //rating changed without games
+            "UPDATE team SET rating = rating - 5 WHERE id % 3 = 0",
+            //no changes, duplicate states are not player actions
+            "SELECT 1",
+            //games reset
+            "UPDATE team SET wins = 0, losses = 0, ties = 0 WHERE id % 4 = 0",
+            "UPDATE team SET wins = wins + 2, rating = rating + 3 WHERE id % 5 = 0"
+        );
+        teamStateDAO.takeSnapshot(teamIds, snapshotStart);
+        for(int i = 0; i < mutations.size(); i++)
+        {
+            jdbcTemplate.execute(mutations.get(i));
+            if(i == 1)
+            {
+                for(int season = 1; season <= SEASON_COUNT; season++)
+                {
+                    leagueStatsDAO.mergeCalculateForSeason(season);
+                    populationStateDAO.takeSnapshot(List.of(season));
+                    teamDAO.updateRanks(season);
+                }
+            }
+            teamStateDAO.takeSnapshot(teamIds, snapshotStart.plusMinutes(i + 1));
+        }
+    }
+
+    @AfterAll
+    public static void afterAll(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        enabledBefore = teamHistoryCache.isEnabled();
+        teamHistoryCache.setEnabled(true);
+        teamHistoryCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        teamHistoryCache.setEnabled(enabledBefore);
+    }
+
+    private static List<Long> getTeamIds()
+    {
+        return LongStream.rangeClosed(1, (long) TEAMS_PER_SEASON * SEASON_COUNT)
+            .boxed()
+            .toList();
+    }
+
+    public static Stream<Arguments> testFind()
+    {
+        List<OffsetDateTime[]> ranges = List.of
+        (
+            new OffsetDateTime[]{null, null},
+            new OffsetDateTime[]{snapshotStart.plusSeconds(90), null},
+            new OffsetDateTime[]{null, snapshotStart.plusSeconds(210)},
+            new OffsetDateTime[]{snapshotStart.plusMinutes(1), snapshotStart.plusMinutes(4)}
+        );
+        return Arrays.stream(GroupMode.values())
+            .flatMap(mode->ranges.stream().map(range->Arguments.of(mode, range[0], range[1])));
+    }
+
+    @MethodSource
+    @ParameterizedTest
+    public void testFind(GroupMode groupMode, OffsetDateTime from, OffsetDateTime to)
+    {
+        Set<Long> teamIds = new HashSet<>(getTeamIds());
+        Set<HistoryColumn> historyColumns = EnumSet.allOf(HistoryColumn.class);
+        Set<StaticColumn> staticColumns = groupMode.getSupportedStaticColumns();
+        List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> expected = teamHistoryDAO
+            .find(teamIds, from, to, staticColumns, historyColumns, groupMode);
+        assertFalse(expected.isEmpty());
+
+        //the first request loads histories, the second one is served from memory
+        for(int i = 0; i < 2; i++)
+        {
+            List<TeamHistory<RawTeamHistoryStaticData, RawTeamHistoryHistoryData>> cached = teamHistoryCache
+                .find(teamIds, from, to, staticColumns, historyColumns, groupMode);
+            assertEquals(expected.size(), cached.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(cached));
+        }
+        assertEquals(teamIds.size(), teamHistoryCache.getStats().teams());
+        assertTrue(teamHistoryCache.getStats().hits() >= teamIds.size());
+
+        //projections
+        Set<HistoryColumn> projection = EnumSet.of(HistoryColumn.TIMESTAMP, HistoryColumn.LEAGUE_TYPE);
+        assertEquals
+        (
+            new HashSet<>(teamHistoryDAO.find(teamIds, from, to, Set.of(), projection, groupMode)),
+            new HashSet<>(teamHistoryCache.find(teamIds, from, to, Set.of(), projection, groupMode))
+        );
+    }
+
+    @MethodSource("testFind")
+    @ParameterizedTest
+    public void testFindSummary(GroupMode groupMode, OffsetDateTime from, OffsetDateTime to)
+    {
+        Set<Long> teamIds = new HashSet<>(getTeamIds());
+        Set<SummaryColumn> summaryColumns = EnumSet.allOf(SummaryColumn.class);
+        Set<StaticColumn> staticColumns = groupMode.getSupportedStaticColumns();
+        List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> expected = teamHistoryDAO
+            .findSummary(teamIds, from, to, staticColumns, summaryColumns, groupMode);
+        assertFalse(expected.isEmpty());
+        verifySummaries
+        (
+            expected,
+            teamHistoryCache.findSummary(teamIds, from, to, staticColumns, summaryColumns, groupMode)
+        );
+    }
+
+    private static void verifySummaries
+    (
+        List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> expected,
+        List<TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData>> actual
+    )
+    {
+        assertEquals(expected.size(), actual.size());
+        Map<RawTeamHistoryStaticData, RawTeamHistorySummaryData> actualMap = actual.stream()
+            .collect(Collectors.toMap(TeamHistorySummary::staticData, TeamHistorySummary::summary));
+        for(TeamHistorySummary<RawTeamHistoryStaticData, RawTeamHistorySummaryData> summary : expected)
+        {
+            RawTeamHistorySummaryData actualSummary = actualMap.get(summary.staticData());
+            assertNotNull(actualSummary, "Summary not found: " + summary.staticData());
+            Map<SummaryColumn, Object> expectedData = new EnumMap<>(summary.summary().data());
+            Map<SummaryColumn, Object> actualData = new EnumMap<>(actualSummary.data());
+            assertEquals
+            (
+                ((Number) expectedData.remove(SummaryColumn.RATING_AVG)).doubleValue(),
+                ((Number) actualData.remove(SummaryColumn.RATING_AVG)).doubleValue(),
+                AVG_DELTA
+            );
+            assertEquals(expectedData, actualData);
+        }
+    }
+
+    @Test
+    public void whenTeamsAreUpdated_thenAppendNewStates()
+    {
+        Set<Long> teamIds = new HashSet<>(getTeamIds());
+        Set<HistoryColumn> historyColumns = EnumSet.allOf(HistoryColumn.class);
+        teamHistoryCache.find(teamIds, null, null, Set.of(), historyColumns, GroupMode.TEAM);
+        long states = teamHistoryCache.getStats().states();
+
+        jdbcTemplate.execute("UPDATE team SET wins = wins + 1, rating = rating + 1 WHERE id IN(1, 2)");
+        teamStateDAO.takeSnapshot(List.of(1L, 2L), SC2Pulse.offsetDateTime());
+        PendingLadderData pending = new PendingLadderData();
+        pending.getTeams().addAll(List.of(1L, 2L));
+        teamHistoryCache.update(new LadderUpdateData(false, List.of(pending), List.of()));
+        assertEquals(states + 2, teamHistoryCache.getStats().states());
+
+        //nothing to append
+        assertEquals(0, teamHistoryCache.append(Set.of(1L, 2L)));
+        assertEquals
+        (
+            new HashSet<>(teamHistoryDAO.find(teamIds, null, null, Set.of(StaticColumn.ID), historyColumns, GroupMode.TEAM)),
+            new HashSet<>(teamHistoryCache.find(teamIds, null, null, Set.of(StaticColumn.ID), historyColumns, GroupMode.TEAM))
+        );
+        verifySummaries
+        (
+            teamHistoryDAO.findSummary(teamIds, null, null, Set.of(StaticColumn.ID),
+                EnumSet.allOf(SummaryColumn.class), GroupMode.TEAM),
+            teamHistoryCache.findSummary(teamIds, null, null, Set.of(StaticColumn.ID),
+                EnumSet.allOf(SummaryColumn.class), GroupMode.TEAM)
+        );
+    }
+
+    @Test
+    public void whenStatesExpire_thenTrimCachedHistories()
+    {
+        OffsetDateTime expiredEnd = snapshotStart.minusHours(1);
+        jdbcTemplate.update
+        (
+            "INSERT INTO team_state(team_id, \"timestamp\", division_id, games, rating, wins) "
+            + "SELECT team.id, ?::timestamp with time zone - (i * INTERVAL '1 second'), "
+            + "team.division_id, i, 1000 + i, i "
+            + "FROM team, generate_series(1, 3) i",
+            expiredEnd
+        );
+        try
+        {
+            Set<Long> teamIds = new HashSet<>(getTeamIds());
+            Set<HistoryColumn> historyColumns = EnumSet.allOf(HistoryColumn.class);
+            teamHistoryCache.find(teamIds, null, null, Set.of(), historyColumns, GroupMode.TEAM);
+            long states = teamHistoryCache.getStats().states();
+
+            //some states in the range survive, i.e. archived states
+            jdbcTemplate.update
+            (
+                "DELETE FROM team_state WHERE \"timestamp\" = ? "
+                + "OR (\"timestamp\" = ? AND team_id % 2 = 0)",
+                expiredEnd.minusSeconds(2), expiredEnd.minusSeconds(1)
+            );
+            int removed = teamIds.size() + teamIds.size() / 2;
+            assertEquals(removed, teamHistoryCache.trim(expiredEnd.minusSeconds(2), expiredEnd));
+            assertEquals(states - removed, teamHistoryCache.getStats().states());
+            assertEquals(0, teamHistoryCache.trim(null, expiredEnd));
+            assertEquals
+            (
+                new HashSet<>(teamHistoryDAO.find(teamIds, null, null, Set.of(StaticColumn.ID), historyColumns, GroupMode.TEAM)),
+                new HashSet<>(teamHistoryCache.find(teamIds, null, null, Set.of(StaticColumn.ID), historyColumns, GroupMode.TEAM))
+            );
+        }
+        finally
+        {
+            jdbcTemplate.update
+            (
+                "DELETE FROM team_state WHERE \"timestamp\" >= ? AND \"timestamp\" < ?",
+                expiredEnd.minusSeconds(3), expiredEnd
+            );
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile)
+    {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static void logPercentiles(String name, long[] latencies)
+    {
+        Arrays.sort(latencies);
+        LOG.info
+        (
+            "{}: p50 {} us, p95 {} us, p99 {} us",
+            name,
+            percentile(latencies, 0.5) / 1000,
+            percentile(latencies, 0.95) / 1000,
+            percentile(latencies, 0.99) / 1000
+        );
+    }
+
+    private static long[] replay(List<Supplier<?>> requests)
+    {
+        long[] latencies = new long[requests.size()];
+        for(int i = 0; i < requests.size(); i++)
+        {
+            long start = System.nanoTime();
+            requests.get(i).get();
+            latencies[i] = System.nanoTime() - start;
+        }
+        return latencies;
+    }
+
+    /*
+        Replays the same skewed request mix against SQL queries and the cache. Popular teams
+        are requested much more often than the rest, half of requests are summaries.
+        Disabled by default because it takes a while, enable it by setting the
+        com.nephest.battlenet.sc2.benchmark property.
+     */
+    @Test
+    @EnabledIf
+    (
+        expression = "#{environment['com.nephest.battlenet.sc2.benchmark'] != null}",
+        reason = "Benchmarks are disabled",
+        loadContext = true
+    )
+    public void benchmark()
+    {
+        OffsetDateTime benchmarkEnd = snapshotStart.minusHours(1);
+        jdbcTemplate.update
+        (
+            "INSERT INTO team_state(team_id, \"timestamp\", division_id, games, rating, wins) "
+            + "SELECT team.id, ?::timestamp with time zone - (i * INTERVAL '1 second'), "
+            + "team.division_id, i % 100, 1000 + i % 300, i % 50 "
+            + "FROM team, generate_series(1, ?) i",
+            benchmarkEnd, BENCHMARK_STATES_PER_TEAM
+        );
+        try
+        {
+            List<Long> teamIds = getTeamIds();
+            Random random = new Random(1);
+            List<Set<Long>> requestTeams = new ArrayList<>();
+            for(int i = 0; i < BENCHMARK_WARMUP_REQUESTS + BENCHMARK_REQUESTS; i++)
+            {
+                int count = 1 + random.nextInt(BENCHMARK_TEAMS_PER_REQUEST_MAX);
+                Set<Long> ids = new HashSet<>();
+                for(int j = 0; j < count; j++)
+                {
+                    //skewed towards the first teams
+                    double skewed = Math.pow(random.nextDouble(), 3);
+                    ids.add(teamIds.get((int) (skewed * teamIds.size())));
+                }
+                requestTeams.add(ids);
+            }
+            Set<HistoryColumn> historyColumns = EnumSet.of
+            (
+                HistoryColumn.TIMESTAMP,
+                HistoryColumn.RATING,
+                HistoryColumn.GAMES,
+                HistoryColumn.LEAGUE_TYPE,
+                HistoryColumn.REGION_RANK
+            );
+            Set<SummaryColumn> summaryColumns = EnumSet.allOf(SummaryColumn.class);
+
+            for(boolean cached : new boolean[]{false, true})
+            {
+                teamHistoryCache.setEnabled(cached);
+                List<Supplier<?>> requests = new ArrayList<>(requestTeams.size());
+                for(int i = 0; i < requestTeams.size(); i++)
+                {
+                    Set<Long> ids = requestTeams.get(i);
+                    requests.add(i % 2 == 0
+                        ? ()->teamHistoryCache
+                            .find(ids, null, null, Set.of(StaticColumn.ID), historyColumns, GroupMode.TEAM)
+                        : ()->teamHistoryCache
+                            .findSummary(ids, null, null, Set.of(StaticColumn.ID), summaryColumns, GroupMode.TEAM));
+                }
+                replay(requests.subList(0, BENCHMARK_WARMUP_REQUESTS));
+                logPercentiles
+                (
+                    cached ? "Team history cache" : "Team history SQL",
+                    replay(requests.subList(BENCHMARK_WARMUP_REQUESTS, requests.size()))
+                );
+            }
+        }
+        finally
+        {
+            jdbcTemplate.update
+            (
+                "DELETE FROM team_state WHERE \"timestamp\" >= ? AND \"timestamp\" < ?",
+                benchmarkEnd.minusSeconds(BENCHMARK_STATES_PER_TEAM), benchmarkEnd
+            );
+        }
+    }
+
+}
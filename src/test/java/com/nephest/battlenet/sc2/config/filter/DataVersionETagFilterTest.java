@@ -0,0 +1,154 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.config.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.cache.DataVersionRegistry;
+import com.nephest.battlenet.sc2.model.Region;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class DataVersionETagFilterTest
+{
+
+    private DataVersionRegistry registry;
+    private DataVersionETagFilter filter;
+    private AtomicInteger calls;
+    private FilterChain chain;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        registry = new DataVersionRegistry();
+        filter = new DataVersionETagFilter(registry);
+        calls = new AtomicInteger();
+        chain = (req, resp)->
+        {
+            calls.incrementAndGet();
+            resp.getWriter().write("body");
+        };
+    }
+
+    private static MockHttpServletRequest createRequest(String eTag, String... params)
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ladder/league/bounds");
+        for(int i = 0; i < params.length; i += 2) request.addParameter(params[i], params[i + 1]);
+        if(eTag != null) request.addHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        return request;
+    }
+
+    private MockHttpServletResponse doFilter(MockHttpServletRequest request)
+    throws ServletException, IOException
+    {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    @Test
+    public void whenETagMatches_thenRespondWithNotModified()
+    throws ServletException, IOException
+    {
+        MockHttpServletResponse response = doFilter(createRequest(null, "season", "10", "eu", "true"));
+        String eTag = response.getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(1, calls.get());
+
+        MockHttpServletResponse notModified = doFilter(createRequest(eTag, "season", "10", "eu", "true"));
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, notModified.getStatus());
+        assertEquals(eTag, notModified.getHeader(HttpHeaders.ETAG));
+        assertEquals("", notModified.getContentAsString());
+        assertEquals(1, calls.get());
+
+        //weak and multiple tags
+        assertEquals
+        (
+            HttpServletResponse.SC_NOT_MODIFIED,
+            doFilter(createRequest("\"other\", W/" + eTag, "season", "10", "eu", "true")).getStatus()
+        );
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void whenDataIsUpdated_thenChangeETag()
+    throws ServletException, IOException
+    {
+        String eTag = doFilter(createRequest(null, "season", "10", "eu", "true"))
+            .getHeader(HttpHeaders.ETAG);
+
+        //unrelated updates
+        registry.bump(Region.US, 10);
+        registry.bump(Region.EU, 9);
+        registry.bump(null, 9);
+        MockHttpServletResponse response = doFilter(createRequest(eTag, "season", "10", "eu", "true"));
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+
+        for(Runnable bump : new Runnable[]{
+            ()->registry.bump(Region.EU, 10),
+            ()->registry.bump(null, 10),
+            ()->registry.bump(Region.EU, null),
+            ()->registry.bump(null, null)
+        })
+        {
+            bump.run();
+            response = doFilter(createRequest(eTag, "season", "10", "eu", "true"));
+            assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+            assertEquals("body", response.getContentAsString());
+            assertNotEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+            eTag = response.getHeader(HttpHeaders.ETAG);
+        }
+    }
+
+    @Test
+    public void whenRequestHasNoScope_thenDependOnAllData()
+    throws ServletException, IOException
+    {
+        String eTag = doFilter(createRequest(null)).getHeader(HttpHeaders.ETAG);
+        registry.bump(Region.KR, 1);
+        MockHttpServletResponse response = doFilter(createRequest(eTag));
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertNotEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void whenResponseIsNotSuccessful_thenDontAddETag()
+    throws ServletException, IOException
+    {
+        chain = (req, resp)->
+        {
+            ((HttpServletResponse) resp).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.getWriter().write("error");
+        };
+        MockHttpServletResponse response = doFilter(createRequest(null, "season", "invalid"));
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void testMatches()
+    {
+        assertFalse(DataVersionETagFilter.matches(null, "\"1\""));
+        assertFalse(DataVersionETagFilter.matches("\"2\"", "\"1\""));
+        assertTrue(DataVersionETagFilter.matches("\"1\"", "\"1\""));
+        assertTrue(DataVersionETagFilter.matches("W/\"1\"", "\"1\""));
+        assertTrue(DataVersionETagFilter.matches("\"2\" ,  \"1\"", "\"1\""));
+        assertTrue(DataVersionETagFilter.matches("*", "\"1\""));
+    }
+
+}
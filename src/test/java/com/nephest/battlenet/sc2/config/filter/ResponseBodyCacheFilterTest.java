@@ -0,0 +1,238 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.config.filter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.nephest.battlenet.sc2.cache.DataVersionRegistry;
+import com.nephest.battlenet.sc2.cache.LadderCacheScope;
+import com.nephest.battlenet.sc2.cache.ResponseBodyCache;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.web.service.MapService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import reactor.core.publisher.Flux;
+
+@ExtendWith(MockitoExtension.class)
+public class ResponseBodyCacheFilterTest
+{
+
+    private static final String BODY = "{\"body\":true}";
+
+    @Mock
+    private MapService mapService;
+
+    private DataVersionRegistry registry;
+    private ResponseBodyCache cache;
+    private ResponseBodyCacheFilter filter;
+    private AtomicInteger calls;
+    private FilterChain chain;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        when(mapService.getUpdateEvent()).thenReturn(Flux.empty());
+        registry = new DataVersionRegistry();
+        cache = new ResponseBodyCache(mapService, true, 1024 * 1024);
+        filter = new ResponseBodyCacheFilter(cache, registry);
+        calls = new AtomicInteger();
+        chain = (req, resp)->
+        {
+            calls.incrementAndGet();
+            resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            resp.getWriter().write(BODY);
+        };
+    }
+
+    private static MockHttpServletRequest createRequest(String acceptEncoding, String... params)
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ladder/stats/bundle");
+        for(int i = 0; i < params.length; i += 2) request.addParameter(params[i], params[i + 1]);
+        if(acceptEncoding != null) request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        return request;
+    }
+
+    private MockHttpServletResponse doFilter(MockHttpServletRequest request)
+    throws ServletException, IOException
+    {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static String gunzip(byte[] bytes)
+    throws IOException
+    {
+        try(GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes)))
+        {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void whenCached_thenDontInvokeChain()
+    throws ServletException, IOException
+    {
+        MockHttpServletResponse miss = doFilter(createRequest(null, "us", "true", "eu", "true"));
+        assertEquals(1, calls.get());
+        assertEquals(BODY, miss.getContentAsString());
+        assertEquals(BODY.length(), miss.getContentLength());
+        assertTrue(miss.getContentType().startsWith(MediaType.APPLICATION_JSON_VALUE));
+
+        //parameter order is irrelevant
+        MockHttpServletResponse hit = doFilter(createRequest(null, "eu", "true", "us", "true"));
+        assertEquals(1, calls.get());
+        assertEquals(HttpServletResponse.SC_OK, hit.getStatus());
+        assertEquals(BODY, hit.getContentAsString());
+        assertEquals(BODY.length(), hit.getContentLength());
+        assertTrue(hit.getContentType().startsWith(MediaType.APPLICATION_JSON_VALUE));
+        assertNull(hit.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, hit.getHeader(HttpHeaders.VARY));
+
+        ResponseBodyCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.entries());
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    public void whenGzipIsAccepted_thenServeGzip()
+    throws ServletException, IOException
+    {
+        doFilter(createRequest(null));
+        MockHttpServletResponse response = doFilter(createRequest("deflate, gzip;q=0.8"));
+        assertEquals(1, calls.get());
+        assertEquals(ResponseBodyCacheFilter.GZIP, response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+        assertEquals(BODY, gunzip(response.getContentAsByteArray()));
+
+        MockHttpServletResponse identity = doFilter(createRequest("gzip;q=0"));
+        assertNull(identity.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(BODY.getBytes(StandardCharsets.UTF_8), identity.getContentAsByteArray());
+    }
+
+    @Test
+    public void whenDataIsUpdated_thenMiss()
+    throws ServletException, IOException
+    {
+        doFilter(createRequest(null, "season", "10", "eu", "true"));
+        registry.bump(Region.US, 10);
+        doFilter(createRequest(null, "season", "10", "eu", "true"));
+        assertEquals(1, calls.get());
+
+        registry.bump(Region.EU, 10);
+        MockHttpServletResponse response = doFilter(createRequest(null, "season", "10", "eu", "true"));
+        assertEquals(2, calls.get());
+        assertEquals(BODY, response.getContentAsString());
+    }
+
+    @Test
+    public void whenDataIsUpdatedWhileResponseIsBuilt_thenDontCache()
+    throws ServletException, IOException
+    {
+        FilterChain originalChain = chain;
+        Set<LadderCacheScope> scopes = Set.of(new LadderCacheScope(Region.EU, 10, null));
+        //eviction is pending
+        chain = (req, resp)->registry.update(scopes, ()->
+        {
+            try
+            {
+                originalChain.doFilter(req, resp);
+            }
+            catch(IOException | ServletException e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+        assertEquals(BODY, doFilter(createRequest(null, "season", "10", "eu", "true")).getContentAsString());
+        assertFalse(registry.isPending(scopes));
+        //version is bumped
+        chain = (req, resp)->
+        {
+            originalChain.doFilter(req, resp);
+            registry.bump(scopes);
+        };
+        assertEquals(BODY, doFilter(createRequest(null, "season", "10", "eu", "true")).getContentAsString());
+        assertEquals(0, cache.getStats().entries());
+
+        //other scopes are irrelevant
+        doFilter(createRequest(null, "season", "10", "us", "true"));
+        assertEquals(1, cache.getStats().entries());
+        chain = originalChain;
+        doFilter(createRequest(null, "season", "10", "eu", "true"));
+        assertEquals(2, cache.getStats().entries());
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    public void whenResponseIsNotSuccessful_thenDontCache()
+    throws ServletException, IOException
+    {
+        chain = (req, resp)->
+        {
+            calls.incrementAndGet();
+            ((HttpServletResponse) resp).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            resp.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            resp.getWriter().write("error");
+        };
+        for(int i = 0; i < 2; i++)
+        {
+            MockHttpServletResponse response = doFilter(createRequest(null));
+            assertEquals(HttpServletResponse.SC_BAD_REQUEST, response.getStatus());
+            assertEquals("error", response.getContentAsString());
+        }
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.getStats().entries());
+    }
+
+    @Test
+    public void whenDisabled_thenBypassCache()
+    throws ServletException, IOException
+    {
+        doFilter(createRequest(null));
+        cache.setEnabled(false);
+        assertFalse(cache.isEnabled());
+        assertEquals(BODY, doFilter(createRequest(null)).getContentAsString());
+        assertEquals(BODY, doFilter(createRequest(null)).getContentAsString());
+        assertEquals(3, calls.get());
+        assertEquals(0, cache.getStats().entries());
+    }
+
+    @Test
+    public void testInvalidate()
+    throws ServletException, IOException
+    {
+        doFilter(createRequest(null));
+        MockHttpServletRequest mapRequest = new MockHttpServletRequest("GET", "/api/ladder/stats/map/film");
+        filter.doFilter(mapRequest, new MockHttpServletResponse(), chain);
+        assertEquals(2, cache.getStats().entries());
+
+        assertEquals(1, cache.invalidate(ResponseBodyCache.MAP_STATS_PATH));
+        filter.doFilter(mapRequest, new MockHttpServletResponse(), chain);
+        doFilter(createRequest(null));
+        assertEquals(3, calls.get());
+    }
+
+}
@@ -1,4 +1,4 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.config.filter;
@@ -9,9 +9,9 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.local.Season;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -36,7 +36,7 @@ public class SeasonCacheFilterTest
 {
 
     @Mock
-    private SeasonDAO seasonDAO;
+    private SeasonRegistry seasonRegistry;
 
     @Mock
     private HttpServletResponse response;
@@ -51,7 +51,7 @@ public class SeasonCacheFilterTest
     @BeforeEach
     public void beforeEach()
     {
-        filter = new SeasonCacheFilter(seasonDAO, activeRegions);
+        filter = new SeasonCacheFilter(seasonRegistry, activeRegions);
     }
 
     @Test
@@ -61,7 +61,7 @@ public class SeasonCacheFilterTest
         List<Season> seasons =
             List.of(new Season(1, 1, Region.EU, 2020, 11,
                 SC2Pulse.offsetDateTime(), SC2Pulse.offsetDateTime().plusMonths(1)));
-        when(seasonDAO.findListByBattlenetId(any())).thenReturn(seasons);
+        when(seasonRegistry.findListByBattlenetId(any())).thenReturn(seasons);
 
         filter.doFilter(null, response, filterChain);
         NoCacheFilter.NO_CACHE_HEADERS.forEach((key, value)->verify(response).setHeader(key, value));
@@ -76,7 +76,7 @@ public class SeasonCacheFilterTest
                 SC2Pulse.offsetDateTime().minusMonths(2),
                 SC2Pulse.offsetDateTime().minusMonths(1)))
             .collect(Collectors.toList());
-        when(seasonDAO.findListByBattlenetId(any())).thenReturn(seasons);
+        when(seasonRegistry.findListByBattlenetId(any())).thenReturn(seasons);
 
         filter.doFilter(null, response, filterChain);
         NoCacheFilter.NO_CACHE_HEADERS.forEach((key, value)->verify(response).setHeader(key, value));
@@ -92,7 +92,7 @@ public class SeasonCacheFilterTest
             .map(r->new Season(null, 1, r, 2020, 1, start, start.plusMonths(10)))
             .collect(Collectors.toList());
         seasons.set(0, new Season(null, 1, Region.US, 2020, 1, start, end));
-        when(seasonDAO.findListByBattlenetId(any())).thenReturn(seasons);
+        when(seasonRegistry.findListByBattlenetId(any())).thenReturn(seasons);
 
         filter.doFilter(null, response, filterChain);
 
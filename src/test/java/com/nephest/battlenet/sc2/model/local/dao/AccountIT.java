@@ -6,6 +6,7 @@ package com.nephest.battlenet.sc2.model.local.dao;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.nephest.battlenet.sc2.config.DatabaseTestConfig;
@@ -110,6 +111,83 @@ public class AccountIT
         assertNotEquals(acc.getId(), mergedAcc.getId());
     }
 
+    @Test
+    public void testSetMerge()
+    {
+        Account existing = accountDAO.merge(new Account(null, Partition.GLOBAL, "tag#1"));
+        Account renamed = accountDAO.merge(new Account(null, Partition.GLOBAL, "tag#2"));
+        PlayerCharacter renamedChar = playerCharacterDAO
+            .merge(new PlayerCharacter(null, renamed.getId(), Region.EU, 2L, 2, "name#2"));
+        Account anonymous = accountDAO.merge(new Account(null, Partition.GLOBAL, "tag#3"));
+        PlayerCharacter anonymousChar = playerCharacterDAO
+            .merge(new PlayerCharacter(null, anonymous.getId(), Region.EU, 3L, 3, "name#3"));
+        accountDAO.updateAnonymousFlag(anonymous.getId(), true);
+
+        AccountCharacterData existingData = new AccountCharacterData
+        (
+            new Account(null, Partition.GLOBAL, "tag#1"),
+            new PlayerCharacter(null, null, Region.EU, 1L, 1, "name#1"),
+            null, null
+        );
+        AccountCharacterData existingData2 = new AccountCharacterData
+        (
+            new Account(null, Partition.GLOBAL, "tag#1"),
+            new PlayerCharacter(null, null, Region.US, 1L, 1, "name#1"),
+            null, null
+        );
+        AccountCharacterData renamedData = new AccountCharacterData
+        (
+            new Account(null, Partition.GLOBAL, "tag#22"),
+            renamedChar,
+            null, null
+        );
+        AccountCharacterData anonymousData = new AccountCharacterData
+        (
+            new Account(null, Partition.GLOBAL, "tag#33"),
+            anonymousChar,
+            null, null
+        );
+        AccountCharacterData newData = new AccountCharacterData
+        (
+            new Account(null, Partition.GLOBAL, "tag#4"),
+            new PlayerCharacter(null, null, Region.EU, 4L, 4, "name#4"),
+            null, null
+        );
+        AccountCharacterData newData2 = new AccountCharacterData
+        (
+            new Account(null, Partition.GLOBAL, "tag#4"),
+            new PlayerCharacter(null, null, Region.KR, 4L, 4, "name#4"),
+            null, null
+        );
+        accountDAO.merge(Set.of
+        (
+            existingData, existingData2,
+            renamedData,
+            anonymousData,
+            newData, newData2
+        ));
+
+        assertEquals(existing.getId(), existingData.getAccount().getId());
+        assertEquals(existing.getId(), existingData2.getAccount().getId());
+        assertEquals(renamed.getId(), renamedData.getAccount().getId());
+        assertEquals
+        (
+            "tag#22",
+            accountDAO.findByIds(Set.of(renamed.getId())).get(0).getBattleTag()
+        );
+        //anonymous accounts are not renamed
+        assertEquals(anonymous.getId(), anonymousData.getAccount().getId());
+        assertEquals
+        (
+            "tag#3",
+            accountDAO.findByIds(Set.of(anonymous.getId())).get(0).getBattleTag()
+        );
+        //one new account per BattleTag
+        assertNotNull(newData.getAccount().getId());
+        assertEquals(newData.getAccount().getId(), newData2.getAccount().getId());
+        assertEquals(4, JdbcTestUtils.countRowsInTable(template, "account"));
+    }
+
     @Test
     public void whenOldSeason_thenDontUpdatePrivacyInfo()
     {
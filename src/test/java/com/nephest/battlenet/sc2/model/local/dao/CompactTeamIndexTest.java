@@ -0,0 +1,95 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.BaseLeagueTier;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyId;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.time.OffsetDateTime;
+import org.junit.jupiter.api.Test;
+
+public class CompactTeamIndexTest
+{
+
+    private static Team team(QueueType queueType, String legacyId, int season, int wins)
+    {
+        OffsetDateTime odt = SC2Pulse.offsetDateTime();
+        return new Team
+        (
+            null,
+            season, Region.EU,
+            new BaseLeague(BaseLeague.LeagueType.BRONZE, queueType, TeamType.ARRANGED),
+            BaseLeagueTier.LeagueTierType.FIRST, TeamLegacyId.trusted(legacyId), 1,
+            1L, wins, 2, 3, 4,
+            odt.minusSeconds(1), odt.minusSeconds(2), odt
+        );
+    }
+
+    @Test
+    public void testPutAndGet()
+    {
+        CompactTeamIndex index = new CompactTeamIndex();
+        Team team = team(QueueType.LOTV_1V1, "1.2.3", 10, 5);
+        int ix = index.put(team);
+        assertEquals(ix, index.indexOf(Team.uid
+        (
+            QueueType.LOTV_1V1, TeamType.ARRANGED, Region.EU, TeamLegacyId.trusted("1.2.3"), 10
+        )));
+        //any key component differs
+        assertEquals(-1, index.indexOf(team(QueueType.LOTV_2V2, "1.2.3", 10, 5)));
+        assertEquals(-1, index.indexOf(team(QueueType.LOTV_1V1, "1.2.", 10, 5)));
+        assertEquals(-1, index.indexOf(team(QueueType.LOTV_1V1, "1.2.3", 11, 5)));
+
+        Team found = index.get(ix, Region.EU);
+        assertEquals(team, found);
+        assertEquals(team.getDivisionId(), found.getDivisionId());
+        assertEquals(team.getWins(), found.getWins());
+        assertEquals(team.getLosses(), found.getLosses());
+        assertEquals(team.getTies(), found.getTies());
+        assertTrue(team.getLastPlayed().isEqual(found.getLastPlayed()));
+        assertTrue(team.getJoined().isEqual(found.getJoined()));
+        assertTrue(team.getPrimaryDataUpdated().isEqual(found.getPrimaryDataUpdated()));
+
+        //update
+        Team updated = team(QueueType.LOTV_1V1, "1.2.3", 10, 6);
+        updated.setPrimaryDataUpdated(null);
+        assertEquals(ix, index.put(updated));
+        assertEquals(1, index.size());
+        found = index.get(ix, Region.EU);
+        assertEquals(6, found.getWins());
+        assertNull(found.getPrimaryDataUpdated());
+    }
+
+    @Test
+    public void testGrowAndClear()
+    {
+        CompactTeamIndex index = new CompactTeamIndex();
+        int count = CompactTeamIndex.DEFAULT_CAPACITY * 10;
+        long initialHeapUsage = index.getHeapUsage();
+        for(int i = 0; i < count; i++)
+            index.put(team(QueueType.LOTV_1V1, "1." + i + ".1", 10, i));
+        assertEquals(count, index.size());
+        assertTrue(index.getHeapUsage() > initialHeapUsage);
+        for(int i = 0; i < count; i++)
+        {
+            int ix = index.indexOf(team(QueueType.LOTV_1V1, "1." + i + ".1", 10, 0));
+            assertEquals(i, index.getWins(ix));
+        }
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertEquals(initialHeapUsage, index.getHeapUsage());
+        assertEquals(-1, index.indexOf(team(QueueType.LOTV_1V1, "1.1.1", 10, 0)));
+    }
+
+}
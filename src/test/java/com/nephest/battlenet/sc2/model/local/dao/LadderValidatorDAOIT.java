@@ -0,0 +1,131 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.nephest.battlenet.sc2.config.DatabaseTestConfig;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.web.service.LadderValidatorStore;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+@SpringJUnitConfig(classes = DatabaseTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class LadderValidatorDAOIT
+{
+
+    @Autowired
+    private LadderValidatorDAO ladderValidatorDAO;
+
+    @Autowired
+    private JdbcTemplate template;
+
+    @BeforeAll
+    public static void beforeAll(@Autowired @Qualifier("dataSource") DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        template.update("DELETE FROM ladder_validator");
+    }
+
+    @AfterAll
+    public static void afterAll(@Autowired @Qualifier("dataSource") DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    private List<LadderValidatorStore.Entry> findAll()
+    {
+        List<LadderValidatorStore.Entry> entries = new ArrayList<>(ladderValidatorDAO.findAll());
+        entries.sort(Comparator.comparing(LadderValidatorStore.Entry::region)
+            .thenComparing(LadderValidatorStore.Entry::ladderId));
+        return entries;
+    }
+
+    @Test
+    public void testMerge()
+    {
+        LadderValidatorStore.Entry eu1 = new LadderValidatorStore.Entry
+        (
+            Region.EU, 1L, new LadderValidatorStore.Validators("\"1\"", null, 1L)
+        );
+        LadderValidatorStore.Entry us1 = new LadderValidatorStore.Entry
+        (
+            Region.US, 1L, new LadderValidatorStore.Validators(null, "Wed, 21 Oct 2015 07:28:00 GMT", -2L)
+        );
+        ladderValidatorDAO.merge(List.of(eu1, us1));
+        assertEquals(List.of(us1, eu1), findAll());
+
+        //streaks are not persisted
+        LadderValidatorStore.Entry eu1Updated = new LadderValidatorStore.Entry
+        (
+            Region.EU, 1L, new LadderValidatorStore.Validators("\"2\"", null, 2L, 3, 1)
+        );
+        ladderValidatorDAO.merge(List.of(eu1Updated));
+        assertEquals
+        (
+            List.of
+            (
+                us1,
+                new LadderValidatorStore.Entry
+                (
+                    Region.EU, 1L, new LadderValidatorStore.Validators("\"2\"", null, 2L)
+                )
+            ),
+            findAll()
+        );
+    }
+
+    @Test
+    public void testRemoveExpired()
+    {
+        ladderValidatorDAO.merge(List.of
+        (
+            new LadderValidatorStore.Entry(Region.EU, 1L, new LadderValidatorStore.Validators(null, null, 1L)),
+            new LadderValidatorStore.Entry(Region.EU, 2L, new LadderValidatorStore.Validators(null, null, 2L))
+        ));
+        template.update
+        (
+            "UPDATE ladder_validator SET updated = NOW() - INTERVAL '"
+                + (LadderValidatorDAO.TTL.toHours() + 1) + " hours' "
+            + "WHERE ladder_id = 1"
+        );
+
+        assertEquals(1, ladderValidatorDAO.removeExpired());
+        List<LadderValidatorStore.Entry> entries = findAll();
+        assertEquals(1, entries.size());
+        assertEquals(2L, entries.get(0).ladderId());
+    }
+
+}
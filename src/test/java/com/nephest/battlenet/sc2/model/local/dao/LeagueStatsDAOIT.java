@@ -0,0 +1,182 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.config.DatabaseTestConfig;
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.BaseLeagueTier;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Race;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.SeasonGenerator;
+import com.nephest.battlenet.sc2.model.local.inner.LeagueStatsAggregate;
+import com.nephest.battlenet.sc2.model.local.inner.TeamLeagueStats;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+@SpringJUnitConfig(classes = DatabaseTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class LeagueStatsDAOIT
+{
+
+    private static final int SEASON = SeasonGenerator.DEFAULT_SEASON_ID;
+    private static final List<Region> REGIONS = List.of(Region.US, Region.EU);
+    private static final List<BaseLeague.LeagueType> LEAGUES =
+        List.of(BaseLeague.LeagueType.BRONZE, BaseLeague.LeagueType.GOLD);
+    private static final List<QueueType> QUEUES = List.of(QueueType.LOTV_1V1, QueueType.LOTV_2V2);
+    private static final int TEAMS_PER_LEAGUE = 5;
+
+    @Autowired
+    private LeagueStatsDAO leagueStatsDAO;
+
+    @Autowired
+    private SeasonGenerator seasonGenerator;
+
+    @BeforeEach
+    public void beforeEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+        seasonGenerator.generateDefaultSeason
+        (
+            REGIONS,
+            LEAGUES,
+            QUEUES,
+            TeamType.ARRANGED,
+            BaseLeagueTier.LeagueTierType.FIRST,
+            TEAMS_PER_LEAGUE,
+            true
+        );
+    }
+
+    @AfterEach
+    public void afterEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    private static Integer nullIfZero(long count)
+    {
+        return count == 0 ? null : (int) count;
+    }
+
+    private static Set<LeagueStatsAggregate> aggregate(Collection<TeamLeagueStats> teams)
+    {
+        Map<List<Object>, List<TeamLeagueStats>> leagues = teams.stream()
+            .collect(Collectors.groupingBy(t->List.of(t.region(), t.queueType(), t.teamType(), t.leagueType())));
+        return leagues.values().stream()
+            .map(league->
+            {
+                TeamLeagueStats first = league.get(0);
+                return new LeagueStatsAggregate
+                (
+                    first.region(), first.queueType(), first.teamType(), first.leagueType(),
+                    league.size(),
+                    league.stream().mapToInt(TeamLeagueStats::terranGamesPlayed).sum(),
+                    league.stream().mapToInt(TeamLeagueStats::protossGamesPlayed).sum(),
+                    league.stream().mapToInt(TeamLeagueStats::zergGamesPlayed).sum(),
+                    league.stream().mapToInt(TeamLeagueStats::randomGamesPlayed).sum(),
+                    nullIfZero(league.stream().filter(t->t.race() == Race.TERRAN).count()),
+                    nullIfZero(league.stream().filter(t->t.race() == Race.PROTOSS).count()),
+                    nullIfZero(league.stream().filter(t->t.race() == Race.ZERG).count()),
+                    nullIfZero(league.stream().filter(t->t.race() == Race.RANDOM).count())
+                );
+            })
+            .collect(Collectors.toSet());
+    }
+
+    @Test
+    public void whenFindTeamStats_thenAggregatesMatchSqlCalculation()
+    {
+        List<TeamLeagueStats> teams;
+        try(Stream<TeamLeagueStats> stream = leagueStatsDAO.findTeamStats(SEASON))
+        {
+            teams = stream.toList();
+        }
+        assertEquals(REGIONS.size() * LEAGUES.size() * QUEUES.size() * TEAMS_PER_LEAGUE, teams.size());
+        //races are encoded only in 1v1 legacy ids
+        assertTrue(teams.stream().filter(t->t.queueType() != QueueType.LOTV_1V1).allMatch(t->t.race() == null));
+
+        Set<Long> ids = Set.of(teams.get(0).teamId(), teams.get(teams.size() - 1).teamId(), -1L);
+        assertEquals
+        (
+            teams.stream().filter(t->ids.contains(t.teamId())).collect(Collectors.toSet()),
+            new HashSet<>(leagueStatsDAO.findTeamStats(ids))
+        );
+        assertTrue(leagueStatsDAO.findTeamStats(Set.of()).isEmpty());
+
+        leagueStatsDAO.mergeCalculateForSeason(SEASON);
+        Set<LeagueStatsAggregate> expected = aggregate(teams);
+        assertEquals(REGIONS.size() * LEAGUES.size() * QUEUES.size(), expected.size());
+        assertEquals(expected, new HashSet<>(leagueStatsDAO.findAggregates(SEASON)));
+    }
+
+    @Test
+    public void whenMerge_thenUpsertOnlyExistingGivenLeagues()
+    {
+        assertEquals(0, leagueStatsDAO.merge(SEASON, List.of()));
+        assertTrue(leagueStatsDAO.findAggregates(SEASON).isEmpty());
+
+        LeagueStatsAggregate usBronze = new LeagueStatsAggregate
+        (
+            Region.US, QueueType.LOTV_1V1, TeamType.ARRANGED, BaseLeague.LeagueType.BRONZE,
+            10, 1, 2, 3, 4, 5, null, 3, 2
+        );
+        LeagueStatsAggregate euGold = new LeagueStatsAggregate
+        (
+            Region.EU, QueueType.LOTV_2V2, TeamType.ARRANGED, BaseLeague.LeagueType.GOLD,
+            20, 5, 6, 7, 8, null, null, null, null
+        );
+        //league doesn't exist
+        LeagueStatsAggregate krGold = new LeagueStatsAggregate
+        (
+            Region.KR, QueueType.LOTV_1V1, TeamType.ARRANGED, BaseLeague.LeagueType.GOLD,
+            1, 1, 1, 1, 1, 1, null, null, null
+        );
+        assertEquals(2, leagueStatsDAO.merge(SEASON, List.of(usBronze, euGold, krGold)));
+        assertEquals(Set.of(usBronze, euGold), new HashSet<>(leagueStatsDAO.findAggregates(SEASON)));
+
+        //other leagues are not changed
+        LeagueStatsAggregate usBronzeNext = new LeagueStatsAggregate
+        (
+            Region.US, QueueType.LOTV_1V1, TeamType.ARRANGED, BaseLeague.LeagueType.BRONZE,
+            11, 2, 2, 3, 4, null, 6, 3, 2
+        );
+        assertEquals(1, leagueStatsDAO.merge(SEASON, List.of(usBronzeNext)));
+        List<LeagueStatsAggregate> found = leagueStatsDAO.findAggregates(SEASON);
+        assertEquals(Set.of(usBronzeNext, euGold), new HashSet<>(found));
+        assertFalse(found.contains(usBronze));
+    }
+
+}
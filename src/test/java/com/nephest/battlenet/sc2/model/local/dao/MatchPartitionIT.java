@@ -0,0 +1,282 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.config.DatabaseTestConfig;
+import com.nephest.battlenet.sc2.model.BaseMatch;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.Match;
+import com.nephest.battlenet.sc2.model.local.MatchParticipant;
+import com.nephest.battlenet.sc2.model.local.SC2Map;
+import com.nephest.battlenet.sc2.model.local.SeasonGenerator;
+import com.nephest.battlenet.sc2.model.local.inner.RangePartition;
+import com.nephest.battlenet.sc2.model.local.ladder.LadderMatch;
+import com.nephest.battlenet.sc2.model.local.ladder.dao.LadderMatchDAO;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.EnabledIf;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+@SpringJUnitConfig(classes = DatabaseTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class MatchPartitionIT
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(MatchPartitionIT.class);
+
+    public static final int PARTITION_LENGTH_DAYS = 7;
+    public static final int BENCHMARK_CHARACTER_COUNT = 1000;
+    public static final int BENCHMARK_QUERY_COUNT = 200;
+
+    private static final String GENERATE_MATCHES =
+        "INSERT INTO match(date, type, map_id, region) "
+        + "SELECT NOW() - (i * INTERVAL '" + MatchDAO.TTL_DAYS + " days' / ?), 1, "
+        + "(SELECT MIN(id) FROM map), 2 "
+        + "FROM generate_series(1, ?) i";
+    private static final String GENERATE_MATCH_PARTICIPANTS =
+        "INSERT INTO match_participant(match_id, match_date, player_character_id, decision) "
+        + "SELECT match.id, match.date, character_filter.min + (match.id + i) % ?, i "
+        + "FROM match, "
+        + "(SELECT MIN(id) AS min FROM player_character) character_filter, "
+        + "generate_series(1, 2) i";
+
+    @Autowired
+    private MatchDAO matchDAO;
+
+    @Autowired
+    private MatchParticipantDAO matchParticipantDAO;
+
+    @Autowired
+    private LadderMatchDAO ladderMatchDAO;
+
+    @Autowired
+    private PartitionDAO partitionDAO;
+
+    @Autowired
+    private SC2MapDAO mapDAO;
+
+    @Autowired
+    private SeasonGenerator seasonGenerator;
+
+    @Autowired
+    private JdbcTemplate template;
+
+    @BeforeEach
+    public void beforeEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+    }
+
+    @AfterEach
+    public void afterEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    private void createPartition(OffsetDateTime from, OffsetDateTime to)
+    {
+        partitionDAO.createRangePartition
+        (
+            MatchDAO.TABLE,
+            new RangePartition(PartitionDAO.getPartitionName(MatchDAO.TABLE, from), from, to)
+        );
+        partitionDAO.createRangePartition
+        (
+            MatchParticipantDAO.TABLE,
+            new RangePartition(PartitionDAO.getPartitionName(MatchParticipantDAO.TABLE, from), from, to)
+        );
+    }
+
+    private Match createMatch(OffsetDateTime date, int mapId, long... characterIds)
+    {
+        Match match = matchDAO.merge(Set.of(new Match(null, date, BaseMatch.MatchType._1V1, mapId, Region.EU)))
+            .iterator().next();
+        MatchParticipant[] participants = new MatchParticipant[characterIds.length];
+        for(int i = 0; i < characterIds.length; i++)
+        {
+            participants[i] = new MatchParticipant
+            (
+                match.getId(),
+                characterIds[i],
+                i == 0 ? BaseMatch.Decision.WIN : BaseMatch.Decision.LOSS
+            );
+            participants[i].setMatchDate(match.getDate());
+        }
+        matchParticipantDAO.merge(Set.of(participants));
+        return match;
+    }
+
+    private List<LadderMatch> findMatches(long characterId)
+    {
+        return ladderMatchDAO.findMatchesByCharacterId
+        (
+            characterId,
+            SC2Pulse.offsetDateTime().plusYears(1),
+            BaseMatch.MatchType._1V1,
+            0,
+            0, 1
+        ).getResult();
+    }
+
+    @Test
+    public void whenMatchesArePartitioned_thenFindThemAndDropExpiredPartitions()
+    {
+        seasonGenerator.generateDefaultSeason(2);
+        List<Long> characterIds = template
+            .queryForList("SELECT id FROM player_character ORDER BY id", Long.class);
+        long character1 = characterIds.get(0);
+        long character2 = characterIds.get(1);
+        int mapId = mapDAO.merge(Set.of(new SC2Map(null, "map1"))).iterator().next().getId();
+        assertTrue(matchDAO.isPartitioned());
+        assertTrue(partitionDAO.isPartitioned(MatchParticipantDAO.TABLE));
+
+        OffsetDateTime expiredFrom = SC2Pulse.offsetDateTime()
+            .minusDays(MatchDAO.TTL_DAYS + PARTITION_LENGTH_DAYS * 2)
+            .withOffsetSameInstant(ZoneOffset.UTC)
+            .truncatedTo(ChronoUnit.DAYS);
+        createPartition(expiredFrom, expiredFrom.plusDays(PARTITION_LENGTH_DAYS));
+        Match expired = createMatch(expiredFrom.plusMinutes(1), mapId, character1, character2);
+        Match current = createMatch(SC2Pulse.offsetDateTime().minusMinutes(1), mapId, character1, character2);
+
+        List<RangePartition> created = matchDAO.createPartitions(PARTITION_LENGTH_DAYS, 2);
+        assertFalse(created.isEmpty());
+        assertEquals
+        (
+            created.size() + 1,
+            partitionDAO.findRangePartitions(MatchParticipantDAO.TABLE).size()
+        );
+        Match future = createMatch(created.get(0).from().plusMinutes(1), mapId, character1, character2);
+
+        //participants are routed to the partitions of their matches
+        String expiredName = PartitionDAO.getPartitionName(MatchDAO.TABLE, expiredFrom);
+        String expiredParticipantName = PartitionDAO.getPartitionName(MatchParticipantDAO.TABLE, expiredFrom);
+        assertEquals(1, JdbcTestUtils.countRowsInTable(template, expiredName));
+        assertEquals(2, JdbcTestUtils.countRowsInTable(template, expiredParticipantName));
+        assertEquals(1, JdbcTestUtils.countRowsInTable(template, "match_default"));
+        assertEquals(2, JdbcTestUtils.countRowsInTable(template, "match_participant_default"));
+        assertEquals(1, JdbcTestUtils.countRowsInTable(template, created.get(0).name()));
+        assertEquals
+        (
+            2,
+            JdbcTestUtils.countRowsInTable
+            (
+                template,
+                PartitionDAO.getPartitionName(MatchParticipantDAO.TABLE, created.get(0).from())
+            )
+        );
+
+        List<LadderMatch> matches = findMatches(character1);
+        assertEquals(3, matches.size());
+        assertEquals(future.getId(), matches.get(0).getMatch().getId());
+        assertEquals(current.getId(), matches.get(1).getMatch().getId());
+        assertEquals(expired.getId(), matches.get(2).getMatch().getId());
+        matches.forEach(m->assertEquals(2, m.getParticipants().size()));
+
+        List<RangePartition> expiredPartitions = matchDAO.findExpiredPartitions();
+        assertEquals(1, expiredPartitions.size());
+        assertEquals(expiredName, expiredPartitions.get(0).name());
+        matchDAO.dropPartition(expiredPartitions.get(0));
+
+        assertTrue(matchDAO.findExpiredPartitions().isEmpty());
+        assertEquals(created.size(), partitionDAO.findRangePartitions(MatchDAO.TABLE).size());
+        assertEquals(created.size(), partitionDAO.findRangePartitions(MatchParticipantDAO.TABLE).size());
+        List<LadderMatch> remaining = findMatches(character1);
+        assertEquals(2, remaining.size());
+        assertEquals(future.getId(), remaining.get(0).getMatch().getId());
+        assertEquals(current.getId(), remaining.get(1).getMatch().getId());
+        assertEquals(4, JdbcTestUtils.countRowsInTable(template, MatchParticipantDAO.TABLE));
+
+        //default partitions are bounded at the next partition
+        assertTrue(partitionDAO.isDefaultPartitionBounded(MatchDAO.TABLE, created.get(0).from()));
+        assertTrue(partitionDAO.isDefaultPartitionBounded(MatchParticipantDAO.TABLE, created.get(0).from()));
+        //old matches of the dropped range are routed to the default partitions
+        createMatch(expiredFrom.plusMinutes(2), mapId, character1, character2);
+        assertEquals(2, JdbcTestUtils.countRowsInTable(template, "match_default"));
+        assertEquals(4, JdbcTestUtils.countRowsInTable(template, "match_participant_default"));
+    }
+
+    /*
+        Match history page latency of a single default partition and of weekly partitions.
+        Disabled by default because it takes a while, enable it by setting the
+        com.nephest.battlenet.sc2.benchmark property.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {100_000, 1_000_000})
+    @EnabledIf
+    (
+        expression = "#{environment['com.nephest.battlenet.sc2.benchmark'] != null}",
+        reason = "Benchmarks are disabled",
+        loadContext = true
+    )
+    public void benchmark(int count)
+    throws SQLException
+    {
+        for(boolean partitioned : new boolean[]{false, true})
+        {
+            beforeEach(template.getDataSource());
+            seasonGenerator.generateDefaultSeason(BENCHMARK_CHARACTER_COUNT);
+            mapDAO.merge(Set.of(new SC2Map(null, "map1")));
+            if(partitioned)
+            {
+                OffsetDateTime from = SC2Pulse.offsetDateTime()
+                    .minusDays(MatchDAO.TTL_DAYS + PARTITION_LENGTH_DAYS)
+                    .withOffsetSameInstant(ZoneOffset.UTC)
+                    .truncatedTo(ChronoUnit.DAYS);
+                for(; from.isBefore(SC2Pulse.offsetDateTime()); from = from.plusDays(PARTITION_LENGTH_DAYS))
+                    createPartition(from, from.plusDays(PARTITION_LENGTH_DAYS));
+            }
+            template.update(GENERATE_MATCHES, count, count);
+            template.update(GENERATE_MATCH_PARTICIPANTS, BENCHMARK_CHARACTER_COUNT);
+            template.execute("VACUUM ANALYZE match, match_participant");
+            List<Long> characterIds = template
+                .queryForList("SELECT id FROM player_character ORDER BY id", Long.class);
+
+            long start = System.nanoTime();
+            for(int i = 0; i < BENCHMARK_QUERY_COUNT; i++)
+                assertFalse(findMatches(characterIds.get(i % characterIds.size())).isEmpty());
+            long elapsed = System.nanoTime() - start;
+            LOG.info
+            (
+                "match {}, {} matches: {} us per match history page",
+                partitioned ? "partitioned" : "default partition", count,
+                elapsed / BENCHMARK_QUERY_COUNT / 1000
+            );
+        }
+    }
+
+}
@@ -371,12 +371,14 @@ public class PlayerCharacterDAOIT
             SC2Pulse.offsetDateTime().minus(BlizzardPrivacyService.DATA_TTL.plusDays(2)),
             Set.of(1L)
         );
-        playerCharacterDAO.anonymizeExpiredCharacters(SC2Pulse.offsetDateTime().minusSeconds(BlizzardPrivacyService.DATA_TTL.toSeconds()).minusDays(1));
+        assertTrue(playerCharacterDAO.anonymizeExpiredCharacters(SC2Pulse.offsetDateTime().minusSeconds(BlizzardPrivacyService.DATA_TTL.toSeconds()).minusDays(1)).isEmpty());
         //character is excluded due to "from' param
         assertEquals("name2#123", playerCharacterDAO.find(Region.EU, 1, 1L).orElseThrow().getName());
 
-        playerCharacterDAO.anonymizeExpiredCharacters(OffsetDateTime.MIN);
+        assertEquals(List.of("name2"), playerCharacterDAO.anonymizeExpiredCharacters(OffsetDateTime.MIN));
         assertEquals(BasePlayerCharacter.DEFAULT_FAKE_FULL_NAME, playerCharacterDAO.find(Region.EU, 1, 1L).orElseThrow().getName());
+        //already anonymized
+        assertTrue(playerCharacterDAO.anonymizeExpiredCharacters(OffsetDateTime.MIN).isEmpty());
     }
 
     @Test
@@ -471,12 +473,14 @@ public class PlayerCharacterDAOIT
             SC2Pulse.offsetDateTime().minus(BlizzardPrivacyService.DATA_TTL.plusDays(2)),
             Set.of(acc1.getId())
         );
-        accountDAO.anonymizeExpiredAccounts(SC2Pulse.offsetDateTime().minusSeconds(BlizzardPrivacyService.DATA_TTL.toSeconds()).minusDays(1));
+        assertTrue(accountDAO.anonymizeExpiredAccounts(SC2Pulse.offsetDateTime().minusSeconds(BlizzardPrivacyService.DATA_TTL.toSeconds()).minusDays(1)).isEmpty());
         //the account is excluded due to "from" param
         assertEquals("tag3#123", accountDAO.findByIds(Set.of(acc1.getId())).get(0).getBattleTag());
 
-        accountDAO.anonymizeExpiredAccounts(OffsetDateTime.MIN);
+        assertEquals(List.of("tag3#123"), accountDAO.anonymizeExpiredAccounts(OffsetDateTime.MIN));
         assertEquals(BasePlayerCharacter.DEFAULT_FAKE_NAME + "#211", accountDAO.findByIds(Set.of(acc1.getId())).get(0).getBattleTag());
+        //already anonymized
+        assertTrue(accountDAO.anonymizeExpiredAccounts(OffsetDateTime.MIN).isEmpty());
     }
 
     @Test
@@ -689,6 +693,28 @@ public class PlayerCharacterDAOIT
         assertTrue(beforeUpdate.isAfter(afterUpdate));
     }
 
+    @Test
+    public void testSetMerge()
+    {
+        Account acc = accountDAO.merge(new Account(null, Partition.GLOBAL, "tag#1"));
+        Account acc2 = accountDAO.merge(new Account(null, Partition.GLOBAL, "tag#2"));
+        PlayerCharacter existing = playerCharacterDAO
+            .merge(new PlayerCharacter(null, acc.getId(), Region.EU, 1L, 1, "name#1"));
+
+        PlayerCharacter updated = new PlayerCharacter(null, acc2.getId(), Region.EU, 1L, 1, "name#11");
+        PlayerCharacter created = new PlayerCharacter(null, acc.getId(), Region.US, 2L, 2, "name#2");
+        playerCharacterDAO.merge(Set.of(updated, created));
+
+        assertEquals(existing.getId(), updated.getId());
+        assertNotNull(created.getId());
+        PlayerCharacter foundUpdated = playerCharacterDAO.find(Set.of(updated.getId())).get(0);
+        assertEquals(acc2.getId(), foundUpdated.getAccountId());
+        assertEquals("name#11", foundUpdated.getName());
+        PlayerCharacter foundCreated = playerCharacterDAO.find(Set.of(created.getId())).get(0);
+        assertEquals(acc.getId(), foundCreated.getAccountId());
+        assertEquals("name#2", foundCreated.getName());
+    }
+
     @Test
     public void testAnonymousFlagSetterAndGetter()
     {
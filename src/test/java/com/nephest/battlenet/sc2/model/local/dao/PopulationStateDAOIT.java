@@ -0,0 +1,188 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.nephest.battlenet.sc2.config.DatabaseTestConfig;
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.BaseLeagueTier;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.SeasonGenerator;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.inner.LeaguePopulation;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+@SpringJUnitConfig(classes = DatabaseTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class PopulationStateDAOIT
+{
+
+    private static final int SEASON = SeasonGenerator.DEFAULT_SEASON_ID;
+    private static final List<Region> REGIONS = List.of(Region.US, Region.EU);
+    private static final List<BaseLeague.LeagueType> LEAGUES =
+        List.of(BaseLeague.LeagueType.BRONZE, BaseLeague.LeagueType.GOLD);
+    private static final int TEAMS_PER_LEAGUE = 5;
+
+    @Autowired
+    private PopulationStateDAO populationStateDAO;
+
+    @Autowired
+    private LeagueStatsDAO leagueStatsDAO;
+
+    @Autowired
+    private TeamDAO teamDAO;
+
+    @Autowired
+    private SeasonGenerator seasonGenerator;
+
+    @Autowired
+    private JdbcTemplate template;
+
+    @Autowired @Qualifier("sc2StatsConversionService")
+    private ConversionService conversionService;
+
+    @BeforeEach
+    public void beforeEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+        seasonGenerator.generateDefaultSeason
+        (
+            REGIONS,
+            LEAGUES,
+            List.of(QueueType.LOTV_1V1),
+            TeamType.ARRANGED,
+            BaseLeagueTier.LeagueTierType.FIRST,
+            TEAMS_PER_LEAGUE
+        );
+    }
+
+    @AfterEach
+    public void afterEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    private Set<LeaguePopulation> findSnapshots()
+    {
+        return new HashSet<>(template.query
+        (
+            "SELECT season.region, league.queue_type, league.team_type, league.type, "
+            + "global_team_count, region_team_count, league_team_count "
+            + "FROM population_state "
+            + "INNER JOIN league ON population_state.league_id = league.id "
+            + "INNER JOIN season ON league.season_id = season.id",
+            (rs, i)->new LeaguePopulation
+            (
+                conversionService.convert(rs.getInt("region"), Region.class),
+                conversionService.convert(rs.getInt("queue_type"), QueueType.class),
+                conversionService.convert(rs.getInt("team_type"), TeamType.class),
+                conversionService.convert(rs.getInt("type"), BaseLeague.LeagueType.class),
+                rs.getInt("global_team_count"),
+                rs.getInt("region_team_count"),
+                rs.getInt("league_team_count")
+            )
+        ));
+    }
+
+    @Test
+    public void whenFindLeaguePopulation_thenExcludeCheatersAndMatchFullSnapshot()
+    {
+        template.update
+        (
+            "INSERT INTO player_character_report(player_character_id, type, status, restrictions) "
+            + "SELECT player_character_id, 1, true, true "
+            + "FROM team_member "
+            + "WHERE team_id = 1"
+        );
+        Team cheater = teamDAO.findByIds(Set.of(1L)).get(0);
+
+        Set<LeaguePopulation> expected = new HashSet<>();
+        int globalCount = REGIONS.size() * LEAGUES.size() * TEAMS_PER_LEAGUE - 1;
+        for(Region region : REGIONS)
+        {
+            int regionCount = LEAGUES.size() * TEAMS_PER_LEAGUE
+                - (region == cheater.getRegion() ? 1 : 0);
+            for(BaseLeague.LeagueType league : LEAGUES)
+            {
+                int leagueCount = TEAMS_PER_LEAGUE
+                    - (region == cheater.getRegion() && league == cheater.getLeagueType() ? 1 : 0);
+                expected.add(new LeaguePopulation
+                (
+                    region, QueueType.LOTV_1V1, TeamType.ARRANGED, league,
+                    globalCount, regionCount, leagueCount
+                ));
+            }
+        }
+        assertEquals(expected, new HashSet<>(populationStateDAO.findLeaguePopulation(SEASON)));
+
+        //same counts as the full snapshot that is based on league stats
+        leagueStatsDAO.mergeCalculateForSeason(SEASON);
+        assertEquals(expected.size(), populationStateDAO.takeSnapshot(List.of(SEASON)));
+        assertEquals(expected, findSnapshots());
+    }
+
+    @Test
+    public void whenTakeSnapshotOfLeaguePopulations_thenInsertOnlyExistingGivenLeagues()
+    {
+        assertEquals(0, populationStateDAO.takeSnapshot(SEASON, List.of()));
+
+        LeaguePopulation usBronze = new LeaguePopulation
+        (
+            Region.US, QueueType.LOTV_1V1, TeamType.ARRANGED, BaseLeague.LeagueType.BRONZE,
+            30, 20, 10
+        );
+        LeaguePopulation euGold = new LeaguePopulation
+        (
+            Region.EU, QueueType.LOTV_1V1, TeamType.ARRANGED, BaseLeague.LeagueType.GOLD,
+            30, 10, 3
+        );
+        //league doesn't exist
+        LeaguePopulation krGold = new LeaguePopulation
+        (
+            Region.KR, QueueType.LOTV_1V1, TeamType.ARRANGED, BaseLeague.LeagueType.GOLD,
+            30, 1, 1
+        );
+        assertEquals(2, populationStateDAO.takeSnapshot(SEASON, List.of(usBronze, euGold, krGold)));
+        assertEquals(Set.of(usBronze, euGold), findSnapshots());
+
+        //previous snapshots are kept
+        LeaguePopulation usBronzeNext = new LeaguePopulation
+        (
+            Region.US, QueueType.LOTV_1V1, TeamType.ARRANGED, BaseLeague.LeagueType.BRONZE,
+            31, 21, 11
+        );
+        assertEquals(1, populationStateDAO.takeSnapshot(SEASON, List.of(usBronzeNext)));
+        assertEquals(Set.of(usBronze, euGold, usBronzeNext), findSnapshots());
+    }
+
+}
@@ -436,6 +436,7 @@ public class SqlSyntaxIT
         postgreSQLUtils.analyze();
         postgreSQLUtils.vacuumAnalyze();
         assertNotNull(postgreSQLUtils.getApproximateCount("team"));
+        assertNotNull(postgreSQLUtils.getApproximateCount("team_state"));
 
         Account account3 = accountDAO.merge(new Account(null, Partition.GLOBAL, "tag#123111"));
         assertEquals(1, accountDAO.removeEmptyAccounts());
@@ -21,12 +21,15 @@ import com.nephest.battlenet.sc2.model.local.Team;
 import com.nephest.battlenet.sc2.model.local.TeamState;
 import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyId;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import com.nephest.battlenet.sc2.web.service.TeamRankEngine;
 import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -62,6 +65,12 @@ public class TeamIT
     @Autowired
     private TeamStateDAO teamStateDAO;
 
+    @Autowired
+    private LeagueStatsDAO leagueStatsDAO;
+
+    @Autowired
+    private PopulationStateDAO populationStateDAO;
+
     @Autowired
     private SeasonGenerator seasonGenerator;
 
@@ -290,6 +299,80 @@ public class TeamIT
         assertFalse(teamDAO.findMaxLastPlayed(Region.EU, 10).isPresent());
     }
 
+    /*
+        Ties across leagues and regions, 2 queues, and a confirmed cheater. The engine must
+        produce the same ranks and population state ids as the SQL version, both when it's
+        seeded and after an incremental update.
+     */
+    @Test
+    public void whenRankEngineIsUsed_thenRanksMatchSqlRanks()
+    {
+        int season = SeasonGenerator.DEFAULT_SEASON_ID;
+        seasonGenerator.generateDefaultSeason
+        (
+            List.of(Region.US, Region.EU),
+            List.of(BaseLeague.LeagueType.BRONZE, BaseLeague.LeagueType.GOLD, BaseLeague.LeagueType.DIAMOND),
+            List.of(QueueType.LOTV_1V1, QueueType.LOTV_2V2),
+            TeamType.ARRANGED,
+            BaseLeagueTier.LeagueTierType.FIRST,
+            5
+        );
+        template.update("UPDATE team SET rating = id % 7");
+        template.update
+        (
+            "INSERT INTO player_character_report(player_character_id, type, status, restrictions) "
+            + "SELECT player_character_id, 1, true, true "
+            + "FROM team_member "
+            + "WHERE team_id = 1"
+        );
+        leagueStatsDAO.mergeCalculateForSeason(season);
+        populationStateDAO.takeSnapshot(List.of(season));
+        teamDAO.updateRanks(season);
+        List<List<Object>> sqlRanks = findRanks();
+        //the cheater
+        assertEquals(Arrays.asList(1L, null, null, null, null), sqlRanks.get(0));
+
+        template.update
+        (
+            "UPDATE team "
+            + "SET global_rank = 1, region_rank = 1, league_rank = 1, population_state_id = NULL"
+        );
+        TeamRankEngine engine = new TeamRankEngine(teamDAO, true, false);
+        engine.updateRanks(season);
+        assertEquals(sqlRanks, findRanks());
+        assertEquals(0, engine.verify(season));
+
+        template.update("UPDATE team SET rating = rating + 10 WHERE id % 3 = 0");
+        engine.update(teamDAO.findByIds(new HashSet<>(template.queryForList
+        (
+            "SELECT id FROM team WHERE id % 3 = 0",
+            Long.class
+        ))));
+        engine.updateRanks(season);
+        List<List<Object>> engineRanks = findRanks();
+        teamDAO.updateRanks(season);
+        assertEquals(findRanks(), engineRanks);
+        assertEquals(0, engine.verify(season));
+    }
+
+    private List<List<Object>> findRanks()
+    {
+        return template.query
+        (
+            "SELECT id, global_rank, region_rank, league_rank, population_state_id "
+            + "FROM team "
+            + "ORDER BY id",
+            (rs, i)->Arrays.asList
+            (
+                rs.getLong("id"),
+                DAOUtils.getInteger(rs, "global_rank"),
+                DAOUtils.getInteger(rs, "region_rank"),
+                DAOUtils.getInteger(rs, "league_rank"),
+                DAOUtils.getInteger(rs, "population_state_id")
+            )
+        );
+    }
+
     private static Stream<Arguments> teamOperations()
     {
         return operations.stream().map(Arguments::of);
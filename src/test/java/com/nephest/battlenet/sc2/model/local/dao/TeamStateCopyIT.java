@@ -0,0 +1,226 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.config.DatabaseTestConfig;
+import com.nephest.battlenet.sc2.model.local.SeasonGenerator;
+import com.nephest.battlenet.sc2.model.local.TeamState;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.EnabledIf;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+@SpringJUnitConfig(classes = DatabaseTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class TeamStateCopyIT
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(TeamStateCopyIT.class);
+
+    private static final String FIND_STATES =
+        "SELECT team_id, division_id, wins, games, rating, global_rank, region_rank, league_rank, "
+        + "region_team_count, population_state_id, secondary "
+        + "FROM team_state "
+        + "WHERE \"timestamp\" = ? "
+        + "ORDER BY team_id";
+
+    private static final String GENERATE_TEAMS =
+        "INSERT INTO team "
+        + "("
+            + "legacy_id, division_id, season, region, league_type, queue_type, team_type, tier_type, "
+            + "rating, points, wins, losses, ties"
+        + ") "
+        + "SELECT 'copy-benchmark-' || i, division_id, season, region, league_type, queue_type, team_type, "
+        + "tier_type, i % 5000, 0, i % 100, i % 50, 0 "
+        + "FROM (SELECT * FROM team ORDER BY id LIMIT 1) template, "
+        + "generate_series(1, ?) i";
+
+    @Autowired
+    private SeasonGenerator seasonGenerator;
+
+    @Autowired
+    private TeamStateDAO teamStateDAO;
+
+    @Autowired
+    private JdbcTemplate template;
+
+    @BeforeEach
+    public void beforeEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+    }
+
+    @AfterEach
+    public void afterEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        teamStateDAO.setCopy(false);
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    private List<Long> findTeamIds()
+    {
+        return template.queryForList("SELECT id FROM team ORDER BY id", Long.class);
+    }
+
+    private List<Map<String, Object>> findStates(OffsetDateTime timestamp)
+    {
+        return template.queryForList(FIND_STATES, timestamp);
+    }
+
+    @Test
+    public void whenTakeSnapshotWithCopy_thenProduceSameStatesAsBatch()
+    {
+        seasonGenerator.generateDefaultSeason(10);
+        List<Long> teamIds = findTeamIds();
+        OffsetDateTime batchOdt = SC2Pulse.offsetDateTime().minusHours(1);
+        OffsetDateTime copyOdt = batchOdt.plusMinutes(1);
+
+        teamStateDAO.setCopy(false);
+        assertEquals(teamIds.size(), teamStateDAO.takeSnapshot(teamIds, batchOdt));
+        teamStateDAO.setCopy(true);
+        assertEquals(teamIds.size(), teamStateDAO.takeSnapshot(teamIds, copyOdt));
+
+        List<Map<String, Object>> batchStates = findStates(batchOdt);
+        assertEquals(teamIds.size(), batchStates.size());
+        assertEquals(batchStates, findStates(copyOdt));
+    }
+
+    @Test
+    public void whenSaveStateWithCopy_thenProduceSameStatesAsBatch()
+    {
+        seasonGenerator.generateDefaultSeason(10);
+        List<Long> teamIds = findTeamIds();
+        Integer divisionId = template.queryForObject("SELECT MIN(id) FROM division", Integer.class);
+        OffsetDateTime batchOdt = SC2Pulse.offsetDateTime().minusHours(1);
+        OffsetDateTime copyOdt = batchOdt.plusMinutes(1);
+
+        teamStateDAO.setCopy(false);
+        teamStateDAO.saveState(createStates(teamIds, batchOdt, divisionId));
+        teamStateDAO.setCopy(true);
+        assertEquals(teamIds.size(), teamStateDAO
+            .saveState(createStates(teamIds, copyOdt, divisionId))[0]);
+
+        List<Map<String, Object>> batchStates = findStates(batchOdt);
+        assertEquals(teamIds.size(), batchStates.size());
+        assertEquals(batchStates, findStates(copyOdt));
+    }
+
+    @Test
+    public void whenRowWriteFails_thenCancelCopyAndKeepOriginalException()
+    {
+        seasonGenerator.generateDefaultSeason(10);
+        List<Long> teamIds = findTeamIds();
+        Integer divisionId = template.queryForObject("SELECT MIN(id) FROM division", Integer.class);
+        OffsetDateTime odt = SC2Pulse.offsetDateTime().minusHours(1);
+        Set<TeamState> states = createStates(teamIds, odt, divisionId);
+        //smallint overflow in the middle of a row
+        states.iterator().next().setGames(Short.MAX_VALUE + 1);
+
+        teamStateDAO.setCopy(true);
+        assertThrows(IllegalArgumentException.class, ()->teamStateDAO.saveState(states));
+        assertTrue(findStates(odt).isEmpty());
+
+        //connections are reusable after a cancelled copy
+        OffsetDateTime validOdt = odt.plusMinutes(1);
+        assertEquals(teamIds.size(), teamStateDAO
+            .saveState(createStates(teamIds, validOdt, divisionId))[0]);
+        assertEquals(teamIds.size(), findStates(validOdt).size());
+    }
+
+    private static Set<TeamState> createStates
+    (
+        List<Long> teamIds,
+        OffsetDateTime odt,
+        Integer divisionId
+    )
+    {
+        return teamIds.stream()
+            .map(id->
+            {
+                TeamState state = new TeamState(id, odt, divisionId, (int) (id % 100), (int) (id % 5000));
+                if(id % 2 == 0) state.setSecondary(true);
+                return state;
+            })
+            .collect(Collectors.toSet());
+    }
+
+    /*
+        Throughput comparison of batch and binary COPY paths. Disabled by default because it
+        takes a while, enable it by setting the com.nephest.battlenet.sc2.benchmark property.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 100_000, 1_000_000})
+    @EnabledIf
+    (
+        expression = "#{environment['com.nephest.battlenet.sc2.benchmark'] != null}",
+        reason = "Benchmarks are disabled",
+        loadContext = true
+    )
+    public void benchmark(int count)
+    {
+        seasonGenerator.generateDefaultSeason(1);
+        template.update(GENERATE_TEAMS, count - findTeamIds().size());
+        List<Long> teamIds = findTeamIds();
+        Integer divisionId = template.queryForObject("SELECT MIN(id) FROM division", Integer.class);
+        OffsetDateTime odt = SC2Pulse.offsetDateTime().minusDays(1);
+
+        for(boolean copy : new boolean[]{false, true})
+        {
+            teamStateDAO.setCopy(copy);
+            template.update("TRUNCATE team_state");
+            long snapshotRps = measure(count, ()->teamStateDAO.takeSnapshot(teamIds, odt));
+
+            Set<TeamState> states = createStates(teamIds, odt.plusMinutes(1), divisionId);
+            long saveRps = measure(count, ()->teamStateDAO.saveState(states));
+            LOG.info
+            (
+                "team_state {}, {} rows: takeSnapshot {} rows/s, saveState {} rows/s",
+                copy ? "copy" : "batch", count, snapshotRps, saveRps
+            );
+            assertEquals(count * 2, template.queryForObject("SELECT COUNT(*) FROM team_state", Integer.class));
+        }
+    }
+
+    private static long measure(int count, Runnable runnable)
+    {
+        long start = System.nanoTime();
+        runnable.run();
+        long elapsed = Math.max(System.nanoTime() - start, 1);
+        return count * 1_000_000_000L / elapsed;
+    }
+
+}
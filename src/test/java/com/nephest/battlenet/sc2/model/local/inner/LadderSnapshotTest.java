@@ -0,0 +1,119 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.nephest.battlenet.sc2.model.BaseLeague.LeagueType;
+import com.nephest.battlenet.sc2.model.Region;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LadderSnapshotTest
+{
+
+    private static final Set<Region> ALL_REGIONS = EnumSet.allOf(Region.class);
+    private static final Set<LeagueType> ALL_LEAGUES = EnumSet.allOf(LeagueType.class);
+
+    private LadderSnapshot snapshot;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        snapshot = new LadderSnapshot.Builder()
+            .add(Region.EU, LeagueType.GRANDMASTER, 100, 9)
+            .add(Region.US, LeagueType.MASTER, 100, 8)
+            .add(Region.EU, LeagueType.MASTER, 90, 7)
+            .add(Region.KR, LeagueType.MASTER, 90, 6)
+            .add(Region.EU, LeagueType.MASTER, 90, 5)
+            .add(Region.US, LeagueType.DIAMOND, 80, 4)
+            .add(Region.EU, LeagueType.DIAMOND, 70, 3)
+            .build();
+    }
+
+    @Test
+    public void testFindAnchoredForward()
+    {
+        assertEquals(7, snapshot.size());
+        assertEquals
+        (
+            List.of(9L, 8L, 7L),
+            snapshot.findAnchored(ALL_REGIONS, ALL_LEAGUES, Long.MAX_VALUE, Long.MAX_VALUE, true, 0, 3)
+        );
+        //equal ratings, ids are used to break ties
+        assertEquals
+        (
+            List.of(6L, 5L, 4L),
+            snapshot.findAnchored(ALL_REGIONS, ALL_LEAGUES, 90, 7, true, 0, 3)
+        );
+        assertEquals
+        (
+            List.of(4L, 3L),
+            snapshot.findAnchored(ALL_REGIONS, ALL_LEAGUES, 90, 7, true, 2, 3)
+        );
+    }
+
+    @Test
+    public void testFindAnchoredBackward()
+    {
+        assertEquals
+        (
+            List.of(5L, 4L, 3L),
+            snapshot.findAnchored(ALL_REGIONS, ALL_LEAGUES, -1, 0, false, 0, 3)
+        );
+        assertEquals
+        (
+            List.of(8L, 7L, 6L),
+            snapshot.findAnchored(ALL_REGIONS, ALL_LEAGUES, 90, 5, false, 0, 3)
+        );
+        assertEquals
+        (
+            List.of(9L),
+            snapshot.findAnchored(ALL_REGIONS, ALL_LEAGUES, 90, 5, false, 3, 3)
+        );
+    }
+
+    @Test
+    public void testFindAnchoredFiltered()
+    {
+        assertEquals
+        (
+            List.of(7L, 5L, 3L),
+            snapshot.findAnchored(EnumSet.of(Region.EU), ALL_LEAGUES, 100, 9, true, 0, 10)
+        );
+        assertEquals
+        (
+            List.of(8L, 6L),
+            snapshot.findAnchored
+            (
+                EnumSet.of(Region.US, Region.KR),
+                EnumSet.of(LeagueType.MASTER),
+                -1, 0,
+                false, 0, 10
+            )
+        );
+        assertEquals
+        (
+            List.of(),
+            snapshot.findAnchored(EnumSet.of(Region.CN), ALL_LEAGUES, Long.MAX_VALUE, 0, true, 0, 10)
+        );
+    }
+
+    @Test
+    public void whenTeamsAreNotOrdered_thenThrowException()
+    {
+        LadderSnapshot.Builder builder = new LadderSnapshot.Builder()
+            .add(Region.EU, LeagueType.MASTER, 90, 5);
+        assertThrows
+        (
+            IllegalArgumentException.class,
+            ()->builder.add(Region.EU, LeagueType.MASTER, 90, 6)
+        );
+    }
+
+}
@@ -0,0 +1,116 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.local.inner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class PrefixIndexTest
+{
+
+    @Test
+    public void testFind()
+    {
+        PrefixIndex index = new PrefixIndex.Builder()
+            .add("serral", 10)
+            .add("Serral", 30)
+            .add("Serral", 20)
+            .add("Seral", 40)
+            .add("Clem", 50)
+            .add("세랄", 5)
+            .add(null, 100)
+            .build();
+        assertEquals(5, index.size());
+
+        //case-insensitive, ordered by max score
+        assertEquals(List.of("Seral", "Serral", "serral"), index.find("SER", 10));
+        assertEquals(List.of("Serral", "serral"), index.find("serr", 10));
+        assertEquals(List.of("Seral"), index.find("se", 1));
+        assertEquals(List.of("세랄"), index.find("세", 10));
+        assertEquals(List.of("Clem", "Seral", "Serral", "serral", "세랄"), index.find("", 10));
+        assertEquals(List.of(), index.find("serrall", 10));
+        assertEquals(List.of(), index.find("a", 10));
+        assertEquals(List.of(), index.find("z", 10));
+        assertEquals(List.of(), index.find("ser", 0));
+        assertEquals(List.of("Serral", "serral"), index.find("ser", 10, Set.of("Seral")));
+        assertEquals(List.of("serral"), index.find("ser", 1, Set.of("Seral", "Serral")));
+        assertEquals(List.of(), index.find("ser", 0, Set.of("Seral")));
+
+        assertTrue(index.contains("Serral"));
+        assertTrue(index.contains("serral"));
+        assertFalse(index.contains("SERRAL"));
+        assertFalse(index.contains("Serr"));
+    }
+
+    @Test
+    public void whenPrefixIsHeavy_thenReturnSameResultsAsScan()
+    {
+        Random random = new Random(1);
+        String chars = "aAbBc";
+        Map<String, Integer> scores = new HashMap<>();
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for(int i = 0; i < 5000; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            for(int j = 0, length = 1 + random.nextInt(8); j < length; j++)
+                sb.append(chars.charAt(random.nextInt(chars.length())));
+            int score = random.nextInt(100);
+            builder.add(sb.toString(), score);
+            scores.merge(sb.toString(), score, Math::max);
+        }
+        PrefixIndex index = builder.build();
+        assertEquals(scores.size(), index.size());
+        assertTrue(index.getHeavyPrefixCount() > 0);
+
+        List<String> sorted = new ArrayList<>(scores.keySet());
+        sorted.sort(Comparator.comparing(PrefixIndex::toKey).thenComparing(Comparator.naturalOrder()));
+        Map<String, Integer> positions = new HashMap<>();
+        for(int i = 0; i < sorted.size(); i++) positions.put(sorted.get(i), i);
+        for(String prefix : List.of("", "a", "B", "ab", "Abc", "cc", "bca", "aaaa"))
+        {
+            String key = PrefixIndex.toKey(prefix);
+            List<String> ordered = sorted.stream()
+                .filter(s->PrefixIndex.toKey(s).startsWith(key))
+                .sorted(Comparator.comparing((String s)->-scores.get(s)).thenComparing(positions::get))
+                .toList();
+            //a few values of the top, the whole top, and values that are outside of the top
+            List<Set<String>> exclusions = List.of
+            (
+                Set.of(),
+                ordered.stream().limit(3).collect(Collectors.toSet()),
+                ordered.stream().limit(PrefixIndex.TOP_SIZE).collect(Collectors.toSet()),
+                ordered.stream().skip(PrefixIndex.TOP_SIZE).limit(3).collect(Collectors.toSet())
+            );
+            for(int limit : new int[]{1, 10, PrefixIndex.TOP_SIZE, PrefixIndex.TOP_SIZE + 5})
+            {
+                assertEquals
+                (
+                    ordered.stream().limit(limit).toList(),
+                    index.find(prefix, limit),
+                    prefix + " " + limit
+                );
+                for(Set<String> excluded : exclusions)
+                {
+                    List<String> expected = ordered.stream()
+                        .filter(s->!excluded.contains(s))
+                        .limit(limit)
+                        .toList();
+                    assertEquals(expected, index.find(prefix, limit, excluded), prefix + " " + limit + " " + excluded);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.model.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+public class PostgreSQLBinaryCopyWriterTest
+{
+
+    @Test
+    public void testFormat()
+    throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(PostgreSQLBinaryCopyWriter writer = new PostgreSQLBinaryCopyWriter(bytes))
+        {
+            writer.startRow(6)
+                .writeLong(1L)
+                .writeInt(2)
+                .writeShort(3)
+                .writeBoolean(true)
+                .writeTimestamp(OffsetDateTime.of(2000, 1, 1, 0, 0, 1, 0, ZoneOffset.UTC))
+                .writeLong(null);
+            assertEquals(1, writer.finish());
+            assertTrue(writer.isFinished());
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        byte[] signature = new byte[PostgreSQLBinaryCopyWriter.SIGNATURE.length];
+        in.readFully(signature);
+        assertArrayEquals(PostgreSQLBinaryCopyWriter.SIGNATURE, signature);
+        assertEquals(0, in.readInt()); //flags
+        assertEquals(0, in.readInt()); //header extension
+
+        assertEquals(6, in.readShort());
+        assertEquals(8, in.readInt());
+        assertEquals(1L, in.readLong());
+        assertEquals(4, in.readInt());
+        assertEquals(2, in.readInt());
+        assertEquals(2, in.readInt());
+        assertEquals(3, in.readShort());
+        assertEquals(1, in.readInt());
+        assertEquals(1, in.readByte());
+        assertEquals(8, in.readInt());
+        assertEquals(1_000_000L, in.readLong());
+        assertEquals(-1, in.readInt());
+
+        assertEquals(-1, in.readShort()); //trailer
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void whenNotFinished_thenDontWriteTrailer()
+    throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(PostgreSQLBinaryCopyWriter writer = new PostgreSQLBinaryCopyWriter(bytes))
+        {
+            writer.startRow(2).writeLong(1L);
+            assertFalse(writer.isFinished());
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        in.skipNBytes(PostgreSQLBinaryCopyWriter.SIGNATURE.length + 8);
+        assertEquals(2, in.readShort());
+        assertEquals(8, in.readInt());
+        assertEquals(1L, in.readLong());
+        //incomplete row, no trailer
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    public void whenSmallintOverflow_thenThrowException()
+    throws IOException
+    {
+        try(PostgreSQLBinaryCopyWriter writer = new PostgreSQLBinaryCopyWriter(new ByteArrayOutputStream()))
+        {
+            writer.startRow(1);
+            assertThrows(IllegalArgumentException.class, ()->writer.writeShort(Short.MAX_VALUE + 1));
+        }
+    }
+
+}
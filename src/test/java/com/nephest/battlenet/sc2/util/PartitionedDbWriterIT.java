@@ -0,0 +1,254 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.nephest.battlenet.sc2.config.DatabaseTestConfig;
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.BaseLeagueTier;
+import com.nephest.battlenet.sc2.model.Partition;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.Account;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.SeasonGenerator;
+import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
+import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
+import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.EnabledIf;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/*
+    Simulates concurrent ladder updates of all regions. Each region lane updates its own teams
+    and characters and merges accounts that are shared with other regions of the same account
+    partition, which is a deadlock-prone pattern without the shared stage.
+ */
+@SpringJUnitConfig(classes = DatabaseTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class PartitionedDbWriterIT
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionedDbWriterIT.class);
+
+    public static final int TEAMS_PER_LEAGUE = 10;
+    public static final int BATCHES = 20;
+    public static final int ACCOUNTS_PER_BATCH = 100;
+
+    private static final String UPDATE_TEAMS =
+        "UPDATE team "
+        + "SET wins = wins + 1 "
+        + "WHERE region = ?";
+
+    @Autowired
+    private SeasonGenerator seasonGenerator;
+
+    @Autowired
+    private AccountDAO accountDAO;
+
+    @Autowired
+    private PlayerCharacterDAO playerCharacterDAO;
+
+    @Autowired
+    private JdbcTemplate template;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void beforeEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+        seasonGenerator.generateDefaultSeason
+        (
+            List.of(Region.values()),
+            List.of(BaseLeague.LeagueType.values()),
+            List.of(QueueType.LOTV_1V1),
+            TeamType.ARRANGED,
+            BaseLeagueTier.LeagueTierType.FIRST,
+            TEAMS_PER_LEAGUE
+        );
+    }
+
+    @AfterEach
+    public void afterEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void whenConcurrentRegionWrites_thenNoDeadlocks(boolean autonomous)
+    throws Exception
+    {
+        int initialWins = getWins();
+        try(PartitionedDbWriter writer = new PartitionedDbWriter(Region.values().length))
+        {
+            write(writer, BATCHES, ACCOUNTS_PER_BATCH, autonomous);
+        }
+
+        int teamCount = template.queryForObject("SELECT COUNT(*) FROM team", Integer.class);
+        assertEquals(initialWins + teamCount * BATCHES, getWins());
+        //US, EU, KR share the same global accounts
+        assertEquals
+        (
+            ACCOUNTS_PER_BATCH * BATCHES * 2,
+            template.queryForObject
+            (
+                "SELECT COUNT(*) FROM account WHERE battle_tag LIKE 'lane-%'",
+                Integer.class
+            )
+        );
+        assertEquals
+        (
+            ACCOUNTS_PER_BATCH * BATCHES * Region.values().length,
+            template.queryForObject
+            (
+                "SELECT COUNT(*) FROM player_character WHERE name LIKE 'lane-%'",
+                Integer.class
+            )
+        );
+    }
+
+    private int getWins()
+    {
+        return template.queryForObject("SELECT SUM(wins) FROM team", Integer.class);
+    }
+
+    /*
+        Autonomous account merges are committed before regional writes, so the shared stage
+        lock is not held by regional writes.
+     */
+    private void write(PartitionedDbWriter writer, int batches, int accountsPerBatch, boolean autonomous)
+    throws Exception
+    {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        TransactionTemplate accountTransactionTemplate = new TransactionTemplate(transactionManager);
+        accountTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        List<Future<Void>> futures = new ArrayList<>();
+        for(int batch = 0; batch < batches; batch++)
+        {
+            for(Region region : Region.values())
+            {
+                Set<AccountCharacterData> accounts = createAccounts(region, batch, accountsPerBatch);
+                futures.add(writer.submit(region, ()->transactionTemplate.executeWithoutResult(s->
+                {
+                    template.update(UPDATE_TEAMS, region.getId());
+                    if(autonomous)
+                    {
+                        writer.runSharedAutonomous
+                        (
+                            Partition.of(region).getId(),
+                            ()->accountTransactionTemplate.executeWithoutResult(as->accountDAO.merge(accounts))
+                        );
+                    }
+                    else
+                    {
+                        writer.runShared(Partition.of(region).getId(), ()->accountDAO.merge(accounts));
+                    }
+                    saveCharacters(accounts);
+                })));
+            }
+        }
+        for(Future<Void> future : futures) future.get();
+    }
+
+    private void saveCharacters(Set<AccountCharacterData> accounts)
+    {
+        playerCharacterDAO.merge(accounts.stream()
+            .map(d->
+            {
+                d.getCharacter().setAccountId(d.getAccount().getId());
+                return d.getCharacter();
+            })
+            .collect(Collectors.toSet()));
+    }
+
+    /*
+        Battle tags are the same in all regions, so lanes of different regions lock the same
+        account rows.
+     */
+    private static Set<AccountCharacterData> createAccounts(Region region, int batch, int count)
+    {
+        return IntStream.range(0, count)
+            .map(i->batch * count + i)
+            .mapToObj(i->new AccountCharacterData
+            (
+                new Account(null, Partition.of(region), "lane-" + i + "#1"),
+                new PlayerCharacter(null, null, region, (long) i, 1, "lane-" + i + "#1"),
+                false,
+                0
+            ))
+            .collect(Collectors.toSet());
+    }
+
+    /*
+        Throughput of concurrent region updates for different lane counts, with shared stage
+        locks that are held until commit and with autonomous account merges. Disabled by default
+        because it takes a while, enable it by setting the com.nephest.battlenet.sc2.benchmark
+        property.
+     */
+    @ParameterizedTest
+    @CsvSource({"1, false", "2, false", "4, false", "1, true", "2, true", "4, true"})
+    @EnabledIf
+    (
+        expression = "#{environment['com.nephest.battlenet.sc2.benchmark'] != null}",
+        reason = "Benchmarks are disabled",
+        loadContext = true
+    )
+    public void benchmark(int lanes, boolean autonomous)
+    throws Exception
+    {
+        int batches = BATCHES * 5;
+        int teamCount = template.queryForObject("SELECT COUNT(*) FROM team", Integer.class);
+        long start = System.nanoTime();
+        try(PartitionedDbWriter writer = new PartitionedDbWriter(lanes))
+        {
+            write(writer, batches, ACCOUNTS_PER_BATCH, autonomous);
+        }
+        long elapsed = Math.max(System.nanoTime() - start, 1);
+        long rows = (long) batches * (teamCount + ACCOUNTS_PER_BATCH * Region.values().length);
+        LOG.info
+        (
+            "{} lanes, autonomous account merge {}: {} rows/s",
+            lanes, autonomous, rows * 1_000_000_000L / elapsed
+        );
+    }
+
+}
@@ -0,0 +1,299 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.model.Region;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class PartitionedDbWriterTest
+{
+
+    private PartitionedDbWriter writer;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        writer = new PartitionedDbWriter(Region.values().length);
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        writer.close();
+    }
+
+    @Test
+    public void testLanes()
+    {
+        assertThrows(IllegalArgumentException.class, ()->new PartitionedDbWriter(0));
+
+        assertEquals(Region.values().length, writer.getLaneCount());
+        for(Region region : Region.values()) assertEquals(region.ordinal(), writer.getLane(region));
+        assertEquals(writer.getLane("natural-id"), writer.getLane("natural-id"));
+        assertTrue(writer.getLane(-1) >= 0);
+
+        try(PartitionedDbWriter singleLaneWriter = new PartitionedDbWriter(1))
+        {
+            for(Region region : Region.values()) assertEquals(0, singleLaneWriter.getLane(region));
+        }
+    }
+
+    @Test
+    public void whenSubmittingToDifferentLanes_thenRunInParallel()
+    throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(Region.values().length);
+        List<Future<Void>> futures = new ArrayList<>();
+        for(Region region : Region.values()) futures.add(writer.submit(region, ()->
+        {
+            latch.countDown();
+            try
+            {
+                //all lanes must be active at the same time to release the latch
+                if(!latch.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("Lanes are not parallel");
+            }
+            catch (InterruptedException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }));
+        for(Future<Void> future : futures) future.get();
+    }
+
+    @Test
+    public void whenSubmittingToSameLane_thenRunInOrder()
+    throws Exception
+    {
+        List<Integer> order = new ArrayList<>();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for(int i = 0; i < 100; i++)
+        {
+            int ix = i;
+            futures.add(writer.submit(writer.getLane(Region.EU), ()->
+            {
+                order.add(ix);
+                return ix;
+            }));
+        }
+        for(Future<Integer> future : futures) future.get();
+        for(int i = 0; i < 100; i++) assertEquals(i, order.get(i));
+    }
+
+    @Test
+    public void whenExclusiveTask_thenNeverOverlapWithLanes()
+    throws Exception
+    {
+        ExecutorService exclusive = writer.newExclusiveExecutor(2, Executors.defaultThreadFactory());
+        AtomicInteger activeLanes = new AtomicInteger();
+        AtomicInteger activeExclusive = new AtomicInteger();
+        AtomicBoolean overlap = new AtomicBoolean(false);
+        List<Future<?>> futures = new ArrayList<>();
+        try
+        {
+            for(int i = 0; i < 50; i++)
+            {
+                for(Region region : Region.values()) futures.add(writer.submit(region, ()->
+                {
+                    activeLanes.incrementAndGet();
+                    if(activeExclusive.get() > 0) overlap.set(true);
+                    sleep();
+                    activeLanes.decrementAndGet();
+                }));
+                futures.add(exclusive.submit(()->
+                {
+                    if(activeExclusive.incrementAndGet() > 1 || activeLanes.get() > 0) overlap.set(true);
+                    sleep();
+                    activeExclusive.decrementAndGet();
+                }));
+            }
+            for(Future<?> future : futures) future.get();
+        }
+        finally
+        {
+            exclusive.shutdown();
+        }
+        assertFalse(overlap.get());
+    }
+
+    @Test
+    public void whenSharedStage_thenMutuallyExclusive()
+    throws Exception
+    {
+        AtomicInteger active = new AtomicInteger();
+        AtomicBoolean overlap = new AtomicBoolean(false);
+        List<Future<Void>> futures = new ArrayList<>();
+        for(int i = 0; i < 20; i++)
+            for(Region region : Region.values()) futures.add(writer.submit(region, ()->writer.runShared(()->
+            {
+                if(active.incrementAndGet() > 1) overlap.set(true);
+                sleep();
+                active.decrementAndGet();
+            })));
+        for(Future<Void> future : futures) future.get();
+        assertFalse(overlap.get());
+    }
+
+    @Test
+    public void whenSharedStagesOfDifferentNaturalIds_thenRunInParallel()
+    throws Exception
+    {
+        assertEquals(writer.getSharedStage(1), writer.getSharedStage(1));
+        assertTrue(writer.getSharedStage(-1) >= 0);
+        assertFalse(writer.getSharedStage(0) == writer.getSharedStage(1));
+
+        CountDownLatch latch = new CountDownLatch(2);
+        List<Future<Void>> futures = new ArrayList<>();
+        for(int i = 0; i < 2; i++)
+        {
+            int naturalId = i;
+            futures.add(writer.submit(Region.values()[i], ()->writer.runShared(naturalId, ()->
+            {
+                latch.countDown();
+                try
+                {
+                    if(!latch.await(5, TimeUnit.SECONDS))
+                        throw new IllegalStateException("Shared stages are not parallel");
+                }
+                catch (InterruptedException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            })));
+        }
+        for(Future<Void> future : futures) future.get();
+    }
+
+    @Test
+    public void whenSharedStagesOfSameNaturalId_thenMutuallyExclusive()
+    throws Exception
+    {
+        AtomicInteger active = new AtomicInteger();
+        AtomicBoolean overlap = new AtomicBoolean(false);
+        List<Future<Void>> futures = new ArrayList<>();
+        for(int i = 0; i < 20; i++)
+        {
+            for(Region region : Region.values())
+            {
+                //the global stage locks all natural ids
+                Runnable stage = ()->
+                {
+                    if(active.incrementAndGet() > 1) overlap.set(true);
+                    sleep();
+                    active.decrementAndGet();
+                };
+                futures.add(writer.submit(region, region.ordinal() % 2 == 0
+                    ? ()->writer.runShared(1, stage)
+                    : ()->writer.runShared(stage)));
+            }
+        }
+        for(Future<Void> future : futures) future.get();
+        assertFalse(overlap.get());
+    }
+
+    @Test
+    public void whenLowerSharedStageIsLockedAfterHigherStage_thenThrowException()
+    {
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            writer.runShared(1, ()->{});
+            assertThrows(IllegalStateException.class, ()->writer.runShared(0, ()->{}));
+            assertThrows(IllegalStateException.class, ()->writer.runShared(()->{}));
+            //same and higher stages are fine
+            assertEquals(1, writer.callShared(1, ()->1));
+            assertEquals(2, writer.callShared(2, ()->2));
+
+            for(TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations())
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void whenSharedStageInTransaction_thenHoldLockUntilCompletion()
+    throws Exception
+    {
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            assertEquals(1, writer.callShared(()->1));
+            //the lock is held by this thread, other threads must wait for the transaction
+            Future<Integer> otherStage = writer.submit(0, ()->writer.callShared(()->2));
+            assertThrows(TimeoutException.class, ()->otherStage.get(200, TimeUnit.MILLISECONDS));
+
+            for(TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations())
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            assertEquals(2, otherStage.get(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void whenAutonomousSharedStageInTransaction_thenReleaseLockWhenFinished()
+    throws Exception
+    {
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            assertEquals(1, writer.callSharedAutonomous(1L, ()->1));
+            assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+            //other lanes don't wait for the transaction
+            assertEquals(2, writer.submit(0, ()->writer.callShared(1L, ()->2)).get(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void whenSharedStageThrowsWithoutTransaction_thenReleaseLock()
+    throws ExecutionException, InterruptedException
+    {
+        assertThrows(IllegalStateException.class, ()->writer.runShared(()->
+        {
+            throw new IllegalStateException("test");
+        }));
+        assertEquals(1, writer.submit(0, ()->writer.callShared(()->1)).get());
+    }
+
+    private static void sleep()
+    {
+        try
+        {
+            Thread.sleep(1);
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -1,4 +1,4 @@
-// Copyright (C) 2020-2024 Oleksandr Masniuk
+// Copyright (C) 2020-2025 Oleksandr Masniuk
 // SPDX-License-Identifier: AGPL-3.0-or-later
 
 package com.nephest.battlenet.sc2.util;
@@ -16,8 +16,11 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.OffsetDateTime;
 import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 public final class TestUtil
 {
@@ -84,4 +87,28 @@ public final class TestUtil
         return readResource(loader, path, DEFAULT_CHARSET, targetClass);
     }
 
+    /**
+     * Completes the transaction that is emulated by the active transaction synchronization.
+     * Registered synchronizations are invoked and removed, the synchronization stays active,
+     * so it can be reused for the next transaction.
+     *
+     * @param commit true to commit the transaction, false to roll it back
+     */
+    public static void completeTransaction(boolean commit)
+    {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        for(TransactionSynchronization synchronization : synchronizations)
+        {
+            if(commit) synchronization.afterCommit();
+            synchronization.afterCompletion
+            (
+                commit
+                    ? TransactionSynchronization.STATUS_COMMITTED
+                    : TransactionSynchronization.STATUS_ROLLED_BACK
+            );
+        }
+    }
+
 }
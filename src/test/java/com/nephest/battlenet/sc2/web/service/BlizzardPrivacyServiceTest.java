@@ -21,6 +21,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.nephest.battlenet.sc2.cache.SearchSuggestionIndex;
 import com.nephest.battlenet.sc2.model.Race;
 import com.nephest.battlenet.sc2.model.Region;
 import com.nephest.battlenet.sc2.model.blizzard.BlizzardAccount;
@@ -117,6 +118,11 @@ public class BlizzardPrivacyServiceTest
     @Mock
     private ClanService clanService;
 
+    private FingerprintStore fingerprintStore;
+
+    @Mock
+    private SearchSuggestionIndex searchSuggestionIndex;
+
     @Mock
     private SC2WebServiceUtil sc2WebServiceUtil;
 
@@ -158,6 +164,7 @@ public class BlizzardPrivacyServiceTest
             return null;
         }).when(executor).execute(any(Runnable.class));
         globalContext = new GlobalContext(Set.of(Region.EU, Region.US, Region.KR));
+        fingerprintStore = new FingerprintStore(playerCharacterDAO, executor, false, FingerprintStore.WAYS);
         privacyService = new BlizzardPrivacyService
         (
             api,
@@ -168,11 +175,14 @@ public class BlizzardPrivacyServiceTest
             accountDAO,
             playerCharacterDAO,
             clanService,
+            fingerprintStore,
+            searchSuggestionIndex,
             executor, Schedulers.immediate(), executor,
             validator,
             sc2WebServiceUtil,
             globalContext,
-            true
+            true,
+            false
         );
     }
 
@@ -190,11 +200,14 @@ public class BlizzardPrivacyServiceTest
             accountDAO,
             playerCharacterDAO,
             clanService,
+            fingerprintStore,
+            searchSuggestionIndex,
             TestUtil.EXECUTOR_SERVICE, Schedulers.immediate(), TestUtil.EXECUTOR_SERVICE,
             validator,
             sc2WebServiceUtil,
             globalContext,
-            true
+            true,
+            false
         );
         when(statsService.isAlternativeUpdate(any(), anyBoolean())).thenReturn(false);
         when(sc2WebServiceUtil.getExternalOrExistingSeason(any(), anyInt())).thenReturn(new BlizzardSeason());
@@ -254,6 +267,17 @@ public class BlizzardPrivacyServiceTest
         //partial anonymization
         assertTrue(anonymizeOffset.isEqual(offsetDateTimeArgumentCaptor.getAllValues().get(1)));
         order.verify(playerCharacterDAO).anonymizeExpiredCharacters(argThat(m->m.isEqual(anonymizeOffset)));
+        //nothing was anonymized
+        verify(searchSuggestionIndex, never()).remove(any(), any());
+        verify(searchSuggestionIndex, never()).rebuild();
+    }
+
+    @Test
+    public void whenDataIsAnonymized_thenRemoveItFromSearchSuggestionIndex()
+    {
+        when(playerCharacterDAO.anonymizeExpiredCharacters(any())).thenReturn(List.of("name"));
+        privacyService.update();
+        verify(searchSuggestionIndex).remove(List.of("name"), List.of());
     }
 
     @Test
@@ -322,10 +346,13 @@ public class BlizzardPrivacyServiceTest
             accountDAO,
             playerCharacterDAO,
             clanService,
+            fingerprintStore,
+            searchSuggestionIndex,
             executor, Schedulers.immediate(), executor,
             validator,
             sc2WebServiceUtil,
             globalContext,
+            false,
             false
         );
         lenient().when(playerCharacterDAO.countByUpdatedMax(any(), any()))
@@ -507,6 +534,136 @@ public class BlizzardPrivacyServiceTest
         assertTrue(accountPlayerCaptor.getValue().iterator().next().isFresh());
     }
 
+    private BlizzardPrivacyService createSweepService(GlobalContext context)
+    {
+        return new BlizzardPrivacyService
+        (
+            api,
+            statsService,
+            alternativeLadderService,
+            seasonDAO,
+            varDAO,
+            accountDAO,
+            playerCharacterDAO,
+            clanService,
+            fingerprintStore,
+            searchSuggestionIndex,
+            executor, Schedulers.immediate(), executor,
+            validator,
+            sc2WebServiceUtil,
+            context,
+            true,
+            true
+        );
+    }
+
+    @Test
+    public void testSweep()
+    {
+        privacyService = createSweepService(new GlobalContext(Set.of(Region.EU)));
+        when(seasonDAO.getMaxBattlenetId()).thenReturn(BlizzardSC2API.FIRST_SEASON);
+        when(statsService.isAlternativeUpdate(any(), anyBoolean())).thenReturn(true);
+        int ladderCount = BlizzardPrivacyService.SWEEP_SLICES * 2;
+        List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> ladderIds = new ArrayList<>();
+        for(long i = ladderCount; i > 0; i--)
+            ladderIds.add(Tuples.of(Region.EU, new BlizzardPlayerCharacter[0], i * 10));
+        when(alternativeLadderService.getExistingLadderIds(any(), any())).thenReturn(ladderIds);
+        List<List<Long>> slices = new ArrayList<>();
+        when(api.getProfileLadders(any(), any(), anyBoolean(), eq(REQUEST_LIMIT_PRIORITY_NAME)))
+            .thenAnswer(i->{
+                Iterable<Tuple3<Region, BlizzardPlayerCharacter[], Long>> ids = i.getArgument(0);
+                List<Long> slice = new ArrayList<>();
+                ids.forEach(id->slice.add(id.getT3()));
+                slices.add(slice);
+                return createProfileLadders(ids);
+            });
+
+        //the daily update is replaced by the sweep
+        privacyService.updateOldSeasons();
+        assertTrue(slices.isEmpty());
+
+        //ladders are sorted by id, every slice is checkpointed
+        privacyService.sweepOldSeasons();
+        assertEquals(List.of(List.of(10L, 20L)), slices);
+        assertEquals(BlizzardSC2API.FIRST_SEASON, privacyService.getSweepSeason().getValue().longValue());
+        assertEquals(20L, privacyService.getSweepCursor(Region.EU).getValue().longValue());
+
+        //resumed from the checkpoint
+        privacyService.getSweepCursor(Region.EU).setValue(100L);
+        privacyService.sweepOldSeasons();
+        assertEquals(List.of(110L, 120L), slices.get(1));
+
+        Instant begin = SC2Pulse.instant();
+        int runs = 2;
+        while(privacyService.getSweepSeason().getValue() != null)
+        {
+            privacyService.sweepOldSeasons();
+            assertTrue(++runs <= BlizzardPrivacyService.SWEEP_SLICES);
+        }
+        //ladder ids are loaded once per sweep
+        verify(alternativeLadderService, times(1)).getExistingLadderIds(any(), any());
+        assertEquals(List.of((long) ladderCount * 10 - 10, (long) ladderCount * 10), slices.get(slices.size() - 1));
+        assertNull(privacyService.getSweepCursor(Region.EU).getValue());
+        assertFalse(privacyService.getLastUpdatedCurrentSeasonInstantVar().getValue().isBefore(begin));
+    }
+
+    private static Flux<Tuple2<BlizzardProfileLadder, Tuple3<Region, BlizzardPlayerCharacter[], Long>>>
+    createProfileLadders(Iterable<Tuple3<Region, BlizzardPlayerCharacter[], Long>> ids)
+    {
+        return Flux.fromIterable(ids)
+            .map(id->Tuples.of(new BlizzardProfileLadder(new BlizzardProfileTeam[0], null), id));
+    }
+
+    @Test
+    public void whenSweepSliceFails_thenDontMoveCursor()
+    {
+        privacyService = createSweepService(new GlobalContext(Set.of(Region.EU)));
+        when(seasonDAO.getMaxBattlenetId()).thenReturn(BlizzardSC2API.FIRST_SEASON);
+        when(statsService.isAlternativeUpdate(any(), anyBoolean())).thenReturn(true);
+        List<Tuple3<Region, BlizzardPlayerCharacter[], Long>> ladderIds = new ArrayList<>();
+        for(long i = 1; i <= BlizzardPrivacyService.SWEEP_SLICES * 2; i++)
+            ladderIds.add(Tuples.of(Region.EU, new BlizzardPlayerCharacter[0], i * 10));
+        when(alternativeLadderService.getExistingLadderIds(any(), any())).thenReturn(ladderIds);
+        //second ladder of the slice is not fetched
+        when(api.getProfileLadders(any(), any(), anyBoolean(), eq(REQUEST_LIMIT_PRIORITY_NAME)))
+            .thenAnswer(i->createProfileLadders(List.of(ladderIds.get(0))))
+            .thenAnswer(i->createProfileLadders(i.getArgument(0)));
+
+        privacyService.sweepOldSeasons();
+        assertEquals(BlizzardSC2API.FIRST_SEASON, privacyService.getSweepSeason().getValue().longValue());
+        assertNull(privacyService.getSweepCursor(Region.EU).getValue());
+
+        //retried
+        privacyService.sweepOldSeasons();
+        assertEquals(20L, privacyService.getSweepCursor(Region.EU).getValue().longValue());
+    }
+
+    @Test
+    public void whenSweepingUnchangedCharacters_thenSkipThem()
+    {
+        privacyService = createSweepService(new GlobalContext(Set.of(Region.EU)));
+        when(seasonDAO.getMaxBattlenetId()).thenReturn(BlizzardSC2API.FIRST_SEASON + 1);
+        when(statsService.isAlternativeUpdate(any(), anyBoolean())).thenReturn(false);
+        when(sc2WebServiceUtil.getExternalOrExistingSeason(any(), anyInt())).thenReturn(new BlizzardSeason());
+        when(api.getLadders(any(), eq(-1L), argThat(Map::isEmpty), eq(REQUEST_LIMIT_PRIORITY_NAME)))
+            .thenReturn(createLadder());
+        when(playerCharacterDAO.findUnchangedAccountsAndCharacters(any(), any()))
+            .thenReturn(List.of(new PlayerCharacter(5L, null, Region.EU, 1L, 1, null)));
+
+        privacyService.sweepOldSeasons();
+
+        verify(playerCharacterDAO).findUnchangedAccountsAndCharacters
+        (
+            any(),
+            argThat(odt->odt.isBefore(SC2Pulse.offsetDateTime().minus(BlizzardPrivacyService.UNCHANGED_UPDATED_MAX).plusMinutes(1)))
+        );
+        verify(playerCharacterDAO).updateAccountsAndCharacters(accountPlayerCaptor.capture());
+        assertTrue(accountPlayerCaptor.getValue().isEmpty());
+        //unchanged character ids are still resolved for clans
+        verify(clanService).saveClans(clanDataCaptor.capture());
+        assertEquals(5L, clanDataCaptor.getValue().iterator().next().getCharacter().getId());
+    }
+
     private OngoingStubbing<Flux<Tuple2<BlizzardLadder, Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>>>> stubLadderApi(Duration delay)
     {
         OngoingStubbing<Flux<Tuple2<BlizzardLadder, Tuple4<BlizzardLeague, Region, BlizzardLeagueTier, BlizzardTierDivision>>>> stub
@@ -6,6 +6,7 @@ package com.nephest.battlenet.sc2.web.service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -43,6 +44,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import javax.sql.DataSource;
+import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
@@ -299,6 +301,57 @@ public class BlizzardSC2APIIT
     }
 
 
+    @Test
+    public void testConditionalLadderRequests()
+    throws Exception
+    {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        api.setRegionUri(server.url("/someurl").uri().toString());
+        WebClient oldWebClient = api.getWebClient();
+        api.setWebClient(WebServiceTestUtil.createTimeoutClient());
+        api.getLadderValidators().clear();
+        LadderValidatorStore.Stats initialStats = api.getLadderValidators().getStats(Region.EU);
+
+        String ladder = "{\"team\": [{\"id\": 1}]}";
+        server.enqueue(new MockResponse()
+            .setBody(ladder)
+            .setHeader("Content-Type", "application/json")
+            .setHeader("ETag", "\"1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        server.enqueue(new MockResponse()
+            .setBody(ladder)
+            .setHeader("Content-Type", "application/json")
+            .setHeader("ETag", "\"2\""));
+        server.enqueue(new MockResponse()
+            .setBody(VALID_LADDER)
+            .setHeader("Content-Type", "application/json")
+            .setHeader("ETag", "\"3\""));
+
+        //first request is unconditional
+        assertEquals(1, api.getLadderIfModified(Region.EU, 1L, null).block().getTeams().length);
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        //not modified
+        assertNull(api.getLadderIfModified(Region.EU, 1L, null).block());
+        assertEquals("\"1\"", server.takeRequest().getHeader("If-None-Match"));
+        //etag was changed, but the content is the same
+        assertNull(api.getLadderIfModified(Region.EU, 1L, null).block());
+        assertEquals("\"1\"", server.takeRequest().getHeader("If-None-Match"));
+        //modified
+        assertEquals(0, api.getLadderIfModified(Region.EU, 1L, null).block().getTeams().length);
+        assertEquals("\"2\"", server.takeRequest().getHeader("If-None-Match"));
+
+        LadderValidatorStore.Stats stats = api.getLadderValidators().getStats(Region.EU);
+        assertEquals(initialStats.modified() + 2, stats.modified());
+        assertEquals(initialStats.notModified() + 1, stats.notModified());
+        assertEquals(initialStats.unchanged() + 1, stats.unchanged());
+
+        server.shutdown();
+        api.getLadderValidators().clear();
+        api.setRegionUri(null);
+        api.setWebClient(oldWebClient);
+    }
+
     @Test
     @WithBlizzardMockUser(partition =  Partition.GLOBAL, username = "user", roles = {SC2PulseAuthority.USER, SC2PulseAuthority.ADMIN})
     public void testForceRegion()
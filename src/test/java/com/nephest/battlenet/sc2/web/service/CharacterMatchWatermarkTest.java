@@ -0,0 +1,149 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.model.BaseMatch;
+import com.nephest.battlenet.sc2.model.PlayerCharacterNaturalId;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardMatch;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+public class CharacterMatchWatermarkTest
+{
+
+    private static final OffsetDateTime ODT = OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private static Tuple2<BlizzardMatch, PlayerCharacterNaturalId> match(long characterId, long offsetSeconds)
+    {
+        return Tuples.of
+        (
+            new BlizzardMatch
+            (
+                ODT.plusSeconds(offsetSeconds),
+                BaseMatch.MatchType._1V1,
+                "map",
+                BaseMatch.Decision.WIN
+            ),
+            new PlayerCharacter(characterId, 1L, Region.EU, characterId, 1, "name#1")
+        );
+    }
+
+    @Test
+    public void testFilter()
+    {
+        List<Set<Long>> loads = new ArrayList<>();
+        CharacterMatchWatermark watermark = new CharacterMatchWatermark(ids->
+        {
+            loads.add(Set.copyOf(ids));
+            return Map.of(1L, ODT.plusSeconds(10));
+        });
+
+        List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> fresh = watermark.filter(List.of
+        (
+            match(1L, 5),
+            match(1L, 10),
+            match(1L, 11),
+            match(2L, 1)
+        ));
+        //lazily loaded in one batch, characters without matches are not loaded again
+        assertEquals(List.of(Set.of(1L, 2L)), loads);
+        assertEquals(2, fresh.size());
+        assertEquals(ODT.plusSeconds(11), fresh.get(0).getT1().getDate());
+        assertEquals(2L, ((PlayerCharacter) fresh.get(1).getT2()).getId());
+        assertNull(watermark.get(2L));
+
+        watermark.update(fresh);
+        assertEquals(ODT.plusSeconds(11).toEpochSecond(), watermark.get(1L));
+        assertEquals(ODT.plusSeconds(1).toEpochSecond(), watermark.get(2L));
+        //watermarks are never moved back
+        watermark.update(List.of(match(1L, 0)));
+        assertEquals(ODT.plusSeconds(11).toEpochSecond(), watermark.get(1L));
+
+        assertEquals(0, watermark.filter(List.of(match(1L, 11), match(2L, 1))).size());
+        assertEquals(1, loads.size());
+
+        CharacterMatchWatermark.Stats stats = watermark.getStats();
+        assertEquals(4, stats.skipped());
+        assertEquals(3, stats.written());
+        assertEquals(2, stats.characters());
+    }
+
+    @Test
+    public void testGrowAndClear()
+    {
+        CharacterMatchWatermark watermark = new CharacterMatchWatermark(ids->Map.of());
+        int count = CharacterMatchWatermark.DEFAULT_CAPACITY * 10;
+        List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> matches = new ArrayList<>();
+        for(long i = 1; i <= count; i++) matches.add(match(i, i));
+        long initialHeapUsage = watermark.getHeapUsage();
+
+        watermark.update(watermark.filter(matches));
+        assertEquals(count, watermark.size());
+        assertTrue(watermark.getHeapUsage() > initialHeapUsage);
+        for(long i = 1; i <= count; i++)
+            assertEquals(ODT.plusSeconds(i).toEpochSecond(), watermark.get(i));
+        assertEquals
+        (
+            List.of(),
+            watermark.filter(matches).stream().map(Tuple2::getT1).collect(Collectors.toList())
+        );
+
+        watermark.clear();
+        assertEquals(0, watermark.size());
+        assertEquals(initialHeapUsage, watermark.getHeapUsage());
+        assertNull(watermark.get(1L));
+    }
+
+    @Test
+    public void testTrim()
+    {
+        CharacterMatchWatermark watermark = new CharacterMatchWatermark(ids->Map.of());
+        int count = CharacterMatchWatermark.DEFAULT_CAPACITY * 10;
+        List<Tuple2<BlizzardMatch, PlayerCharacterNaturalId>> matches = new ArrayList<>();
+        for(long i = 1; i <= count; i++) matches.add(match(i, i));
+        watermark.update(watermark.filter(matches));
+        //loaded without matches
+        watermark.filter(List.of(match(count + 1, 0)));
+        long heapUsage = watermark.getHeapUsage();
+
+        //characters without matches are always removed
+        assertEquals(1, watermark.trim(ODT));
+        assertEquals(count, watermark.size());
+        assertEquals(0, watermark.trim(ODT));
+        assertEquals(count - 1, watermark.trim(ODT.plusSeconds(count)));
+        assertEquals(1, watermark.size());
+        assertEquals(ODT.plusSeconds(count).toEpochSecond(), watermark.get(count));
+        assertNull(watermark.get(1L));
+        assertTrue(watermark.getHeapUsage() < heapUsage);
+    }
+
+    @Test
+    public void whenMaxSizeIsReached_thenClear()
+    {
+        CharacterMatchWatermark watermark = new CharacterMatchWatermark(ids->Map.of(), 2);
+        watermark.update(List.of(match(1L, 1), match(2L, 2)));
+        assertEquals(2, watermark.size());
+
+        watermark.update(List.of(match(2L, 3), match(3L, 3)));
+        assertEquals(1, watermark.size());
+        assertNull(watermark.get(1L));
+        assertNull(watermark.get(2L));
+        assertEquals(ODT.plusSeconds(3).toEpochSecond(), watermark.get(3L));
+    }
+
+}
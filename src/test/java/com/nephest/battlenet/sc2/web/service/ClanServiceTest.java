@@ -108,6 +108,7 @@ public class ClanServiceTest
             api,
             eventService,
             alternativeLadderService,
+            new FingerprintStore(playerCharacterDAO, executor, false, FingerprintStore.WAYS),
             executor,
             executor
         );
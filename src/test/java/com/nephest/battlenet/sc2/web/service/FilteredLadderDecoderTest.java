@@ -0,0 +1,125 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadder;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardTeam;
+import com.nephest.battlenet.sc2.util.TestUtil;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+public class FilteredLadderDecoderTest
+{
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public static long findMedianLastPlayed(byte[] ladder)
+    throws Exception
+    {
+        long[] timestamps = StreamSupport.stream(OBJECT_MAPPER.readTree(ladder).get("team").spliterator(), false)
+            .mapToLong(team->team.get(FilteredLadderDecoder.LAST_PLAYED_FIELD).asLong())
+            .sorted()
+            .toArray();
+        return timestamps[timestamps.length / 2];
+    }
+
+    public static List<DataBuffer> split(byte[] bytes, int chunkSize)
+    {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for(int i = 0; i < bytes.length; i += chunkSize)
+            buffers.add(DefaultDataBufferFactory.sharedInstance
+                .wrap(Arrays.copyOfRange(bytes, i, Math.min(i + chunkSize, bytes.length))));
+        return buffers;
+    }
+
+    @ParameterizedTest
+    @CsvSource
+    ({
+        "blizzard/ladder-1v1.json, 1",
+        "blizzard/ladder-1v1.json, 8192",
+        "blizzard/ladder-4v4.json, 7",
+        "blizzard/ladder-4v4.json, 1000000"
+    })
+    public void whenDecoding_thenProduceSameResultAsTreeParsing(String fixture, int chunkSize)
+    throws Exception
+    {
+        byte[] bytes = TestUtil.readResource(FilteredLadderDecoderTest.class, fixture)
+            .getBytes(StandardCharsets.UTF_8);
+        long cutoff = findMedianLastPlayed(bytes);
+
+        List<BigInteger> expectedIds = new ArrayList<>();
+        JsonNode root = OBJECT_MAPPER.readTree(bytes);
+        for(JsonNode team : root.get("team"))
+            if(team.get(FilteredLadderDecoder.LAST_PLAYED_FIELD).asLong() > cutoff)
+                expectedIds.add(OBJECT_MAPPER.treeToValue(team, BlizzardTeam.class).getId());
+        assertTrue(expectedIds.size() > 0);
+        assertNotEquals(root.get("team").size(), expectedIds.size());
+
+        BlizzardLadder ladder = FilteredLadderDecoder
+            .decode(OBJECT_MAPPER, Flux.fromIterable(split(bytes, chunkSize)), cutoff)
+            .block();
+        assertArrayEquals
+        (
+            expectedIds.toArray(BigInteger[]::new),
+            Arrays.stream(ladder.getTeams()).map(BlizzardTeam::getId).toArray(BigInteger[]::new)
+        );
+        for(BlizzardTeam team : ladder.getTeams())
+        {
+            assertTrue(team.getLastPlayedTimeStamp().getEpochSecond() > cutoff);
+            assertTrue(team.getMembers().length > 0);
+            assertTrue(team.getMembers()[0].getCharacter().getId() > 0);
+        }
+        assertEquals
+        (
+            root.at("/league/league_key/queue_id").asInt(),
+            ladder.getLeague().getLeagueKey().getQueueId().getId()
+        );
+    }
+
+    @Test
+    public void whenTruncatedJson_thenThrowException()
+    {
+        byte[] bytes = "{\"team\":[{\"id\":1,".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalStateException.class, ()->FilteredLadderDecoder
+            .decode(OBJECT_MAPPER, Flux.fromIterable(split(bytes, 4)), 0)
+            .block());
+    }
+
+    @Test
+    public void whenEmptyLadder_thenReturnEmptyTeams()
+    {
+        byte[] bytes = ("{\"team\":[],\"league\":{\"league_key\":"
+            + "{\"league_id\":0,\"season_id\":55,\"queue_id\":201,\"team_type\":0}}}")
+            .getBytes(StandardCharsets.UTF_8);
+        BlizzardLadder ladder = FilteredLadderDecoder
+            .decode(OBJECT_MAPPER, Flux.fromIterable(split(bytes, 3)), 0)
+            .block();
+        assertEquals(0, ladder.getTeams().length);
+        assertEquals(QueueType.LOTV_1V1, ladder.getLeague().getLeagueKey().getQueueId());
+    }
+
+}
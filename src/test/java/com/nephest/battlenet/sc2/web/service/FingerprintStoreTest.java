@@ -0,0 +1,355 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.nephest.battlenet.sc2.model.Partition;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.Account;
+import com.nephest.battlenet.sc2.model.local.Clan;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
+import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
+import com.nephest.battlenet.sc2.model.local.inner.CharacterFingerprintData;
+import com.nephest.battlenet.sc2.model.local.inner.ClanMemberEventData;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class FingerprintStoreTest
+{
+
+    private static final int SEASON = 10;
+
+    @Mock
+    private PlayerCharacterDAO playerCharacterDAO;
+
+    @Mock
+    private ExecutorService executor;
+
+    private FingerprintStore store;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        store = new FingerprintStore(playerCharacterDAO, executor, true, 64);
+    }
+
+    private static PlayerCharacter character(Long id, long battlenetId, String name)
+    {
+        return new PlayerCharacter(id, null, Region.EU, battlenetId, 1, name);
+    }
+
+    private static AccountCharacterData accountCharacter
+    (
+        Long id,
+        long battlenetId,
+        String battleTag,
+        String name,
+        int season
+    )
+    {
+        return new AccountCharacterData
+        (
+            new Account(null, Partition.GLOBAL, battleTag),
+            character(id, battlenetId, name),
+            true,
+            season
+        );
+    }
+
+    @Test
+    public void whenDisabled_thenKeepAllData()
+    {
+        store = new FingerprintStore(playerCharacterDAO, executor, false, 64);
+        store.init();
+        verifyNoInteractions(executor);
+        List<PlayerCharacter> written = List.of(character(1L, 1, "name#1"));
+        store.putWritten(FingerprintStore.CHARACTER, written);
+
+        List<PlayerCharacter> characters = List.of(character(null, 1, "name#1"));
+        assertEquals(characters, store.removeUnchanged(FingerprintStore.CHARACTER, characters));
+        assertEquals(0, store.getStats().size());
+        assertEquals(0, store.getStats().kinds().get(FingerprintStore.Kind.CHARACTER).lookups());
+    }
+
+    @Test
+    public void whenEnabled_thenRebuildOnStartup()
+    {
+        store.init();
+        verify(executor).submit(any(Runnable.class));
+    }
+
+    @Test
+    public void whenAccountAndCharacterAreUnchanged_thenRemoveThem()
+    {
+        store.putWritten(FingerprintStore.ACCOUNT_CHARACTER, List.of
+        (
+            accountCharacter(1L, 1, "tag#1", "name#1", SEASON),
+            accountCharacter(2L, 2, "tag#2", "name#2", SEASON),
+            accountCharacter(3L, 3, "tag#3", "name#3", SEASON),
+            accountCharacter(4L, 4, "tag#4", "name#4", SEASON),
+            //not written, no id
+            accountCharacter(null, 5, "tag#5", "name#5", SEASON)
+        ));
+
+        AccountCharacterData unchanged = accountCharacter(null, 1, "tag#1", "name#1", SEASON);
+        AccountCharacterData previousSeason = accountCharacter(null, 2, "tag#2", "name#2", SEASON - 1);
+        List<AccountCharacterData> changed = List.of
+        (
+            accountCharacter(null, 3, "tag#33", "name#3", SEASON),
+            accountCharacter(null, 4, "tag#4", "name#44", SEASON + 1),
+            accountCharacter(null, 5, "tag#5", "name#5", SEASON),
+            accountCharacter(null, 6, "tag#6", "name#6", SEASON)
+        );
+        List<AccountCharacterData> data = Stream.concat
+        (
+            Stream.of(unchanged, previousSeason),
+            changed.stream()
+        ).toList();
+
+        assertEquals(changed, store.removeUnchanged(FingerprintStore.ACCOUNT_CHARACTER, data));
+        assertEquals(1L, unchanged.getCharacter().getId());
+        assertEquals(2L, previousSeason.getCharacter().getId());
+        changed.forEach(d->assertNull(d.getCharacter().getId()));
+
+        FingerprintStore.Stats stats = store.getStats();
+        assertEquals(4, stats.size());
+        FingerprintStore.KindStats kindStats = stats.kinds().get(FingerprintStore.Kind.ACCOUNT_CHARACTER);
+        assertEquals(6, kindStats.lookups());
+        assertEquals(2, kindStats.hits());
+        assertEquals(2 / 6.0, kindStats.hitRate(), 0.0001);
+    }
+
+    @Test
+    public void whenNewerSeasonIsWritten_thenItIsChanged()
+    {
+        store.putWritten
+        (
+            FingerprintStore.ACCOUNT_CHARACTER,
+            List.of(accountCharacter(1L, 1, "tag#1", "name#1", SEASON))
+        );
+        List<AccountCharacterData> data = List.of(accountCharacter(null, 1, "tag#1", "name#1", SEASON + 1));
+        assertEquals(data, store.removeUnchanged(FingerprintStore.ACCOUNT_CHARACTER, data));
+    }
+
+    @Test
+    public void testKindsAreIndependent()
+    {
+        store.putWritten(FingerprintStore.CHARACTER, List.of(character(1L, 1, "name#1")));
+        List<AccountCharacterData> data = List.of(accountCharacter(null, 1, "tag#1", "name#1", SEASON));
+        assertEquals(data, store.removeUnchanged(FingerprintStore.ACCOUNT_CHARACTER, data));
+        assertEquals
+        (
+            List.of(),
+            store.removeUnchanged(FingerprintStore.CHARACTER, List.of(character(null, 1, "name#1")))
+        );
+    }
+
+    @Test
+    public void whenClanIsChanged_thenKeepClanMember()
+    {
+        PlayerCharacter character1 = character(1L, 1, "name#1");
+        PlayerCharacter character2 = character(2L, 2, "name#2");
+        PlayerCharacter character3 = character(3L, 3, "name#3");
+        Clan clan = new Clan(1, "tag", Region.EU, "name");
+        Instant now = SC2Pulse.instant();
+        store.putWritten(FingerprintStore.CLAN_MEMBER, List.of
+        (
+            new ClanMemberEventData(character1, clan, now),
+            new ClanMemberEventData(character2, clan, now),
+            new ClanMemberEventData(character3, null, now)
+        ));
+
+        List<ClanMemberEventData> changed = List.of
+        (
+            new ClanMemberEventData(character2, new Clan(1, "tag", Region.EU, "name2"), now),
+            new ClanMemberEventData(character3, clan, now)
+        );
+        List<ClanMemberEventData> data = List.of
+        (
+            new ClanMemberEventData(character1, clan, now),
+            changed.get(0),
+            changed.get(1)
+        );
+        assertEquals(changed, store.removeUnchanged(FingerprintStore.CLAN_MEMBER, data));
+
+        //left the clan
+        List<ClanMemberEventData> left = List.of(new ClanMemberEventData(character1, null, now));
+        assertEquals(left, store.removeUnchanged(FingerprintStore.CLAN_MEMBER, left));
+    }
+
+    @Test
+    public void whenSetIsFull_thenEvictOldestFingerprint()
+    {
+        store = new FingerprintStore(playerCharacterDAO, executor, true, FingerprintStore.WAYS);
+        for(long i = 1; i <= FingerprintStore.WAYS + 1; i++)
+            store.putWritten(FingerprintStore.CHARACTER, List.of(character(i, i, "name#" + i)));
+
+        FingerprintStore.Stats stats = store.getStats();
+        assertEquals(FingerprintStore.WAYS, stats.capacity());
+        assertEquals(FingerprintStore.WAYS, stats.size());
+        assertEquals(1, stats.evictions());
+        List<PlayerCharacter> evicted = List.of(character(null, 1, "name#1"));
+        assertEquals(evicted, store.removeUnchanged(FingerprintStore.CHARACTER, evicted));
+        List<PlayerCharacter> last = List.of(character(null, FingerprintStore.WAYS + 1, "name#" + (FingerprintStore.WAYS + 1)));
+        assertEquals(List.of(), store.removeUnchanged(FingerprintStore.CHARACTER, last));
+    }
+
+    @Test
+    public void testRebuild()
+    {
+        OffsetDateTime now = SC2Pulse.offsetDateTime();
+        Clan clan = new Clan(1, "tag", Region.EU, "name");
+        when(playerCharacterDAO.findFingerprints(any())).thenReturn(Stream.of
+        (
+            new CharacterFingerprintData
+            (
+                new Account(1L, Partition.GLOBAL, "tag#1"),
+                character(1L, 1, "name#1"),
+                SEASON,
+                now,
+                clan,
+                now
+            ),
+            //expired
+            new CharacterFingerprintData
+            (
+                new Account(2L, Partition.GLOBAL, "tag#2"),
+                character(2L, 2, "name#2"),
+                SEASON,
+                now.minus(BlizzardPrivacyService.UNCHANGED_UPDATED_MAX).minusMinutes(2),
+                null,
+                null
+            )
+        ));
+        store.rebuild();
+        assertEquals(5, store.getStats().rebuilt());
+
+        AccountCharacterData unchanged = accountCharacter(null, 1, "tag#1", "name#1", SEASON);
+        List<AccountCharacterData> expired = List.of(accountCharacter(null, 2, "tag#2", "name#2", SEASON));
+        assertEquals
+        (
+            expired,
+            store.removeUnchanged
+            (
+                FingerprintStore.ACCOUNT_CHARACTER,
+                Stream.concat(Stream.of(unchanged), expired.stream()).toList()
+            )
+        );
+        assertEquals(1L, unchanged.getCharacter().getId());
+        assertEquals
+        (
+            List.of(),
+            store.removeUnchanged
+            (
+                FingerprintStore.CLAN_MEMBER,
+                List.of(new ClanMemberEventData(character(1L, 1, "name#1"), clan, now.toInstant()))
+            )
+        );
+    }
+
+    @Test
+    public void whenRebuilt_thenStaleDataIsUnchanged()
+    {
+        when(playerCharacterDAO.findFingerprints(any())).thenReturn(Stream.of(new CharacterFingerprintData
+        (
+            new Account(1L, Partition.GLOBAL, "tag#1"),
+            character(1L, 1, "name#1"),
+            SEASON,
+            SC2Pulse.offsetDateTime(),
+            null,
+            null
+        )));
+        store.rebuild();
+
+        AccountCharacterData stale = new AccountCharacterData
+        (
+            new Account(null, Partition.GLOBAL, "tag#1"),
+            character(null, 1, "name#1"),
+            false,
+            SEASON
+        );
+        assertEquals(List.of(), store.removeUnchanged(FingerprintStore.ACCOUNT_CHARACTER, List.of(stale)));
+        assertEquals(1L, stale.getCharacter().getId());
+    }
+
+    @Test
+    public void whenInvalidated_thenRemoveAccountAndCharacterFingerprints()
+    {
+        PlayerCharacter character1 = character(1L, 1, "name#1");
+        PlayerCharacter character2 = character(2L, 2, "name#2");
+        store.putWritten
+        (
+            FingerprintStore.ACCOUNT_CHARACTER,
+            List.of(accountCharacter(1L, 1, "tag#1", "name#1", SEASON))
+        );
+        store.putWritten(FingerprintStore.CHARACTER, List.of(character1, character2));
+        store.putWritten
+        (
+            FingerprintStore.CLAN_MEMBER,
+            List.of(new ClanMemberEventData(character1, null, SC2Pulse.instant()))
+        );
+        assertEquals(4, store.getStats().size());
+
+        store.invalidate(List.of(character(null, 1, "name#11")));
+        assertEquals(2, store.getStats().size());
+        List<AccountCharacterData> data = List.of(accountCharacter(null, 1, "tag#1", "name#1", SEASON));
+        assertEquals(data, store.removeUnchanged(FingerprintStore.ACCOUNT_CHARACTER, data));
+        List<PlayerCharacter> characters = List.of(character(null, 1, "name#1"));
+        assertEquals(characters, store.removeUnchanged(FingerprintStore.CHARACTER, characters));
+        //other characters and kinds are not affected
+        assertEquals
+        (
+            List.of(),
+            store.removeUnchanged(FingerprintStore.CHARACTER, List.of(character(null, 2, "name#2")))
+        );
+        assertEquals
+        (
+            List.of(),
+            store.removeUnchanged
+            (
+                FingerprintStore.CLAN_MEMBER,
+                List.of(new ClanMemberEventData(character(null, 1, "name#1"), null, SC2Pulse.instant()))
+            )
+        );
+    }
+
+    @Test
+    public void whenDisabled_thenClear()
+    {
+        store.putWritten(FingerprintStore.CHARACTER, List.of(character(1L, 1, "name#1")));
+        assertEquals(1, store.getStats().size());
+        store.setEnabled(false);
+        store.setEnabled(true);
+        assertEquals(0, store.getStats().size());
+    }
+
+    @Test
+    public void whenInvalidCapacity_thenThrowException()
+    {
+        assertThrows
+        (
+            IllegalArgumentException.class,
+            ()->new FingerprintStore(playerCharacterDAO, executor, true, FingerprintStore.WAYS - 1)
+        );
+    }
+
+}
@@ -0,0 +1,188 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.LeagueTier;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
+import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyId;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.LongUnaryOperator;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Common fixture of {@link IncrementalSeasonCache} tests. Teams are spread over
+ * {@link #REGIONS}, {@link #QUEUES}, and {@link #LEAGUES} of the {@link #SEASON}.
+ *
+ * @param <C> cache type
+ */
+public abstract class IncrementalSeasonCacheTest<C extends IncrementalSeasonCache<?>>
+{
+
+    protected static final int SEASON = 10;
+    protected static final QueueType[] QUEUES = {QueueType.LOTV_1V1, QueueType.LOTV_2V2};
+    protected static final Region[] REGIONS = {Region.US, Region.EU, Region.KR};
+    protected static final BaseLeague.LeagueType[] LEAGUES =
+    {
+        BaseLeague.LeagueType.GOLD,
+        BaseLeague.LeagueType.DIAMOND,
+        BaseLeague.LeagueType.GRANDMASTER
+    };
+
+    /**
+     * @param enabled true to use the incremental version, false to use the SQL version
+     * @return new cache
+     */
+    protected abstract C createCache(boolean enabled);
+
+    /**
+     * @return teams that are passed to a disabled cache
+     */
+    protected abstract Collection<Team> getTeams();
+
+    /**
+     * Calculates and writes the values of the {@link #SEASON}.
+     *
+     * @param cache cache
+     */
+    protected abstract void calculate(C cache);
+
+    /**
+     * Verifies that the SQL version was used, and the incremental version was not.
+     *
+     * @param cache disabled cache
+     */
+    protected abstract void verifySqlVersion(C cache);
+
+    @Test
+    public void whenDisabled_thenUseSqlVersion()
+    {
+        C cache = createCache(false);
+        cache.update(getTeams());
+        calculate(cache);
+
+        verifySqlVersion(cache);
+        assertFalse(cache.isLoaded(SEASON));
+    }
+
+    protected static Team createTeam
+    (
+        long id,
+        Region region,
+        QueueType queue,
+        BaseLeague.LeagueType league,
+        long rating
+    )
+    {
+        OffsetDateTime odt = OffsetDateTime.now();
+        return new Team
+        (
+            id, SEASON, region,
+            new BaseLeague(league, queue, TeamType.ARRANGED),
+            LeagueTier.LeagueTierType.FIRST,
+            TeamLegacyId.trusted(String.valueOf(id)),
+            1,
+            rating, 1, 1, 0, 0,
+            odt, odt, odt
+        );
+    }
+
+    /**
+     * @param random random
+     * @param count team count, ids are in the [1, count] range
+     * @param rating team id to rating function
+     * @return teams with random regions, queues, and leagues
+     */
+    protected static List<Team> createTeams(Random random, int count, LongUnaryOperator rating)
+    {
+        List<Team> teams = new ArrayList<>(count);
+        for(long id = 1; id <= count; id++) teams.add(createTeam
+        (
+            id,
+            REGIONS[random.nextInt(REGIONS.length)],
+            QUEUES[random.nextInt(QUEUES.length)],
+            LEAGUES[random.nextInt(LEAGUES.length)],
+            rating.applyAsLong(id)
+        ));
+        return teams;
+    }
+
+    /**
+     * Stubs the season teams and cheaters. The collections are read on each invocation, so
+     * they can be changed by tests.
+     */
+    protected static void stubTeams(TeamDAO teamDAO, List<Team> teams, Set<Long> cheaters)
+    {
+        lenient().when(teamDAO.find(any(), eq(SEASON))).thenAnswer(inv->teams.stream()
+            .filter(t->t.getRegion() == inv.getArgument(0)));
+        lenient().when(teamDAO.findCheaterTeamIds(SEASON))
+            .thenAnswer(inv->new ArrayList<>(cheaters));
+    }
+
+    /**
+     * Reference implementation of the team counts.
+     *
+     * @param team counted team
+     * @param teams all teams
+     * @param filter (team, other team) predicate, only matching teams are counted
+     * @return number of matching teams of the same queue and team type: globally, in the
+     * same region, and in the same region and league
+     */
+    protected static int[] countTeams(Team team, Collection<Team> teams, BiPredicate<Team, Team> filter)
+    {
+        int[] counts = new int[3];
+        for(Team other : teams)
+        {
+            if(other.getQueueType() != team.getQueueType()
+                || other.getTeamType() != team.getTeamType()
+                || !filter.test(team, other)) continue;
+
+            counts[0]++;
+            if(other.getRegion() != team.getRegion()) continue;
+            counts[1]++;
+            if(other.getLeagueType() == team.getLeagueType()) counts[2]++;
+        }
+        return counts;
+    }
+
+    /**
+     * @param mock mock
+     * @param invocations expected number of invocations
+     * @param captor captor
+     * @param call (verified mock, captor) consumer that invokes the verified method
+     * @return values of the last invocation
+     */
+    protected static <M, T> Set<T> capture
+    (
+        M mock,
+        int invocations,
+        ArgumentCaptor<List<T>> captor,
+        BiConsumer<M, ArgumentCaptor<List<T>>> call
+    )
+    {
+        call.accept(verify(mock, times(invocations)), captor);
+        return new HashSet<>(captor.getValue());
+    }
+
+}
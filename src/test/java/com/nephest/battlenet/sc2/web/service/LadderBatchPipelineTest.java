@@ -0,0 +1,151 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.model.Region;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+public class LadderBatchPipelineTest
+{
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<Void> runAsync(Runnable runnable)
+    {
+        return CompletableFuture.runAsync(runnable, executor);
+    }
+
+    @Test
+    public void testInvalidConfig()
+    {
+        assertThrows(IllegalArgumentException.class, ()->new LadderBatchPipeline(0, 1, 10, 1000));
+        assertThrows(IllegalArgumentException.class, ()->new LadderBatchPipeline(1, 0, 10, 1000));
+        assertThrows(IllegalArgumentException.class, ()->new LadderBatchPipeline(1, 11, 10, 1000));
+    }
+
+    @Test
+    public void whenProcessing_thenLimitInFlightBatchesAndPendingItems()
+    {
+        LadderBatchPipeline pipeline = new LadderBatchPipeline(2, 10, 10, 60_000);
+        AtomicInteger fetched = new AtomicInteger();
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+
+        pipeline.process
+        (
+            Region.EU,
+            Flux.range(0, 1000).doOnNext(i->fetched.incrementAndGet()),
+            batch->
+            {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                maxAhead.accumulateAndGet(fetched.get() - saved.get(), Math::max);
+                sleep(2);
+                saved.addAndGet(batch.size());
+                active.decrementAndGet();
+            },
+            this::runAsync
+        ).block();
+
+        assertEquals(1000, saved.get());
+        assertTrue(maxActive.get() <= 2);
+        //2 in-flight batches, 1 batch that is being assembled, and some upstream prefetch
+        assertTrue(maxAhead.get() < 1000 / 2, "Upstream is not backpressured: " + maxAhead.get());
+
+        LadderBatchPipeline.Stats stats = pipeline.getStats(Region.EU);
+        assertEquals(0, stats.pendingItems());
+        assertEquals(0, stats.inFlightBatches());
+        assertTrue(stats.maxPendingItems() > 0);
+        assertEquals(100, stats.commit().count());
+        assertEquals(100, stats.queue().count());
+        assertEquals(100, stats.assembly().count());
+        //other regions are tracked separately
+        assertEquals(0, pipeline.getStats(Region.US).commit().count());
+    }
+
+    @Test
+    public void whenCommitLatencyChanges_thenAdaptBatchSize()
+    {
+        LadderBatchPipeline pipeline = new LadderBatchPipeline(1, 10, 100, 20);
+        assertEquals(100, pipeline.getBatchSize(Region.EU));
+
+        //slow commits, halve the batch size down to the min size
+        pipeline.process(Region.EU, Flux.range(0, 500), b->sleep(30), this::runAsync).block();
+        assertEquals(10, pipeline.getBatchSize(Region.EU));
+
+        //fast commits, grow the batch size
+        pipeline.process(Region.EU, Flux.range(0, 50), b->{}, this::runAsync).block();
+        assertTrue(pipeline.getBatchSize(Region.EU) > 10);
+        assertEquals(100, pipeline.getBatchSize(Region.US));
+    }
+
+    @Test
+    public void whenBatchFails_thenSkipIt()
+    {
+        LadderBatchPipeline pipeline = new LadderBatchPipeline(2, 10, 10, 60_000);
+        AtomicInteger saved = new AtomicInteger();
+        pipeline.process
+        (
+            Region.EU,
+            Flux.range(0, 30),
+            batch->
+            {
+                if(batch.contains(15)) throw new IllegalStateException("test");
+                saved.addAndGet(batch.size());
+            },
+            this::runAsync
+        ).block();
+
+        assertEquals(20, saved.get());
+        assertEquals(0, pipeline.getStats(Region.EU).pendingItems());
+    }
+
+    @Test
+    public void whenUpstreamCompletesWithPartialBatch_thenSaveIt()
+    {
+        LadderBatchPipeline pipeline = new LadderBatchPipeline(1, 10, 10, 60_000);
+        List<Integer> saved = new CopyOnWriteArrayList<>();
+        pipeline.process(Region.EU, Flux.range(0, 15), saved::addAll, this::runAsync).block();
+        assertEquals(15, saved.size());
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
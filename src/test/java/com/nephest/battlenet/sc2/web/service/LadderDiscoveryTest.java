@@ -0,0 +1,172 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+public class LadderDiscoveryTest
+{
+
+    private static final long FROM = 1000;
+    private static final long END = 5730;
+    private static final int WINDOW_SIZE = 100;
+    private static final int ERROR_THRESHOLD = 20;
+
+    private Set<Long> fetchedWindows;
+    private AtomicInteger duplicateFetches;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        fetchedWindows = ConcurrentHashMap.newKeySet();
+        duplicateFetches = new AtomicInteger();
+    }
+
+    private static boolean exists(long id)
+    {
+        //every 7th ladder is missing
+        return id >= FROM && id < END && id % 7 != 0;
+    }
+
+    private Flux<Long> fetch(long from, long toExcluded)
+    {
+        if(!fetchedWindows.add(from)) duplicateFetches.incrementAndGet();
+        return Flux.fromStream(LongStream.range(from, toExcluded).boxed())
+            .filter(LadderDiscoveryTest::exists);
+    }
+
+    private LadderDiscovery<Long> create(long from)
+    {
+        return new LadderDiscovery<>(this::fetch, from, WINDOW_SIZE, ERROR_THRESHOLD, 4);
+    }
+
+    private static Set<Long> scanSequentially(long from)
+    {
+        List<Long> ids = new ArrayList<>();
+        for(long windowFrom = from;; windowFrom += WINDOW_SIZE)
+        {
+            List<Long> windowIds = LongStream.range(windowFrom, windowFrom + WINDOW_SIZE)
+                .filter(LadderDiscoveryTest::exists)
+                .boxed()
+                .toList();
+            ids.addAll(windowIds);
+            if(WINDOW_SIZE - windowIds.size() > ERROR_THRESHOLD) break;
+        }
+        return new HashSet<>(ids);
+    }
+
+    private void verifyDiscovery(long from, Long expectedEnd)
+    {
+        LadderDiscovery<Long> discovery = create(from);
+        long end = discovery.findEnd(expectedEnd);
+        int probeCount = discovery.getProbeCount();
+        List<Long> ids = discovery.discover(expectedEnd).collectList().block();
+
+        assertEquals(scanSequentially(from), new HashSet<>(ids));
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+        assertEquals(0, duplicateFetches.get());
+        assertTrue(end >= END);
+        assertTrue(end < END + WINDOW_SIZE);
+        //all windows of the range are fetched, windows after the range are fetched only by probes
+        long rangeWindows = (end - from) / WINDOW_SIZE;
+        assertTrue(LongStream.range(0, rangeWindows).allMatch(w->fetchedWindows.contains(from + w * WINDOW_SIZE)));
+        assertTrue(fetchedWindows.size() - rangeWindows <= probeCount);
+    }
+
+    @Test
+    public void whenExpectedEndIsUnknown_thenGallop()
+    {
+        verifyDiscovery(FROM, null);
+    }
+
+    @Test
+    public void whenExpectedEndIsTooLow_thenGallopFromIt()
+    {
+        verifyDiscovery(FROM, FROM + 1000);
+    }
+
+    @Test
+    public void whenExpectedEndIsTooHigh_thenBisect()
+    {
+        verifyDiscovery(FROM, END + 10_000);
+    }
+
+    @Test
+    public void whenExpectedEndIsAccurate_thenProbeFewWindows()
+    {
+        LadderDiscovery<Long> discovery = create(FROM);
+        discovery.findEnd(END);
+        //first window, expected end window, and a window after it
+        assertEquals(3, discovery.getProbeCount());
+    }
+
+    @Test
+    public void whenGalloping_thenProbeStepsConcurrently()
+    {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        LadderDiscovery<Long> discovery = new LadderDiscovery<>
+        (
+            (from, to)->fetch(from, to)
+                .delaySubscription(Duration.ofMillis(10))
+                .doOnSubscribe(s->maxActive.accumulateAndGet(active.incrementAndGet(), Math::max))
+                .doFinally(s->active.decrementAndGet()),
+            FROM, WINDOW_SIZE, ERROR_THRESHOLD, 4
+        );
+        long end = discovery.findEnd(null);
+
+        //gallop rounds of 1, 2, and 4 steps
+        assertEquals(4, maxActive.get());
+        assertTrue(end >= END);
+        assertTrue(end < END + WINDOW_SIZE);
+        assertEquals(scanSequentially(FROM), new HashSet<>(discovery.discover(null).collectList().block()));
+    }
+
+    @Test
+    public void whenFirstWindowIsSparse_thenStop()
+    {
+        LadderDiscovery<Long> discovery = create(END);
+        assertEquals(END + WINDOW_SIZE, discovery.findEnd(END + 10_000));
+        assertEquals(1, discovery.getProbeCount());
+        assertTrue(discovery.discover(null).collectList().block().isEmpty());
+    }
+
+    @Test
+    public void whenRangeHasHoles_thenDiscoverAtLeastSequentialScanRange()
+    {
+        LadderDiscovery<Long> discovery = new LadderDiscovery<>
+        (
+            (from, to)->fetch(from, to).filter(id->id < 2000 || id >= 2100),
+            FROM, WINDOW_SIZE, ERROR_THRESHOLD, 4
+        );
+        Set<Long> ids = discovery.discover(null).collect(Collectors.toSet()).block();
+        Set<Long> sequential = scanSequentially(FROM).stream()
+            .filter(id->id < 2000)
+            .collect(Collectors.toSet());
+        assertTrue(ids.containsAll(sequential));
+    }
+
+    @Test
+    public void whenInvalidArguments_thenThrowException()
+    {
+        assertThrows(IllegalArgumentException.class, ()->new LadderDiscovery<>(this::fetch, FROM, 0, 1, 1));
+        assertThrows(IllegalArgumentException.class, ()->new LadderDiscovery<>(this::fetch, FROM, 1, 1, 0));
+    }
+
+}
@@ -0,0 +1,213 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardLadder;
+import com.nephest.battlenet.sc2.model.blizzard.BlizzardTeam;
+import com.nephest.battlenet.sc2.model.local.Account;
+import com.nephest.battlenet.sc2.model.local.Division;
+import com.nephest.battlenet.sc2.model.local.League;
+import com.nephest.battlenet.sc2.model.local.LeagueTier;
+import com.nephest.battlenet.sc2.model.local.PlayerCharacter;
+import com.nephest.battlenet.sc2.model.local.Season;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.TeamMember;
+import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
+import com.nephest.battlenet.sc2.model.local.dao.FastTeamDAO;
+import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
+import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
+import com.nephest.battlenet.sc2.model.local.dao.TeamMemberDAO;
+import com.nephest.battlenet.sc2.model.local.inner.AccountCharacterData;
+import com.nephest.battlenet.sc2.model.local.inner.ClanMemberEventData;
+import com.nephest.battlenet.sc2.util.TestUtil;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.util.function.Tuple3;
+
+/**
+ * CPU-bound stages of the ladder update: team conversion, fast DAO merge checks, team
+ * member extraction, and member merge preparation. DAOs that touch the DB are replaced with
+ * stubs that assign ids, so only in-memory work is measured. One operation is one recorded
+ * ladder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LadderUpdateBenchmark
+{
+
+    public static final Region REGION = Region.EU;
+    public static final int SEASON = 60;
+
+    @Param({"blizzard/ladder-1v1.json", "blizzard/ladder-4v4.json"})
+    public String fixture;
+
+    private BlizzardLadder ladder;
+    private Season season;
+    private League league;
+    private LeagueTier tier;
+    private Division division;
+    private TeamDAO teamDAO;
+    private FastTeamDAO fastTeamDAO;
+    private AccountDAO accountDAO;
+    private PlayerCharacterDAO playerCharacterDAO;
+    private TeamMemberDAO teamMemberDAO;
+    private List<Team> teams;
+    private Set<Team> teamSet;
+    private List<Tuple3<Account, PlayerCharacter, TeamMember>> members;
+
+    @Setup
+    public void setup()
+    throws Exception
+    {
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        ladder = objectMapper.readValue
+        (
+            TestUtil.readResource(LadderUpdateBenchmark.class, fixture),
+            BlizzardLadder.class
+        );
+        OffsetDateTime start = OffsetDateTime.of(2025, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        season = new Season(1, SEASON, REGION, 2025, 1, start, start.plusMonths(3));
+        league = new League
+        (
+            1, 1,
+            BaseLeague.LeagueType.DIAMOND,
+            fixture.contains("4v4") ? QueueType.LOTV_4V4 : QueueType.LOTV_1V1,
+            TeamType.ARRANGED
+        );
+        tier = new LeagueTier(1, 1, LeagueTier.LeagueTierType.FIRST, 0, 0);
+        division = new Division(1, 1, 1L);
+
+        //legacy id calculation doesn't depend on the DB
+        teamDAO = mock(TeamDAO.class, Mockito.CALLS_REAL_METHODS);
+        fastTeamDAO = new FastTeamDAO(mock(TeamDAO.class));
+        fastTeamDAO.load(REGION, SEASON);
+        accountDAO = mock(AccountDAO.class);
+        when(accountDAO.merge(any())).then(i->
+        {
+            Set<AccountCharacterData> data = i.getArgument(0);
+            for(AccountCharacterData d : data) d.getAccount().setId(d.getCharacter().getBattlenetId());
+            return data;
+        });
+        playerCharacterDAO = mock(PlayerCharacterDAO.class);
+        when(playerCharacterDAO.merge(any())).then(i->
+        {
+            Set<PlayerCharacter> characters = i.getArgument(0);
+            for(PlayerCharacter c : characters) c.setId(c.getBattlenetId());
+            return characters;
+        });
+        teamMemberDAO = mock(TeamMemberDAO.class);
+
+        teams = teamOf();
+        long id = 1;
+        for(Team team : teams) team.setId(id++);
+        teamSet = new HashSet<>(teams);
+        fastTeamDAO.merge(teamSet);
+        members = extractTeamMembers();
+    }
+
+    @Benchmark
+    public List<Team> teamOf()
+    {
+        List<Team> result = new ArrayList<>(ladder.getTeams().length);
+        for(BlizzardTeam bTeam : ladder.getTeams())
+            result.add(Team.of(season, league, tier, division, bTeam, teamDAO));
+        return result;
+    }
+
+    /*
+        The most common case, the ladder was fetched again, but nothing has changed
+     */
+    @Benchmark
+    public Set<Team> fastMergeUnchanged()
+    {
+        return fastTeamDAO.merge(teamSet);
+    }
+
+    @Benchmark
+    public Set<Team> fastMergeChanged()
+    {
+        for(Team team : teams)
+        {
+            team.setWins(team.getWins() + 1);
+            team.setPrimaryDataUpdated(team.getPrimaryDataUpdated().plusNanos(1000));
+        }
+        return fastTeamDAO.merge(teamSet);
+    }
+
+    @Benchmark
+    public List<Tuple3<Account, PlayerCharacter, TeamMember>> extractTeamMembers()
+    {
+        List<Tuple3<Account, PlayerCharacter, TeamMember>> result = new ArrayList<>();
+        List<ClanMemberEventData> clans = new ArrayList<>();
+        for(int i = 0; i < teams.size(); i++)
+            StatsService.extractTeamMembers
+            (
+                ladder,
+                ladder.getTeams()[i].getMembers(),
+                result,
+                clans,
+                season,
+                teams.get(i)
+            );
+        return result;
+    }
+
+    @Benchmark
+    public void saveMembers(Blackhole blackhole)
+    {
+        StatsService.mergeAccounts(members, accountDAO);
+        StatsService.mergeCharacters(members, playerCharacterDAO, teamMemberDAO);
+        blackhole.consume(members);
+    }
+
+    public static void main(String[] args)
+    throws RunnerException
+    {
+        new Runner(new OptionsBuilder()
+            .include(LadderUpdateBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build())
+            .run();
+    }
+
+}
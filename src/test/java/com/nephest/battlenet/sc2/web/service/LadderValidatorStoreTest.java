@@ -0,0 +1,95 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.model.Region;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class LadderValidatorStoreTest
+{
+
+    @Test
+    public void whenNotModified_thenSkipLadderForUnchangedStreakCappedByMax()
+    {
+        LadderValidatorStore store = new LadderValidatorStore();
+        //unknown ladders are always requested
+        assertTrue(store.tryRequest(Region.EU, 1L, 2));
+
+        store.put(Region.EU, 1L, new LadderValidatorStore.Validators("1", null, 1L));
+        assertTrue(store.tryRequest(Region.EU, 1L, 2));
+
+        //1 unchanged response, skip 1 cycle
+        store.put(Region.EU, 1L, store.get(Region.EU, 1L).notModified());
+        assertFalse(store.tryRequest(Region.EU, 1L, 2));
+        assertTrue(store.tryRequest(Region.EU, 1L, 2));
+
+        //3 unchanged responses, skip 2 cycles
+        store.put(Region.EU, 1L, store.get(Region.EU, 1L).notModified());
+        store.put(Region.EU, 1L, store.get(Region.EU, 1L).notModified());
+        assertEquals(3, store.get(Region.EU, 1L).unchanged());
+        assertFalse(store.tryRequest(Region.EU, 1L, 2));
+        assertFalse(store.tryRequest(Region.EU, 1L, 2));
+        assertTrue(store.tryRequest(Region.EU, 1L, 2));
+
+        //0 disables skipping
+        store.put(Region.EU, 1L, store.get(Region.EU, 1L).notModified());
+        assertTrue(store.tryRequest(Region.EU, 1L, 0));
+
+        //changed ladder resets the streak
+        store.put(Region.EU, 1L, new LadderValidatorStore.Validators("2", null, 2L));
+        assertTrue(store.tryRequest(Region.EU, 1L, 2));
+
+        assertEquals(3, store.getStats(Region.EU).skipped());
+        assertEquals(0, store.getStats(Region.US).skipped());
+    }
+
+    @Test
+    public void whenUnchangedSince_thenContinueStreak()
+    {
+        LadderValidatorStore.Validators previous = new LadderValidatorStore.Validators
+        (
+            "1", null, 1L, 2, 2
+        );
+        LadderValidatorStore.Validators current = new LadderValidatorStore.Validators("2", null, 1L)
+            .unchangedSince(previous);
+        assertEquals(new LadderValidatorStore.Validators("2", null, 1L, 3, 0), current);
+    }
+
+    @Test
+    public void whenLoad_thenKeepNewerValidators()
+    {
+        LadderValidatorStore store = new LadderValidatorStore();
+        LadderValidatorStore.Validators received = new LadderValidatorStore.Validators("2", null, 2L);
+        LadderValidatorStore.Validators persisted = new LadderValidatorStore.Validators("3", null, 3L);
+        store.put(Region.EU, 1L, received);
+        assertFalse(store.isLoaded());
+
+        store.load(List.of
+        (
+            new LadderValidatorStore.Entry
+            (
+                Region.EU, 1L, new LadderValidatorStore.Validators("1", null, 1L)
+            ),
+            new LadderValidatorStore.Entry(Region.EU, 2L, persisted)
+        ));
+        assertTrue(store.isLoaded());
+        assertEquals(received, store.get(Region.EU, 1L));
+        assertEquals
+        (
+            List.of
+            (
+                new LadderValidatorStore.Entry(Region.EU, 1L, received),
+                new LadderValidatorStore.Entry(Region.EU, 2L, persisted)
+            ),
+            store.getEntries(Region.EU, List.of(1L, 2L, 3L))
+        );
+        assertEquals(List.of(), store.getEntries(Region.US, List.of(1L)));
+    }
+
+}
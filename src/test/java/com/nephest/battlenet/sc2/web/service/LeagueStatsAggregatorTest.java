@@ -0,0 +1,312 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.QueueType;
+import com.nephest.battlenet.sc2.model.Race;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.TeamType;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.dao.LeagueStatsDAO;
+import com.nephest.battlenet.sc2.model.local.inner.LeagueStatsAggregate;
+import com.nephest.battlenet.sc2.model.local.inner.TeamLeagueStats;
+import com.nephest.battlenet.sc2.util.TestUtil;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+public class LeagueStatsAggregatorTest
+extends IncrementalSeasonCacheTest<LeagueStatsAggregator>
+{
+
+    private static final int TEAM_COUNT = 500;
+
+    @Mock
+    private LeagueStatsDAO leagueStatsDAO;
+
+    @Captor
+    private ArgumentCaptor<List<LeagueStatsAggregate>> aggregateCaptor;
+
+    private LeagueStatsAggregator aggregator;
+    private Map<Long, TeamLeagueStats> teams;
+    private Random random;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        random = new Random(1);
+        teams = new LinkedHashMap<>();
+        for(long id = 1; id <= TEAM_COUNT; id++) teams.put(id, createStats
+        (
+            id,
+            REGIONS[random.nextInt(REGIONS.length)],
+            QUEUES[random.nextInt(QUEUES.length)],
+            LEAGUES[random.nextInt(LEAGUES.length)]
+        ));
+        lenient().when(leagueStatsDAO.findTeamStats(SEASON))
+            .thenAnswer(inv->new ArrayList<>(teams.values()).stream());
+        lenient().when(leagueStatsDAO.findTeamStats(anySet())).thenAnswer(inv->
+        {
+            Set<Long> ids = inv.getArgument(0);
+            return ids.stream().map(teams::get).filter(t->t != null).collect(Collectors.toList());
+        });
+        aggregator = createCache(true);
+    }
+
+    @Override
+    protected LeagueStatsAggregator createCache(boolean enabled)
+    {
+        return new LeagueStatsAggregator(leagueStatsDAO, enabled);
+    }
+
+    @Override
+    protected Collection<Team> getTeams()
+    {
+        return teams.values().stream().map(LeagueStatsAggregatorTest::toTeam).toList();
+    }
+
+    @Override
+    protected void calculate(LeagueStatsAggregator cache)
+    {
+        cache.calculate(SEASON);
+    }
+
+    @Override
+    protected void verifySqlVersion(LeagueStatsAggregator cache)
+    {
+        verify(leagueStatsDAO).mergeCalculateForSeason(SEASON);
+        verify(leagueStatsDAO, never()).merge(anyInt(), any());
+        assertEquals(1, cache.getStats().full().count());
+        assertEquals(0, cache.getStats().incremental().count());
+    }
+
+    private TeamLeagueStats createStats(long id, Region region, QueueType queue, BaseLeague.LeagueType league)
+    {
+        return new TeamLeagueStats
+        (
+            id, region, queue, TeamType.ARRANGED, league,
+            queue == QueueType.LOTV_1V1 ? Race.values()[random.nextInt(Race.values().length)] : null,
+            random.nextInt(100), random.nextInt(100), random.nextInt(100), random.nextInt(100)
+        );
+    }
+
+    private static Team toTeam(TeamLeagueStats stats)
+    {
+        Team team = new Team();
+        team.setId(stats.teamId());
+        team.setSeason(SEASON);
+        return team;
+    }
+
+    private static Integer nullIfZero(int count)
+    {
+        return count == 0 ? null : count;
+    }
+
+    private static Set<LeagueStatsAggregate> calculateStats(Collection<TeamLeagueStats> teams)
+    {
+        Set<LeagueStatsAggregate> stats = new HashSet<>();
+        for(TeamLeagueStats team : teams)
+        {
+            List<TeamLeagueStats> league = teams.stream()
+                .filter(t->t.region() == team.region()
+                    && t.queueType() == team.queueType()
+                    && t.teamType() == team.teamType()
+                    && t.leagueType() == team.leagueType())
+                .toList();
+            stats.add(new LeagueStatsAggregate
+            (
+                team.region(), team.queueType(), team.teamType(), team.leagueType(),
+                league.size(),
+                league.stream().mapToInt(TeamLeagueStats::terranGamesPlayed).sum(),
+                league.stream().mapToInt(TeamLeagueStats::protossGamesPlayed).sum(),
+                league.stream().mapToInt(TeamLeagueStats::zergGamesPlayed).sum(),
+                league.stream().mapToInt(TeamLeagueStats::randomGamesPlayed).sum(),
+                nullIfZero((int) league.stream().filter(t->t.race() == Race.TERRAN).count()),
+                nullIfZero((int) league.stream().filter(t->t.race() == Race.PROTOSS).count()),
+                nullIfZero((int) league.stream().filter(t->t.race() == Race.ZERG).count()),
+                nullIfZero((int) league.stream().filter(t->t.race() == Race.RANDOM).count())
+            ));
+        }
+        return stats;
+    }
+
+    private Set<LeagueStatsAggregate> captureMerge(int invocations)
+    {
+        return capture
+        (
+            leagueStatsDAO,
+            invocations,
+            aggregateCaptor,
+            (dao, captor)->dao.merge(eq(SEASON), captor.capture())
+        );
+    }
+
+    @Test
+    public void whenSeeded_thenWriteAllLeagues()
+    {
+        aggregator.calculate(SEASON);
+
+        assertTrue(aggregator.isLoaded(SEASON));
+        Set<LeagueStatsAggregate> expected = calculateStats(teams.values());
+        assertEquals(QUEUES.length * REGIONS.length * LEAGUES.length, expected.size());
+        assertEquals(expected, captureMerge(1));
+        assertEquals(1, aggregator.getStats().incremental().count());
+        assertEquals(expected.size(), aggregator.getStats().writtenLeagues());
+        verify(leagueStatsDAO, never()).mergeCalculateForSeason(anyInt());
+    }
+
+    @Test
+    public void whenTeamsAreChanged_thenApplyDeltas()
+    {
+        aggregator.calculate(SEASON);
+        Set<LeagueStatsAggregate> previous = calculateStats(teams.values());
+
+        //dirty, but not changed
+        aggregator.update(List.of(toTeam(teams.get(1L))));
+        aggregator.calculate(SEASON);
+        assertTrue(captureMerge(2).isEmpty());
+
+        //moved and played games
+        TeamLeagueStats moved = teams.get(10L);
+        teams.put(10L, new TeamLeagueStats
+        (
+            moved.teamId(), moved.region(), moved.queueType(), moved.teamType(),
+            moved.leagueType() == LEAGUES[0] ? LEAGUES[1] : LEAGUES[0],
+            moved.race(),
+            moved.terranGamesPlayed() + 1, moved.protossGamesPlayed(),
+            moved.zergGamesPlayed(), moved.randomGamesPlayed()
+        ));
+        //played games
+        TeamLeagueStats played = teams.get(20L);
+        teams.put(20L, new TeamLeagueStats
+        (
+            played.teamId(), played.region(), played.queueType(), played.teamType(),
+            played.leagueType(), played.race(),
+            played.terranGamesPlayed(), played.protossGamesPlayed() + 2,
+            played.zergGamesPlayed(), played.randomGamesPlayed()
+        ));
+        //removed
+        TeamLeagueStats removed = teams.remove(30L);
+        aggregator.update(List.of(toTeam(moved), toTeam(played), toTeam(removed)));
+        aggregator.calculate(SEASON);
+
+        Set<LeagueStatsAggregate> changed = calculateStats(teams.values());
+        changed.removeAll(previous);
+        assertFalse(changed.isEmpty());
+        assertEquals(changed, captureMerge(3));
+    }
+
+    @Test
+    public void whenUpdatedInTransaction_thenMarkTeamsDirtyAfterCommit()
+    {
+        aggregator.calculate(SEASON);
+        TeamLeagueStats played = teams.get(20L);
+        teams.put(20L, new TeamLeagueStats
+        (
+            played.teamId(), played.region(), played.queueType(), played.teamType(),
+            played.leagueType(), played.race(),
+            played.terranGamesPlayed() + 1, played.protossGamesPlayed(),
+            played.zergGamesPlayed(), played.randomGamesPlayed()
+        ));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            //rolled back
+            aggregator.update(List.of(toTeam(played)));
+            TestUtil.completeTransaction(false);
+            aggregator.calculate(SEASON);
+            assertTrue(captureMerge(2).isEmpty());
+
+            //committed
+            aggregator.update(List.of(toTeam(played)));
+            aggregator.calculate(SEASON);
+            assertTrue(captureMerge(3).isEmpty());
+            TestUtil.completeTransaction(true);
+            aggregator.calculate(SEASON);
+            assertEquals(1, captureMerge(4).size());
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void whenWriteFails_thenReseed()
+    {
+        when(leagueStatsDAO.merge(eq(SEASON), any())).thenThrow(new IllegalStateException("test"));
+        assertThrows(IllegalStateException.class, ()->aggregator.calculate(SEASON));
+        assertFalse(aggregator.isLoaded(SEASON));
+    }
+
+    @Test
+    public void testCheck()
+    {
+        aggregator.calculate(SEASON);
+        List<LeagueStatsAggregate> expected = new ArrayList<>(calculateStats(teams.values()));
+        when(leagueStatsDAO.findAggregates(SEASON)).thenReturn(expected);
+        assertEquals(0, aggregator.check(SEASON));
+        verify(leagueStatsDAO).mergeCalculateForSeason(SEASON);
+        assertTrue(aggregator.isLoaded(SEASON));
+
+        LeagueStatsAggregate league = expected.get(0);
+        expected.set(0, new LeagueStatsAggregate
+        (
+            league.region(), league.queueType(), league.teamType(), league.leagueType(),
+            league.teamCount() + 1,
+            league.terranGamesPlayed(), league.protossGamesPlayed(),
+            league.zergGamesPlayed(), league.randomGamesPlayed(),
+            league.terranTeamCount(), league.protossTeamCount(),
+            league.zergTeamCount(), league.randomTeamCount()
+        ));
+        assertEquals(1, aggregator.check(SEASON));
+        assertFalse(aggregator.isLoaded(SEASON));
+        assertEquals(1, aggregator.getStats().mismatches());
+        assertEquals(2, aggregator.getStats().full().count());
+    }
+
+    @Test
+    public void whenCheckIsDue_thenCheckAfterCalculation()
+    {
+        aggregator.setCheckInterval(Duration.ZERO);
+        when(leagueStatsDAO.findAggregates(SEASON))
+            .thenReturn(new ArrayList<>(calculateStats(teams.values())));
+        aggregator.calculate(SEASON);
+        verify(leagueStatsDAO).mergeCalculateForSeason(SEASON);
+        assertTrue(aggregator.isLoaded(SEASON));
+    }
+
+}
@@ -0,0 +1,275 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.Region;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.dao.PopulationStateDAO;
+import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
+import com.nephest.battlenet.sc2.model.local.inner.LeaguePopulation;
+import com.nephest.battlenet.sc2.util.TestUtil;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+public class PopulationCounterTest
+extends IncrementalSeasonCacheTest<PopulationCounter>
+{
+
+    private static final int TEAM_COUNT = 500;
+    private static final long RATING = 1000;
+
+    @Mock
+    private PopulationStateDAO populationStateDAO;
+
+    @Mock
+    private TeamDAO teamDAO;
+
+    @Captor
+    private ArgumentCaptor<List<LeaguePopulation>> populationCaptor;
+
+    private PopulationCounter counter;
+    private List<Team> teams;
+    private Set<Long> cheaters;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        teams = createTeams(new Random(1), TEAM_COUNT, id->RATING);
+        cheaters = new HashSet<>(Set.of(3L));
+        stubTeams(teamDAO, teams, cheaters);
+        counter = createCache(true);
+    }
+
+    @Override
+    protected PopulationCounter createCache(boolean enabled)
+    {
+        return new PopulationCounter(populationStateDAO, teamDAO, enabled);
+    }
+
+    @Override
+    protected Collection<Team> getTeams()
+    {
+        return teams;
+    }
+
+    @Override
+    protected void calculate(PopulationCounter cache)
+    {
+        cache.takeSnapshot(Set.of(SEASON));
+    }
+
+    @Override
+    protected void verifySqlVersion(PopulationCounter cache)
+    {
+        verify(populationStateDAO).takeSnapshot(Set.of(SEASON));
+        verify(populationStateDAO, never()).takeSnapshot(anyInt(), any());
+    }
+
+    private static Set<LeaguePopulation> calculatePopulation(List<Team> teams, Set<Long> cheaters)
+    {
+        List<Team> counted = teams.stream().filter(t->!cheaters.contains(t.getId())).toList();
+        Set<LeaguePopulation> populations = new HashSet<>();
+        for(Team team : counted)
+        {
+            int[] counts = countTeams(team, counted, (t, other)->true);
+            populations.add(new LeaguePopulation
+            (
+                team.getRegion(),
+                team.getQueueType(),
+                team.getTeamType(),
+                team.getLeagueType(),
+                counts[0], counts[1], counts[2]
+            ));
+        }
+        return populations;
+    }
+
+    private Set<LeaguePopulation> captureSnapshot(int invocations)
+    {
+        return capture
+        (
+            populationStateDAO,
+            invocations,
+            populationCaptor,
+            (dao, captor)->dao.takeSnapshot(eq(SEASON), captor.capture())
+        );
+    }
+
+    @Test
+    public void whenSeeded_thenSnapshotAllLeagues()
+    {
+        counter.takeSnapshot(Set.of(SEASON));
+
+        assertTrue(counter.isLoaded(SEASON));
+        Set<LeaguePopulation> expected = calculatePopulation(teams, cheaters);
+        assertEquals(QUEUES.length * REGIONS.length * LEAGUES.length, expected.size());
+        assertEquals(expected, captureSnapshot(1));
+    }
+
+    @Test
+    public void whenTeamsAreUpdated_thenSnapshotOnlyChangedLeagues()
+    {
+        counter.takeSnapshot(Set.of(SEASON));
+        Set<LeaguePopulation> previous = calculatePopulation(teams, cheaters);
+
+        //nothing has changed
+        counter.update(teams);
+        counter.takeSnapshot(Set.of(SEASON));
+        assertTrue(captureSnapshot(2).isEmpty());
+
+        //moved within the region, only league counts are changed
+        Team moved = teams.get(10);
+        BaseLeague.LeagueType oldLeague = moved.getLeagueType();
+        BaseLeague.LeagueType newLeague = oldLeague == LEAGUES[0] ? LEAGUES[1] : LEAGUES[0];
+        moved.setLeague(new BaseLeague(newLeague, moved.getQueueType(), moved.getTeamType()));
+        counter.update(List.of(moved));
+        counter.takeSnapshot(Set.of(SEASON));
+        Set<LeaguePopulation> current = calculatePopulation(teams, cheaters);
+        Set<LeaguePopulation> changed = new HashSet<>(current);
+        changed.removeAll(previous);
+        assertEquals(2, changed.size());
+        assertEquals(changed, captureSnapshot(3));
+
+        //new team, all leagues of the queue are changed because the global count is changed
+        previous = current;
+        Team inserted = createTeam(TEAM_COUNT + 1, Region.EU, QUEUES[0], LEAGUES[0], RATING);
+        teams.add(inserted);
+        counter.update(List.of(inserted));
+        counter.takeSnapshot(Set.of(SEASON));
+        current = calculatePopulation(teams, cheaters);
+        changed = new HashSet<>(current);
+        changed.removeAll(previous);
+        assertEquals(REGIONS.length * LEAGUES.length, changed.size());
+        assertEquals(changed, captureSnapshot(4));
+    }
+
+    @Test
+    public void whenUpdatedInTransaction_thenApplyTeamsAfterCommit()
+    {
+        counter.takeSnapshot(Set.of(SEASON));
+        Team moved = teams.get(10);
+        BaseLeague.LeagueType oldLeague = moved.getLeagueType();
+        BaseLeague.LeagueType newLeague = oldLeague == LEAGUES[0] ? LEAGUES[1] : LEAGUES[0];
+        moved.setLeague(new BaseLeague(newLeague, moved.getQueueType(), moved.getTeamType()));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            //rolled back
+            counter.update(List.of(moved));
+            TestUtil.completeTransaction(false);
+            counter.takeSnapshot(Set.of(SEASON));
+            assertTrue(captureSnapshot(2).isEmpty());
+
+            //committed
+            counter.update(List.of(moved));
+            counter.takeSnapshot(Set.of(SEASON));
+            assertTrue(captureSnapshot(3).isEmpty());
+            TestUtil.completeTransaction(true);
+            counter.takeSnapshot(Set.of(SEASON));
+            assertEquals(2, captureSnapshot(4).size());
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void whenCheatersChange_thenUpdateCounts()
+    {
+        counter.takeSnapshot(Set.of(SEASON));
+        Set<LeaguePopulation> previous = calculatePopulation(teams, cheaters);
+
+        //different queues, so the changes don't cancel each other out
+        Team newCheater = teams.stream()
+            .filter(t->t.getQueueType() != teams.get(2).getQueueType())
+            .findFirst()
+            .orElseThrow();
+        cheaters.remove(3L);
+        cheaters.add(newCheater.getId());
+        when(teamDAO.findByIds(Set.of(3L))).thenReturn(List.of(teams.get(2)));
+        counter.takeSnapshot(Set.of(SEASON));
+
+        Set<LeaguePopulation> changed = calculatePopulation(teams, cheaters);
+        changed.removeAll(previous);
+        assertFalse(changed.isEmpty());
+        assertEquals(changed, captureSnapshot(2));
+    }
+
+    @Test
+    public void whenWriteFails_thenReseed()
+    {
+        when(populationStateDAO.takeSnapshot(eq(SEASON), any())).thenThrow(new IllegalStateException("test"));
+        assertThrows(IllegalStateException.class, ()->counter.takeSnapshot(Set.of(SEASON)));
+        assertFalse(counter.isLoaded(SEASON));
+    }
+
+    @Test
+    public void testReconcile()
+    {
+        counter.takeSnapshot(Set.of(SEASON));
+        List<LeaguePopulation> expected = new ArrayList<>(calculatePopulation(teams, cheaters));
+        when(populationStateDAO.findLeaguePopulation(SEASON)).thenReturn(expected);
+        assertEquals(0, counter.reconcile(SEASON));
+        assertTrue(counter.isLoaded(SEASON));
+
+        LeaguePopulation population = expected.remove(0);
+        assertEquals(1, counter.reconcile(SEASON));
+        assertFalse(counter.isLoaded(SEASON));
+
+        //reseeded
+        counter.takeSnapshot(Set.of(SEASON));
+        expected.add(new LeaguePopulation
+        (
+            population.region(),
+            population.queueType(),
+            population.teamType(),
+            population.leagueType(),
+            population.globalTeamCount(),
+            population.regionTeamCount(),
+            population.leagueTeamCount() + 1
+        ));
+        assertEquals(1, counter.reconcile(SEASON));
+        assertFalse(counter.isLoaded(SEASON));
+    }
+
+    @Test
+    public void whenReconciliationIsDue_thenReconcileAfterSnapshot()
+    {
+        counter.setReconciliationInterval(Duration.ZERO);
+        when(populationStateDAO.findLeaguePopulation(SEASON))
+            .thenReturn(new ArrayList<>(calculatePopulation(teams, cheaters)));
+        counter.takeSnapshot(Set.of(SEASON));
+        verify(populationStateDAO).findLeaguePopulation(SEASON);
+        assertTrue(counter.isLoaded(SEASON));
+    }
+
+}
@@ -17,6 +17,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.config.AllTestConfig;
 import com.nephest.battlenet.sc2.config.security.SC2PulseAuthority;
 import com.nephest.battlenet.sc2.config.security.WithBlizzardMockUser;
@@ -41,9 +42,9 @@ import com.nephest.battlenet.sc2.model.local.League;
 import com.nephest.battlenet.sc2.model.local.LeagueTier;
 import com.nephest.battlenet.sc2.model.local.Season;
 import com.nephest.battlenet.sc2.model.local.dao.FastTeamDAO;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import com.nephest.battlenet.sc2.util.PartitionedDbWriter;
 import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -88,6 +89,12 @@ public class StatsServiceIT
     @Autowired @Qualifier("dbExecutorService")
     private ExecutorService dbExecutorService;
 
+    @Autowired
+    private PartitionedDbWriter ladderDbWriter;
+
+    @Autowired
+    private LadderBatchPipeline ladderBatchPipeline;
+
     @Autowired
     private MockMvc mvc;
 
@@ -111,19 +118,21 @@ public class StatsServiceIT
         (
             null,
             null,
-            mock(SeasonDAO.class),
+            mock(SeasonRegistry.class),
             null,
             null,
             null,
             teamDAO,
             fastTeamDAO,
+            mock(TeamRankEngine.class),
             null,
             null,
             null,
             null,
             null,
+            mock(LeagueStatsAggregator.class),
             null,
-            null,
+            mock(PopulationCounter.class),
             null,
             null,
             null,
@@ -131,6 +140,8 @@ public class StatsServiceIT
             null,
             validator,
             dbExecutorService,
+            ladderDbWriter,
+            ladderBatchPipeline,
             mock(ClanService.class),
             null
         );
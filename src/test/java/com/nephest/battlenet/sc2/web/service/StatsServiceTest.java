@@ -14,6 +14,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.nephest.battlenet.sc2.cache.SeasonRegistry;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Region;
@@ -28,20 +29,19 @@ import com.nephest.battlenet.sc2.model.local.Season;
 import com.nephest.battlenet.sc2.model.local.dao.AccountDAO;
 import com.nephest.battlenet.sc2.model.local.dao.DivisionDAO;
 import com.nephest.battlenet.sc2.model.local.dao.FastTeamDAO;
+import com.nephest.battlenet.sc2.model.local.dao.LadderValidatorDAO;
 import com.nephest.battlenet.sc2.model.local.dao.LeagueDAO;
-import com.nephest.battlenet.sc2.model.local.dao.LeagueStatsDAO;
 import com.nephest.battlenet.sc2.model.local.dao.LeagueTierDAO;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterDAO;
 import com.nephest.battlenet.sc2.model.local.dao.PlayerCharacterStatsDAO;
-import com.nephest.battlenet.sc2.model.local.dao.PopulationStateDAO;
 import com.nephest.battlenet.sc2.model.local.dao.QueueStatsDAO;
-import com.nephest.battlenet.sc2.model.local.dao.SeasonDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamMemberDAO;
 import com.nephest.battlenet.sc2.model.local.dao.TeamStateDAO;
 import com.nephest.battlenet.sc2.model.local.dao.VarDAO;
 import com.nephest.battlenet.sc2.model.util.SC2Pulse;
 import com.nephest.battlenet.sc2.service.EventService;
+import com.nephest.battlenet.sc2.util.PartitionedDbWriter;
 import com.nephest.battlenet.sc2.web.SeasonService;
 import java.time.Instant;
 import java.util.concurrent.ExecutorService;
@@ -71,7 +71,7 @@ public class StatsServiceTest
     private BlizzardSC2API api;
 
     @Mock
-    private SeasonDAO seasonDao;
+    private SeasonRegistry seasonRegistry;
 
     @Mock
     private LeagueDAO leagueDao;
@@ -85,6 +85,9 @@ public class StatsServiceTest
     @Mock
     private FastTeamDAO fastTeamDAO;
 
+    @Mock
+    private TeamRankEngine teamRankEngine;
+
     @Mock
     private TeamDAO teamDao;
 
@@ -107,17 +110,20 @@ public class StatsServiceTest
     private QueueStatsDAO queueStatsDAO;
 
     @Mock
-    private LeagueStatsDAO leagueStatsDao;
+    private LeagueStatsAggregator leagueStatsAggregator;
 
     @Mock
     private PlayerCharacterStatsDAO playerCharacterStatsDAO;
 
     @Mock
-    private PopulationStateDAO populationStateDAO;
+    private PopulationCounter populationCounter;
 
     @Mock
     private VarDAO varDAO;
 
+    @Mock
+    private LadderValidatorDAO ladderValidatorDAO;
+
     @Mock
     private SeasonService seasonService;
 
@@ -129,6 +135,10 @@ public class StatsServiceTest
 
     private final ExecutorService dbExecutorService = Executors.newSingleThreadExecutor();
 
+    private final PartitionedDbWriter ladderDbWriter = new PartitionedDbWriter(1);
+
+    private final LadderBatchPipeline ladderBatchPipeline = new LadderBatchPipeline();
+
     @Mock
     private EventService eventService;
 
@@ -145,26 +155,30 @@ public class StatsServiceTest
         (
             alternativeLadderService,
             api,
-            seasonDao,
+            seasonRegistry,
             leagueDao,
             leagueTierDao,
             divisionDao,
             teamDao,
             fastTeamDAO,
+            teamRankEngine,
             teamStateDAO,
             accountDao,
             playerCharacterDao,
             teamMemberDao,
             queueStatsDAO,
-            leagueStatsDao,
+            leagueStatsAggregator,
             playerCharacterStatsDAO,
-            populationStateDAO,
+            populationCounter,
             varDAO,
+            ladderValidatorDAO,
             seasonService,
             sc2WebServiceUtil,
             conversionService,
             validator,
             dbExecutorService,
+            ladderDbWriter,
+            ladderBatchPipeline,
             clanService,
             eventService
         );
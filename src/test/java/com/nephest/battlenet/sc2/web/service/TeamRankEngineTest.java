@@ -0,0 +1,267 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.nephest.battlenet.sc2.model.BaseLeague;
+import com.nephest.battlenet.sc2.model.local.Team;
+import com.nephest.battlenet.sc2.model.local.dao.TeamDAO;
+import com.nephest.battlenet.sc2.model.local.inner.TeamRank;
+import com.nephest.battlenet.sc2.util.TestUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+public class TeamRankEngineTest
+extends IncrementalSeasonCacheTest<TeamRankEngine>
+{
+
+    private static final int TEAM_COUNT = 1500;
+
+    @Mock
+    private TeamDAO teamDAO;
+
+    @Captor
+    private ArgumentCaptor<List<TeamRank>> ranksCaptor;
+
+    private TeamRankEngine engine;
+    private List<Team> teams;
+    private Set<Long> cheaters;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        teams = createTeams(new Random(1));
+        cheaters = new HashSet<>(Set.of(3L));
+        stubTeams(teamDAO, teams, cheaters);
+        engine = createCache(true);
+    }
+
+    @Override
+    protected TeamRankEngine createCache(boolean enabled)
+    {
+        return new TeamRankEngine(teamDAO, enabled, false);
+    }
+
+    @Override
+    protected Collection<Team> getTeams()
+    {
+        return teams;
+    }
+
+    @Override
+    protected void calculate(TeamRankEngine cache)
+    {
+        cache.updateRanks(SEASON);
+    }
+
+    @Override
+    protected void verifySqlVersion(TeamRankEngine cache)
+    {
+        verify(teamDAO).updateRanks(SEASON);
+        verify(teamDAO, never()).find(any(), anyInt());
+        verify(teamDAO, never()).updateRanks(anyList());
+    }
+
+    /*
+        Various leagues, regions, and queues. Many rating ties, one rating is beyond the
+        default tree capacity.
+     */
+    private static List<Team> createTeams(Random random)
+    {
+        return createTeams(random, TEAM_COUNT, id->id == TEAM_COUNT ? 7000 : random.nextInt(3000));
+    }
+
+    private static Set<TeamRank> calculateRanks(List<Team> teams, Set<Long> cheaters)
+    {
+        List<Team> ranked = teams.stream().filter(t->!cheaters.contains(t.getId())).toList();
+        Set<TeamRank> ranks = new HashSet<>();
+        for(Team team : ranked)
+        {
+            int[] higher = countTeams(team, ranked, (t, other)->other.getRating() > t.getRating());
+            ranks.add(new TeamRank(team.getId(), higher[0] + 1, higher[1] + 1, higher[2] + 1));
+        }
+        return ranks;
+    }
+
+    private Set<TeamRank> captureWrittenRanks(int invocations)
+    {
+        return capture(teamDAO, invocations, ranksCaptor, (dao, captor)->dao.updateRanks(captor.capture()));
+    }
+
+    @Test
+    public void whenSeeded_thenWriteAllRanksAndNullifyCheaterRanks()
+    {
+        engine.updateRanks(SEASON);
+
+        assertTrue(engine.isLoaded(SEASON));
+        Set<TeamRank> expected = calculateRanks(teams, cheaters);
+        assertEquals(TEAM_COUNT - 1, expected.size());
+        assertEquals(expected, captureWrittenRanks(1));
+        verify(teamDAO).nullifyRanks(Set.of(3L));
+        verify(teamDAO).updatePopulationStateIds(SEASON);
+    }
+
+    @Test
+    public void whenTeamsAreUpdated_thenWriteOnlyMovedRanks()
+    {
+        engine.updateRanks(SEASON);
+        Set<TeamRank> previous = calculateRanks(teams, cheaters);
+
+        //nothing has changed
+        engine.update(teams);
+        engine.updateRanks(SEASON);
+        assertTrue(captureWrittenRanks(2).isEmpty());
+
+        List<Team> changed = List.of(teams.get(10), teams.get(20), teams.get(30));
+        teams.get(10).setRating(teams.get(10).getRating() + 500);
+        teams.get(20).setRating(0L);
+        teams.get(30).setLeague(new BaseLeague
+        (
+            BaseLeague.LeagueType.MASTER,
+            teams.get(30).getQueueType(),
+            teams.get(30).getTeamType()
+        ));
+        engine.update(changed);
+        engine.updateRanks(SEASON);
+
+        Set<TeamRank> current = calculateRanks(teams, cheaters);
+        Set<TeamRank> moved = new HashSet<>(current);
+        moved.removeAll(previous);
+        assertFalse(moved.isEmpty());
+        assertEquals(moved, captureWrittenRanks(3));
+        for(TeamRank rank : current) assertEquals(rank, engine.getRank(SEASON, rank.teamId()));
+    }
+
+    @Test
+    public void whenUpdatedInTransaction_thenApplyTeamsAfterCommit()
+    {
+        engine.updateRanks(SEASON);
+        Team team = teams.get(10);
+        TeamRank rank = engine.getRank(SEASON, team.getId());
+        team.setRating(team.getRating() + 10_000);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try
+        {
+            //rolled back
+            engine.update(List.of(team));
+            assertEquals(rank, engine.getRank(SEASON, team.getId()));
+            TestUtil.completeTransaction(false);
+            assertEquals(rank, engine.getRank(SEASON, team.getId()));
+
+            //committed
+            engine.update(List.of(team));
+            assertEquals(rank, engine.getRank(SEASON, team.getId()));
+            TestUtil.completeTransaction(true);
+            assertEquals(1, engine.getRank(SEASON, team.getId()).globalRank());
+        }
+        finally
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void whenCheatersChange_thenRerankAffectedPartitions()
+    {
+        engine.updateRanks(SEASON);
+        Set<TeamRank> previous = calculateRanks(teams, cheaters);
+
+        cheaters.remove(3L);
+        cheaters.add(TEAM_COUNT - 1L);
+        when(teamDAO.findByIds(Set.of(3L))).thenReturn(List.of(teams.get(2)));
+        engine.updateRanks(SEASON);
+
+        verify(teamDAO).nullifyRanks(Set.of(TEAM_COUNT - 1L));
+        Set<TeamRank> current = calculateRanks(teams, cheaters);
+        Set<TeamRank> moved = new HashSet<>(current);
+        moved.removeAll(previous);
+        assertTrue(moved.stream().anyMatch(r->r.teamId() == 3L));
+        assertEquals(moved, captureWrittenRanks(2));
+        assertNull(engine.getRank(SEASON, TEAM_COUNT - 1L));
+    }
+
+    @Test
+    public void whenWriteFails_thenReseed()
+    {
+        when(teamDAO.updateRanks(anyList())).thenThrow(new IllegalStateException("test"));
+        assertThrows(IllegalStateException.class, ()->engine.updateRanks(SEASON));
+        assertFalse(engine.isLoaded(SEASON));
+        verify(teamDAO, never()).updatePopulationStateIds(anyInt());
+    }
+
+    @Test
+    public void testVerify()
+    {
+        engine.updateRanks(SEASON);
+        List<TeamRank> expected = new ArrayList<>(calculateRanks(teams, cheaters));
+        when(teamDAO.findRanks(SEASON)).thenReturn(expected);
+        assertEquals(0, engine.verify(SEASON));
+        assertTrue(engine.isLoaded(SEASON));
+
+        TeamRank rank = expected.get(0);
+        expected.set(0, new TeamRank(rank.teamId(), rank.globalRank() + 1, rank.regionRank(), rank.leagueRank()));
+        assertEquals(1, engine.verify(SEASON));
+        assertFalse(engine.isLoaded(SEASON));
+    }
+
+    @Test
+    public void testRatingTree()
+    {
+        Random random = new Random(2);
+        TeamRankEngine.RatingTree tree = new TeamRankEngine.RatingTree();
+        int[] counts = new int[20_001];
+        List<Integer> added = new ArrayList<>();
+        for(int i = 0; i < 5000; i++)
+        {
+            //the domain grows gradually, nodes are rebuilt several times
+            int rating = random.nextInt(Math.min(20_001, 500 + i * 4));
+            if(!added.isEmpty() && random.nextInt(4) == 0)
+            {
+                rating = added.remove(random.nextInt(added.size()));
+                tree.add(rating, -1);
+                counts[rating]--;
+            }
+            else
+            {
+                added.add(rating);
+                tree.add(rating, 1);
+                counts[rating]++;
+            }
+        }
+        assertEquals(added.size(), tree.getTotal());
+        int lowerOrEqual = 0;
+        for(int rating = 0; rating < counts.length; rating++)
+        {
+            lowerOrEqual += counts[rating];
+            assertEquals(lowerOrEqual, tree.countLowerOrEqual(rating));
+            assertEquals(added.size() - lowerOrEqual, tree.countGreater(rating));
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+// Copyright (C) 2020-2025 Oleksandr Masniuk
+// SPDX-License-Identifier: AGPL-3.0-or-later
+
+package com.nephest.battlenet.sc2.web.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.nephest.battlenet.sc2.config.AllTestConfig;
+import com.nephest.battlenet.sc2.model.local.SeasonGenerator;
+import com.nephest.battlenet.sc2.model.local.dao.PartitionDAO;
+import com.nephest.battlenet.sc2.model.local.dao.TeamStateDAO;
+import com.nephest.battlenet.sc2.model.local.inner.RangePartition;
+import com.nephest.battlenet.sc2.model.util.SC2Pulse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+@SpringBootTest(classes = AllTestConfig.class)
+@TestPropertySource("classpath:application.properties")
+@TestPropertySource("classpath:application-private.properties")
+public class TeamStatePartitionIT
+{
+
+    public static final int TEAM_COUNT = 10;
+    public static final int MAIN_LENGTH_DAYS = 360;
+
+    @Autowired
+    private TeamStateService teamStateService;
+
+    @Autowired
+    private TeamStateDAO teamStateDAO;
+
+    @Autowired
+    private PartitionDAO partitionDAO;
+
+    @Autowired
+    private SeasonGenerator seasonGenerator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int mainLengthBefore;
+
+    @BeforeEach
+    public void beforeEach(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-postgres.sql"));
+        }
+        mainLengthBefore = teamStateService.getMainLengthDays();
+        teamStateService.setMainLengthDays(MAIN_LENGTH_DAYS);
+        seasonGenerator.generateDefaultSeason(TEAM_COUNT);
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        teamStateService.setMainLengthDays(mainLengthBefore);
+    }
+
+    @AfterAll
+    public static void afterAll(@Autowired DataSource dataSource)
+    throws SQLException
+    {
+        try(Connection connection = dataSource.getConnection())
+        {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema-drop-postgres.sql"));
+        }
+    }
+
+    private void createStates(OffsetDateTime odt)
+    {
+        jdbcTemplate.update
+        (
+            "INSERT INTO team_state(team_id, \"timestamp\", division_id, games, rating) "
+            + "SELECT id, ?, division_id, 1, 1 FROM team",
+            odt
+        );
+    }
+
+    private long getPartitionSize(String partition)
+    {
+        return jdbcTemplate
+            .queryForObject("SELECT pg_relation_size(?::regclass)", Long.class, partition);
+    }
+
+    @Test
+    public void whenPartitionsAreMissing_thenCreateThemAhead()
+    {
+        OffsetDateTime now = SC2Pulse.offsetDateTime();
+        assertTrue(teamStateDAO.isPartitioned());
+        assertTrue(partitionDAO.findRangePartitions(TeamStateDAO.TABLE).isEmpty());
+
+        List<RangePartition> created = teamStateService.createPartitions();
+        assertFalse(created.isEmpty());
+        //starts after the last state of the default partition
+        assertEquals
+        (
+            now.withOffsetSameInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant(),
+            created.get(0).from().toInstant()
+        );
+        assertTrue(created.get(created.size() - 1).to().isAfter(now.plusDays(
+            (long) teamStateService.getPartitionLengthDays() * TeamStateService.PARTITIONS_AHEAD)));
+        for(int i = 1; i < created.size(); i++)
+            assertEquals(created.get(i - 1).to().toInstant(), created.get(i).from().toInstant());
+        assertEquals(created.size(), partitionDAO.findRangePartitions(TeamStateDAO.TABLE).size());
+        //the default partition is bounded so that new partitions don't scan it
+        assertTrue(partitionDAO.isDefaultPartitionBounded(TeamStateDAO.TABLE, created.get(0).from()));
+
+        //already created
+        assertTrue(teamStateService.createPartitions().isEmpty());
+
+        //new states are routed to range partitions
+        createStates(created.get(0).from().plusMinutes(1));
+        assertEquals
+        (
+            TEAM_COUNT,
+            JdbcTestUtils.countRowsInTable(jdbcTemplate, created.get(0).name())
+        );
+    }
+
+    @Test
+    public void whenPartitionIsExpired_thenRotateItWithoutBloat()
+    {
+        OffsetDateTime from = SC2Pulse.offsetDateTime()
+            .minusDays(MAIN_LENGTH_DAYS + 60)
+            .withOffsetSameInstant(ZoneOffset.UTC)
+            .truncatedTo(ChronoUnit.DAYS);
+        RangePartition expired = new RangePartition
+        (
+            PartitionDAO.getPartitionName(TeamStateDAO.TABLE, from),
+            from,
+            from.plusDays(30)
+        );
+        partitionDAO.createRangePartition(TeamStateDAO.TABLE, expired);
+        for(int i = 0; i < 100; i++) createStates(from.plusMinutes(i));
+        //archive 2 states
+        jdbcTemplate.update
+        (
+            "INSERT INTO team_state_archive(team_id, \"timestamp\") "
+            + "SELECT team_id, \"timestamp\" FROM team_state "
+            + "WHERE team_id = (SELECT MIN(id) FROM team) AND \"timestamp\" IN(?, ?)",
+            from, from.plusMinutes(99)
+        );
+        int defaultCount = JdbcTestUtils.countRowsInTable(jdbcTemplate, TeamStateDAO.DEFAULT_PARTITION);
+        assertEquals(TEAM_COUNT * 100, JdbcTestUtils.countRowsInTable(jdbcTemplate, expired.name()));
+        assertTrue(getPartitionSize(expired.name()) > 8192);
+
+        teamStateService.updatePartitions();
+
+        List<RangePartition> partitions = partitionDAO.findRangePartitions(TeamStateDAO.TABLE);
+        assertTrue(partitions.stream().noneMatch(p->p.name().equals(expired.name())));
+        RangePartition archived = partitions.get(0);
+        assertEquals(expired.name() + TeamStateDAO.ARCHIVED_PARTITION_SUFFIX, archived.name());
+        assertEquals(expired.from().toInstant(), archived.from().toInstant());
+        assertEquals(expired.to().toInstant(), archived.to().toInstant());
+        assertTrue(partitions.size() > 1);
+
+        //only archived states are left, the space is released immediately
+        assertEquals(2, JdbcTestUtils.countRowsInTable(jdbcTemplate, archived.name()));
+        assertEquals(8192, getPartitionSize(archived.name()));
+        assertEquals(2, JdbcTestUtils.countRowsInTable(jdbcTemplate, "team_state_archive"));
+        assertEquals(defaultCount, JdbcTestUtils.countRowsInTable(jdbcTemplate, TeamStateDAO.DEFAULT_PARTITION));
+        assertEquals(defaultCount + 2, JdbcTestUtils.countRowsInTable(jdbcTemplate, TeamStateDAO.TABLE));
+
+        //archived partitions are not rotated again
+        assertTrue(teamStateService.rotatePartitions().isEmpty());
+    }
+
+}
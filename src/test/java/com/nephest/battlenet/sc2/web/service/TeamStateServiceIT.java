@@ -4,6 +4,8 @@
 package com.nephest.battlenet.sc2.web.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
@@ -35,6 +37,7 @@ import com.nephest.battlenet.sc2.model.local.dao.TeamStateDAO;
 import com.nephest.battlenet.sc2.model.local.dao.VarDAO;
 import com.nephest.battlenet.sc2.model.local.inner.RawTeamHistoryHistoryData;
 import com.nephest.battlenet.sc2.model.local.inner.RawTeamHistoryStaticData;
+import com.nephest.battlenet.sc2.model.local.inner.SeasonCursor;
 import com.nephest.battlenet.sc2.model.local.inner.TeamHistory;
 import com.nephest.battlenet.sc2.model.local.inner.TeamHistoryDAO;
 import com.nephest.battlenet.sc2.model.local.inner.TeamLegacyId;
@@ -53,6 +56,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.sql.DataSource;
 import org.junit.jupiter.api.AfterAll;
@@ -486,6 +490,76 @@ public class TeamStateServiceIT
         );
     }
 
+    @Test
+    public void whenChunked_thenFinalizeAndArchiveInChunksAndResumeFromCursor()
+    throws InterruptedException
+    {
+        OffsetDateTime start = SC2Pulse.offsetDateTime().minusYears(1);
+        OffsetDateTime end = start.plusMonths(1);
+        int teamCount = 5;
+        seasonGenerator.generateSeason
+        (
+            List.of
+            (
+                new Season(null, 10, Region.EU, start.getYear(), 1, start, end),
+                new Season(null, 11, Region.EU, start.getYear(), 2, end, end.plusMonths(1))
+            ),
+            List.of(BaseLeague.LeagueType.BRONZE),
+            List.of(QueueType.LOTV_1V1),
+            TeamType.ARRANGED,
+            BaseLeagueTier.LeagueTierType.FIRST,
+            teamCount
+        );
+        List<Long> teamIds = jdbcTemplate
+            .queryForList("SELECT id FROM team WHERE season = 10 ORDER BY id", Long.class);
+        int stateCount = JdbcTestUtils.countRowsInTable(jdbcTemplate, "team_state");
+        //the first 2 teams were finalized before an interruption
+        teamStateService.getFinalizationCursorVars().get(Region.EU)
+            .setValueAndSave(new SeasonCursor(10, teamIds.get(1)));
+        boolean chunkedBefore = teamStateService.isChunked();
+        int chunkSizeBefore = teamStateService.getChunkSize();
+        teamStateService.setChunked(true);
+        teamStateService.setChunkSize(2);
+        try
+        {
+            BlockingQueue<LadderUpdateData> eventData = new ArrayBlockingQueue<>(1);
+            disposables.add(teamStateService.getUpdateEvent().subscribe(eventData::add));
+            eventService.createLadderUpdateEvent(createUpdateData(11));
+            eventData.take();
+        }
+        finally
+        {
+            teamStateService.setChunked(chunkedBefore);
+            teamStateService.setChunkSize(chunkSizeBefore);
+        }
+
+        assertEquals
+        (
+            stateCount + teamCount - 2,
+            JdbcTestUtils.countRowsInTable(jdbcTemplate, "team_state")
+        );
+        assertEquals(10L, (long) teamStateService.getLastFinalizedSeasonVars().get(Region.EU).getValue());
+        assertEquals(10L, (long) teamStateService.getLastArchiveSeasonVars().get(Region.EU).getValue());
+        assertNull(teamStateService.getFinalizationCursorVars().get(Region.EU).load());
+        assertNull(teamStateService.getArchiveCursorVars().get(Region.EU).load());
+
+        Map<String, TeamStateService.JobProgress> progress = teamStateService.getJobProgress().stream()
+            .collect(Collectors.toMap(TeamStateService.JobProgress::job, Function.identity()));
+        TeamStateService.JobProgress finalization = progress.get(TeamStateService.FINALIZATION_JOB);
+        assertEquals(2, finalization.chunks());
+        assertEquals(teamCount - 2, finalization.rows());
+        assertEquals((long) teamIds.get(teamIds.size() - 1), finalization.cursor());
+        assertNotNull(finalization.completed());
+        TeamStateService.JobProgress archive = progress.get(TeamStateService.ARCHIVE_JOB);
+        assertEquals(3, archive.chunks());
+        assertEquals
+        (
+            JdbcTestUtils.countRowsInTable(jdbcTemplate, "team_state_archive"),
+            archive.rows()
+        );
+        assertNotNull(archive.completed());
+    }
+
     @Test
     public void whenFirstClear_thenClearFromMinOdt()
     throws Exception
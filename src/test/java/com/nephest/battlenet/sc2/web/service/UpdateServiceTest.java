@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.when;
 
+import com.nephest.battlenet.sc2.cache.DataVersionRegistry;
 import com.nephest.battlenet.sc2.model.BaseLeague;
 import com.nephest.battlenet.sc2.model.QueueType;
 import com.nephest.battlenet.sc2.model.Region;
@@ -40,13 +41,16 @@ public class UpdateServiceTest
     @Mock
     private LadderUpdateDAO ladderUpdateDAO;
 
+    @Mock
+    private DataVersionRegistry dataVersionRegistry;
+
     private UpdateService updateService;
 
     @BeforeEach
     public void beforeEach()
     {
         when(eventService.getLadderUpdateEvent()).thenReturn(Flux.empty());
-        updateService = new UpdateService(varDAO, eventService, ladderUpdateDAO);
+        updateService = new UpdateService(varDAO, eventService, ladderUpdateDAO, dataVersionRegistry);
         updateService.init();
     }
 
@@ -49,5 +49,6 @@ DROP TABLE IF EXISTS "season_state" CASCADE;
 DROP TABLE IF EXISTS "population_state" CASCADE;
 DROP TABLE IF EXISTS "season" CASCADE;
 DROP TABLE IF EXISTS "ladder_update" CASCADE;
+DROP TABLE IF EXISTS "ladder_validator" CASCADE;
 DROP SCHEMA IF EXISTS "audit" CASCADE;
 